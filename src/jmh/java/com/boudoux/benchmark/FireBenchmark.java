@@ -0,0 +1,105 @@
+package com.boudoux.benchmark;
+
+import com.boudoux.Activations;
+import com.boudoux.NeuralNetwork;
+import com.boudoux.Workspace;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the inference of a single sample. Run it with <code>-t N</code> to measure N threads sharing the same
+ * network, each one with its own workspace.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FireBenchmark {
+
+    private static final int TOTAL_INPUTS = 64;
+
+    @State(Scope.Benchmark)
+    public static class Model {
+        @Param({"MNIST", "DEEP_NARROW", "WIDE_SHALLOW"})
+        public Topology topology;
+
+        @Param({"SIGMOID", "FAST_SIGMOID", "TANH", "RELU"})
+        public Activations activation;
+
+        NeuralNetwork network;
+
+        // the same weights in direct buffers
+        NeuralNetwork offHeap;
+
+        double[][] inputs;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Random random = new Random(42);
+            this.network = this.topology.newNetwork(this.activation);
+            this.offHeap = this.network.toOffHeap();
+            this.inputs = this.topology.newInputs(TOTAL_INPUTS, random);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Caller {
+        Workspace workspace;
+
+        Workspace offHeapWorkspace;
+
+        double[] output;
+
+        int next;
+
+        @Setup(Level.Trial)
+        public void setup(Model model) {
+            this.workspace = model.network.newWorkspace();
+            this.offHeapWorkspace = model.offHeap.newWorkspace();
+            this.output = new double[model.network.getTotalOutputNodes()];
+        }
+
+        double[] nextInput(Model model) {
+            this.next = (this.next + 1) % TOTAL_INPUTS;
+            return model.inputs[this.next];
+        }
+    }
+
+    /**
+     * The legacy call, which allocates the returned array
+     */
+    @Benchmark
+    public double[] fire(Model model, Caller caller) {
+        return model.network.fire(caller.nextInput(model));
+    }
+
+    /**
+     * The allocation-free call
+     */
+    @Benchmark
+    public double[] fireWithWorkspace(Model model, Caller caller) {
+        return model.network.fire(caller.nextInput(model), caller.workspace, caller.output);
+    }
+
+    /**
+     * The allocation-free call with the weights read from direct buffers
+     */
+    @Benchmark
+    public double[] fireOffHeap(Model model, Caller caller) {
+        return model.offHeap.fire(caller.nextInput(model), caller.offHeapWorkspace, caller.output);
+    }
+}
@@ -0,0 +1,54 @@
+package com.boudoux.benchmark;
+
+import com.boudoux.Activations;
+import com.boudoux.NeuralNetwork;
+import com.boudoux.WeightInitializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time to fill all the weights of a network from a seed, in milliseconds, on the common pool.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InitializeBenchmark {
+
+    // the multi-million parameters ones
+    @Param({"WIDE_SHALLOW", "HIGH_DIMENSIONAL"})
+    public Topology topology;
+
+    @Param({"BOOK", "HE"})
+    public WeightInitializer.Scheme scheme;
+
+    NeuralNetwork network;
+
+    WeightInitializer initializer;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.network = this.topology.newNetwork(Activations.RELU);
+        this.initializer = new WeightInitializer(42L, this.scheme);
+    }
+
+    @Benchmark
+    public NeuralNetwork initialize() {
+        this.initializer.initialize(this.network);
+        return this.network;
+    }
+}
@@ -0,0 +1,107 @@
+package com.boudoux.benchmark;
+
+import com.boudoux.Activations;
+import com.boudoux.NeuralNetwork;
+import com.boudoux.SparseVector;
+import com.boudoux.Workspace;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares firing and training with dense inputs against the same inputs as {@link SparseVector}s, in samples per
+ * second over {@link #TOTAL_SAMPLES} samples. A density of 0.19 is about the share of non-zero pixels of MNIST scaled
+ * with <code>PixelScaling.RAW</code>.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SparseInputBenchmark {
+
+    static final int TOTAL_SAMPLES = 64;
+
+    @Param({"MNIST", "HIGH_DIMENSIONAL"})
+    public Topology topology;
+
+    @Param({"0.01", "0.19", "0.5"})
+    public double density;
+
+    NeuralNetwork network;
+
+    Workspace workspace;
+
+    double[] output;
+
+    double[][] inputs;
+
+    SparseVector[] sparseInputs;
+
+    double[][] targets;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        this.network = this.topology.newNetwork(Activations.SIGMOID);
+        this.workspace = this.network.newWorkspace();
+        this.output = new double[this.network.getTotalOutputNodes()];
+        this.inputs = this.topology.newSparseInputs(TOTAL_SAMPLES, this.density, random);
+        this.targets = this.topology.newTargets(TOTAL_SAMPLES, random);
+
+        this.sparseInputs = new SparseVector[TOTAL_SAMPLES];
+        for(int idxSample = 0; idxSample < TOTAL_SAMPLES; idxSample++) {
+            this.sparseInputs[idxSample] = SparseVector.of(this.inputs[idxSample]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TOTAL_SAMPLES)
+    public double[] fireDense() {
+        for(int idxSample = 0; idxSample < TOTAL_SAMPLES; idxSample++) {
+            this.network.fire(this.inputs[idxSample], this.workspace, this.output);
+        }
+
+        return this.output;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TOTAL_SAMPLES)
+    public double[] fireSparse() {
+        for(int idxSample = 0; idxSample < TOTAL_SAMPLES; idxSample++) {
+            this.network.fire(this.sparseInputs[idxSample], this.workspace, this.output);
+        }
+
+        return this.output;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TOTAL_SAMPLES)
+    public void trainDense() {
+        for(int idxSample = 0; idxSample < TOTAL_SAMPLES; idxSample++) {
+            this.network.train(this.inputs[idxSample], this.targets[idxSample]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TOTAL_SAMPLES)
+    public void trainSparse() {
+        for(int idxSample = 0; idxSample < TOTAL_SAMPLES; idxSample++) {
+            this.network.train(this.sparseInputs[idxSample], this.targets[idxSample]);
+        }
+    }
+}
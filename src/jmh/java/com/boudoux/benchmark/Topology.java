@@ -0,0 +1,105 @@
+package com.boudoux.benchmark;
+
+import com.boudoux.Activation;
+import com.boudoux.NeuralNetwork;
+import com.boudoux.WeightInitializer;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The topologies covered by the benchmarks.
+ */
+public enum Topology {
+
+    /**
+     * 784-100-10, the one trained by the NetworkTrainer
+     */
+    MNIST(784, new int[][]{{100}}, 10),
+
+    /**
+     * 64-(32 x 6)-10
+     */
+    DEEP_NARROW(64, new int[][]{{32}, {32}, {32}, {32}, {32}, {32}}, 10),
+
+    /**
+     * 2048-1024-10
+     */
+    WIDE_SHALLOW(2048, new int[][]{{1024}}, 10),
+
+    /**
+     * 20000-64-10, like hashed or one-hot features, where the first layer holds almost all the weights
+     */
+    HIGH_DIMENSIONAL(20_000, new int[][]{{64}}, 10);
+
+    private final int totalInputNodes;
+
+    private final int[][] nodesByHiddenLayer;
+
+    private final int totalOutputNodes;
+
+    Topology(int totalInputNodes, int[][] nodesByHiddenLayer, int totalOutputNodes) {
+        this.totalInputNodes = totalInputNodes;
+        this.nodesByHiddenLayer = nodesByHiddenLayer;
+        this.totalOutputNodes = totalOutputNodes;
+    }
+
+    public NeuralNetwork newNetwork(Activation activation) {
+        NeuralNetwork network = new NeuralNetwork(0.1, activation, this.totalInputNodes, this.nodesByHiddenLayer, this.totalOutputNodes, null);
+
+        // the same weights on every run
+        new WeightInitializer(42L, WeightInitializer.Scheme.BOOK).initialize(network);
+
+        return network;
+    }
+
+    /**
+     * @param totalSamples
+     * @param random
+     * @return inputs within [0.01, 1.0], like the scaled MNIST pixels
+     */
+    public double[][] newInputs(int totalSamples, Random random) {
+        double[][] inputs = new double[totalSamples][this.totalInputNodes];
+        for(double[] input : inputs) {
+            for(int idx = 0; idx < input.length; idx++) {
+                input[idx] = random.nextDouble() * 0.99 + 0.01;
+            }
+        }
+
+        return inputs;
+    }
+
+    /**
+     * @param totalSamples
+     * @param density the fraction of non-zero inputs, e.g. about 0.19 for the raw MNIST pixels
+     * @param random
+     * @return inputs within (0.0, 1.0] at random positions, zero elsewhere
+     */
+    public double[][] newSparseInputs(int totalSamples, double density, Random random) {
+        double[][] inputs = new double[totalSamples][this.totalInputNodes];
+        for(double[] input : inputs) {
+            for(int idx = 0; idx < input.length; idx++) {
+                if(random.nextDouble() < density) {
+                    input[idx] = 1.0 - random.nextDouble();
+                }
+            }
+        }
+
+        return inputs;
+    }
+
+    /**
+     * @param totalSamples
+     * @param random
+     * @return one-hot targets (0.01/0.99)
+     */
+    public double[][] newTargets(int totalSamples, Random random) {
+        double[][] targets = new double[totalSamples][this.totalOutputNodes];
+        for(double[] target : targets) {
+            Arrays.fill(target, 0.01);
+            target[random.nextInt(this.totalOutputNodes)] = 0.99;
+        }
+
+        return targets;
+    }
+}
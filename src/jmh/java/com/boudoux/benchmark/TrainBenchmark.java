@@ -0,0 +1,125 @@
+package com.boudoux.benchmark;
+
+import com.boudoux.Activations;
+import com.boudoux.NeuralNetwork;
+import com.boudoux.training.ParallelTrainer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the training throughput, in samples per second, over one pass of {@link #TOTAL_SAMPLES} samples.
+ *
+ * Each benchmark takes the state holding only the parameters it reads, so JMH does not repeat it for the batch
+ * sizes or the threads it would ignore.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrainBenchmark {
+
+    static final int TOTAL_SAMPLES = 256;
+
+    @State(Scope.Benchmark)
+    public static class Online {
+        @Param({"MNIST", "DEEP_NARROW", "WIDE_SHALLOW"})
+        public Topology topology;
+
+        @Param({"SIGMOID", "RELU"})
+        public Activations activation;
+
+        NeuralNetwork network;
+
+        double[][] inputs;
+
+        double[][] targets;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Random random = new Random(42);
+            this.network = this.topology.newNetwork(this.activation);
+            this.inputs = this.topology.newInputs(TOTAL_SAMPLES, random);
+            this.targets = this.topology.newTargets(TOTAL_SAMPLES, random);
+            this.configure();
+        }
+
+        // the parameters of the subclasses, once the network exists (JMH does not order their setups)
+        void configure() {
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Batch extends Online {
+        @Param({"1", "32", "128"})
+        public int batchSize;
+
+        @Override
+        void configure() {
+            this.network.setBatchSize(this.batchSize);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Parallel extends Batch {
+        @Param({"1", "4", "16"})
+        public int threads;
+
+        ParallelTrainer trainer;
+
+        @Override
+        void configure() {
+            super.configure();
+            this.trainer = new ParallelTrainer(this.network, this.threads, false);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            this.trainer.close();
+        }
+    }
+
+    /**
+     * Online training, one sample at a time
+     */
+    @Benchmark
+    @OperationsPerInvocation(TOTAL_SAMPLES)
+    public void train(Online state) {
+        for(int idxSample = 0; idxSample < TOTAL_SAMPLES; idxSample++) {
+            state.network.train(state.inputs[idxSample], state.targets[idxSample]);
+        }
+    }
+
+    /**
+     * Single-threaded mini-batches
+     */
+    @Benchmark
+    @OperationsPerInvocation(TOTAL_SAMPLES)
+    public void trainBatch(Batch state) {
+        state.network.trainBatch(state.inputs, state.targets);
+    }
+
+    /**
+     * Data-parallel mini-batches
+     */
+    @Benchmark
+    @OperationsPerInvocation(TOTAL_SAMPLES)
+    public void parallelTrainBatch(Parallel state) {
+        state.trainer.trainBatch(state.inputs, state.targets);
+    }
+}
@@ -0,0 +1,79 @@
+package com.boudoux;
+
+import java.util.function.DoubleFunction;
+
+/**
+ * The threshold (activation) function applied to the weighted sum of each node, working over primitive doubles.
+ *
+ * See {@link Activations} for the built-in functions.
+ */
+public interface Activation {
+
+    /**
+     * @param input the weighted sum of a node
+     * @return the output of the node
+     */
+    double apply(double input);
+
+    /**
+     * The derivative of the function expressed in terms of its own output, as this is what the training has at
+     * hand, e.g. <code>output * (1 - output)</code> for the sigmoid.
+     *
+     * @param output the output of a node
+     * @return
+     */
+    double derivative(double output);
+
+    /**
+     * Applies the function to every value of <code>from</code> storing the results into <code>to</code>. Both
+     * arrays may be the same one.
+     *
+     * @param from
+     * @param to
+     */
+    default void apply(double[] from, double[] to) {
+        for(int idx = 0; idx < from.length; idx++) {
+            to[idx] = apply(from[idx]);
+        }
+    }
+
+    /**
+     * Computes the derivative for every output of <code>outputs</code> storing the results into <code>to</code>.
+     * Both arrays may be the same one.
+     *
+     * @param outputs
+     * @param to
+     */
+    default void derivative(double[] outputs, double[] to) {
+        for(int idx = 0; idx < outputs.length; idx++) {
+            to[idx] = derivative(outputs[idx]);
+        }
+    }
+
+    /**
+     * Adapts a legacy threshold function. As the derivative of an arbitrary function is unknown, the sigmoid's
+     * one is assumed, which is what the training has always used.
+     *
+     * @param thresholdDoubleFunction
+     * @return
+     */
+    @SuppressWarnings("deprecation")
+    static Activation of(DoubleFunction<Double> thresholdDoubleFunction) {
+        if(thresholdDoubleFunction == null)
+            return null;
+        if(thresholdDoubleFunction == NeuralNetwork.SIGMOID_FUNCTION)
+            return Activations.SIGMOID;
+
+        return new Activation() {
+            @Override
+            public double apply(double input) {
+                return thresholdDoubleFunction.apply(input);
+            }
+
+            @Override
+            public double derivative(double output) {
+                return output * (1.0 - output);
+            }
+        };
+    }
+}
@@ -0,0 +1,237 @@
+package com.boudoux;
+
+/**
+ * The built-in activation functions.
+ */
+public enum Activations implements Activation {
+
+    SIGMOID(1) {
+        @Override
+        public double apply(double input) {
+            return 1.0 / (1.0 + Math.exp(-input));
+        }
+
+        @Override
+        public double derivative(double output) {
+            return output * (1.0 - output);
+        }
+
+        @Override
+        public void apply(double[] from, double[] to) {
+            DenseKernels.INSTANCE.sigmoid(from, to);
+        }
+
+        @Override
+        public void derivative(double[] outputs, double[] to) {
+            for(int idx = 0; idx < outputs.length; idx++) {
+                to[idx] = outputs[idx] * (1.0 - outputs[idx]);
+            }
+        }
+    },
+
+    /**
+     * Approximates the sigmoid through a lookup table with linear interpolation (absolute error below 1e-6).
+     * Meant for throughput-sensitive inference of networks trained with {@link #SIGMOID}.
+     */
+    FAST_SIGMOID(2) {
+        @Override
+        public double apply(double input) {
+            return fastSigmoid(input);
+        }
+
+        @Override
+        public double derivative(double output) {
+            return output * (1.0 - output);
+        }
+
+        @Override
+        public void apply(double[] from, double[] to) {
+            for(int idx = 0; idx < from.length; idx++) {
+                to[idx] = fastSigmoid(from[idx]);
+            }
+        }
+
+        @Override
+        public void derivative(double[] outputs, double[] to) {
+            for(int idx = 0; idx < outputs.length; idx++) {
+                to[idx] = outputs[idx] * (1.0 - outputs[idx]);
+            }
+        }
+    },
+
+    TANH(3) {
+        @Override
+        public double apply(double input) {
+            return Math.tanh(input);
+        }
+
+        @Override
+        public double derivative(double output) {
+            return 1.0 - output * output;
+        }
+
+        @Override
+        public void apply(double[] from, double[] to) {
+            for(int idx = 0; idx < from.length; idx++) {
+                to[idx] = Math.tanh(from[idx]);
+            }
+        }
+
+        @Override
+        public void derivative(double[] outputs, double[] to) {
+            for(int idx = 0; idx < outputs.length; idx++) {
+                to[idx] = 1.0 - outputs[idx] * outputs[idx];
+            }
+        }
+    },
+
+    RELU(4) {
+        @Override
+        public double apply(double input) {
+            return input > 0.0 ? input : 0.0;
+        }
+
+        @Override
+        public double derivative(double output) {
+            return output > 0.0 ? 1.0 : 0.0;
+        }
+
+        @Override
+        public void apply(double[] from, double[] to) {
+            DenseKernels.INSTANCE.relu(from, to);
+        }
+
+        @Override
+        public void derivative(double[] outputs, double[] to) {
+            for(int idx = 0; idx < outputs.length; idx++) {
+                to[idx] = outputs[idx] > 0.0 ? 1.0 : 0.0;
+            }
+        }
+    },
+
+    /**
+     * ReLU letting a small gradient ({@link #LEAKY_RELU_SLOPE}) through for negative inputs.
+     */
+    LEAKY_RELU(5) {
+        @Override
+        public double apply(double input) {
+            return input > 0.0 ? input : LEAKY_RELU_SLOPE * input;
+        }
+
+        @Override
+        public double derivative(double output) {
+            // the sign of the output is the same of the input
+            return output > 0.0 ? 1.0 : LEAKY_RELU_SLOPE;
+        }
+
+        @Override
+        public void apply(double[] from, double[] to) {
+            for(int idx = 0; idx < from.length; idx++) {
+                to[idx] = from[idx] > 0.0 ? from[idx] : LEAKY_RELU_SLOPE * from[idx];
+            }
+        }
+
+        @Override
+        public void derivative(double[] outputs, double[] to) {
+            for(int idx = 0; idx < outputs.length; idx++) {
+                to[idx] = outputs[idx] > 0.0 ? 1.0 : LEAKY_RELU_SLOPE;
+            }
+        }
+    },
+
+    /**
+     * Normalizes the whole layer into probabilities, so it is only defined over arrays and meant for the
+     * Output Layer. The derivative is the diagonal of its Jacobian: <code>output * (1 - output)</code>.
+     */
+    SOFTMAX(6) {
+        @Override
+        public double apply(double input) {
+            throw new UnsupportedOperationException("The softmax is only defined over a whole layer");
+        }
+
+        @Override
+        public double derivative(double output) {
+            return output * (1.0 - output);
+        }
+
+        @Override
+        public void apply(double[] from, double[] to) {
+            double max = Double.NEGATIVE_INFINITY;
+            for(double value : from) {
+                max = Math.max(max, value);
+            }
+
+            double sum = 0.0;
+            for(int idx = 0; idx < from.length; idx++) {
+                to[idx] = Math.exp(from[idx] - max);
+                sum += to[idx];
+            }
+
+            for(int idx = 0; idx < from.length; idx++) {
+                to[idx] /= sum;
+            }
+        }
+
+        @Override
+        public void derivative(double[] outputs, double[] to) {
+            for(int idx = 0; idx < outputs.length; idx++) {
+                to[idx] = outputs[idx] * (1.0 - outputs[idx]);
+            }
+        }
+    };
+
+    public static final double LEAKY_RELU_SLOPE = 0.01;
+
+    // stable identifier used by the model files, it must never change
+    private final int id;
+
+    Activations(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @param id
+     * @return the function with the given identifier
+     * @throws IllegalArgumentException if there is no such function
+     */
+    public static Activations fromId(int id) {
+        for(Activations activation : values()) {
+            if(activation.id == id)
+                return activation;
+        }
+
+        throw new IllegalArgumentException(String.format("Unknown threshold function (%d)", id));
+    }
+
+    // the sigmoid is tabulated over [-SIGMOID_TABLE_RANGE, SIGMOID_TABLE_RANGE] and saturated outside it
+    private static final double SIGMOID_TABLE_RANGE = 16.0;
+
+    private static final int SIGMOID_TABLE_SIZE = 1 << 14;
+
+    private static final double SIGMOID_TABLE_SCALE = SIGMOID_TABLE_SIZE / (2 * SIGMOID_TABLE_RANGE);
+
+    private static final double[] SIGMOID_TABLE = new double[SIGMOID_TABLE_SIZE + 2];
+
+    static {
+        for(int idx = 0; idx < SIGMOID_TABLE.length; idx++) {
+            SIGMOID_TABLE[idx] = 1.0 / (1.0 + Math.exp(-(idx / SIGMOID_TABLE_SCALE - SIGMOID_TABLE_RANGE)));
+        }
+    }
+
+    static double fastSigmoid(double input) {
+        if(input <= -SIGMOID_TABLE_RANGE)
+            return SIGMOID_TABLE[0];
+        if(input >= SIGMOID_TABLE_RANGE)
+            return SIGMOID_TABLE[SIGMOID_TABLE_SIZE];
+
+        double position = (input + SIGMOID_TABLE_RANGE) * SIGMOID_TABLE_SCALE;
+        int idx = (int) position;
+        double fraction = position - idx;
+
+        return SIGMOID_TABLE[idx] + (SIGMOID_TABLE[idx + 1] - SIGMOID_TABLE[idx]) * fraction;
+    }
+}
@@ -0,0 +1,58 @@
+package com.boudoux;
+
+/**
+ * Holds the outputs and errors of every layer for a batch of samples while training a {@link NeuralNetwork}.
+ *
+ * Like the {@link Workspace}, it is not thread-safe and must be confined to one thread. Once created, training
+ * through it does not allocate.
+ */
+public class BatchWorkspace {
+
+    private final int capacity;
+
+    // outputs for each layer and sample: [input_layer + hidden_layers + output_layer][sample][node], the Input
+    // Layer only references the caller's arrays
+    final double[][][] layerOutputs;
+
+    // errors for each layer (but the Input Layer) and sample
+    final double[][][] layerErrors;
+
+    // the errors already multiplied by the derivative and the learning rate for each layer and sample
+    final double[][][] layerDeltas;
+
+    BatchWorkspace(Layer[] layers, int capacity) {
+        if(capacity <= 0)
+            throw new IllegalArgumentException(String.format("Invalid batch capacity (%d)", capacity));
+
+        this.capacity = capacity;
+        this.layerOutputs = new double[layers.length + 1][capacity][];
+        this.layerErrors = new double[layers.length + 1][][];
+        this.layerDeltas = new double[layers.length + 1][][];
+
+        for(int idxLayer = 0; idxLayer < layers.length; idxLayer++) {
+            int nodes = layers[idxLayer].getOutputSize();
+            this.layerOutputs[idxLayer + 1] = new double[capacity][nodes];
+            this.layerErrors[idxLayer + 1] = new double[capacity][nodes];
+            this.layerDeltas[idxLayer + 1] = new double[capacity][nodes];
+        }
+    }
+
+    boolean fits(Layer[] layers) {
+        if(this.layerOutputs.length != layers.length + 1)
+            return false;
+
+        for(int idxLayer = 0; idxLayer < layers.length; idxLayer++) {
+            if(this.layerOutputs[idxLayer + 1][0].length != layers[idxLayer].getOutputSize())
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the maximum of samples processed at once
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
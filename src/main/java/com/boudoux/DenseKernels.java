@@ -0,0 +1,150 @@
+package com.boudoux;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The dense loops used by the forward and backward passes, working over row-major weights (see {@link WeightMatrix}).
+ *
+ * The batched kernels are blocked so that a tile of weight rows stays in cache while it is applied to many samples.
+ * Every output element is still accumulated in the same order as the single sample kernels, so a batch of one
+ * produces exactly the same values.
+ *
+ * The implementation is chosen once, when the class is loaded: the SIMD one (<code>VectorKernels</code>, shipped in
+ * the multi-release jar for Java 17+) is used when the JVM runs with <code>--add-modules jdk.incubator.vector</code>,
+ * otherwise the {@link ScalarKernels}. Setting the system property {@value #BACKEND_PROPERTY} to
+ * <code>scalar</code> forces the latter.
+ */
+abstract class DenseKernels {
+
+    static final String BACKEND_PROPERTY = "com.boudoux.kernels";
+
+    // rows of weights kept hot while iterating over the samples of a batch
+    static final int ROW_BLOCK = 32;
+
+    // columns (sum terms) processed per tile
+    static final int COLUMN_BLOCK = 256;
+
+    // samples processed per tile
+    static final int SAMPLE_BLOCK = 16;
+
+    static final DenseKernels INSTANCE = select();
+
+    private static DenseKernels select() {
+        if(!"scalar".equals(System.getProperty(BACKEND_PROPERTY))) {
+            try {
+                return (DenseKernels) Class.forName("com.boudoux.VectorKernels").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // older JVM or the jdk.incubator.vector module is not available
+            }
+        }
+
+        return new ScalarKernels();
+    }
+
+    /**
+     * output[r] = SUM(W[r][c] * input[c])
+     */
+    abstract void multiply(double[] weights, int rows, int columns, double[] input, double[] output);
+
+    /**
+     * Same as {@link #multiply(double[], int, int, double[], double[])} reading the weights in place from the buffer,
+     * from its index 0 in its byte order, with the same sums
+     */
+    abstract void multiply(ByteBuffer weights, int rows, int columns, double[] input, double[] output);
+
+    /**
+     * output[c] = SUM(W[r][c] * input[r])
+     */
+    void multiplyTransposed(double[] weights, int rows, int columns, double[] input, double[] output) {
+        for(int idxColumn = 0; idxColumn < columns; idxColumn++) {
+            output[idxColumn] = 0.0;
+        }
+
+        this.accumulateTransposed(weights, rows, columns, input, output);
+    }
+
+    /**
+     * output[c] += SUM(W[r][c] * input[r]), going through the rows in order, so the rows may be split in tiles
+     * applied one after the other.
+     */
+    abstract void accumulateTransposed(double[] weights, int rows, int columns, double[] input, double[] output);
+
+    /**
+     * W[r][c] += rowFactors[r] * columnFactors[c]
+     */
+    abstract void addOuterProduct(double[] weights, int rows, int columns, double[] rowFactors, double[] columnFactors);
+
+    /**
+     * errors[c] = SUM(W[r][c] * rowErrors[r]) with the weights before W[r][c] += rowFactors[r] * columnFactors[c],
+     * both done in a single sweep over each row. It gives the same values of {@link #multiplyTransposed} followed by
+     * {@link #addOuterProduct}.
+     */
+    void multiplyTransposedAndAddOuterProduct(double[] weights, int rows, int columns, double[] rowErrors,
+                                              double[] errors, double[] rowFactors, double[] columnFactors) {
+        for(int idxColumn = 0; idxColumn < columns; idxColumn++) {
+            errors[idxColumn] = 0.0;
+        }
+
+        this.accumulateTransposedAndAddOuterProduct(weights, rows, columns, rowErrors, errors, rowFactors, columnFactors);
+    }
+
+    /**
+     * Same as {@link #multiplyTransposedAndAddOuterProduct} adding into the errors, like {@link #accumulateTransposed}.
+     */
+    abstract void accumulateTransposedAndAddOuterProduct(double[] weights, int rows, int columns, double[] rowErrors,
+                                                         double[] errors, double[] rowFactors, double[] columnFactors);
+
+    /**
+     * output[r] = SUM(W[r][indices[k]] * values[k]) for the first <code>count</code> non-zero inputs.
+     */
+    abstract void multiplySparse(double[] weights, int rows, int columns, int[] indices, double[] values, int count, double[] output);
+
+    /**
+     * W[r][indices[k]] += rowFactors[r] * values[k] for the first <code>count</code> non-zero inputs.
+     */
+    abstract void addOuterProductSparse(double[] weights, int rows, int columns, double[] rowFactors, int[] indices,
+                                        double[] values, int count);
+
+    /**
+     * outputs[s][r] = SUM(W[r][c] * inputs[s][c]) for the first <code>count</code> samples.
+     */
+    abstract void multiplyBatch(double[] weights, int rows, int columns, double[][] inputs, double[][] outputs, int count);
+
+    /**
+     * outputs[s][c] = SUM(W[r][c] * inputs[s][r]) for the first <code>count</code> samples.
+     */
+    abstract void multiplyTransposedBatch(double[] weights, int rows, int columns, double[][] inputs, double[][] outputs, int count);
+
+    /**
+     * G[r][c] += SUM(rowFactors[s][r] * columnFactors[s][c]) for the first <code>count</code> samples.
+     */
+    abstract void addOuterProductBatch(double[] gradients, int rows, int columns, double[][] rowFactors, double[][] columnFactors, int count);
+
+    /**
+     * target[i] += source[i]
+     */
+    abstract void add(double[] target, double[] source);
+
+    /**
+     * to[i] = 1 / (1 + e^-from[i])
+     */
+    void sigmoid(double[] from, double[] to) {
+        for(int idx = 0; idx < from.length; idx++) {
+            to[idx] = 1.0 / (1.0 + Math.exp(-from[idx]));
+        }
+    }
+
+    /**
+     * to[i] = max(from[i], 0)
+     */
+    void relu(double[] from, double[] to) {
+        for(int idx = 0; idx < from.length; idx++) {
+            to[idx] = from[idx] > 0.0 ? from[idx] : 0.0;
+        }
+    }
+
+    /**
+     * @return the name of the implementation
+     */
+    abstract String getName();
+}
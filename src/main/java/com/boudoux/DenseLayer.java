@@ -0,0 +1,298 @@
+package com.boudoux;
+
+/**
+ * A fully connected layer: <code>output = f(W * input + b)</code>.
+ *
+ * Its parameters are the row-major weights (see {@link WeightMatrix}) followed, when the layer has them, by one
+ * bias by node. The biases always live on the heap, the weights may live off it (see
+ * {@link WeightMatrix#allocateDirect(int, int)}).
+ */
+public class DenseLayer implements Layer {
+
+    private final WeightMatrix weights;
+
+    // null when the layer has no biases
+    private final double[] biases;
+
+    // null when the weights live off the heap
+    private final double[][] parameters;
+
+    private Activation activation;
+
+    /**
+     * Creates a layer whose weights and biases are all zero.
+     *
+     * @param inputSize
+     * @param outputSize
+     * @param activation
+     * @param withBiases
+     */
+    public DenseLayer(int inputSize, int outputSize, Activation activation, boolean withBiases) {
+        this(new WeightMatrix(outputSize, inputSize), withBiases ? new double[outputSize] : null, activation);
+    }
+
+    /**
+     * @param weights
+     * @param biases one by node of this layer, or null for a layer without biases
+     * @param activation
+     */
+    public DenseLayer(WeightMatrix weights, double[] biases, Activation activation) {
+        if(weights == null || activation == null)
+            throw new IllegalArgumentException("The weights and the threshold function must be provided");
+        if(biases != null && biases.length != weights.getRows())
+            throw new IllegalArgumentException(String.format("Expected %d biases but got %d", weights.getRows(), biases.length));
+
+        this.weights = weights;
+        this.biases = biases;
+        if(weights.values == null) {
+            this.parameters = null;
+        } else {
+            this.parameters = biases == null ? new double[][]{weights.values} : new double[][]{weights.values, biases};
+        }
+        this.activation = activation;
+    }
+
+    @Override
+    public int getInputSize() {
+        return this.weights.getColumns();
+    }
+
+    @Override
+    public int getOutputSize() {
+        return this.weights.getRows();
+    }
+
+    @Override
+    public Activation getActivation() {
+        return activation;
+    }
+
+    /**
+     * It must not be called while the layer is being fired or trained.
+     *
+     * @param activation
+     */
+    public void setActivation(Activation activation) {
+        if(activation == null)
+            throw new IllegalArgumentException("The threshold function must be provided");
+
+        this.activation = activation;
+    }
+
+    public WeightMatrix getWeights() {
+        return weights;
+    }
+
+    /**
+     * @return the live biases, null when the layer has none
+     */
+    public double[] getBiases() {
+        return biases;
+    }
+
+    @Override
+    public void forward(double[] input, double[] output) {
+        // sum up all the LINK_WEIGHT * INPUT_NODE
+        this.weights.multiply(input, output);
+        this.activate(output);
+    }
+
+    /**
+     * Same as {@link #forward(double[], double[])} going only through the weights of the non-zero inputs.
+     *
+     * @param input {@link #getInputSize()} values
+     * @param output receives {@link #getOutputSize()} values
+     */
+    public void forward(SparseVector input, double[] output) {
+        if(input.getSize() != this.getInputSize())
+            throw new IllegalArgumentException(String.format("The input must have the same length of the total nodes (%d)", this.getInputSize()));
+
+        this.weights.multiply(input, output);
+        this.activate(output);
+    }
+
+    private void activate(double[] output) {
+        if(this.biases != null) {
+            for(int idxNode = 0; idxNode < output.length; idxNode++) {
+                output[idxNode] += this.biases[idxNode];
+            }
+        }
+
+        // applies the threshold function
+        this.activation.apply(output, output);
+    }
+
+    @Override
+    public void forwardBatch(double[][] inputs, double[][] outputs, int count) {
+        this.weights.multiplyBatch(inputs, outputs, count);
+
+        for(int idxSample = 0; idxSample < count; idxSample++) {
+            double[] output = outputs[idxSample];
+
+            if(this.biases != null) {
+                for(int idxNode = 0; idxNode < output.length; idxNode++) {
+                    output[idxNode] += this.biases[idxNode];
+                }
+            }
+
+            this.activation.apply(output, output);
+        }
+    }
+
+    @Override
+    public void backward(double[] input, double[] output, double[] errors, double factor, double[] deltas, double[][] gradients,
+                         double[] inputErrors) {
+        // Formula Gradient Decent: Wn +/- σ * -(En - On) * f'(On) * O(n - 1), where f'(On) = On * (1 - On) for the sigmoid
+        this.activation.derivative(output, deltas);
+        for(int idxNode = 0; idxNode < deltas.length; idxNode++) {
+            deltas[idxNode] = factor * (errors[idxNode] * deltas[idxNode]);
+        }
+
+        // the error of each node from the previous layer is the sum of the link's weights's errors, it has to be
+        // computed before the weights get updated: when they are updated in place both go in the same sweep, so each
+        // weight is read once
+        boolean inPlace = gradients == null || gradients[0] == this.weights.values;
+        if(inputErrors != null && inPlace) {
+            this.weights.multiplyTransposedAndAddOuterProduct(errors, inputErrors, deltas, input);
+        } else {
+            if(inputErrors != null) {
+                this.weights.multiplyTransposed(errors, inputErrors);
+            }
+
+            if(inPlace) {
+                this.weights.addOuterProduct(deltas, input);
+            } else {
+                DenseKernels.INSTANCE.addOuterProduct(gradients[0], this.weights.getRows(), this.weights.getColumns(), deltas, input);
+            }
+        }
+
+        if(this.biases != null) {
+            double[] biasGradients = gradients == null ? this.biases : gradients[1];
+            for(int idxNode = 0; idxNode < deltas.length; idxNode++) {
+                biasGradients[idxNode] += deltas[idxNode];
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #backward} for a sparse input, which belongs to the Input Layer and so has no errors: only the
+     * weights of the non-zero inputs change.
+     *
+     * @param input what the layer received in the forward pass
+     * @param output what the layer produced in the forward pass
+     * @param errors the errors of the outputs
+     * @param factor multiplies the changes, usually the learning rate
+     * @param deltas receives <code>factor * errors * f'(output)</code>
+     * @param gradients the arrays (shaped like the parameters) the changes are added into, null to add them into
+     *                  the parameters
+     */
+    public void backward(SparseVector input, double[] output, double[] errors, double factor, double[] deltas, double[][] gradients) {
+        this.activation.derivative(output, deltas);
+        for(int idxNode = 0; idxNode < deltas.length; idxNode++) {
+            deltas[idxNode] = factor * (errors[idxNode] * deltas[idxNode]);
+        }
+
+        if(gradients == null) {
+            this.weights.addOuterProduct(deltas, input);
+        } else {
+            DenseKernels.INSTANCE.addOuterProductSparse(gradients[0], this.weights.getRows(), this.weights.getColumns(), deltas,
+                    input.getIndices(), input.getValues(), input.getCount());
+        }
+
+        if(this.biases != null) {
+            double[] biasGradients = gradients == null ? this.biases : gradients[1];
+            for(int idxNode = 0; idxNode < deltas.length; idxNode++) {
+                biasGradients[idxNode] += deltas[idxNode];
+            }
+        }
+    }
+
+    @Override
+    public void backwardBatch(double[][] inputs, double[][] outputs, double[][] errors, double factor, double[][] deltas,
+                              double[][] gradients, double[][] inputErrors, int count) {
+        if(inputErrors != null) {
+            this.weights.multiplyTransposedBatch(errors, inputErrors, count);
+        }
+
+        for(int idxSample = 0; idxSample < count; idxSample++) {
+            double[] error = errors[idxSample];
+            double[] delta = deltas[idxSample];
+
+            this.activation.derivative(outputs[idxSample], delta);
+            for(int idxNode = 0; idxNode < delta.length; idxNode++) {
+                delta[idxNode] = factor * (error[idxNode] * delta[idxNode]);
+            }
+        }
+
+        DenseKernels.INSTANCE.addOuterProductBatch(gradients[0], this.weights.getRows(), this.weights.getColumns(), deltas, inputs, count);
+
+        if(this.biases != null) {
+            double[] biasGradients = gradients[1];
+            for(int idxSample = 0; idxSample < count; idxSample++) {
+                double[] delta = deltas[idxSample];
+                for(int idxNode = 0; idxNode < delta.length; idxNode++) {
+                    biasGradients[idxNode] += delta[idxNode];
+                }
+            }
+        }
+    }
+
+    @Override
+    public double[][] getParameters() {
+        if(this.parameters == null)
+            throw new UnsupportedOperationException("The weights live off the heap");
+
+        return parameters;
+    }
+
+    @Override
+    public int getTotalParameters() {
+        return this.biases == null ? 1 : 2;
+    }
+
+    @Override
+    public int getParameterSize(int idxParameter) {
+        if(idxParameter < 0 || idxParameter >= this.getTotalParameters())
+            throw new IllegalArgumentException(String.format("Invalid parameter (%d)", idxParameter));
+
+        return idxParameter == 0 ? this.weights.getRows() * this.weights.getColumns() : this.biases.length;
+    }
+
+    @Override
+    public void addToParameter(int idxParameter, int offset, double[] changes, int length) {
+        if(idxParameter == 0) {
+            this.weights.add(offset, changes, length);
+            return;
+        }
+
+        for(int idx = 0; idx < length; idx++) {
+            this.biases[offset + idx] += changes[idx];
+        }
+    }
+
+    @Override
+    public void copyParametersFrom(Layer other) {
+        if(!(other instanceof DenseLayer))
+            throw new IllegalArgumentException("The layers must have the same shape");
+
+        DenseLayer dense = (DenseLayer) other;
+        if((dense.biases == null) != (this.biases == null) || dense.getInputSize() != this.getInputSize()
+                || dense.getOutputSize() != this.getOutputSize())
+            throw new IllegalArgumentException("The layers must have the same shape");
+
+        this.weights.copyFrom(dense.weights);
+        if(this.biases != null) {
+            System.arraycopy(dense.biases, 0, this.biases, 0, this.biases.length);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DenseLayer{" +
+                "inputSize=" + getInputSize() +
+                ", outputSize=" + getOutputSize() +
+                ", biases=" + (biases != null) +
+                ", activation=" + activation +
+                '}';
+    }
+}
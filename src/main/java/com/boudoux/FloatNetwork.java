@@ -0,0 +1,247 @@
+package com.boudoux;
+
+import java.util.Arrays;
+
+/**
+ * A copy of a {@link NeuralNetwork} holding its weights and its layer outputs as 32-bit floats, which halves the
+ * memory traffic of both the forward and the backward pass. The sums are accumulated in float too; only the
+ * activation functions run over doubles, one layer at a time.
+ *
+ * Training follows the same backpropagation of {@link NeuralNetwork#train(double[], double[])}, always with the
+ * book's gradient descent whatever the {@link Optimizer} of the network, so a network may be trained in float and
+ * exported back through {@link #toNeuralNetwork()}.
+ */
+public class FloatNetwork implements InferenceModel {
+
+    private final double learningRate;
+
+    private final Activation[] layerActivations;
+
+    private final int[] layerRows;
+
+    private final int[] layerColumns;
+
+    // row-major [nodes of the next layer] x [nodes of the previous layer] for each pair of adjacent layers
+    private final float[][] layerWeights;
+
+    // one by node for each layer, null for the layers without biases
+    private final float[][] layerBiases;
+
+    private final ThreadLocal<Scratch> localScratch = ThreadLocal.withInitial(Scratch::new);
+
+    public FloatNetwork(NeuralNetwork network) {
+        int totalLayers = network.getTotalLayers();
+
+        this.learningRate = network.getLearningRate();
+        this.layerActivations = new Activation[totalLayers];
+        this.layerRows = new int[totalLayers];
+        this.layerColumns = new int[totalLayers];
+        this.layerWeights = new float[totalLayers][];
+        this.layerBiases = new float[totalLayers][];
+
+        for(int idxLayer = 0; idxLayer < totalLayers; idxLayer++) {
+            WeightMatrix weights = network.getLayerWeights(idxLayer);
+            float[] values = new float[weights.getRows() * weights.getColumns()];
+            double[] row = new double[weights.getColumns()];
+            for(int idxRow = 0, offset = 0; idxRow < weights.getRows(); idxRow++) {
+                weights.copyRow(idxRow, row);
+                for(int idxColumn = 0; idxColumn < row.length; idxColumn++, offset++) {
+                    values[offset] = (float) row[idxColumn];
+                }
+            }
+
+            this.layerActivations[idxLayer] = network.getActivation(idxLayer);
+            this.layerRows[idxLayer] = weights.getRows();
+            this.layerColumns[idxLayer] = weights.getColumns();
+            this.layerWeights[idxLayer] = values;
+
+            double[] biases = network.getLayerBiases(idxLayer);
+            if(biases != null) {
+                this.layerBiases[idxLayer] = new float[biases.length];
+                for(int idx = 0; idx < biases.length; idx++) {
+                    this.layerBiases[idxLayer][idx] = (float) biases[idx];
+                }
+            }
+        }
+    }
+
+    @Override
+    public double[] fire(double[] input, double[] output) {
+        if(output == null || output.length != this.getTotalOutputNodes())
+            throw new IllegalArgumentException(String.format("The output must have the same length of the total output nodes (%d)", this.getTotalOutputNodes()));
+
+        Scratch scratch = this.localScratch.get();
+        this.forward(input, scratch);
+
+        float[] finalOutput = scratch.layerOutputs[this.layerWeights.length];
+        for(int idxNode = 0; idxNode < output.length; idxNode++) {
+            output[idxNode] = finalOutput[idxNode];
+        }
+
+        return output;
+    }
+
+    /**
+     * Trains the network with a single sample, like {@link NeuralNetwork#train(double[], double[])}. It does not
+     * allocate, but it must not run concurrently with any other call.
+     *
+     * @param input
+     * @param expectedTarget
+     */
+    public void train(double[] input, double[] expectedTarget) {
+        if(expectedTarget == null || expectedTarget.length != this.getTotalOutputNodes())
+            throw new IllegalArgumentException(String.format("The expected target must have the same length of the total output nodes (%d)", this.getTotalOutputNodes()));
+
+        Scratch scratch = this.localScratch.get();
+        this.forward(input, scratch);
+
+        float[][] layerOutputs = scratch.layerOutputs;
+        float[][] layerErrors = scratch.layerErrors;
+
+        float[] outputErrors = layerErrors[this.layerWeights.length];
+        float[] finalOutput = layerOutputs[this.layerWeights.length];
+        for(int idxNode = 0; idxNode < finalOutput.length; idxNode++) {
+            outputErrors[idxNode] = (float) expectedTarget[idxNode] - finalOutput[idxNode];
+        }
+
+        for(int idxLayer = this.layerWeights.length - 1; idxLayer >= 0; idxLayer--) {
+            float[] weights = this.layerWeights[idxLayer];
+            float[] biases = this.layerBiases[idxLayer];
+            int columns = this.layerColumns[idxLayer];
+            float[] nodeErrors = layerErrors[idxLayer + 1];
+            float[] previousOutputs = layerOutputs[idxLayer];
+
+            // f'(On) computed over doubles, as the activations are
+            double[] derivatives = scratch.layerSums[idxLayer];
+            float[] currentOutputs = layerOutputs[idxLayer + 1];
+            for(int idxNode = 0; idxNode < currentOutputs.length; idxNode++) {
+                derivatives[idxNode] = currentOutputs[idxNode];
+            }
+            this.layerActivations[idxLayer].derivative(derivatives, derivatives);
+
+            // the errors of the previous layer use the weights before they get updated, so both are done in the
+            // same sweep over each row (the Input Layer has no errors)
+            float[] previousErrors = idxLayer > 0 ? layerErrors[idxLayer] : null;
+            if(previousErrors != null) {
+                Arrays.fill(previousErrors, 0.0f);
+            }
+
+            for(int idxRow = 0, offset = 0; idxRow < nodeErrors.length; idxRow++, offset += columns) {
+                float nodeError = nodeErrors[idxRow];
+                float delta = (float) (this.learningRate * (nodeError * derivatives[idxRow]));
+
+                if(biases != null) {
+                    biases[idxRow] += delta;
+                }
+
+                if(previousErrors != null) {
+                    for(int idxColumn = 0; idxColumn < columns; idxColumn++) {
+                        previousErrors[idxColumn] += weights[offset + idxColumn] * nodeError;
+                        weights[offset + idxColumn] += delta * previousOutputs[idxColumn];
+                    }
+                } else {
+                    for(int idxColumn = 0; idxColumn < columns; idxColumn++) {
+                        weights[offset + idxColumn] += delta * previousOutputs[idxColumn];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Widens the weights back into a {@link NeuralNetwork}, e.g. after training in float.
+     *
+     * @return
+     */
+    public NeuralNetwork toNeuralNetwork() {
+        Layer[] layers = new Layer[this.layerWeights.length];
+        for(int idxLayer = 0; idxLayer < layers.length; idxLayer++) {
+            WeightMatrix weights = new WeightMatrix(this.layerRows[idxLayer], this.layerColumns[idxLayer], widen(this.layerWeights[idxLayer]));
+            double[] biases = this.layerBiases[idxLayer] == null ? null : widen(this.layerBiases[idxLayer]);
+
+            layers[idxLayer] = new DenseLayer(weights, biases, this.layerActivations[idxLayer]);
+        }
+
+        return new NeuralNetwork(this.learningRate, layers);
+    }
+
+    private static double[] widen(float[] values) {
+        double[] widened = new double[values.length];
+        for(int idx = 0; idx < values.length; idx++) {
+            widened[idx] = values[idx];
+        }
+
+        return widened;
+    }
+
+    @Override
+    public int getTotalInputNodes() {
+        return this.layerColumns[0];
+    }
+
+    @Override
+    public int getTotalOutputNodes() {
+        return this.layerRows[this.layerRows.length - 1];
+    }
+
+    @Override
+    public Precision getPrecision() {
+        return Precision.FLOAT;
+    }
+
+    private void forward(double[] input, Scratch scratch) {
+        if(input == null || input.length != this.getTotalInputNodes())
+            throw new IllegalArgumentException(String.format("The parameter must have the same length of the total nodes (%d)", this.getTotalInputNodes()));
+
+        float[][] layerOutputs = scratch.layerOutputs;
+        for(int idxNode = 0; idxNode < input.length; idxNode++) {
+            layerOutputs[0][idxNode] = (float) input[idxNode];
+        }
+
+        for(int idxLayer = 0; idxLayer < this.layerWeights.length; idxLayer++) {
+            float[] weights = this.layerWeights[idxLayer];
+            float[] biases = this.layerBiases[idxLayer];
+            int columns = this.layerColumns[idxLayer];
+            float[] layerInput = layerOutputs[idxLayer];
+            float[] layerOutput = layerOutputs[idxLayer + 1];
+            double[] sums = scratch.layerSums[idxLayer];
+
+            // sum up all the LINK_WEIGHT * INPUT_NODE
+            for(int idxRow = 0, offset = 0; idxRow < sums.length; idxRow++, offset += columns) {
+                float sum = 0.0f;
+                for(int idxColumn = 0; idxColumn < columns; idxColumn++) {
+                    sum += weights[offset + idxColumn] * layerInput[idxColumn];
+                }
+                sums[idxRow] = biases == null ? sum : sum + biases[idxRow];
+            }
+
+            // applies the threshold function
+            this.layerActivations[idxLayer].apply(sums, sums);
+            for(int idxNode = 0; idxNode < layerOutput.length; idxNode++) {
+                layerOutput[idxNode] = (float) sums[idxNode];
+            }
+        }
+    }
+
+    /**
+     * The buffers of each thread: the outputs and the errors of every layer (index 0 is the Input Layer) and the
+     * sums of every layer but the Input one.
+     */
+    private class Scratch {
+        final float[][] layerOutputs = new float[layerWeights.length + 1][];
+
+        final float[][] layerErrors = new float[layerWeights.length + 1][];
+
+        final double[][] layerSums = new double[layerWeights.length][];
+
+        Scratch() {
+            this.layerOutputs[0] = new float[layerColumns[0]];
+            this.layerErrors[0] = new float[layerColumns[0]];
+            for(int idxLayer = 0; idxLayer < layerWeights.length; idxLayer++) {
+                this.layerOutputs[idxLayer + 1] = new float[layerRows[idxLayer]];
+                this.layerErrors[idxLayer + 1] = new float[layerRows[idxLayer]];
+                this.layerSums[idxLayer] = new double[layerRows[idxLayer]];
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.boudoux;
+
+/**
+ * Accumulates the changes of the parameters computed by the backpropagation, using the same flat layout of the
+ * parameters of each {@link Layer}, so they can be summed across samples (and threads) and applied at once. They
+ * always live on the heap, even for the layers whose weights do not.
+ *
+ * Created through {@link NeuralNetwork#newGradients()}.
+ */
+public class Gradients {
+
+    // [layer][parameter][value]
+    final double[][][] layerGradients;
+
+    Gradients(Layer[] layers) {
+        this.layerGradients = new double[layers.length][][];
+
+        for(int idxLayer = 0; idxLayer < layers.length; idxLayer++) {
+            Layer layer = layers[idxLayer];
+            this.layerGradients[idxLayer] = new double[layer.getTotalParameters()][];
+
+            for(int idxParameter = 0; idxParameter < this.layerGradients[idxLayer].length; idxParameter++) {
+                this.layerGradients[idxLayer][idxParameter] = new double[layer.getParameterSize(idxParameter)];
+            }
+        }
+    }
+
+    boolean fits(Layer[] layers) {
+        if(this.layerGradients.length != layers.length)
+            return false;
+
+        for(int idxLayer = 0; idxLayer < layers.length; idxLayer++) {
+            Layer layer = layers[idxLayer];
+            if(this.layerGradients[idxLayer].length != layer.getTotalParameters())
+                return false;
+
+            for(int idxParameter = 0; idxParameter < this.layerGradients[idxLayer].length; idxParameter++) {
+                if(this.layerGradients[idxLayer][idxParameter].length != layer.getParameterSize(idxParameter))
+                    return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @param idxLayer
+     * @return the live row-major array of the link's weights of the given layer
+     */
+    public double[] getLayerGradients(int idxLayer) {
+        return this.layerGradients[idxLayer][0];
+    }
+
+    /**
+     * @param idxLayer
+     * @param idxParameter the index of the parameter of the layer
+     * @return the live array of the given parameter
+     */
+    public double[] getLayerGradients(int idxLayer, int idxParameter) {
+        return this.layerGradients[idxLayer][idxParameter];
+    }
+
+    public int getTotalLayers() {
+        return this.layerGradients.length;
+    }
+
+    /**
+     * @param idxLayer
+     * @return the quantity of parameters of the given layer
+     */
+    public int getTotalParameters(int idxLayer) {
+        return this.layerGradients[idxLayer].length;
+    }
+
+    public void clear() {
+        for(double[][] parameterGradients : this.layerGradients) {
+            for(double[] gradients : parameterGradients) {
+                for(int idx = 0; idx < gradients.length; idx++) {
+                    gradients[idx] = 0.0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the values of other gradients of the same network into these ones.
+     *
+     * @param other
+     */
+    public void add(Gradients other) {
+        if(other.layerGradients.length != this.layerGradients.length)
+            throw new IllegalArgumentException("The gradients belong to different topologies");
+
+        for(int idxLayer = 0; idxLayer < this.layerGradients.length; idxLayer++) {
+            for(int idxParameter = 0; idxParameter < this.layerGradients[idxLayer].length; idxParameter++) {
+                DenseKernels.INSTANCE.add(this.layerGradients[idxLayer][idxParameter], other.layerGradients[idxLayer][idxParameter]);
+            }
+        }
+    }
+}
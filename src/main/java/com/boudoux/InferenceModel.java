@@ -0,0 +1,24 @@
+package com.boudoux;
+
+/**
+ * A trained model able to answer inputs, whatever the precision of its weights (see {@link Precision}).
+ *
+ * Implementations are safe to be fired by many threads at once, as long as none is training them.
+ */
+public interface InferenceModel {
+
+    /**
+     * Fires the model without allocating.
+     *
+     * @param input {@link #getTotalInputNodes()} values
+     * @param output receives {@link #getTotalOutputNodes()} values
+     * @return the output array
+     */
+    double[] fire(double[] input, double[] output);
+
+    int getTotalInputNodes();
+
+    int getTotalOutputNodes();
+
+    Precision getPrecision();
+}
@@ -0,0 +1,137 @@
+package com.boudoux;
+
+import java.io.Serializable;
+
+/**
+ * A layer of a {@link NeuralNetwork}: it turns the outputs of the previous layer into its own ones and, when
+ * training, turns the errors of its outputs into changes of its parameters and into the errors of the previous
+ * layer.
+ *
+ * The errors follow the backpropagation of the book the network is based on: the errors of the Output Layer are
+ * <code>target - output</code> and the errors of a previous layer are the errors of this one weighted by the links,
+ * <code>SUM(W[r][c] * errors[r])</code>, without the derivative.
+ *
+ * A layer never allocates nor keeps per-call state, so many threads may fire it at once through their own buffers.
+ */
+public interface Layer extends Serializable {
+
+    /**
+     * @return the quantity of nodes of the previous layer
+     */
+    int getInputSize();
+
+    /**
+     * @return the quantity of nodes of this layer
+     */
+    int getOutputSize();
+
+    /**
+     * @return the threshold function applied to the nodes
+     */
+    Activation getActivation();
+
+    /**
+     * @param input {@link #getInputSize()} values
+     * @param output receives {@link #getOutputSize()} values
+     */
+    void forward(double[] input, double[] output);
+
+    /**
+     * Same as {@link #forward(double[], double[])} for each of the first <code>count</code> samples, going through
+     * the parameters once for many samples.
+     *
+     * @param inputs
+     * @param outputs
+     * @param count
+     */
+    void forwardBatch(double[][] inputs, double[][] outputs, int count);
+
+    /**
+     * Backpropagates the errors of one sample. The errors of the previous layer are computed from the parameters as
+     * they were before this call, so the gradients may be null (or the parameters themselves, see
+     * {@link #getParameters()}) to update them right away.
+     *
+     * @param input what the layer received in the forward pass
+     * @param output what the layer produced in the forward pass
+     * @param errors the errors of the outputs
+     * @param factor multiplies the changes, usually the learning rate
+     * @param deltas receives <code>factor * errors * f'(output)</code>
+     * @param gradients the arrays (shaped like the parameters) the changes are added into, null to add them into
+     *                  the parameters
+     * @param inputErrors receives the errors of the previous layer, null when not needed
+     */
+    void backward(double[] input, double[] output, double[] errors, double factor, double[] deltas, double[][] gradients,
+                  double[] inputErrors);
+
+    /**
+     * Same as {@link #backward} for each of the first <code>count</code> samples, adding the changes of all of them
+     * into the gradients, which must not be the parameters.
+     *
+     * @param inputs
+     * @param outputs
+     * @param errors
+     * @param factor
+     * @param deltas
+     * @param gradients
+     * @param inputErrors null when not needed
+     * @param count
+     */
+    void backwardBatch(double[][] inputs, double[][] outputs, double[][] errors, double factor, double[][] deltas,
+                       double[][] gradients, double[][] inputErrors, int count);
+
+    /**
+     * @return the live trainable parameters, each one as a flat array
+     * @throws UnsupportedOperationException if the parameters do not live on the heap (see
+     *                                       {@link WeightMatrix#isOffHeap()}), use the methods below instead
+     */
+    double[][] getParameters();
+
+    /**
+     * @return the quantity of trainable parameters
+     */
+    default int getTotalParameters() {
+        return this.getParameters().length;
+    }
+
+    /**
+     * @param idxParameter
+     * @return the quantity of values of the given parameter
+     */
+    default int getParameterSize(int idxParameter) {
+        return this.getParameters()[idxParameter].length;
+    }
+
+    /**
+     * parameter[offset + i] += changes[i] for i in [0, length), the way the gradients are applied.
+     *
+     * @param idxParameter
+     * @param offset the first value of the parameter changed
+     * @param changes
+     * @param length
+     */
+    default void addToParameter(int idxParameter, int offset, double[] changes, int length) {
+        double[] values = this.getParameters()[idxParameter];
+        for(int idx = 0; idx < length; idx++) {
+            values[offset + idx] += changes[idx];
+        }
+    }
+
+    /**
+     * Overwrites the parameters with the ones of another layer of the same shape. It does not allocate.
+     *
+     * @param other
+     */
+    default void copyParametersFrom(Layer other) {
+        double[][] from = other.getParameters();
+        double[][] to = this.getParameters();
+        if(from.length != to.length)
+            throw new IllegalArgumentException("The layers must have the same shape");
+
+        for(int idxParameter = 0; idxParameter < to.length; idxParameter++) {
+            if(from[idxParameter].length != to[idxParameter].length)
+                throw new IllegalArgumentException("The layers must have the same shape");
+
+            System.arraycopy(from[idxParameter], 0, to[idxParameter], 0, to[idxParameter].length);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.boudoux;
+
+/**
+ * Receives the time spent by each layer in {@link NeuralNetwork#fire(double[], Workspace, double[])} and
+ * {@link NeuralNetwork#train(double[], double[])} (see {@link NeuralNetwork#setLayerTimer(LayerTimer)}).
+ *
+ * It is called from the thread running the network, so it must be thread-safe when many threads share the
+ * network, and it should be cheap as it runs once per layer and sample.
+ */
+public interface LayerTimer {
+
+    /**
+     * @param idxLayer the layer of weights (0 links the Input Layer to the first hidden one)
+     * @param nanos the time spent summing and activating the layer's nodes
+     */
+    void forward(int idxLayer, long nanos);
+
+    /**
+     * @param idxLayer the layer of weights (0 links the Input Layer to the first hidden one)
+     * @param nanos the time spent propagating the errors through the layer and updating its weights
+     */
+    void backward(int idxLayer, long nanos);
+}
@@ -1,77 +1,122 @@
 package com.boudoux;
 
+import com.boudoux.data.BinaryDatasetCache;
+import com.boudoux.data.CsvDatasetReader;
+import com.boudoux.data.Dataset;
+import com.boudoux.data.DatasetRange;
+import com.boudoux.io.ModelFormat;
+import com.boudoux.training.EpochMetrics;
+import com.boudoux.training.TrainingController;
+import com.boudoux.training.TrainingListener;
+import com.boudoux.training.TrainingLoop;
+import com.boudoux.training.TrainingPipeline;
 import com.boudoux.util.Utils;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
-import java.util.List;
 
 public class NetworkTrainer {
+    /**
+     * @param args optionally the path of a model file: when it exists the trained network is loaded from it,
+     *             otherwise the network is trained and saved into it
+     * @throws IOException
+     */
     public static void main(String[] args) throws IOException {
-        NeuralNetwork neuralNetwork = new NeuralNetwork(0.3, 784, new int[][] {{100}}, 10);
-
-        List<String> fileLines = Files.readAllLines(Paths.get(NetworkTrainer.class.getClassLoader().getResource("mnist_train_100.csv").getPath()));
-
-        boolean debug = false;
-
-        for(int idx0 = 1; idx0 <= 1_000; idx0++) {
-            System.out.println("Training set #" + idx0);
-            fileLines.stream().forEach(l -> {
-                double[] input = new double[784];
-                String[] arrayInput = l.split(",");
-                for (int idx = 1; idx < arrayInput.length; idx++) {
-                    input[idx - 1] = Double.parseDouble(arrayInput[idx]) / 255.0 * 0.99 + 0.01;
-                }
+        Path modelPath = args.length > 0 ? Paths.get(args[0]) : null;
+        if(modelPath != null && Files.exists(modelPath)) {
+            test(deserialize(modelPath));
+            return;
+        }
 
-                double[] expectedTarget = new double[10];
-                for (int idx = 0; idx < 10; idx++) {
-                    expectedTarget[idx] = 0.01;
-                }
+        NeuralNetwork neuralNetwork = new NeuralNetwork(0.3, 784, new int[][] {{100}}, 10);
 
-                expectedTarget[Integer.parseInt(arrayInput[0])] = 0.99;
+        // the CSV is parsed only once into a binary cache next to it, later runs map the cache
+        Dataset samples = BinaryDatasetCache.open(resource("mnist_train_100.csv"), 784, 10);
+        Dataset testSet = new CsvDatasetReader(resource("mnist_test_10.csv"), 784, 10).load();
+
+        // the last 10 samples are held out to decide when to stop
+        Dataset trainSet = new DatasetRange(samples, 0, samples.size() - 10);
+        Dataset validationSet = new DatasetRange(samples, samples.size() - 10, samples.size());
+        TrainingController controller = new TrainingController(neuralNetwork, validationSet)
+                .setEvaluationInterval(10)
+                .setPatience(5, 0.0)
+                .setAsynchronous(true);
+
+        // the samples are scaled and shuffled on a loader thread while the network trains
+        try(TrainingPipeline pipeline = new TrainingPipeline(trainSet, 10, 10, 1_000).setShuffle(42L)) {
+            TrainingLoop loop = new TrainingLoop(neuralNetwork)
+                    .setTestSet(inputs(testSet), targets(testSet, 10))
+                    .setListener(new TrainingListener() {
+                        @Override
+                        public void onEpochEnd(EpochMetrics metrics) {
+                            System.out.println(metrics);
+                        }
+                    });
+
+            controller.train(loop, pipeline);
+        }
 
-                neuralNetwork.train(input, expectedTarget);
+        for(TrainingController.Validation validation : controller.getHistory()) {
+            System.out.println(validation);
+        }
+        System.out.println(String.format("Best validation loss %.6f after epoch %d", controller.getBestLoss(), controller.getBestEpoch()));
 
-                if(debug) {
-                    double[] result = neuralNetwork.fire(input);
-                    System.out.println("Result: " + arrayInput[0]);
-                    Utils.print(result, System.out::println);
-                    System.out.println();
-                }
-            });
+        if(modelPath != null) {
+            serialize(neuralNetwork, modelPath);
         }
 
-        fileLines = Files.readAllLines(Paths.get(NetworkTrainer.class.getClassLoader().getResource("mnist_test_10.csv").getPath()));
-        fileLines.stream().forEach(l -> {
-            double[] input = new double[784];
-            String[] arrayInput = l.split(",");
-            for(int idx = 1; idx < arrayInput.length; idx++) {
-                input[idx - 1] = (Double.parseDouble(arrayInput[idx]) / 255.0) * 0.99 + 0.01;
-            }
+        test(neuralNetwork);
+    }
 
-            int correctResult = Integer.parseInt(arrayInput[0]);
+    private static void test(NeuralNetwork neuralNetwork) throws IOException {
+        Dataset testSet = new CsvDatasetReader(resource("mnist_test_10.csv"), 784, neuralNetwork.getTotalOutputNodes()).load();
+        double[] input = new double[784];
+        for(int idxSample = 0; idxSample < testSet.size(); idxSample++) {
+            testSet.copyInput(idxSample, input);
 
             double[] result = neuralNetwork.fire(input);
 
-            System.out.println(String.format("Expected result: %d", correctResult));
+            System.out.println(String.format("Expected result: %d", testSet.getLabel(idxSample)));
             Utils.print(result, System.out::println);
-        });
+        }
 
         System.out.println();
-        double[] input = new double[784];
         Arrays.fill(input, 0.01);
         double[] result = neuralNetwork.fire(input);
 
         Utils.print(result, System.out::println);
     }
 
-    private static void serialize() {
+    private static Path resource(String name) {
+        return Paths.get(NetworkTrainer.class.getClassLoader().getResource(name).getPath());
+    }
+
+    private static double[][] inputs(Dataset dataset) {
+        double[][] inputs = new double[dataset.size()][dataset.getInputSize()];
+        for(int idxSample = 0; idxSample < inputs.length; idxSample++) {
+            dataset.copyInput(idxSample, inputs[idxSample]);
+        }
+
+        return inputs;
+    }
+
+    private static double[][] targets(Dataset dataset, int totalOutputNodes) {
+        double[][] targets = new double[dataset.size()][totalOutputNodes];
+        for(int idxSample = 0; idxSample < targets.length; idxSample++) {
+            dataset.copyTarget(idxSample, targets[idxSample]);
+        }
 
+        return targets;
     }
 
-    private static void deserialize() {
+    private static void serialize(NeuralNetwork neuralNetwork, Path path) throws IOException {
+        ModelFormat.write(neuralNetwork, path);
+    }
 
+    private static NeuralNetwork deserialize(Path path) throws IOException {
+        return ModelFormat.read(path);
     }
 }
@@ -2,32 +2,42 @@ package com.boudoux;
 
 import com.boudoux.util.Utils;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Arrays;
-import java.util.Date;
-import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.DoubleFunction;
 
 /**
  *
  */
-public class NeuralNetwork implements Serializable {
+public class NeuralNetwork implements InferenceModel, Serializable {
 
-    public static final DoubleFunction<Double> SIGMOID_FUNCTION = input -> 1.0 / (1.0 + Math.pow(Math.E, -1 * input));
+    /**
+     * @deprecated boxes every value, use {@link Activations#SIGMOID}
+     */
+    @Deprecated
+    public static final DoubleFunction<Double> SIGMOID_FUNCTION = input -> 1.0 / (1.0 + Math.exp(-input));
 
     public static final double DEFAULT_LEARNING_RATE = 0.5;
 
+    public static final int DEFAULT_BATCH_SIZE = 32;
+
     /**
-     * The learning rate. Defaults to 0.5
+     * Above this fraction of non-zero values a {@link SparseVector} goes through the dense kernels, which are faster
+     * by then as every non-zero input already costs about as much as a whole cache line of the dense rows.
      */
-    private double learningRate = DEFAULT_LEARNING_RATE;
-
-    private Random random = new Random(new Date().getTime());
+    public static final double MAX_SPARSE_DENSITY = 0.25;
 
     /**
-     * The threshold function
+     * The learning rate. Defaults to 0.5
      */
-    private DoubleFunction<Double> thresholdDoubleFunction;
+    private double learningRate = DEFAULT_LEARNING_RATE;
 
     private int totalInputNodes;
 
@@ -39,37 +49,75 @@ public class NeuralNetwork implements Serializable {
     private int totalLayers;
 
     /**
-     * Dimensions:
-     *  1- Layers (totalLayers - 1)
-     *  2- Nodes
-     *  3- Links (Links (weights) for each node of the next layer)
+     * The layers from the first Hidden Layer up to the Output Layer (totalLayers entries), each one holding the
+     * link's weights arriving at its nodes and its threshold function.
      */
-    private double[][][] layerLinkWeights;
+    private Layer[] layers;
 
-    // Stores the output for all layers
-    private double[][] layerOutputs;
+    // Stores the output for all layers of the last fire made by each thread through the legacy methods
+    private transient ThreadLocal<Workspace> localWorkspace = ThreadLocal.withInitial(this::newWorkspace);
+
+    /**
+     * The quantity of samples whose changes are accumulated before updating the weights in
+     * {@link #trainBatch(double[][], double[][])}. Defaults to 32
+     */
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    // buffers used by trainBatch, allocated on its first call
+    private transient BatchWorkspace trainingBatchWorkspace;
+
+    private transient Gradients trainingGradients;
+
+    // receives the time spent by each layer, null (the default) when nobody is measuring
+    private transient volatile LayerTimer layerTimer;
+
+    // null (the default) for the book's gradient descent, which updates the weights right away
+    private Optimizer optimizer;
 
     private boolean initialized;
 
     public NeuralNetwork(int totalInputNodes, int[][] nodesByHiddenLayer, int totalOutputNodes) {
-        this(DEFAULT_LEARNING_RATE, SIGMOID_FUNCTION, totalInputNodes, nodesByHiddenLayer, totalOutputNodes, null);
+        this(DEFAULT_LEARNING_RATE, Activations.SIGMOID, totalInputNodes, nodesByHiddenLayer, totalOutputNodes, null);
     }
 
     public NeuralNetwork(int totalInputNodes, int[][] nodesByHiddenLayer, int totalOutputNodes, double[][][] preDefinedWeights) {
-        this(DEFAULT_LEARNING_RATE, SIGMOID_FUNCTION, totalInputNodes, nodesByHiddenLayer, totalOutputNodes, preDefinedWeights);
+        this(DEFAULT_LEARNING_RATE, Activations.SIGMOID, totalInputNodes, nodesByHiddenLayer, totalOutputNodes, preDefinedWeights);
     }
 
     public NeuralNetwork(double learningRate, int totalInputNodes, int[][] nodesByHiddenLayer, int totalOutputNodes) {
-        this(learningRate, SIGMOID_FUNCTION, totalInputNodes, nodesByHiddenLayer, totalOutputNodes, null);
+        this(learningRate, Activations.SIGMOID, totalInputNodes, nodesByHiddenLayer, totalOutputNodes, null);
     }
 
+    /**
+     * @deprecated use {@link #NeuralNetwork(double, Activation, int, int[][], int, double[][][])}, the training
+     * assumes the derivative of the sigmoid for any function provided here
+     */
+    @Deprecated
     public NeuralNetwork(double learningRate, DoubleFunction<Double> thresholdDoubleFunction, int totalInputNodes,
                          int[][] nodesByHiddenLayer, int totalOutputNodes, double[][][] preDefinedWeights) {
+        this(learningRate, Activation.of(thresholdDoubleFunction), totalInputNodes, nodesByHiddenLayer, totalOutputNodes, preDefinedWeights);
+    }
 
-        this.validate(learningRate, thresholdDoubleFunction, totalInputNodes, nodesByHiddenLayer, totalOutputNodes, preDefinedWeights);
+    public NeuralNetwork(double learningRate, Activation activation, int totalInputNodes,
+                         int[][] nodesByHiddenLayer, int totalOutputNodes, double[][][] preDefinedWeights) {
+        this(learningRate, activation, activation, totalInputNodes, nodesByHiddenLayer, totalOutputNodes, preDefinedWeights);
+    }
+
+    /**
+     * @param learningRate
+     * @param hiddenActivation the threshold function of the Hidden Layers
+     * @param outputActivation the threshold function of the Output Layer, e.g. {@link Activations#SOFTMAX}
+     * @param totalInputNodes
+     * @param nodesByHiddenLayer
+     * @param totalOutputNodes
+     * @param preDefinedWeights
+     */
+    public NeuralNetwork(double learningRate, Activation hiddenActivation, Activation outputActivation, int totalInputNodes,
+                         int[][] nodesByHiddenLayer, int totalOutputNodes, double[][][] preDefinedWeights) {
+
+        this.validate(learningRate, hiddenActivation, outputActivation, totalInputNodes, nodesByHiddenLayer, totalOutputNodes, preDefinedWeights);
 
         this.learningRate = learningRate;
-        this.thresholdDoubleFunction = thresholdDoubleFunction;
 
         this.totalInputNodes = totalInputNodes;
         this.nodesByHiddenLayer = nodesByHiddenLayer;
@@ -78,102 +126,381 @@ public class NeuralNetwork implements Serializable {
         // input_layer + hidden_layers
         this.totalLayers = nodesByHiddenLayer.length + 1;
 
+        WeightMatrix[] layerWeights;
         if(preDefinedWeights == null) {
-            this.setupLayers();
+            layerWeights = this.setupLayers();
 
-            this.init();
+            new WeightInitializer().initialize(layerWeights, ForkJoinPool.commonPool());
         } else {
-            this.layerLinkWeights = preDefinedWeights;
+            layerWeights = new WeightMatrix[preDefinedWeights.length];
+            for(int idxLayer = 0; idxLayer < preDefinedWeights.length; idxLayer++) {
+                layerWeights[idxLayer] = WeightMatrix.fromLinkWeights(preDefinedWeights[idxLayer]);
+            }
+        }
+
+        // the layers of the book's network have no biases
+        this.layers = new Layer[layerWeights.length];
+        for(int idxLayer = 0; idxLayer < layerWeights.length; idxLayer++) {
+            this.layers[idxLayer] = new DenseLayer(layerWeights[idxLayer], null,
+                    idxLayer == layerWeights.length - 1 ? outputActivation : hiddenActivation);
         }
 
         initialized = true;
     }
 
-    // does consistency validation
-    private void validate(double learningRate, DoubleFunction<Double> thresholdDoubleFunction, int totalInputNodes,
-                          int[][] nodesByHiddenLayer, int totalOutputNodes, double[][][] preDefinedWeights) {
+    /**
+     * Creates a network of dense layers with biases, whose weights are randomly initialized and biases start at
+     * zero.
+     *
+     * @param learningRate
+     * @param hiddenActivation the threshold function of the Hidden Layers
+     * @param outputActivation the threshold function of the Output Layer
+     * @param nodesByLayer the quantity of nodes of each layer, from the Input Layer to the Output Layer
+     */
+    public NeuralNetwork(double learningRate, Activation hiddenActivation, Activation outputActivation, int[] nodesByLayer) {
+        this(learningRate, hiddenActivation, outputActivation, nodesByLayer, new WeightInitializer());
+    }
+
+    /**
+     * Creates a network of dense layers with biases, whose weights are filled by the initializer and biases start
+     * at zero.
+     *
+     * @param learningRate
+     * @param hiddenActivation the threshold function of the Hidden Layers
+     * @param outputActivation the threshold function of the Output Layer
+     * @param nodesByLayer the quantity of nodes of each layer, from the Input Layer to the Output Layer
+     * @param initializer e.g. a seeded {@link WeightInitializer.Scheme#HE} one for the relu layers
+     */
+    public NeuralNetwork(double learningRate, Activation hiddenActivation, Activation outputActivation, int[] nodesByLayer,
+                         WeightInitializer initializer) {
+        this(learningRate, denseLayers(hiddenActivation, outputActivation, nodesByLayer));
 
+        if(initializer == null)
+            throw new IllegalArgumentException("The initializer must be provided");
+
+        initializer.initialize(this);
+    }
+
+    /**
+     * Creates a network of dense layers without biases from their weights.
+     *
+     * @param learningRate
+     * @param layerActivations the threshold function of each layer
+     * @param layerWeights the link's weights of each layer, the columns of each matrix must match the rows of the
+     *                     previous one
+     */
+    public NeuralNetwork(double learningRate, Activation[] layerActivations, WeightMatrix[] layerWeights) {
+        this(learningRate, denseLayers(layerActivations, layerWeights));
+    }
+
+    /**
+     * Creates a network from layers already built, e.g. loaded from a model file.
+     *
+     * @param learningRate
+     * @param layers from the first Hidden Layer up to the Output Layer, the input size of each one must match the
+     *               output size of the previous one
+     */
+    public NeuralNetwork(double learningRate, Layer[] layers) {
+        if(layers == null || layers.length == 0)
+            throw new IllegalArgumentException("There must be at least one layer");
+
+        for(int idxLayer = 0; idxLayer < layers.length; idxLayer++) {
+            if(layers[idxLayer] == null)
+                throw new IllegalArgumentException("The layers must be provided");
+            if(idxLayer > 0 && layers[idxLayer].getInputSize() != layers[idxLayer - 1].getOutputSize())
+                throw new IllegalArgumentException(String.format("The layer %d does not match the nodes of the previous one", idxLayer));
+        }
+
+        this.learningRate = learningRate;
+
+        this.totalInputNodes = layers[0].getInputSize();
+        this.nodesByHiddenLayer = new int[layers.length - 1][];
+        for(int idxLayer = 0; idxLayer < this.nodesByHiddenLayer.length; idxLayer++) {
+            this.nodesByHiddenLayer[idxLayer] = new int[]{layers[idxLayer].getOutputSize()};
+        }
+        this.totalOutputNodes = layers[layers.length - 1].getOutputSize();
+        this.totalLayers = layers.length;
+
+        this.layers = layers.clone();
+
+        initialized = true;
+    }
+
+    private static Layer[] denseLayers(Activation[] layerActivations, WeightMatrix[] layerWeights) {
+        if(layerWeights == null || layerWeights.length == 0 || layerActivations == null || layerActivations.length != layerWeights.length)
+            throw new IllegalArgumentException("There must be one threshold function for each layer");
+
+        Layer[] layers = new Layer[layerWeights.length];
+        for(int idxLayer = 0; idxLayer < layers.length; idxLayer++) {
+            if(layerActivations[idxLayer] == null)
+                throw new IllegalArgumentException("The threshold functions must be provided");
+
+            layers[idxLayer] = new DenseLayer(layerWeights[idxLayer], null, layerActivations[idxLayer]);
+        }
+
+        return layers;
+    }
+
+    private static Layer[] denseLayers(Activation hiddenActivation, Activation outputActivation, int[] nodesByLayer) {
+        if(hiddenActivation == null || outputActivation == null)
+            throw new IllegalArgumentException("The threshold functions must be provided");
+        if(nodesByLayer == null || nodesByLayer.length < 2)
+            throw new IllegalArgumentException("There must be at least the Input and the Output Layers");
+
+        Layer[] layers = new Layer[nodesByLayer.length - 1];
+        for(int idxLayer = 0; idxLayer < layers.length; idxLayer++) {
+            layers[idxLayer] = new DenseLayer(nodesByLayer[idxLayer], nodesByLayer[idxLayer + 1],
+                    idxLayer == layers.length - 1 ? outputActivation : hiddenActivation, true);
+        }
+
+        return layers;
     }
 
-    private void setupLayers() {
-        if(this.initialized) return;
+    // does consistency validation
+    private void validate(double learningRate, Activation hiddenActivation, Activation outputActivation, int totalInputNodes,
+                          int[][] nodesByHiddenLayer, int totalOutputNodes, double[][][] preDefinedWeights) {
+        if(hiddenActivation == null || outputActivation == null)
+            throw new IllegalArgumentException("The threshold functions must be provided");
+    }
 
-        this.layerLinkWeights = new double[this.totalLayers][][];
+    private WeightMatrix[] setupLayers() {
+        WeightMatrix[] layerWeights = new WeightMatrix[this.totalLayers];
 
         // does the setup for the first layer (named Input Layer)
         // More than 2 layers means we have Hidden Layers
         if(this.totalLayers > 1) {
-            this.layerLinkWeights[0] = new double[this.totalInputNodes][this.nodesByHiddenLayer[0][0]];
+            layerWeights[0] = new WeightMatrix(this.nodesByHiddenLayer[0][0], this.totalInputNodes);
         } else {
             // Otherwise we only have Input and Output Layers
-            this.layerLinkWeights[0] = new double[this.totalInputNodes][this.totalOutputNodes];
+            layerWeights[0] = new WeightMatrix(this.totalOutputNodes, this.totalInputNodes);
         }
 
         // We setup for the Hidden Layers, except the last Hidden Layer
-        for(int idxLayer = 1; idxLayer < this.layerLinkWeights.length - 1; idxLayer++) {
-            this.layerLinkWeights[idxLayer] =
-                    new double[this.nodesByHiddenLayer[idxLayer - 1][0]][this.nodesByHiddenLayer[idxLayer][0]];
+        for(int idxLayer = 1; idxLayer < layerWeights.length - 1; idxLayer++) {
+            layerWeights[idxLayer] =
+                    new WeightMatrix(this.nodesByHiddenLayer[idxLayer][0], this.nodesByHiddenLayer[idxLayer - 1][0]);
         }
 
         if(this.nodesByHiddenLayer.length > 0) {
             // Defines the connection between the last Hidden Layer and the Output Layer
-            this.layerLinkWeights[this.layerLinkWeights.length - 1] =
-                    new double[this.nodesByHiddenLayer[this.nodesByHiddenLayer.length - 1][0]][this.totalOutputNodes];
+            layerWeights[layerWeights.length - 1] =
+                    new WeightMatrix(this.totalOutputNodes, this.nodesByHiddenLayer[this.nodesByHiddenLayer.length - 1][0]);
         }
-    }
 
-    private void init() {
-        // just in case of deserialization the value has already been initialized
-        if(this.initialized) return;
+        return layerWeights;
+    }
 
-        // update the weights for each layer
-        for(int idxLayer = 0; idxLayer < this.layerLinkWeights.length; idxLayer++) {
-            for(int idxNode = 0; idxNode < this.layerLinkWeights[idxLayer].length; idxNode++) {
-                for(int idxLink = 0; idxLink < this.layerLinkWeights[idxLayer][idxNode].length; idxLink++) {
-                    this.layerLinkWeights[idxLayer][idxNode][idxLink] = random(this.layerLinkWeights[idxLayer][idxNode].length);
-                }
-            }
-        }
+    /**
+     * Creates a workspace sized for this network. Each thread firing the network concurrently must use its own
+     * workspace.
+     *
+     * @return
+     */
+    public Workspace newWorkspace() {
+        return new Workspace(this.layers);
     }
 
+    /**
+     * Fires the network using a workspace confined to the current thread. The returned array is a copy.
+     *
+     * @param pInput
+     * @return
+     */
     public double[] fire(double[] pInput) {
+        Workspace workspace = this.localWorkspace.get();
+        this.fire(pInput, workspace, null);
+
+        double[] output = workspace.getOutput();
+        return Arrays.copyOf(output, output.length);
+    }
+
+    /**
+     * Fires the network using a workspace confined to the current thread without allocating.
+     *
+     * @param pInput
+     * @param output receives the values of the Output Layer
+     * @return the output array
+     */
+    @Override
+    public double[] fire(double[] pInput, double[] output) {
+        return this.fire(pInput, this.localWorkspace.get(), output);
+    }
+
+    /**
+     * Fires the network storing the output of each layer on the provided workspace. It does not allocate nor
+     * changes the state of the network, so many threads may call it at once as long as each one has its own
+     * workspace and no training is running.
+     *
+     * @param pInput
+     * @param workspace the caller's workspace (see {@link #newWorkspace()})
+     * @param output receives the values of the Output Layer, it may be null
+     * @return the output array, or the workspace's buffer when no output array was provided
+     */
+    public double[] fire(double[] pInput, Workspace workspace, double[] output) {
         if(pInput == null || pInput.length != this.totalInputNodes)
             throw new IllegalArgumentException(String.format("The parameter must have the same length of the total nodes (%d)", totalInputNodes));
-
-        // holds the outputs for each layer (input_layer + hidden_layers + output_layer)
-        this.layerOutputs = new double[this.layerLinkWeights.length + 1][];
+        if(workspace == null || !workspace.fits(this.layers))
+            throw new IllegalArgumentException("The workspace does not fit the topology of the network");
+        if(output != null && output.length != this.totalOutputNodes)
+            throw new IllegalArgumentException(String.format("The output must have the same length of the total output nodes (%d)", totalOutputNodes));
 
         // stores the output for the Input Layer
-        this.layerOutputs[0] = Arrays.copyOf(pInput, pInput.length);
+        System.arraycopy(pInput, 0, workspace.layerOutputs[0], 0, pInput.length);
 
-        // aux array to hold the Inputs for the current layer
-        double[] inputOutput = Arrays.copyOf(pInput, pInput.length);
+        return this.fireFrom(0, workspace, output, this.layerTimer, this.layerTimer != null ? System.nanoTime() : 0L);
+    }
 
-        for(int idxLayer = 0, idxLayerOutput = 1; idxLayer < this.layerLinkWeights.length; idxLayer++, idxLayerOutput++) {
-            // creates the array for the current layer with the length of Links
-            this.layerOutputs[idxLayerOutput] = new double[this.layerLinkWeights[idxLayer][0].length];
+    /**
+     * Fires the network using a workspace confined to the current thread without allocating (see
+     * {@link #fire(SparseVector, Workspace, double[])}).
+     *
+     * @param input
+     * @param output receives the values of the Output Layer
+     * @return the output array
+     */
+    public double[] fire(SparseVector input, double[] output) {
+        return this.fire(input, this.localWorkspace.get(), output);
+    }
+
+    /**
+     * Same as {@link #fire(double[], Workspace, double[])} for a mostly-zero input: the first layer, which must be
+     * a {@link DenseLayer}, goes only through the weights of the non-zero inputs. Inputs denser than
+     * {@value #MAX_SPARSE_DENSITY} are expanded on the workspace and fired as dense ones; otherwise the output of
+     * the Input Layer is not stored on the workspace.
+     *
+     * @param input
+     * @param workspace the caller's workspace (see {@link #newWorkspace()})
+     * @param output receives the values of the Output Layer, it may be null
+     * @return the output array, or the workspace's buffer when no output array was provided
+     */
+    public double[] fire(SparseVector input, Workspace workspace, double[] output) {
+        if(input == null || input.getSize() != this.totalInputNodes)
+            throw new IllegalArgumentException(String.format("The parameter must have the same length of the total nodes (%d)", totalInputNodes));
+        if(workspace == null || !workspace.fits(this.layers))
+            throw new IllegalArgumentException("The workspace does not fit the topology of the network");
+        if(output != null && output.length != this.totalOutputNodes)
+            throw new IllegalArgumentException(String.format("The output must have the same length of the total output nodes (%d)", totalOutputNodes));
+
+        LayerTimer timer = this.layerTimer;
+        long start = timer != null ? System.nanoTime() : 0L;
+
+        if(!this.isSparseEnough(input)) {
+            input.toDense(workspace.layerOutputs[0]);
+            return this.fireFrom(0, workspace, output, timer, start);
+        }
 
-            // sum up all the LINK_WEIGHT * INPUT_NODE
-            for(int idxNode = 0; idxNode < this.layerLinkWeights[idxLayer].length; idxNode++) {
-                for(int idxLink = 0; idxLink < this.layerLinkWeights[idxLayer][idxNode].length; idxLink++) {
-                    this.layerOutputs[idxLayerOutput][idxLink] += this.layerLinkWeights[idxLayer][idxNode][idxLink] * inputOutput[idxNode];
-                }
+        this.getDenseLayer(0).forward(input, workspace.layerOutputs[1]);
+
+        if(timer != null) {
+            long now = System.nanoTime();
+            timer.forward(0, now - start);
+            start = now;
+        }
+
+        return this.fireFrom(1, workspace, output, timer, start);
+    }
+
+    private boolean isSparseEnough(SparseVector input) {
+        return input.getDensity() <= MAX_SPARSE_DENSITY;
+    }
+
+    // fires the layers from the given one on, whose input is already on the workspace
+    private double[] fireFrom(int idxFirstLayer, Workspace workspace, double[] output, LayerTimer timer, long start) {
+        double[][] layerOutputs = workspace.layerOutputs;
+
+        for(int idxLayer = idxFirstLayer, idxLayerOutput = idxFirstLayer + 1; idxLayer < this.layers.length; idxLayer++, idxLayerOutput++) {
+            this.layers[idxLayer].forward(layerOutputs[idxLayerOutput - 1], layerOutputs[idxLayerOutput]);
+
+            if(timer != null) {
+                long now = System.nanoTime();
+                timer.forward(idxLayer, now - start);
+                start = now;
             }
+        }
 
-            // applies the threshold function
-            for(int idxNode = 0; idxNode < this.layerOutputs[idxLayerOutput].length; idxNode++) {
-                this.layerOutputs[idxLayerOutput][idxNode] = this.thresholdDoubleFunction.apply(this.layerOutputs[idxLayerOutput][idxNode]);
+        double[] finalOutput = layerOutputs[layerOutputs.length - 1];
+        if(output == null)
+            return finalOutput;
+
+        System.arraycopy(finalOutput, 0, output, 0, finalOutput.length);
+        return output;
+    }
+
+    /**
+     * Fires the network for many inputs at once, so each layer's weights are streamed from memory once per
+     * {@link #getBatchSize()} inputs instead of once per input.
+     *
+     * @param inputs
+     * @return the values of the Output Layer for each input
+     */
+    public double[][] fireBatch(double[][] inputs) {
+        if(inputs == null)
+            throw new IllegalArgumentException("The inputs must be provided");
+
+        double[][] outputs = new double[inputs.length][this.totalOutputNodes];
+        if(inputs.length > 0) {
+            this.fireBatch(inputs, inputs.length, this.newBatchWorkspace(Math.min(inputs.length, this.batchSize)), outputs);
+        }
+
+        return outputs;
+    }
+
+    /**
+     * Fires the network for the first <code>count</code> inputs, pushing up to the workspace's capacity of them
+     * through each layer at once. It does not allocate nor changes the state of the network, so many threads may
+     * call it at once as long as each one has its own workspace and no training is running. Each output gets the
+     * same values {@link #fire(double[], Workspace, double[])} gives.
+     *
+     * @param inputs
+     * @param count
+     * @param workspace the caller's workspace (see {@link #newBatchWorkspace(int)})
+     * @param outputs receives the values of the Output Layer for each input
+     */
+    public void fireBatch(double[][] inputs, int count, BatchWorkspace workspace, double[][] outputs) {
+        if(inputs == null || outputs == null || count < 0 || count > inputs.length || count > outputs.length)
+            throw new IllegalArgumentException(String.format("There must be %d inputs and outputs", count));
+        if(workspace == null || !workspace.fits(this.layers))
+            throw new IllegalArgumentException("The workspace does not fit the topology of the network");
+
+        double[][][] layerOutputs = workspace.layerOutputs;
+
+        for(int start = 0; start < count; start += workspace.getCapacity()) {
+            int size = Math.min(count - start, workspace.getCapacity());
+
+            for(int idxSample = 0; idxSample < size; idxSample++) {
+                double[] input = inputs[start + idxSample];
+                if(input == null || input.length != this.totalInputNodes)
+                    throw new IllegalArgumentException(String.format("The inputs must have the same length of the total nodes (%d)", totalInputNodes));
+                if(outputs[start + idxSample] == null || outputs[start + idxSample].length != this.totalOutputNodes)
+                    throw new IllegalArgumentException(String.format("The outputs must have the same length of the total output nodes (%d)", totalOutputNodes));
+
+                layerOutputs[0][idxSample] = input;
+            }
+
+            for(int idxLayer = 0; idxLayer < this.layers.length; idxLayer++) {
+                this.layers[idxLayer].forwardBatch(layerOutputs[idxLayer], layerOutputs[idxLayer + 1], size);
             }
 
-            // updates the array with the Input Values from the current Hidden Layer to be used by the next one
-            inputOutput = Arrays.copyOf(this.layerOutputs[idxLayerOutput], this.layerOutputs[idxLayerOutput].length);
+            double[][] finalOutputs = layerOutputs[layerOutputs.length - 1];
+            for(int idxSample = 0; idxSample < size; idxSample++) {
+                System.arraycopy(finalOutputs[idxSample], 0, outputs[start + idxSample], 0, this.totalOutputNodes);
+            }
         }
 
-        return inputOutput;
+        // drops the references to the caller's inputs
+        for(int idxSample = 0; idxSample < workspace.getCapacity(); idxSample++) {
+            layerOutputs[0][idxSample] = null;
+        }
     }
 
     /**
-     * Trains the Neural Network using the Backpropagation approach.
+     * Trains the Neural Network using the Backpropagation approach. Without an {@link Optimizer} the weights of each
+     * layer are updated as soon as its errors are known; otherwise the gradients of the whole network are computed
+     * first and handed to the optimizer.
+     *
+     * The outputs, errors and deltas go through the workspace confined to the current thread, so once it exists the
+     * training does not allocate. Without an optimizer the errors of the previous layer and the update of the
+     * weights are computed in the same sweep over each row of weights.
      *
      * @param input
      * @param expectedTarget
@@ -181,92 +508,488 @@ public class NeuralNetwork implements Serializable {
     public void train(double[] input, double[] expectedTarget) {
 
         // trigger the NN using the provided input
-        this.fire(input);
-
-        // takes the resultant output from the output layer
-        double currentOutput;
-        double inputFromNodePreviousLayer;
-        double linkWeightFromPreviousLayer;
-        double currentTarget;
-        double errorGradient;
-        double newWeight;
-        // stores the errors for the nodes in the previous layer
-        double[][] previousNodeError = new double[this.layerLinkWeights.length][];
+        Workspace workspace = this.localWorkspace.get();
+        this.fire(input, workspace, null);
+        this.backpropagate(workspace, expectedTarget, null);
+    }
+
+    /**
+     * Same as {@link #train(double[], double[])} for a mostly-zero input: the first layer, which must be a
+     * {@link DenseLayer}, goes only through the weights of the non-zero inputs both when firing and when updating
+     * them, unless the input is denser than {@value #MAX_SPARSE_DENSITY}.
+     *
+     * @param input
+     * @param expectedTarget
+     */
+    public void train(SparseVector input, double[] expectedTarget) {
+        Workspace workspace = this.localWorkspace.get();
+        this.fire(input, workspace, null);
+        this.backpropagate(workspace, expectedTarget, this.isSparseEnough(input) ? input : null);
+    }
+
+    // backpropagates the errors of the sample last fired through the workspace, the sparse input is null when the
+    // input was dense
+    private void backpropagate(Workspace workspace, double[] expectedTarget, SparseVector sparseInput) {
+        double[][] layerOutputs = workspace.layerOutputs;
+        LayerTimer timer = this.layerTimer;
+        long start = timer != null ? System.nanoTime() : 0L;
+
+        Optimizer optimizer = this.optimizer;
+        Gradients gradients = null;
+        if(optimizer != null) {
+            if(workspace.gradients == null) {
+                workspace.gradients = this.newGradients();
+            }
+            gradients = workspace.gradients;
+            gradients.clear();
+        }
+
+        // the errors of the Output Layer, the ones of the previous layers are computed while going backwards
+        double[][] layerErrors = workspace.layerErrors;
+        double[] outputs = layerOutputs[layerOutputs.length - 1];
+        double[] outputErrors = layerErrors[layerErrors.length - 1];
+        for(int idxNode = 0; idxNode < outputs.length; idxNode++) {
+            outputErrors[idxNode] = expectedTarget[idxNode] - outputs[idxNode];
+        }
 
         // starting from the last to the before first layer
-        for(int idxLayer = this.layerOutputs.length - 1, idxLayerLinkWeight = idxLayer - 1; idxLayer > 0; idxLayer--, idxLayerLinkWeight--) {
-            previousNodeError[idxLayerLinkWeight] = new double[this.layerLinkWeights[idxLayerLinkWeight].length];
-
-            for (int idxNode = 0; idxNode < this.layerOutputs[idxLayer].length; idxNode++) {
-                currentOutput = this.layerOutputs[idxLayer][idxNode]; // output of the current node
-
-                // the first iteration we go for the Output Layer
-                if(idxLayer == this.layerOutputs.length - 1) {
-                    currentTarget = expectedTarget[idxNode]; // training data - the target for the current node
-                    errorGradient = currentTarget - currentOutput;
-                } else { // So for the others layers
-                    // the errorGradient is the sum of the link's weights's errors from the next layer for the current node
-                    errorGradient = previousNodeError[idxLayerLinkWeight + 1][idxNode];
-                }
-
-                // filling the array with errors of Nodes from Previous Layer to the Current Layer
-                for(int idxNodePrevLayer = 0; idxNodePrevLayer < previousNodeError[idxLayerLinkWeight].length; idxNodePrevLayer++) {
-                    previousNodeError[idxLayerLinkWeight][idxNodePrevLayer] +=
-                            this.layerLinkWeights[idxLayerLinkWeight][idxNodePrevLayer][idxNode] * errorGradient;
-                }
-
-                double error = this.learningRate * (errorGradient * currentOutput * (1.0 - currentOutput));
-
-                for(int idxLink = 0; idxLink < this.layerLinkWeights[idxLayerLinkWeight].length; idxLink++) {
-                    // input's value from the previous layer/node to the current node
-                    inputFromNodePreviousLayer = this.layerOutputs[idxLayer - 1][idxLink];
-                    // link's weight from the previous layer/node to the current node
-                    linkWeightFromPreviousLayer = this.layerLinkWeights[idxLayerLinkWeight][idxLink][idxNode];
-
-                    // Formula Gradient Decent: Wn +/- σ * -(En - On) * On * (1 - On) * O(n - 1)
-                    double deltaWeight = error * inputFromNodePreviousLayer;
-                    newWeight = linkWeightFromPreviousLayer + deltaWeight;
-
-                    // updates the link's weight which points to the current node
-                    this.layerLinkWeights[idxLayerLinkWeight][idxLink][idxNode] = newWeight;
-                }
+        for(int idxLayer = layerOutputs.length - 1, idxLayerWeight = idxLayer - 1; idxLayer > 0; idxLayer--, idxLayerWeight--) {
+            Layer layer = this.layers[idxLayerWeight];
+
+            // the errors of the previous layer (the Input Layer has none)
+            double[] previousNodeErrors = idxLayerWeight > 0 ? layerErrors[idxLayer - 1] : null;
+
+            // without an optimizer the parameters of the current layer are updated right away (no gradients)
+            double factor = gradients == null ? this.learningRate : 1.0;
+            double[][] layerGradients = gradients == null ? null : gradients.layerGradients[idxLayerWeight];
+            if(sparseInput != null && idxLayerWeight == 0) {
+                ((DenseLayer) layer).backward(sparseInput, layerOutputs[idxLayer], layerErrors[idxLayer], factor,
+                        workspace.layerDeltas[idxLayer], layerGradients);
+            } else {
+                layer.backward(layerOutputs[idxLayer - 1], layerOutputs[idxLayer], layerErrors[idxLayer], factor,
+                        workspace.layerDeltas[idxLayer], layerGradients, previousNodeErrors);
+            }
+
+            if(timer != null) {
+                long now = System.nanoTime();
+                timer.backward(idxLayerWeight, now - start);
+                start = now;
             }
         }
+
+        if(gradients != null) {
+            optimizer.update(this.layers, gradients, this.learningRate);
+        }
     }
 
-    public double random(int totalNodes) {
-        //return (random.nextInt(99) / 100d + 0.01) * (random.nextInt() % 2 == 0 ? -1 : 1);
+    /**
+     * Trains the Neural Network using mini-batches of {@link #getBatchSize()} samples: the changes of the link's
+     * weights are averaged across each batch and applied once per batch. A batch size of 1 gives the same results
+     * of calling {@link #train(double[], double[])} for each sample.
+     *
+     * @param inputs
+     * @param expectedTargets
+     */
+    public void trainBatch(double[][] inputs, double[][] expectedTargets) {
+        if(inputs == null || expectedTargets == null || inputs.length != expectedTargets.length)
+            throw new IllegalArgumentException("There must be one expected target for each input");
+
+        if(this.trainingBatchWorkspace == null || this.trainingBatchWorkspace.getCapacity() != this.batchSize) {
+            this.trainingBatchWorkspace = this.newBatchWorkspace(this.batchSize);
+            this.trainingGradients = this.newGradients();
+        }
 
-        double calc = 1.0 / Math.sqrt(totalNodes);
-        int multiplier = 1;
+        for(int start = 0; start < inputs.length; start += this.batchSize) {
+            int end = Math.min(start + this.batchSize, inputs.length);
 
-        while ((int) (calc * multiplier) / 10 < 1) {
-            multiplier *= 10;
+            this.trainingGradients.clear();
+            this.computeGradients(inputs, expectedTargets, start, end, this.getGradientFactor(end - start),
+                    this.trainingBatchWorkspace, this.trainingGradients);
+            this.applyGradients(this.trainingGradients);
         }
+    }
+
+    /**
+     * Runs the backpropagation for the samples in the range [from, to) adding the changes of the link's weights,
+     * multiplied by <code>factor</code> (usually {@link #getGradientFactor(int)}), into the provided gradients. The
+     * weights are left untouched, so many threads may call it at once as long as each one has its own workspace and
+     * gradients.
+     *
+     * @param inputs
+     * @param expectedTargets
+     * @param from the first sample (inclusive)
+     * @param to the last sample (exclusive)
+     * @param factor
+     * @param workspace the caller's workspace (see {@link #newBatchWorkspace(int)})
+     * @param gradients the caller's gradients (see {@link #newGradients()})
+     */
+    public void computeGradients(double[][] inputs, double[][] expectedTargets, int from, int to, double factor,
+                                 BatchWorkspace workspace, Gradients gradients) {
+        if(workspace == null || !workspace.fits(this.layers))
+            throw new IllegalArgumentException("The workspace does not fit the topology of the network");
+        if(gradients == null || !gradients.fits(this.layers))
+            throw new IllegalArgumentException("The gradients do not fit the topology of the network");
+
+        for(int start = from; start < to; start += workspace.getCapacity()) {
+            this.backpropagate(inputs, expectedTargets, start, Math.min(to - start, workspace.getCapacity()), factor, workspace, gradients);
+        }
+    }
+
+    private void backpropagate(double[][] inputs, double[][] expectedTargets, int offset, int count, double factor,
+                               BatchWorkspace workspace, Gradients gradients) {
+        double[][][] layerOutputs = workspace.layerOutputs;
+
+        for(int idxSample = 0; idxSample < count; idxSample++) {
+            double[] input = inputs[offset + idxSample];
+            if(input == null || input.length != this.totalInputNodes)
+                throw new IllegalArgumentException(String.format("The inputs must have the same length of the total nodes (%d)", totalInputNodes));
+            if(expectedTargets[offset + idxSample] == null || expectedTargets[offset + idxSample].length != this.totalOutputNodes)
+                throw new IllegalArgumentException(String.format("The expected targets must have the same length of the total output nodes (%d)", totalOutputNodes));
+
+            layerOutputs[0][idxSample] = input;
+        }
+
+        // forward pass for the whole batch, one layer at a time
+        for(int idxLayer = 0; idxLayer < this.layers.length; idxLayer++) {
+            this.layers[idxLayer].forwardBatch(layerOutputs[idxLayer], layerOutputs[idxLayer + 1], count);
+        }
+
+        // the errors of the Output Layer
+        int idxOutputLayer = layerOutputs.length - 1;
+        for(int idxSample = 0; idxSample < count; idxSample++) {
+            double[] output = layerOutputs[idxOutputLayer][idxSample];
+            double[] target = expectedTargets[offset + idxSample];
+            double[] error = workspace.layerErrors[idxOutputLayer][idxSample];
+
+            for(int idxNode = 0; idxNode < output.length; idxNode++) {
+                error[idxNode] = target[idxNode] - output[idxNode];
+            }
+        }
+
+        // starting from the last to the before first layer
+        for(int idxLayer = idxOutputLayer, idxLayerWeight = idxLayer - 1; idxLayer > 0; idxLayer--, idxLayerWeight--) {
+            this.layers[idxLayerWeight].backwardBatch(layerOutputs[idxLayer - 1], layerOutputs[idxLayer], workspace.layerErrors[idxLayer],
+                    factor, workspace.layerDeltas[idxLayer], gradients.layerGradients[idxLayerWeight],
+                    idxLayerWeight > 0 ? workspace.layerErrors[idxLayer - 1] : null, count);
+        }
+    }
+
+    /**
+     * Adds the gradients into the link's weights, or hands them to the {@link Optimizer} when there is one.
+     *
+     * @param gradients computed with the factor of {@link #getGradientFactor(int)}
+     */
+    public void applyGradients(Gradients gradients) {
+        if(gradients == null || !gradients.fits(this.layers))
+            throw new IllegalArgumentException("The gradients do not fit the topology of the network");
+
+        if(this.optimizer != null) {
+            this.optimizer.update(this.layers, gradients, this.learningRate);
+            return;
+        }
+
+        for(int idxLayer = 0; idxLayer < this.layers.length; idxLayer++) {
+            double[][] parameterGradients = gradients.layerGradients[idxLayer];
+            for(int idxParameter = 0; idxParameter < parameterGradients.length; idxParameter++) {
+                this.layers[idxLayer].addToParameter(idxParameter, 0, parameterGradients[idxParameter], parameterGradients[idxParameter].length);
+            }
+        }
+    }
+
+    /**
+     * @param capacity the maximum of samples processed at once
+     * @return a new workspace for {@link #computeGradients}
+     */
+    public BatchWorkspace newBatchWorkspace(int capacity) {
+        return new BatchWorkspace(this.layers, capacity);
+    }
+
+    public Gradients newGradients() {
+        return new Gradients(this.layers);
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if(batchSize <= 0)
+            throw new IllegalArgumentException(String.format("Invalid batch size (%d)", batchSize));
+
+        this.batchSize = batchSize;
+    }
+
+    public LayerTimer getLayerTimer() {
+        return layerTimer;
+    }
+
+    /**
+     * Starts (or stops, when null) reporting the time spent by each layer while firing and training. When no
+     * timer is set the clock is never read.
+     *
+     * A network has a single timer, called by every thread firing or training it, e.g. the workers of a
+     * ParallelTrainer or the callers of a MicroBatchScheduler: it must be thread-safe, or ignore the threads it
+     * does not measure.
+     *
+     * @param layerTimer
+     */
+    public void setLayerTimer(LayerTimer layerTimer) {
+        this.layerTimer = layerTimer;
+    }
+
+    /**
+     * @param batchSize the quantity of samples whose gradients are summed
+     * @return the factor of {@link #computeGradients} for {@link #applyGradients(Gradients)}: the learning rate
+     * divided by the batch size, or just the inverse of the batch size when the {@link Optimizer} applies the rate
+     */
+    public double getGradientFactor(int batchSize) {
+        return (this.optimizer == null ? this.learningRate : 1.0) / batchSize;
+    }
+
+    public Optimizer getOptimizer() {
+        return optimizer;
+    }
+
+    /**
+     * Changes how the gradients update the parameters. Stateful optimizers make {@link #train(double[], double[])}
+     * unsafe to call from many threads at once, and it must not be called while the network is being trained.
+     *
+     * @param optimizer null restores the book's gradient descent
+     */
+    public void setOptimizer(Optimizer optimizer) {
+        this.optimizer = optimizer;
+    }
+
+    public double getLearningRate() {
+        return learningRate;
+    }
+
+    /**
+     * Used by the learning rate schedules between epochs, it must not be called while the network is being trained.
+     *
+     * @param learningRate
+     */
+    public void setLearningRate(double learningRate) {
+        if(!(learningRate > 0.0))
+            throw new IllegalArgumentException(String.format("Invalid learning rate (%f)", learningRate));
+
+        this.learningRate = learningRate;
+    }
+
+    /**
+     * @deprecated use a seeded {@link WeightInitializer}, which fills whole layers reproducibly
+     * @param totalNodes the total of links leaving the source node
+     * @return a weight of the book's scheme (see {@link WeightInitializer.Scheme#BOOK})
+     */
+    @Deprecated
+    public double random(int totalNodes) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
 
         // +-(1/sqrt(total_nodes))
-        return (random.nextInt((int) (calc * multiplier)) / (multiplier * 1.0) + 0.01) * (random.nextInt() % 2 == 0 ? -1 : 1);
+        double magnitude = random.nextDouble() / Math.sqrt(totalNodes) + 0.01;
+        return random.nextBoolean() ? magnitude : -magnitude;
     }
 
+    /**
+     * @param idxLayer 0 for the first Hidden Layer up to {@link #getTotalLayers()} - 1 for the Output Layer
+     * @return the threshold function of the layer
+     */
+    public Activation getActivation(int idxLayer) {
+        return this.layers[idxLayer].getActivation();
+    }
+
+    /**
+     * Replaces the threshold function of every layer, e.g. switching a network trained with
+     * {@link Activations#SIGMOID} to {@link Activations#FAST_SIGMOID} for inference. It must not be called while
+     * the network is being fired or trained.
+     *
+     * @param activation
+     * @throws IllegalArgumentException if a layer is not a {@link DenseLayer}
+     */
+    public void setActivation(Activation activation) {
+        if(activation == null)
+            throw new IllegalArgumentException("The threshold function must be provided");
+
+        for(int idxLayer = 0; idxLayer < this.layers.length; idxLayer++) {
+            this.getDenseLayer(idxLayer).setActivation(activation);
+        }
+    }
+
+    /**
+     * Exports the link's weights using the jagged layout accepted by the constructors, where the dimensions are:
+     *  1- Layers (totalLayers - 1)
+     *  2- Nodes
+     *  3- Links (Links (weights) for each node of the next layer)
+     *
+     * @return
+     */
+    public double[][][] getLayerLinkWeights() {
+        double[][][] layerLinkWeights = new double[this.layers.length][][];
+        for(int idxLayer = 0; idxLayer < this.layers.length; idxLayer++) {
+            layerLinkWeights[idxLayer] = this.getLayerWeights(idxLayer).toLinkWeights();
+        }
+
+        return layerLinkWeights;
+    }
+
+    /**
+     * @param idxLayer
+     * @return the link's weights arriving at the nodes of the layer
+     * @throws IllegalArgumentException if the layer is not a {@link DenseLayer}
+     */
+    public WeightMatrix getLayerWeights(int idxLayer) {
+        return this.getDenseLayer(idxLayer).getWeights();
+    }
+
+    /**
+     * @param idxLayer
+     * @return the live biases of the layer, null when it has none
+     * @throws IllegalArgumentException if the layer is not a {@link DenseLayer}
+     */
+    public double[] getLayerBiases(int idxLayer) {
+        return this.getDenseLayer(idxLayer).getBiases();
+    }
+
+    /**
+     * Creates an independent copy of the network, its layers and its optimizer's state included, through Java
+     * serialization.
+     *
+     * @return
+     */
+    public NeuralNetwork copy() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(this);
+            }
+
+            try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                return (NeuralNetwork) in.readObject();
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Failed to copy the network", e);
+        }
+    }
+
+    /**
+     * Creates a copy of the network whose link's weights live outside the heap, each layer in its own direct buffer
+     * (see {@link WeightMatrix#allocateDirect(int, int)}), so very large models neither fill the old generation nor
+     * get scanned by the garbage collector. It fires and trains through the same methods, giving the same values;
+     * the biases and the buffers of each thread stay on the heap. The optimizer is not copied.
+     *
+     * @return
+     * @throws IllegalArgumentException if a layer is not a {@link DenseLayer} or its weights take more than 2 GB
+     */
+    public NeuralNetwork toOffHeap() {
+        Layer[] offHeapLayers = new Layer[this.layers.length];
+        for(int idxLayer = 0; idxLayer < offHeapLayers.length; idxLayer++) {
+            DenseLayer layer = this.getDenseLayer(idxLayer);
+            WeightMatrix weights = WeightMatrix.allocateDirect(layer.getOutputSize(), layer.getInputSize());
+            weights.copyFrom(layer.getWeights());
+
+            double[] biases = layer.getBiases();
+            offHeapLayers[idxLayer] = new DenseLayer(weights, biases == null ? null : biases.clone(), layer.getActivation());
+        }
+
+        NeuralNetwork network = new NeuralNetwork(this.learningRate, offHeapLayers);
+        network.setBatchSize(this.batchSize);
+
+        return network;
+    }
+
+    /**
+     * Overwrites the parameters of every layer with the ones of another network of the same topology, e.g. a copy
+     * kept as a checkpoint. It does not allocate.
+     *
+     * @param other
+     */
+    public void copyParametersFrom(NeuralNetwork other) {
+        if(other == null || other.layers.length != this.layers.length)
+            throw new IllegalArgumentException("The networks must have the same topology");
+
+        for(int idxLayer = 0; idxLayer < this.layers.length; idxLayer++) {
+            this.layers[idxLayer].copyParametersFrom(other.layers[idxLayer]);
+        }
+    }
+
+    /**
+     * @param idxLayer 0 for the first Hidden Layer up to {@link #getTotalLayers()} - 1 for the Output Layer
+     * @return
+     */
+    public Layer getLayer(int idxLayer) {
+        return this.layers[idxLayer];
+    }
+
+    public int getTotalLayers() {
+        return this.layers.length;
+    }
+
+    private DenseLayer getDenseLayer(int idxLayer) {
+        if(!(this.layers[idxLayer] instanceof DenseLayer))
+            throw new IllegalArgumentException(String.format("The layer %d is not a dense layer", idxLayer));
+
+        return (DenseLayer) this.layers[idxLayer];
+    }
+
+    @Override
+    public int getTotalInputNodes() {
+        return totalInputNodes;
+    }
+
+    @Override
+    public int getTotalOutputNodes() {
+        return totalOutputNodes;
+    }
+
+    @Override
+    public Precision getPrecision() {
+        return Precision.DOUBLE;
+    }
+
+    /**
+     * Converts the network into the given precision. The converted model is a copy, later training of this network
+     * does not change it.
+     *
+     * @param precision
+     * @return this network for {@link Precision#DOUBLE}, a {@link FloatNetwork} or a {@link QuantizedNetwork}
+     */
+    public InferenceModel toPrecision(Precision precision) {
+        switch(precision) {
+            case DOUBLE:
+                return this;
+            case FLOAT:
+                return new FloatNetwork(this);
+            case INT8:
+                return new QuantizedNetwork(this);
+            default:
+                throw new IllegalArgumentException(String.format("Unsupported precision %s", precision));
+        }
+    }
+
+    /**
+     * @return the output from the last fire made by the current thread through {@link #fire(double[])},
+     * {@link #fire(double[], double[])} or {@link #train(double[], double[])}
+     */
     public double[] getOutput() {
-        if(layerOutputs == null || layerOutputs.length == 0)
-            return null;
+        return this.localWorkspace.get().getOutput();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
 
-        return layerOutputs[layerOutputs.length - 1];
+        this.localWorkspace = ThreadLocal.withInitial(this::newWorkspace);
     }
 
     @Override
     public String toString() {
         return "NeuralNetwork{" +
                 "learningRate=" + learningRate +
-                ", random=" + random +
-                ", thresholdDoubleFunction=" + thresholdDoubleFunction +
                 ", totalInputNodes=" + totalInputNodes +
                 ", nodesByHiddenLayer=" + Arrays.toString(nodesByHiddenLayer) +
                 ", totalOutputNodes=" + totalOutputNodes +
                 ", totalLayers=" + totalLayers +
-                ", layerLinkWeights=" + Arrays.toString(layerLinkWeights) +
-                ", layerOutputs=" + Arrays.toString(layerOutputs) +
+                ", batchSize=" + batchSize +
+                ", layers=" + Arrays.toString(layers) +
                 ", initialized=" + initialized +
                 '}';
     }
@@ -0,0 +1,32 @@
+package com.boudoux;
+
+import java.io.Serializable;
+
+/**
+ * Turns the gradients computed by the backpropagation into changes of the parameters of a {@link NeuralNetwork}
+ * (see {@link NeuralNetwork#setOptimizer(Optimizer)}). The implementations are in <code>com.boudoux.optimizer</code>.
+ *
+ * The gradients follow the sign of the book: adding them to the parameters reduces the error. They are averaged
+ * over the batch but not multiplied by the learning rate, which is given to each update.
+ *
+ * An optimizer keeps its state in flat arrays shaped like the parameters of the layers, allocated on the first
+ * update, so it belongs to a single network and must not be updated by many threads at once. The changes are added
+ * a chunk at a time through {@link Layer#addToParameter(int, int, double[], int)}, so the parameters may live off
+ * the heap.
+ */
+public interface Optimizer extends Serializable {
+
+    /**
+     * Changes the parameters of the layers from the gradients.
+     *
+     * @param layers
+     * @param gradients shaped like the parameters of the layers
+     * @param learningRate
+     */
+    void update(Layer[] layers, Gradients gradients, double learningRate);
+
+    /**
+     * Forgets the state built by the previous updates.
+     */
+    void reset();
+}
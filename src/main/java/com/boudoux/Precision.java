@@ -0,0 +1,23 @@
+package com.boudoux;
+
+/**
+ * The numeric precision of the weights and the activations of a model.
+ */
+public enum Precision {
+
+    /**
+     * 64-bit floating point, the one used by {@link NeuralNetwork}
+     */
+    DOUBLE,
+
+    /**
+     * 32-bit floating point (see {@link FloatNetwork}), half of the memory traffic of {@link #DOUBLE}
+     */
+    FLOAT,
+
+    /**
+     * 8-bit integers with a scale factor per layer and 32-bit integer sums (see {@link QuantizedNetwork}), only for
+     * inference
+     */
+    INT8
+}
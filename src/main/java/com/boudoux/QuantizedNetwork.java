@@ -0,0 +1,164 @@
+package com.boudoux;
+
+/**
+ * An inference-only copy of a {@link NeuralNetwork} whose weights are quantized into 8-bit integers after training.
+ *
+ * Each layer has a single symmetric scale for its weights (the greatest absolute weight maps to 127). The inputs
+ * of each layer are quantized the same way when the network is fired, the products are summed into 32-bit
+ * integers and each sum is scaled back to a double before the activation function.
+ */
+public class QuantizedNetwork implements InferenceModel {
+
+    private static final int MAX_QUANTIZED = 127;
+
+    // the sum of MAX_QUANTIZED * MAX_QUANTIZED products which still fits into an int
+    private static final int MAX_COLUMNS = Integer.MAX_VALUE / (MAX_QUANTIZED * MAX_QUANTIZED);
+
+    private final Activation[] layerActivations;
+
+    private final int[] layerRows;
+
+    private final int[] layerColumns;
+
+    // row-major [nodes of the next layer] x [nodes of the previous layer] for each pair of adjacent layers
+    private final byte[][] layerWeights;
+
+    // the value of one unit of the quantized weights of each layer
+    private final double[] layerScales;
+
+    // kept as doubles as they are added after the sums are scaled back, null for the layers without biases
+    private final double[][] layerBiases;
+
+    private final ThreadLocal<Scratch> localScratch = ThreadLocal.withInitial(Scratch::new);
+
+    public QuantizedNetwork(NeuralNetwork network) {
+        int totalLayers = network.getTotalLayers();
+
+        this.layerActivations = new Activation[totalLayers];
+        this.layerRows = new int[totalLayers];
+        this.layerColumns = new int[totalLayers];
+        this.layerWeights = new byte[totalLayers][];
+        this.layerScales = new double[totalLayers];
+        this.layerBiases = new double[totalLayers][];
+
+        for(int idxLayer = 0; idxLayer < totalLayers; idxLayer++) {
+            WeightMatrix weights = network.getLayerWeights(idxLayer);
+            if(weights.getColumns() > MAX_COLUMNS)
+                throw new IllegalArgumentException(String.format("The layer %d has more than %d links by node", idxLayer, MAX_COLUMNS));
+
+            double[] values = weights.values;
+            if(values == null) {
+                // the weights off the heap are copied onto it while they get quantized
+                values = new double[weights.getRows() * weights.getColumns()];
+                weights.read(0, values, values.length);
+            }
+
+            double scale = scaleOf(values, values.length);
+            byte[] quantized = new byte[values.length];
+            quantize(values, quantized, quantized.length, scale);
+
+            this.layerActivations[idxLayer] = network.getActivation(idxLayer);
+            this.layerRows[idxLayer] = weights.getRows();
+            this.layerColumns[idxLayer] = weights.getColumns();
+            this.layerWeights[idxLayer] = quantized;
+            this.layerScales[idxLayer] = scale;
+
+            double[] biases = network.getLayerBiases(idxLayer);
+            this.layerBiases[idxLayer] = biases == null ? null : biases.clone();
+        }
+    }
+
+    @Override
+    public double[] fire(double[] input, double[] output) {
+        if(input == null || input.length != this.getTotalInputNodes())
+            throw new IllegalArgumentException(String.format("The parameter must have the same length of the total nodes (%d)", this.getTotalInputNodes()));
+        if(output == null || output.length != this.getTotalOutputNodes())
+            throw new IllegalArgumentException(String.format("The output must have the same length of the total output nodes (%d)", this.getTotalOutputNodes()));
+
+        Scratch scratch = this.localScratch.get();
+        double[] layerInput = input;
+
+        for(int idxLayer = 0; idxLayer < this.layerWeights.length; idxLayer++) {
+            byte[] weights = this.layerWeights[idxLayer];
+            double[] biases = this.layerBiases[idxLayer];
+            int columns = this.layerColumns[idxLayer];
+            double[] layerOutput = idxLayer == this.layerWeights.length - 1 ? output : scratch.layerOutputs[idxLayer];
+
+            byte[] quantizedInput = scratch.layerInputs[idxLayer];
+            double inputScale = scaleOf(layerInput, columns);
+            quantize(layerInput, quantizedInput, columns, inputScale);
+
+            // sum up all the LINK_WEIGHT * INPUT_NODE over integers and scales the sums back
+            double scale = this.layerScales[idxLayer] * inputScale;
+            for(int idxRow = 0, offset = 0; idxRow < layerOutput.length; idxRow++, offset += columns) {
+                int sum = 0;
+                for(int idxColumn = 0; idxColumn < columns; idxColumn++) {
+                    sum += weights[offset + idxColumn] * quantizedInput[idxColumn];
+                }
+                layerOutput[idxRow] = biases == null ? sum * scale : sum * scale + biases[idxRow];
+            }
+
+            // applies the threshold function
+            this.layerActivations[idxLayer].apply(layerOutput, layerOutput);
+            layerInput = layerOutput;
+        }
+
+        return output;
+    }
+
+    /**
+     * @param idxLayer
+     * @return the value of one unit of the quantized weights of the layer
+     */
+    public double getScale(int idxLayer) {
+        return this.layerScales[idxLayer];
+    }
+
+    @Override
+    public int getTotalInputNodes() {
+        return this.layerColumns[0];
+    }
+
+    @Override
+    public int getTotalOutputNodes() {
+        return this.layerRows[this.layerRows.length - 1];
+    }
+
+    @Override
+    public Precision getPrecision() {
+        return Precision.INT8;
+    }
+
+    private static double scaleOf(double[] values, int length) {
+        double max = 0.0;
+        for(int idx = 0; idx < length; idx++) {
+            max = Math.max(max, Math.abs(values[idx]));
+        }
+
+        // all zeros quantize to zero with any scale
+        return max == 0.0 ? 1.0 : max / MAX_QUANTIZED;
+    }
+
+    private static void quantize(double[] values, byte[] to, int length, double scale) {
+        for(int idx = 0; idx < length; idx++) {
+            to[idx] = (byte) Math.round(values[idx] / scale);
+        }
+    }
+
+    /**
+     * The buffers of each thread: the quantized inputs of every layer and the outputs of the hidden layers (the
+     * Output Layer writes straight into the caller's array).
+     */
+    private class Scratch {
+        final byte[][] layerInputs = new byte[layerWeights.length][];
+
+        final double[][] layerOutputs = new double[layerWeights.length][];
+
+        Scratch() {
+            for(int idxLayer = 0; idxLayer < layerWeights.length; idxLayer++) {
+                this.layerInputs[idxLayer] = new byte[layerColumns[idxLayer]];
+                this.layerOutputs[idxLayer] = new double[layerRows[idxLayer]];
+            }
+        }
+    }
+}
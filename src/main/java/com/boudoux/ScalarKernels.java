@@ -0,0 +1,183 @@
+package com.boudoux;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The plain Java kernels, available on every JVM.
+ */
+class ScalarKernels extends DenseKernels {
+
+    @Override
+    void multiply(double[] weights, int rows, int columns, double[] input, double[] output) {
+        for(int idxRow = 0, offset = 0; idxRow < rows; idxRow++, offset += columns) {
+            double sum = 0.0;
+            for(int idxColumn = 0; idxColumn < columns; idxColumn++) {
+                sum += weights[offset + idxColumn] * input[idxColumn];
+            }
+            output[idxRow] = sum;
+        }
+    }
+
+    @Override
+    void multiply(ByteBuffer weights, int rows, int columns, double[] input, double[] output) {
+        for(int idxRow = 0, offset = 0; idxRow < rows; idxRow++, offset += columns) {
+            double sum = 0.0;
+            for(int idxColumn = 0; idxColumn < columns; idxColumn++) {
+                sum += weights.getDouble((offset + idxColumn) * Double.BYTES) * input[idxColumn];
+            }
+            output[idxRow] = sum;
+        }
+    }
+
+    @Override
+    void accumulateTransposed(double[] weights, int rows, int columns, double[] input, double[] output) {
+        for(int idxRow = 0, offset = 0; idxRow < rows; idxRow++, offset += columns) {
+            double value = input[idxRow];
+            for(int idxColumn = 0; idxColumn < columns; idxColumn++) {
+                output[idxColumn] += weights[offset + idxColumn] * value;
+            }
+        }
+    }
+
+    @Override
+    void addOuterProduct(double[] weights, int rows, int columns, double[] rowFactors, double[] columnFactors) {
+        for(int idxRow = 0, offset = 0; idxRow < rows; idxRow++, offset += columns) {
+            double factor = rowFactors[idxRow];
+            for(int idxColumn = 0; idxColumn < columns; idxColumn++) {
+                weights[offset + idxColumn] += factor * columnFactors[idxColumn];
+            }
+        }
+    }
+
+    @Override
+    void accumulateTransposedAndAddOuterProduct(double[] weights, int rows, int columns, double[] rowErrors,
+                                                double[] errors, double[] rowFactors, double[] columnFactors) {
+        for(int idxRow = 0, offset = 0; idxRow < rows; idxRow++, offset += columns) {
+            double error = rowErrors[idxRow];
+            double factor = rowFactors[idxRow];
+            for(int idxColumn = 0; idxColumn < columns; idxColumn++) {
+                double weight = weights[offset + idxColumn];
+                errors[idxColumn] += weight * error;
+                weights[offset + idxColumn] = weight + factor * columnFactors[idxColumn];
+            }
+        }
+    }
+
+    @Override
+    void multiplySparse(double[] weights, int rows, int columns, int[] indices, double[] values, int count, double[] output) {
+        for(int idxRow = 0, offset = 0; idxRow < rows; idxRow++, offset += columns) {
+            double sum = 0.0;
+            for(int idx = 0; idx < count; idx++) {
+                sum += weights[offset + indices[idx]] * values[idx];
+            }
+            output[idxRow] = sum;
+        }
+    }
+
+    @Override
+    void addOuterProductSparse(double[] weights, int rows, int columns, double[] rowFactors, int[] indices,
+                               double[] values, int count) {
+        for(int idxRow = 0, offset = 0; idxRow < rows; idxRow++, offset += columns) {
+            double factor = rowFactors[idxRow];
+            for(int idx = 0; idx < count; idx++) {
+                weights[offset + indices[idx]] += factor * values[idx];
+            }
+        }
+    }
+
+    @Override
+    void multiplyBatch(double[] weights, int rows, int columns, double[][] inputs, double[][] outputs, int count) {
+        for(int idxSample = 0; idxSample < count; idxSample++) {
+            double[] output = outputs[idxSample];
+            for(int idxRow = 0; idxRow < rows; idxRow++) {
+                output[idxRow] = 0.0;
+            }
+        }
+
+        for(int rowStart = 0; rowStart < rows; rowStart += ROW_BLOCK) {
+            int rowEnd = Math.min(rowStart + ROW_BLOCK, rows);
+
+            for(int columnStart = 0; columnStart < columns; columnStart += COLUMN_BLOCK) {
+                int columnEnd = Math.min(columnStart + COLUMN_BLOCK, columns);
+
+                for(int idxSample = 0; idxSample < count; idxSample++) {
+                    double[] input = inputs[idxSample];
+                    double[] output = outputs[idxSample];
+
+                    for(int idxRow = rowStart; idxRow < rowEnd; idxRow++) {
+                        int offset = idxRow * columns;
+                        double sum = output[idxRow];
+                        for(int idxColumn = columnStart; idxColumn < columnEnd; idxColumn++) {
+                            sum += weights[offset + idxColumn] * input[idxColumn];
+                        }
+                        output[idxRow] = sum;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    void multiplyTransposedBatch(double[] weights, int rows, int columns, double[][] inputs, double[][] outputs, int count) {
+        for(int idxSample = 0; idxSample < count; idxSample++) {
+            double[] output = outputs[idxSample];
+            for(int idxColumn = 0; idxColumn < columns; idxColumn++) {
+                output[idxColumn] = 0.0;
+            }
+        }
+
+        for(int sampleStart = 0; sampleStart < count; sampleStart += SAMPLE_BLOCK) {
+            int sampleEnd = Math.min(sampleStart + SAMPLE_BLOCK, count);
+
+            for(int columnStart = 0; columnStart < columns; columnStart += COLUMN_BLOCK) {
+                int columnEnd = Math.min(columnStart + COLUMN_BLOCK, columns);
+
+                for(int idxRow = 0, offset = 0; idxRow < rows; idxRow++, offset += columns) {
+                    for(int idxSample = sampleStart; idxSample < sampleEnd; idxSample++) {
+                        double value = inputs[idxSample][idxRow];
+                        double[] output = outputs[idxSample];
+                        for(int idxColumn = columnStart; idxColumn < columnEnd; idxColumn++) {
+                            output[idxColumn] += weights[offset + idxColumn] * value;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    void addOuterProductBatch(double[] gradients, int rows, int columns, double[][] rowFactors, double[][] columnFactors, int count) {
+        for(int rowStart = 0; rowStart < rows; rowStart += ROW_BLOCK) {
+            int rowEnd = Math.min(rowStart + ROW_BLOCK, rows);
+
+            for(int columnStart = 0; columnStart < columns; columnStart += COLUMN_BLOCK) {
+                int columnEnd = Math.min(columnStart + COLUMN_BLOCK, columns);
+
+                for(int idxSample = 0; idxSample < count; idxSample++) {
+                    double[] rowFactor = rowFactors[idxSample];
+                    double[] columnFactor = columnFactors[idxSample];
+
+                    for(int idxRow = rowStart; idxRow < rowEnd; idxRow++) {
+                        int offset = idxRow * columns;
+                        double factor = rowFactor[idxRow];
+                        for(int idxColumn = columnStart; idxColumn < columnEnd; idxColumn++) {
+                            gradients[offset + idxColumn] += factor * columnFactor[idxColumn];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    void add(double[] target, double[] source) {
+        for(int idx = 0; idx < target.length; idx++) {
+            target[idx] += source[idx];
+        }
+    }
+
+    @Override
+    String getName() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,142 @@
+package com.boudoux;
+
+import java.util.Arrays;
+
+/**
+ * An input holding only its non-zero values, as parallel arrays of increasing indices and values.
+ *
+ * Firing or training a network with it (see {@link NeuralNetwork#fire(SparseVector, Workspace, double[])}) makes
+ * the first layer go only through the columns of weights whose input is not zero, which pays off for mostly-zero
+ * inputs such as the MNIST pixels scaled with {@link com.boudoux.data.PixelScaling#RAW} or high-dimensional feature
+ * vectors. A vector is not thread-safe, but it can be refilled without allocating through {@link #set(double[])}.
+ */
+public class SparseVector {
+
+    // the length of the dense vector
+    private final int size;
+
+    private final int[] indices;
+
+    private final double[] values;
+
+    // the quantity of non-zero values
+    private int count;
+
+    /**
+     * Creates an empty vector able to hold any dense vector of the given size.
+     *
+     * @param size
+     */
+    public SparseVector(int size) {
+        this(size, new int[size], new double[size], 0);
+    }
+
+    /**
+     * @param size the length of the dense vector
+     * @param indices the increasing indices of the non-zero values, kept by the vector
+     * @param values the non-zero values, kept by the vector
+     */
+    public SparseVector(int size, int[] indices, double[] values) {
+        this(size, indices, values, indices == null ? 0 : indices.length);
+
+        if(values.length != indices.length)
+            throw new IllegalArgumentException(String.format("Expected %d values but got %d", indices.length, values.length));
+        for(int idx = 0; idx < indices.length; idx++) {
+            if(indices[idx] < 0 || indices[idx] >= size || (idx > 0 && indices[idx] <= indices[idx - 1]))
+                throw new IllegalArgumentException(String.format("The indices must be increasing and within [0, %d)", size));
+        }
+    }
+
+    private SparseVector(int size, int[] indices, double[] values, int count) {
+        if(size <= 0)
+            throw new IllegalArgumentException(String.format("Invalid size (%d)", size));
+        if(indices == null || values == null)
+            throw new IllegalArgumentException("The indices and the values must be provided");
+
+        this.size = size;
+        this.indices = indices;
+        this.values = values;
+        this.count = count;
+    }
+
+    /**
+     * @param dense
+     * @return a new vector holding the non-zero values of the dense one
+     */
+    public static SparseVector of(double[] dense) {
+        return new SparseVector(dense.length).set(dense);
+    }
+
+    /**
+     * Replaces the values of this vector with the non-zero ones of the dense vector.
+     *
+     * @param dense {@link #getSize()} values
+     * @return this vector
+     */
+    public SparseVector set(double[] dense) {
+        if(dense == null || dense.length != this.size)
+            throw new IllegalArgumentException(String.format("The dense vector must have %d values", this.size));
+        if(this.indices.length < this.size)
+            throw new IllegalArgumentException(String.format("The vector can not hold %d values", this.size));
+
+        int count = 0;
+        for(int idx = 0; idx < dense.length; idx++) {
+            if(dense[idx] != 0.0) {
+                this.indices[count] = idx;
+                this.values[count] = dense[idx];
+                count++;
+            }
+        }
+        this.count = count;
+
+        return this;
+    }
+
+    /**
+     * @param dense receives {@link #getSize()} values, zero where this vector has none
+     * @return the dense array
+     */
+    public double[] toDense(double[] dense) {
+        if(dense == null || dense.length != this.size)
+            throw new IllegalArgumentException(String.format("The dense vector must have %d values", this.size));
+
+        Arrays.fill(dense, 0.0);
+        for(int idx = 0; idx < this.count; idx++) {
+            dense[this.indices[idx]] = this.values[idx];
+        }
+
+        return dense;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the quantity of non-zero values
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the fraction of non-zero values
+     */
+    public double getDensity() {
+        return this.count / (double) this.size;
+    }
+
+    /**
+     * @return the live indices, only the first {@link #getCount()} ones are valid
+     */
+    int[] getIndices() {
+        return indices;
+    }
+
+    /**
+     * @return the live values, only the first {@link #getCount()} ones are valid
+     */
+    double[] getValues() {
+        return values;
+    }
+}
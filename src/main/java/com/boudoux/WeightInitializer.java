@@ -0,0 +1,217 @@
+package com.boudoux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fills the weights of the dense layers with random values from a seed, using a {@link SplittableRandom}.
+ *
+ * The weights of each layer are split into chunks of {@value #CHUNK_SIZE} values, and each chunk gets its own
+ * generator split from the seed in the order of the layers and of the chunks. The chunks are then filled in
+ * parallel, so the same seed always gives the same weights no matter how many threads fill them.
+ *
+ * The biases are set to zero.
+ */
+public class WeightInitializer {
+
+    // the weights filled by each generator
+    static final int CHUNK_SIZE = 16 * 1024;
+
+    /**
+     * How the weights of a layer with <code>rows</code> output and <code>columns</code> input nodes are drawn.
+     */
+    public enum Scheme {
+
+        /**
+         * +-(U(0, 1/sqrt(rows)) + 0.01), the magnitude based on the links leaving each node, as in the book
+         */
+        BOOK,
+
+        /**
+         * U(-sqrt(6 / (rows + columns)), sqrt(6 / (rows + columns))), Glorot's uniform scheme for the sigmoid and
+         * tanh layers
+         */
+        XAVIER,
+
+        /**
+         * U(-sqrt(6 / columns), sqrt(6 / columns)), the uniform variant of He's scheme for the relu layers
+         */
+        HE
+    }
+
+    private final long seed;
+
+    private final Scheme scheme;
+
+    /**
+     * Uses the book's scheme and a random seed.
+     */
+    public WeightInitializer() {
+        this(new SplittableRandom().nextLong(), Scheme.BOOK);
+    }
+
+    public WeightInitializer(long seed, Scheme scheme) {
+        if(scheme == null)
+            throw new IllegalArgumentException("The scheme must be provided");
+
+        this.seed = seed;
+        this.scheme = scheme;
+    }
+
+    /**
+     * Initializes the weights of every layer of the network using the common pool.
+     *
+     * @param network made of {@link DenseLayer}s
+     */
+    public void initialize(NeuralNetwork network) {
+        this.initialize(network, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param network made of {@link DenseLayer}s
+     * @param pool the threads filling the chunks
+     */
+    public void initialize(NeuralNetwork network, ForkJoinPool pool) {
+        WeightMatrix[] layerWeights = new WeightMatrix[network.getTotalLayers()];
+        for(int idxLayer = 0; idxLayer < layerWeights.length; idxLayer++) {
+            layerWeights[idxLayer] = network.getLayerWeights(idxLayer);
+
+            double[] biases = network.getLayerBiases(idxLayer);
+            for(int idx = 0; biases != null && idx < biases.length; idx++) {
+                biases[idx] = 0.0;
+            }
+        }
+
+        this.initialize(layerWeights, pool);
+    }
+
+    /**
+     * @param layerWeights the weights of each layer
+     * @param pool the threads filling the chunks
+     */
+    public void initialize(WeightMatrix[] layerWeights, ForkJoinPool pool) {
+        if(layerWeights == null || pool == null)
+            throw new IllegalArgumentException("The weights and the pool must be provided");
+
+        // split on the calling thread, in a fixed order, so each chunk always gets the same generator
+        SplittableRandom random = new SplittableRandom(this.seed);
+        List<Chunk> chunks = new ArrayList<>();
+        for(WeightMatrix weights : layerWeights) {
+            if(weights.isReadOnly())
+                throw new IllegalStateException("The weights are read-only");
+
+            int size = weights.getRows() * weights.getColumns();
+            for(int from = 0; from < size; from += CHUNK_SIZE) {
+                chunks.add(new Chunk(weights, from, Math.min(from + CHUNK_SIZE, size), random.split()));
+            }
+        }
+
+        if(chunks.size() == 1) {
+            this.fill(chunks.get(0));
+        } else if(!chunks.isEmpty()) {
+            pool.invoke(new FillTask(chunks.toArray(new Chunk[0]), 0, chunks.size()));
+        }
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public Scheme getScheme() {
+        return scheme;
+    }
+
+    @Override
+    public String toString() {
+        return "WeightInitializer{" +
+                "seed=" + seed +
+                ", scheme=" + scheme +
+                '}';
+    }
+
+    private void fill(Chunk chunk) {
+        WeightMatrix weights = chunk.weights;
+        int rows = weights.getRows();
+        int columns = weights.getColumns();
+        SplittableRandom random = chunk.random;
+
+        // the weights off the heap are drawn onto it first
+        double[] values = weights.values != null ? weights.values : new double[chunk.to - chunk.from];
+        int from = weights.values != null ? chunk.from : 0;
+        int to = from + chunk.to - chunk.from;
+
+        switch(this.scheme) {
+            case BOOK:
+                double range = 1.0 / Math.sqrt(rows);
+                for(int idx = from; idx < to; idx++) {
+                    double magnitude = random.nextDouble() * range + 0.01;
+                    values[idx] = random.nextBoolean() ? magnitude : -magnitude;
+                }
+                break;
+            case XAVIER:
+                fillUniform(values, from, to, Math.sqrt(6.0 / (rows + columns)), random);
+                break;
+            case HE:
+                fillUniform(values, from, to, Math.sqrt(6.0 / columns), random);
+                break;
+            default:
+                throw new IllegalStateException(String.format("Unsupported scheme %s", this.scheme));
+        }
+
+        if(weights.values == null) {
+            weights.write(chunk.from, values, values.length);
+        }
+    }
+
+    private static void fillUniform(double[] values, int from, int to, double limit, SplittableRandom random) {
+        for(int idx = from; idx < to; idx++) {
+            values[idx] = random.nextDouble(-limit, limit);
+        }
+    }
+
+    /**
+     * The weights in the range [from, to) of a layer, filled by their own generator.
+     */
+    private static class Chunk {
+        final WeightMatrix weights;
+        final int from;
+        final int to;
+        final SplittableRandom random;
+
+        Chunk(WeightMatrix weights, int from, int to, SplittableRandom random) {
+            this.weights = weights;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+    }
+
+    /**
+     * Fills the chunks in the range [first, last), splitting it in halves.
+     */
+    private class FillTask extends RecursiveAction {
+        private final Chunk[] chunks;
+        private final int first;
+        private final int last;
+
+        FillTask(Chunk[] chunks, int first, int last) {
+            this.chunks = chunks;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute() {
+            if(this.last - this.first == 1) {
+                fill(this.chunks[this.first]);
+                return;
+            }
+
+            int middle = (this.first + this.last) >>> 1;
+            invokeAll(new FillTask(this.chunks, this.first, middle), new FillTask(this.chunks, middle, this.last));
+        }
+    }
+}
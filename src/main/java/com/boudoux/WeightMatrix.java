@@ -0,0 +1,636 @@
+package com.boudoux;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * Holds the link's weights between two layers as a single contiguous row-major array.
+ *
+ * Each row belongs to a node of the next layer and holds the weights of all links arriving at it, so
+ * row <code>r</code>, column <code>c</code> is the weight of the link from the node <code>c</code> of the
+ * previous layer to the node <code>r</code> of the next one. This keeps the inner loops of both the
+ * forward and the backward pass walking the memory with unit stride.
+ *
+ * The weights live either in an array on the heap or, for the very large models, in a {@link DoubleBuffer} outside
+ * of it (see {@link #allocateDirect(int, int)} and {@link #wrap(int, int, ByteBuffer)}), which neither fills the
+ * old generation nor gets scanned by the garbage collector. The forward pass reads the weights off the heap in
+ * place; the other operations bulk copy them, a tile of about {@value #TILE_SIZE} values at a time, onto a buffer of
+ * the calling thread and go through the same kernels, which handle each row on its own: both storages give exactly
+ * the same values.
+ */
+public class WeightMatrix implements Serializable {
+
+    // 8 KB of weights, so a tile stays in the L1 cache next to the vectors it is applied to
+    static final int TILE_SIZE = 1024;
+
+    private static final ThreadLocal<Tiles> LOCAL_TILES = ThreadLocal.withInitial(Tiles::new);
+
+    // total of nodes in the next layer
+    private final int rows;
+
+    // total of nodes in the previous layer
+    private final int columns;
+
+    // null when the weights live off the heap
+    final double[] values;
+
+    // the weights off the heap, null when they live in the values
+    private transient ByteBuffer bytes;
+
+    // the same weights seen as doubles
+    private transient DoubleBuffer buffer;
+
+    // the view of the buffer of each thread, so each one moves its own position
+    private transient ThreadLocal<DoubleBuffer> localViews;
+
+    public WeightMatrix(int rows, int columns) {
+        this(rows, columns, new double[rows * columns]);
+    }
+
+    WeightMatrix(int rows, int columns, double[] values) {
+        this(rows, columns, values, null);
+    }
+
+    private WeightMatrix(int rows, int columns, double[] values, ByteBuffer bytes) {
+        if(rows <= 0 || columns <= 0)
+            throw new IllegalArgumentException(String.format("Invalid dimensions (%d x %d)", rows, columns));
+
+        long size = values != null ? values.length : bytes.remaining() / Double.BYTES;
+        if(size != (long) rows * columns || values == null && bytes.remaining() % Double.BYTES != 0)
+            throw new IllegalArgumentException(String.format("Expected %d values but got %d", (long) rows * columns, size));
+
+        this.rows = rows;
+        this.columns = columns;
+        this.values = values;
+        this.setBytes(bytes);
+    }
+
+    /**
+     * Creates a matrix whose weights are all zero in a new direct buffer, in the native byte order.
+     *
+     * @param rows
+     * @param columns
+     * @return
+     * @throws IllegalArgumentException if the weights take more than 2 GB, the limit of a direct buffer (about 268
+     *                                  million weights)
+     */
+    public static WeightMatrix allocateDirect(int rows, int columns) {
+        if(rows <= 0 || columns <= 0)
+            throw new IllegalArgumentException(String.format("Invalid dimensions (%d x %d)", rows, columns));
+        if((long) rows * columns * Double.BYTES > Integer.MAX_VALUE)
+            throw new IllegalArgumentException(String.format("The weights (%d x %d) do not fit in a direct buffer of 2 GB", rows, columns));
+
+        return new WeightMatrix(rows, columns, null, ByteBuffer.allocateDirect(rows * columns * Double.BYTES).order(ByteOrder.nativeOrder()));
+    }
+
+    /**
+     * Creates a matrix using the buffer as its storage, e.g. a memory mapping of a model file. The weights are the
+     * doubles between the buffer's position and its limit, row by row, in the buffer's byte order; a read-only
+     * buffer gives a matrix that can be fired but not trained.
+     *
+     * @param rows
+     * @param columns
+     * @param buffer
+     * @return
+     */
+    public static WeightMatrix wrap(int rows, int columns, ByteBuffer buffer) {
+        if(buffer == null)
+            throw new IllegalArgumentException("The buffer must be provided");
+
+        return new WeightMatrix(rows, columns, null, buffer.slice().order(buffer.order()));
+    }
+
+    /**
+     * @return the name of the kernels doing the math, "scalar" or "vector (N lanes)" (see {@link DenseKernels})
+     */
+    public static String getKernelBackend() {
+        return DenseKernels.INSTANCE.getName();
+    }
+
+    /**
+     * Creates a matrix from the legacy jagged layout, where the first dimension is the node of the previous
+     * layer and the second one the node of the next layer.
+     *
+     * @param linkWeights
+     * @return
+     */
+    public static WeightMatrix fromLinkWeights(double[][] linkWeights) {
+        if(linkWeights == null || linkWeights.length == 0 || linkWeights[0] == null)
+            throw new IllegalArgumentException("The link's weights must not be empty");
+
+        int columns = linkWeights.length;
+        int rows = linkWeights[0].length;
+        WeightMatrix matrix = new WeightMatrix(rows, columns);
+
+        for(int idxNode = 0; idxNode < columns; idxNode++) {
+            if(linkWeights[idxNode] == null || linkWeights[idxNode].length != rows)
+                throw new IllegalArgumentException(String.format("All the nodes must have %d links", rows));
+
+            for(int idxLink = 0; idxLink < rows; idxLink++) {
+                matrix.values[idxLink * columns + idxNode] = linkWeights[idxNode][idxLink];
+            }
+        }
+
+        return matrix;
+    }
+
+    /**
+     * Exports the weights using the legacy jagged layout (see {@link #fromLinkWeights(double[][])}).
+     *
+     * @return
+     */
+    public double[][] toLinkWeights() {
+        double[][] linkWeights = new double[this.columns][this.rows];
+
+        for(int idxRow = 0, offset = 0; idxRow < this.rows; idxRow++) {
+            for(int idxColumn = 0; idxColumn < this.columns; idxColumn++, offset++) {
+                linkWeights[idxColumn][idxRow] = this.values != null ? this.values[offset] : this.buffer.get(offset);
+            }
+        }
+
+        return linkWeights;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return whether the weights live in a buffer (see {@link #allocateDirect(int, int)}) rather than in an array
+     * on the heap
+     */
+    public boolean isOffHeap() {
+        return this.buffer != null;
+    }
+
+    /**
+     * @return whether the weights can not be changed, e.g. because they are mapped from a file
+     */
+    public boolean isReadOnly() {
+        return this.buffer != null && this.buffer.isReadOnly();
+    }
+
+    public double get(int row, int column) {
+        int index = row * this.columns + column;
+        return this.values != null ? this.values[index] : this.buffer.get(index);
+    }
+
+    public void set(int row, int column, double value) {
+        this.checkWritable();
+
+        int index = row * this.columns + column;
+        if(this.values != null) {
+            this.values[index] = value;
+        } else {
+            this.buffer.put(index, value);
+        }
+    }
+
+    /**
+     * Reads all the weights, row by row, from the buffer's position.
+     *
+     * @param buffer
+     */
+    public void copyFrom(DoubleBuffer buffer) {
+        this.checkWritable();
+
+        if(this.values != null) {
+            buffer.get(this.values);
+            return;
+        }
+
+        double[] tile = LOCAL_TILES.get().weights;
+        for(int offset = 0, size = this.rows * this.columns; offset < size; offset += tile.length) {
+            int length = Math.min(tile.length, size - offset);
+            buffer.get(tile, 0, length);
+            this.write(offset, tile, length);
+        }
+    }
+
+    /**
+     * Reads all the weights, row by row, from the buffer's position widening them to doubles.
+     *
+     * @param buffer
+     */
+    public void copyFrom(FloatBuffer buffer) {
+        this.checkWritable();
+
+        double[] tile = this.values != null ? this.values : LOCAL_TILES.get().weights;
+        for(int offset = 0, size = this.rows * this.columns; offset < size; offset += tile.length) {
+            int length = Math.min(tile.length, size - offset);
+            for(int idx = 0; idx < length; idx++) {
+                tile[idx] = buffer.get();
+            }
+
+            if(this.values == null) {
+                this.write(offset, tile, length);
+            }
+        }
+    }
+
+    /**
+     * Overwrites the weights with the ones of another matrix of the same dimensions, whatever their storages. It
+     * does not allocate.
+     *
+     * @param other
+     */
+    public void copyFrom(WeightMatrix other) {
+        if(other == null || other.rows != this.rows || other.columns != this.columns)
+            throw new IllegalArgumentException(String.format("The weights must be %d x %d", this.rows, this.columns));
+        this.checkWritable();
+
+        if(other.values != null) {
+            this.write(0, other.values, other.values.length);
+        } else if(this.values != null) {
+            other.read(0, this.values, this.values.length);
+        } else {
+            double[] tile = LOCAL_TILES.get().weights;
+            for(int offset = 0, size = this.rows * this.columns; offset < size; offset += tile.length) {
+                int length = Math.min(tile.length, size - offset);
+                other.read(offset, tile, length);
+                this.write(offset, tile, length);
+            }
+        }
+    }
+
+    /**
+     * Copies the weights of the links arriving at the node <code>row</code> of the next layer.
+     *
+     * @param row
+     * @param to receives {@link #getColumns()} values
+     */
+    public void copyRow(int row, double[] to) {
+        this.read(row * this.columns, to, this.columns);
+    }
+
+    /**
+     * output[r] = SUM(W[r][c] * input[c])
+     *
+     * @param input
+     * @param output
+     */
+    public void multiply(double[] input, double[] output) {
+        if(this.values != null) {
+            DenseKernels.INSTANCE.multiply(this.values, this.rows, this.columns, input, output);
+            return;
+        }
+
+        // read in place rather than copied in tiles, as the forward pass is the one serving the models
+        DenseKernels.INSTANCE.multiply(this.bytes, this.rows, this.columns, input, output);
+    }
+
+    /**
+     * Same as {@link #multiply(double[], double[])} going only through the columns of the non-zero inputs.
+     *
+     * @param input
+     * @param output
+     */
+    public void multiply(SparseVector input, double[] output) {
+        if(this.values != null) {
+            DenseKernels.INSTANCE.multiplySparse(this.values, this.rows, this.columns, input.getIndices(), input.getValues(),
+                    input.getCount(), output);
+            return;
+        }
+
+        Tiles tiles = LOCAL_TILES.get();
+        int tileRows = this.getTileRows();
+        double[] tile = tiles.weights(tileRows * this.columns);
+        for(int rowStart = 0; rowStart < this.rows; rowStart += tileRows) {
+            int count = Math.min(tileRows, this.rows - rowStart);
+            this.read(rowStart * this.columns, tile, count * this.columns);
+
+            DenseKernels.INSTANCE.multiplySparse(tile, count, this.columns, input.getIndices(), input.getValues(),
+                    input.getCount(), tiles.rowValues);
+            System.arraycopy(tiles.rowValues, 0, output, rowStart, count);
+        }
+    }
+
+    /**
+     * output[c] = SUM(W[r][c] * input[r]), used to propagate the errors back to the previous layer.
+     *
+     * @param input
+     * @param output
+     */
+    public void multiplyTransposed(double[] input, double[] output) {
+        if(this.values != null) {
+            DenseKernels.INSTANCE.multiplyTransposed(this.values, this.rows, this.columns, input, output);
+            return;
+        }
+
+        for(int idxColumn = 0; idxColumn < this.columns; idxColumn++) {
+            output[idxColumn] = 0.0;
+        }
+
+        Tiles tiles = LOCAL_TILES.get();
+        int tileRows = this.getTileRows();
+        double[] tile = tiles.weights(tileRows * this.columns);
+        for(int rowStart = 0; rowStart < this.rows; rowStart += tileRows) {
+            int count = Math.min(tileRows, this.rows - rowStart);
+            this.read(rowStart * this.columns, tile, count * this.columns);
+
+            System.arraycopy(input, rowStart, tiles.rowValues, 0, count);
+            DenseKernels.INSTANCE.accumulateTransposed(tile, count, this.columns, tiles.rowValues, output);
+        }
+    }
+
+    /**
+     * W[r][c] += rowFactors[r] * columnFactors[c]
+     *
+     * @param rowFactors
+     * @param columnFactors
+     */
+    public void addOuterProduct(double[] rowFactors, double[] columnFactors) {
+        if(this.values != null) {
+            DenseKernels.INSTANCE.addOuterProduct(this.values, this.rows, this.columns, rowFactors, columnFactors);
+            return;
+        }
+        this.checkWritable();
+
+        Tiles tiles = LOCAL_TILES.get();
+        int tileRows = this.getTileRows();
+        double[] tile = tiles.weights(tileRows * this.columns);
+        for(int rowStart = 0; rowStart < this.rows; rowStart += tileRows) {
+            int count = Math.min(tileRows, this.rows - rowStart);
+            this.read(rowStart * this.columns, tile, count * this.columns);
+
+            System.arraycopy(rowFactors, rowStart, tiles.rowValues, 0, count);
+            DenseKernels.INSTANCE.addOuterProduct(tile, count, this.columns, tiles.rowValues, columnFactors);
+            this.write(rowStart * this.columns, tile, count * this.columns);
+        }
+    }
+
+    /**
+     * Same as {@link #addOuterProduct(double[], double[])} going only through the columns of the non-zero factors.
+     *
+     * @param rowFactors
+     * @param columnFactors
+     */
+    public void addOuterProduct(double[] rowFactors, SparseVector columnFactors) {
+        if(this.values != null) {
+            DenseKernels.INSTANCE.addOuterProductSparse(this.values, this.rows, this.columns, rowFactors,
+                    columnFactors.getIndices(), columnFactors.getValues(), columnFactors.getCount());
+            return;
+        }
+        this.checkWritable();
+
+        Tiles tiles = LOCAL_TILES.get();
+        int tileRows = this.getTileRows();
+        double[] tile = tiles.weights(tileRows * this.columns);
+        for(int rowStart = 0; rowStart < this.rows; rowStart += tileRows) {
+            int count = Math.min(tileRows, this.rows - rowStart);
+            this.read(rowStart * this.columns, tile, count * this.columns);
+
+            System.arraycopy(rowFactors, rowStart, tiles.rowValues, 0, count);
+            DenseKernels.INSTANCE.addOuterProductSparse(tile, count, this.columns, tiles.rowValues,
+                    columnFactors.getIndices(), columnFactors.getValues(), columnFactors.getCount());
+            this.write(rowStart * this.columns, tile, count * this.columns);
+        }
+    }
+
+    /**
+     * errors[c] = SUM(W[r][c] * rowErrors[r]) with the weights before W[r][c] += rowFactors[r] * columnFactors[c],
+     * both done in a single sweep over each row, so each weight is read once.
+     *
+     * @param rowErrors
+     * @param errors
+     * @param rowFactors
+     * @param columnFactors
+     */
+    public void multiplyTransposedAndAddOuterProduct(double[] rowErrors, double[] errors, double[] rowFactors, double[] columnFactors) {
+        if(this.values != null) {
+            DenseKernels.INSTANCE.multiplyTransposedAndAddOuterProduct(this.values, this.rows, this.columns, rowErrors,
+                    errors, rowFactors, columnFactors);
+            return;
+        }
+        this.checkWritable();
+
+        for(int idxColumn = 0; idxColumn < this.columns; idxColumn++) {
+            errors[idxColumn] = 0.0;
+        }
+
+        Tiles tiles = LOCAL_TILES.get();
+        int tileRows = this.getTileRows();
+        double[] tile = tiles.weights(tileRows * this.columns);
+        for(int rowStart = 0; rowStart < this.rows; rowStart += tileRows) {
+            int count = Math.min(tileRows, this.rows - rowStart);
+            this.read(rowStart * this.columns, tile, count * this.columns);
+
+            System.arraycopy(rowErrors, rowStart, tiles.rowValues, 0, count);
+            System.arraycopy(rowFactors, rowStart, tiles.otherRowValues, 0, count);
+            DenseKernels.INSTANCE.accumulateTransposedAndAddOuterProduct(tile, count, this.columns, tiles.rowValues, errors,
+                    tiles.otherRowValues, columnFactors);
+            this.write(rowStart * this.columns, tile, count * this.columns);
+        }
+    }
+
+    /**
+     * Same as {@link #multiply(double[], double[])} for each of the first <code>count</code> samples.
+     *
+     * @param inputs
+     * @param outputs
+     * @param count
+     */
+    public void multiplyBatch(double[][] inputs, double[][] outputs, int count) {
+        if(this.values != null) {
+            DenseKernels.INSTANCE.multiplyBatch(this.values, this.rows, this.columns, inputs, outputs, count);
+            return;
+        }
+
+        // each tile is applied to every sample while it is in the cache
+        Tiles tiles = LOCAL_TILES.get();
+        int tileRows = this.getTileRows();
+        double[] tile = tiles.weights(tileRows * this.columns);
+        for(int rowStart = 0; rowStart < this.rows; rowStart += tileRows) {
+            int tileCount = Math.min(tileRows, this.rows - rowStart);
+            this.read(rowStart * this.columns, tile, tileCount * this.columns);
+
+            for(int idxSample = 0; idxSample < count; idxSample++) {
+                DenseKernels.INSTANCE.multiply(tile, tileCount, this.columns, inputs[idxSample], tiles.rowValues);
+                System.arraycopy(tiles.rowValues, 0, outputs[idxSample], rowStart, tileCount);
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #multiplyTransposed(double[], double[])} for each of the first <code>count</code> samples.
+     *
+     * @param inputs
+     * @param outputs
+     * @param count
+     */
+    public void multiplyTransposedBatch(double[][] inputs, double[][] outputs, int count) {
+        if(this.values != null) {
+            DenseKernels.INSTANCE.multiplyTransposedBatch(this.values, this.rows, this.columns, inputs, outputs, count);
+            return;
+        }
+
+        for(int idxSample = 0; idxSample < count; idxSample++) {
+            double[] output = outputs[idxSample];
+            for(int idxColumn = 0; idxColumn < this.columns; idxColumn++) {
+                output[idxColumn] = 0.0;
+            }
+        }
+
+        Tiles tiles = LOCAL_TILES.get();
+        int tileRows = this.getTileRows();
+        double[] tile = tiles.weights(tileRows * this.columns);
+        for(int rowStart = 0; rowStart < this.rows; rowStart += tileRows) {
+            int tileCount = Math.min(tileRows, this.rows - rowStart);
+            this.read(rowStart * this.columns, tile, tileCount * this.columns);
+
+            for(int idxSample = 0; idxSample < count; idxSample++) {
+                System.arraycopy(inputs[idxSample], rowStart, tiles.rowValues, 0, tileCount);
+                DenseKernels.INSTANCE.accumulateTransposed(tile, tileCount, this.columns, tiles.rowValues, outputs[idxSample]);
+            }
+        }
+    }
+
+    /**
+     * W[r][c] += gradients[r][c]
+     *
+     * @param gradients a row-major array with the same dimensions of this matrix
+     */
+    public void add(double[] gradients) {
+        if(this.values != null) {
+            DenseKernels.INSTANCE.add(this.values, gradients);
+        } else {
+            this.add(0, gradients, this.rows * this.columns);
+        }
+    }
+
+    /**
+     * W[offset + i] += changes[i] for i in [0, length), going through the weights row by row.
+     *
+     * @param offset
+     * @param changes
+     * @param length
+     */
+    public void add(int offset, double[] changes, int length) {
+        this.checkWritable();
+
+        if(this.values != null) {
+            for(int idx = 0; idx < length; idx++) {
+                this.values[offset + idx] += changes[idx];
+            }
+            return;
+        }
+
+        double[] tile = LOCAL_TILES.get().weights;
+        for(int from = 0; from < length; from += tile.length) {
+            int count = Math.min(tile.length, length - from);
+            this.read(offset + from, tile, count);
+
+            for(int idx = 0; idx < count; idx++) {
+                tile[idx] += changes[from + idx];
+            }
+            this.write(offset + from, tile, count);
+        }
+    }
+
+    /**
+     * Copies the weights [offset, offset + length) into the array.
+     *
+     * @param offset
+     * @param to
+     * @param length
+     */
+    void read(int offset, double[] to, int length) {
+        if(this.values != null) {
+            System.arraycopy(this.values, offset, to, 0, length);
+            return;
+        }
+
+        DoubleBuffer view = this.localViews.get();
+        ((Buffer) view).position(offset);
+        view.get(to, 0, length);
+    }
+
+    /**
+     * Overwrites the weights [offset, offset + length) with the values of the array.
+     *
+     * @param offset
+     * @param from
+     * @param length
+     */
+    void write(int offset, double[] from, int length) {
+        if(this.values != null) {
+            System.arraycopy(from, 0, this.values, offset, length);
+            return;
+        }
+
+        DoubleBuffer view = this.localViews.get();
+        ((Buffer) view).position(offset);
+        view.put(from, 0, length);
+    }
+
+    // the rows of weights copied at once onto the heap, about TILE_SIZE values
+    private int getTileRows() {
+        return Math.min(this.rows, Math.max(1, TILE_SIZE / this.columns));
+    }
+
+    private void checkWritable() {
+        if(this.isReadOnly())
+            throw new IllegalStateException("The weights are read-only");
+    }
+
+    private void setBytes(ByteBuffer bytes) {
+        this.bytes = bytes;
+        this.buffer = bytes == null ? null : bytes.asDoubleBuffer();
+        this.localViews = bytes == null ? null : ThreadLocal.withInitial(this.buffer::duplicate);
+    }
+
+    // the weights off the heap follow the fields, a copy lives in a new direct buffer even when they were read-only
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+
+        if(this.buffer != null) {
+            for(int idx = 0; idx < this.rows * this.columns; idx++) {
+                out.writeDouble(this.buffer.get(idx));
+            }
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+
+        if(this.values == null) {
+            WeightMatrix copy = allocateDirect(this.rows, this.columns);
+            for(int idx = 0; idx < this.rows * this.columns; idx++) {
+                copy.buffer.put(idx, in.readDouble());
+            }
+            this.setBytes(copy.bytes);
+        }
+    }
+
+    /**
+     * The buffers of each thread the weights off the heap are copied into: a tile of whole rows, and the values of
+     * the vectors indexed by those rows.
+     */
+    private static class Tiles {
+        double[] weights = new double[TILE_SIZE];
+
+        final double[] rowValues = new double[TILE_SIZE];
+
+        final double[] otherRowValues = new double[TILE_SIZE];
+
+        // grows when a single row is wider than a tile
+        double[] weights(int size) {
+            if(this.weights.length < size) {
+                this.weights = new double[size];
+            }
+
+            return this.weights;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.boudoux;
+
+/**
+ * Holds the outputs of every layer produced while firing a {@link NeuralNetwork}, and the errors and deltas of every
+ * layer used while training it.
+ *
+ * A workspace is not thread-safe: each thread must use its own one (see {@link NeuralNetwork#newWorkspace()}), while
+ * the network's weights may be shared by all of them. Once created, firing and training through a workspace do not
+ * allocate.
+ */
+public class Workspace {
+
+    // outputs for each layer (input_layer + hidden_layers + output_layer)
+    final double[][] layerOutputs;
+
+    // errors of the outputs of each layer, shaped like layerOutputs (the Input Layer has none)
+    final double[][] layerErrors;
+
+    // deltas of each layer, shaped like layerOutputs (the Input Layer has none)
+    final double[][] layerDeltas;
+
+    // the gradients of the last sample trained through an optimizer, allocated on first use
+    Gradients gradients;
+
+    Workspace(Layer[] layers) {
+        this.layerOutputs = new double[layers.length + 1][];
+        this.layerOutputs[0] = new double[layers[0].getInputSize()];
+
+        for(int idxLayer = 0; idxLayer < layers.length; idxLayer++) {
+            this.layerOutputs[idxLayer + 1] = new double[layers[idxLayer].getOutputSize()];
+        }
+
+        this.layerErrors = new double[this.layerOutputs.length][];
+        this.layerDeltas = new double[this.layerOutputs.length][];
+        for(int idxLayer = 1; idxLayer < this.layerOutputs.length; idxLayer++) {
+            this.layerErrors[idxLayer] = new double[this.layerOutputs[idxLayer].length];
+            this.layerDeltas[idxLayer] = new double[this.layerOutputs[idxLayer].length];
+        }
+    }
+
+    /**
+     * Checks whether this workspace can hold the outputs of the given layers.
+     *
+     * @param layers
+     * @return
+     */
+    boolean fits(Layer[] layers) {
+        if(this.layerOutputs.length != layers.length + 1)
+            return false;
+
+        for(int idxLayer = 0; idxLayer < layers.length; idxLayer++) {
+            if(this.layerOutputs[idxLayer].length != layers[idxLayer].getInputSize()
+                    || this.layerOutputs[idxLayer + 1].length != layers[idxLayer].getOutputSize())
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @param idxLayer 0 for the Input Layer up to {@link #getTotalLayers()} - 1 for the Output Layer
+     * @return the live buffer holding the outputs of the layer
+     */
+    public double[] getLayerOutput(int idxLayer) {
+        return this.layerOutputs[idxLayer];
+    }
+
+    /**
+     * @return the live buffer holding the outputs of the Output Layer from the last fire
+     */
+    public double[] getOutput() {
+        return this.layerOutputs[this.layerOutputs.length - 1];
+    }
+
+    public int getTotalLayers() {
+        return this.layerOutputs.length;
+    }
+}
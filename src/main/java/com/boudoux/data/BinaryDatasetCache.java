@@ -0,0 +1,169 @@
+package com.boudoux.data;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Converts a CSV dataset (see {@link CsvDatasetReader}) into a compact binary file, which is then memory-mapped by
+ * every later epoch and run (see {@link MappedDataset}).
+ *
+ * The file starts with a header of {@link #HEADER_SIZE} bytes (little-endian):
+ * <pre>
+ *  int  magic ("NNDS")
+ *  int  version
+ *  int  quantity of samples
+ *  int  quantity of pixels by sample
+ *  long size of the source CSV
+ *  long last modification of the source CSV (millis)
+ *  int  total of labels the labels were checked against
+ *  int  reserved
+ * </pre>
+ * followed by one fixed-size record per sample: the label and the pixels, one unsigned byte each. The size and the
+ * last modification of the source, and the total of labels, are checked on every open, so the cache is rebuilt when
+ * the CSV changes or is read for another network.
+ */
+public class BinaryDatasetCache {
+
+    public static final int MAGIC = 0x53444E4E; // "NNDS" in little-endian
+
+    public static final int VERSION = 2;
+
+    public static final int HEADER_SIZE = 40;
+
+    public static final String EXTENSION = ".bin";
+
+    private BinaryDatasetCache() {
+    }
+
+    /**
+     * Opens the cache of the CSV, stored next to it with the {@link #EXTENSION} suffix, building it when missing or
+     * out of date.
+     *
+     * @param csv
+     * @param inputSize
+     * @return
+     * @throws IOException
+     */
+    public static MappedDataset open(Path csv, int inputSize) throws IOException {
+        return open(csv, inputSize, CsvDatasetReader.MAX_LABELS);
+    }
+
+    /**
+     * @param csv
+     * @param inputSize
+     * @param totalLabels the labels must be within [0, totalLabels), usually the output nodes of the network
+     * @return
+     * @throws IOException if the CSV is invalid, e.g. a label is out of range
+     */
+    public static MappedDataset open(Path csv, int inputSize, int totalLabels) throws IOException {
+        return open(csv, inputSize, totalLabels, csv.resolveSibling(csv.getFileName() + EXTENSION));
+    }
+
+    public static MappedDataset open(Path csv, int inputSize, int totalLabels, Path cache) throws IOException {
+        if(!isUpToDate(csv, inputSize, totalLabels, cache)) {
+            build(csv, inputSize, totalLabels, cache);
+        }
+
+        return MappedDataset.map(cache);
+    }
+
+    /**
+     * @param csv
+     * @param inputSize
+     * @param totalLabels
+     * @param cache
+     * @return whether the cache exists and was built from the current version of the CSV for the same labels
+     * @throws IOException
+     */
+    public static boolean isUpToDate(Path csv, int inputSize, int totalLabels, Path cache) throws IOException {
+        if(!Files.isRegularFile(cache) || Files.size(cache) < HEADER_SIZE)
+            return false;
+
+        ByteBuffer header = readHeader(cache);
+
+        return header.getInt(0) == MAGIC
+                && header.getInt(4) == VERSION
+                && header.getInt(12) == inputSize
+                && header.getLong(16) == Files.size(csv)
+                && header.getLong(24) == Files.getLastModifiedTime(csv).toMillis()
+                && header.getInt(32) == totalLabels
+                && Files.size(cache) == HEADER_SIZE + (long) header.getInt(8) * (inputSize + 1);
+    }
+
+    /**
+     * Parses the CSV into the cache, writing into a temporary file first so a failed build never leaves a broken
+     * cache behind.
+     *
+     * @param csv
+     * @param inputSize
+     * @param totalLabels the labels must be within [0, totalLabels)
+     * @param cache
+     * @throws IOException if the CSV is invalid, e.g. a label is out of range
+     */
+    public static void build(Path csv, int inputSize, int totalLabels, Path cache) throws IOException {
+        long sourceSize = Files.size(csv);
+        long sourceLastModified = Files.getLastModifiedTime(csv).toMillis();
+        int recordSize = inputSize + 1;
+
+        Path temporary = cache.resolveSibling(cache.getFileName() + ".tmp");
+        try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(CsvDatasetReader.BUFFER_SIZE, recordSize));
+
+            // the header is written once the quantity of samples is known
+            channel.position(HEADER_SIZE);
+
+            long totalSamples = new CsvDatasetReader(csv, inputSize, totalLabels).forEach((label, pixels) -> {
+                if(buffer.remaining() < recordSize) {
+                    flush(channel, buffer);
+                }
+
+                buffer.put((byte) label);
+                buffer.put(pixels, 0, inputSize);
+            });
+            flush(channel, buffer);
+
+            if(totalSamples > Integer.MAX_VALUE)
+                throw new IOException(String.format("Too many samples in %s", csv));
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt((int) totalSamples).putInt(inputSize)
+                    .putLong(sourceSize).putLong(sourceLastModified).putInt(totalLabels).putInt(0);
+            ((Buffer) header).flip();
+            channel.write(header, 0);
+            channel.force(false);
+        }
+
+        Files.move(temporary, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static ByteBuffer readHeader(Path cache) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        try(FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+            while(header.hasRemaining() && channel.read(header) != -1) {
+                // keeps reading until the header is complete
+            }
+        }
+
+        if(header.hasRemaining())
+            throw new IOException(String.format("Incomplete header in %s", cache));
+
+        return header;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        ((Buffer) buffer).flip();
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        ((Buffer) buffer).clear();
+    }
+}
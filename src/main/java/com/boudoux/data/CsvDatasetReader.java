@@ -0,0 +1,202 @@
+package com.boudoux.data;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads datasets in the MNIST CSV format: one sample per line, the label followed by the pixels (0 - 255).
+ *
+ * The file is streamed through a {@link FileChannel} into a fixed direct buffer and the integers are parsed straight
+ * from the bytes, so there are no Strings involved and {@link #forEach(SampleConsumer)} works for files of any size.
+ */
+public class CsvDatasetReader {
+
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    // a label is kept as a byte
+    public static final int MAX_LABELS = 256;
+
+    private final Path path;
+
+    private final int inputSize;
+
+    private final int totalLabels;
+
+    /**
+     * Receives each sample read from the file.
+     */
+    public interface SampleConsumer {
+        /**
+         * @param label
+         * @param pixels a buffer reused for all the samples
+         * @throws IOException
+         */
+        void accept(int label, byte[] pixels) throws IOException;
+    }
+
+    /**
+     * @param path
+     * @param inputSize the quantity of pixels of each sample, e.g. 784 for MNIST
+     */
+    public CsvDatasetReader(Path path, int inputSize) {
+        this(path, inputSize, MAX_LABELS);
+    }
+
+    /**
+     * @param path
+     * @param inputSize the quantity of pixels of each sample, e.g. 784 for MNIST
+     * @param totalLabels the labels must be within [0, totalLabels), usually the output nodes of the network
+     */
+    public CsvDatasetReader(Path path, int inputSize, int totalLabels) {
+        if(path == null || inputSize <= 0)
+            throw new IllegalArgumentException("Invalid path or input size");
+        if(totalLabels <= 0 || totalLabels > MAX_LABELS)
+            throw new IllegalArgumentException(String.format("Invalid total of labels (%d)", totalLabels));
+
+        this.path = path;
+        this.inputSize = inputSize;
+        this.totalLabels = totalLabels;
+    }
+
+    /**
+     * Streams all the samples of the file to the consumer.
+     *
+     * @param consumer
+     * @return the quantity of samples read
+     * @throws IOException if the file could not be read or is malformed
+     */
+    public long forEach(SampleConsumer consumer) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        byte[] pixels = new byte[this.inputSize];
+
+        long totalSamples = 0;
+        long line = 1;
+        int idxField = 0;
+        int value = 0;
+        int label = 0;
+        boolean hasDigits = false;
+
+        try(FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ)) {
+            while(channel.read(buffer) != -1) {
+                ((Buffer) buffer).flip();
+
+                while(buffer.hasRemaining()) {
+                    byte current = buffer.get();
+
+                    if(current >= '0' && current <= '9') {
+                        value = value * 10 + (current - '0');
+                        hasDigits = true;
+
+                        if(value > 255)
+                            throw new IOException(String.format("Value out of range at line %d of %s", line, this.path));
+                    } else if(current == ',' || current == '\n') {
+                        if(current == '\n' && idxField == 0 && !hasDigits) {
+                            // blank line
+                            line++;
+                            continue;
+                        }
+                        if(!hasDigits)
+                            throw new IOException(String.format("Empty value at line %d of %s", line, this.path));
+                        if(idxField > this.inputSize)
+                            throw new IOException(String.format("More than %d pixels at line %d of %s", this.inputSize, line, this.path));
+
+                        if(idxField == 0) {
+                            if(value >= this.totalLabels)
+                                throw new IOException(String.format("Label %d out of range [0, %d) at line %d of %s",
+                                        value, this.totalLabels, line, this.path));
+
+                            label = value;
+                        } else {
+                            pixels[idxField - 1] = (byte) value;
+                        }
+
+                        idxField++;
+                        value = 0;
+                        hasDigits = false;
+
+                        if(current == '\n') {
+                            if(idxField != this.inputSize + 1)
+                                throw new IOException(String.format("Expected %d pixels but got %d at line %d of %s",
+                                        this.inputSize, idxField - 1, line, this.path));
+
+                            consumer.accept(label, pixels);
+                            totalSamples++;
+                            line++;
+                            idxField = 0;
+                        }
+                    } else if(current != '\r' && current != ' ') {
+                        throw new IOException(String.format("Unexpected character '%c' at line %d of %s", (char) current, line, this.path));
+                    }
+                }
+
+                ((Buffer) buffer).clear();
+            }
+        }
+
+        // the last line may not end with a line break
+        if(hasDigits || idxField > 0) {
+            if(!hasDigits || idxField != this.inputSize)
+                throw new IOException(String.format("Expected %d pixels at line %d of %s", this.inputSize, line, this.path));
+
+            pixels[idxField - 1] = (byte) value;
+            consumer.accept(label, pixels);
+            totalSamples++;
+        }
+
+        return totalSamples;
+    }
+
+    /**
+     * Parses the whole file once into memory, keeping one byte per pixel. Files with more than
+     * <code>Integer.MAX_VALUE</code> pixels have to be streamed (see {@link #forEach(SampleConsumer)}) or cached
+     * into a binary file instead.
+     *
+     * @return
+     * @throws IOException
+     */
+    public InMemoryDataset load() throws IOException {
+        GrowingDataset growing = new GrowingDataset();
+        this.forEach(growing);
+
+        return new InMemoryDataset(growing.size, this.inputSize, growing.labels, growing.pixels);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    public int getTotalLabels() {
+        return totalLabels;
+    }
+
+    private class GrowingDataset implements SampleConsumer {
+        private int size;
+        private byte[] labels = new byte[1024];
+        private byte[] pixels = new byte[1024 * inputSize];
+
+        @Override
+        public void accept(int label, byte[] samplePixels) throws IOException {
+            if((long) (this.size + 1) * inputSize > Integer.MAX_VALUE - 8)
+                throw new IOException("The dataset does not fit into memory, it has to be streamed");
+
+            if(this.size == this.labels.length) {
+                int capacity = (int) Math.min((long) this.labels.length * 2, (Integer.MAX_VALUE - 8) / inputSize);
+                this.labels = Arrays.copyOf(this.labels, capacity);
+                this.pixels = Arrays.copyOf(this.pixels, capacity * inputSize);
+            }
+
+            this.labels[this.size] = (byte) label;
+            System.arraycopy(samplePixels, 0, this.pixels, this.size * inputSize, inputSize);
+            this.size++;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.boudoux.data;
+
+/**
+ * A set of labelled samples whose inputs are pixels (0 - 255), like the MNIST ones, parsed once and read as many
+ * times as needed through reusable buffers.
+ */
+public interface Dataset {
+
+    /**
+     * The value of the expected target for the node of the sample's label
+     */
+    double TARGET_ON = 0.99;
+
+    /**
+     * The value of the expected target for the other nodes
+     */
+    double TARGET_OFF = 0.01;
+
+    int size();
+
+    /**
+     * @return the quantity of pixels of each sample
+     */
+    int getInputSize();
+
+    int getLabel(int idxSample);
+
+    /**
+     * Copies the raw pixels of the sample.
+     *
+     * @param idxSample
+     * @param pixels receives {@link #getInputSize()} values
+     */
+    void copyPixels(int idxSample, byte[] pixels);
+
+    /**
+     * Copies the pixels of the sample scaled into [0.01, 1.0] (see {@link PixelScaling#DEFAULT}).
+     *
+     * @param idxSample
+     * @param input receives {@link #getInputSize()} values
+     */
+    void copyInput(int idxSample, double[] input);
+
+    /**
+     * Fills the one-hot expected target of the sample: {@link #TARGET_ON} for the label's node and
+     * {@link #TARGET_OFF} for the others.
+     *
+     * @param idxSample
+     * @param target
+     */
+    default void copyTarget(int idxSample, double[] target) {
+        fillTarget(getLabel(idxSample), target);
+    }
+
+    static void fillTarget(int label, double[] target) {
+        for(int idx = 0; idx < target.length; idx++) {
+            target[idx] = TARGET_OFF;
+        }
+
+        target[label] = TARGET_ON;
+    }
+}
@@ -0,0 +1,60 @@
+package com.boudoux.data;
+
+/**
+ * A view of the samples [from, to) of another dataset, e.g. to hold some samples out of the training for
+ * validation.
+ */
+public class DatasetRange implements Dataset {
+
+    private final Dataset dataset;
+
+    private final int from;
+
+    private final int size;
+
+    /**
+     * @param dataset
+     * @param from the first sample (inclusive)
+     * @param to the last sample (exclusive)
+     */
+    public DatasetRange(Dataset dataset, int from, int to) {
+        if(dataset == null)
+            throw new IllegalArgumentException("The dataset must be provided");
+        if(from < 0 || to > dataset.size() || from > to)
+            throw new IllegalArgumentException(String.format("Invalid range of samples [%d, %d) of %d", from, to, dataset.size()));
+
+        this.dataset = dataset;
+        this.from = from;
+        this.size = to - from;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int getInputSize() {
+        return this.dataset.getInputSize();
+    }
+
+    @Override
+    public int getLabel(int idxSample) {
+        return this.dataset.getLabel(this.from + idxSample);
+    }
+
+    @Override
+    public void copyPixels(int idxSample, byte[] pixels) {
+        this.dataset.copyPixels(this.from + idxSample, pixels);
+    }
+
+    @Override
+    public void copyInput(int idxSample, double[] input) {
+        this.dataset.copyInput(this.from + idxSample, input);
+    }
+
+    @Override
+    public void copyTarget(int idxSample, double[] target) {
+        this.dataset.copyTarget(this.from + idxSample, target);
+    }
+}
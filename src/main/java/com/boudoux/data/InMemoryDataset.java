@@ -0,0 +1,66 @@
+package com.boudoux.data;
+
+/**
+ * Keeps the labels and the raw pixels of all samples on the heap, one byte each.
+ */
+public class InMemoryDataset implements Dataset {
+
+    private final int size;
+
+    private final int inputSize;
+
+    private final byte[] labels;
+
+    // row-major: [sample][pixel]
+    private final byte[] pixels;
+
+    private final PixelScaling scaling;
+
+    public InMemoryDataset(int size, int inputSize, byte[] labels, byte[] pixels) {
+        this(size, inputSize, labels, pixels, PixelScaling.DEFAULT);
+    }
+
+    public InMemoryDataset(int size, int inputSize, byte[] labels, byte[] pixels, PixelScaling scaling) {
+        if(labels.length < size || pixels.length < (long) size * inputSize)
+            throw new IllegalArgumentException(String.format("Not enough data for %d samples of %d pixels", size, inputSize));
+
+        this.size = size;
+        this.inputSize = inputSize;
+        this.labels = labels;
+        this.pixels = pixels;
+        this.scaling = scaling;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    @Override
+    public int getLabel(int idxSample) {
+        return this.labels[idxSample] & 0xFF;
+    }
+
+    @Override
+    public void copyPixels(int idxSample, byte[] pixels) {
+        System.arraycopy(this.pixels, idxSample * this.inputSize, pixels, 0, this.inputSize);
+    }
+
+    @Override
+    public void copyInput(int idxSample, double[] input) {
+        this.scaling.scale(this.pixels, idxSample * this.inputSize, input);
+    }
+
+    /**
+     * @param scaling
+     * @return a view of the same samples using another scaling
+     */
+    public InMemoryDataset withScaling(PixelScaling scaling) {
+        return new InMemoryDataset(this.size, this.inputSize, this.labels, this.pixels, scaling);
+    }
+}
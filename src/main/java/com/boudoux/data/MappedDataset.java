@@ -0,0 +1,124 @@
+package com.boudoux.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the samples of a binary dataset file (see {@link BinaryDatasetCache}) straight from a read-only memory
+ * mapping, without allocating per sample. Any sample can be read by its index, so the epochs can be shuffled (see
+ * {@link SampleOrder}), and many threads may read it at once.
+ *
+ * Files larger than 2 GB are mapped into several regions, each one holding whole records.
+ */
+public class MappedDataset implements Dataset {
+
+    private final int size;
+
+    private final int inputSize;
+
+    private final int recordSize;
+
+    private final int samplesByRegion;
+
+    private final MappedByteBuffer[] regions;
+
+    private final PixelScaling scaling;
+
+    private MappedDataset(int size, int inputSize, MappedByteBuffer[] regions, PixelScaling scaling) {
+        this.size = size;
+        this.inputSize = inputSize;
+        this.recordSize = inputSize + 1;
+        this.samplesByRegion = Integer.MAX_VALUE / this.recordSize;
+        this.regions = regions;
+        this.scaling = scaling;
+    }
+
+    /**
+     * Maps a file written by {@link BinaryDatasetCache#build}.
+     *
+     * @param cache
+     * @return
+     * @throws IOException if the file is not a valid binary dataset
+     */
+    public static MappedDataset map(Path cache) throws IOException {
+        ByteBuffer header = BinaryDatasetCache.readHeader(cache);
+        if(header.getInt(0) != BinaryDatasetCache.MAGIC || header.getInt(4) != BinaryDatasetCache.VERSION)
+            throw new IOException(String.format("%s is not a binary dataset (version %d)", cache, BinaryDatasetCache.VERSION));
+
+        int size = header.getInt(8);
+        int inputSize = header.getInt(12);
+        int recordSize = inputSize + 1;
+        int samplesByRegion = Integer.MAX_VALUE / recordSize;
+
+        try(FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+            if(channel.size() != BinaryDatasetCache.HEADER_SIZE + (long) size * recordSize)
+                throw new IOException(String.format("%s is truncated", cache));
+
+            MappedByteBuffer[] regions = new MappedByteBuffer[Math.max(1, (size + samplesByRegion - 1) / samplesByRegion)];
+            for(int idxRegion = 0; idxRegion < regions.length; idxRegion++) {
+                long firstSample = (long) idxRegion * samplesByRegion;
+                long samples = Math.min(samplesByRegion, size - firstSample);
+
+                // the mapping stays valid after the channel is closed
+                regions[idxRegion] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        BinaryDatasetCache.HEADER_SIZE + firstSample * recordSize, samples * recordSize);
+            }
+
+            return new MappedDataset(size, inputSize, regions, PixelScaling.DEFAULT);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    @Override
+    public int getLabel(int idxSample) {
+        return this.regions[idxSample / this.samplesByRegion].get(this.offset(idxSample)) & 0xFF;
+    }
+
+    @Override
+    public void copyPixels(int idxSample, byte[] pixels) {
+        MappedByteBuffer region = this.regions[idxSample / this.samplesByRegion];
+        int offset = this.offset(idxSample) + 1;
+
+        for(int idx = 0; idx < this.inputSize; idx++) {
+            pixels[idx] = region.get(offset + idx);
+        }
+    }
+
+    @Override
+    public void copyInput(int idxSample, double[] input) {
+        MappedByteBuffer region = this.regions[idxSample / this.samplesByRegion];
+        int offset = this.offset(idxSample) + 1;
+
+        for(int idx = 0; idx < this.inputSize; idx++) {
+            input[idx] = this.scaling.scale(region.get(offset + idx));
+        }
+    }
+
+    /**
+     * @param scaling
+     * @return a view of the same mapping using another scaling
+     */
+    public MappedDataset withScaling(PixelScaling scaling) {
+        return new MappedDataset(this.size, this.inputSize, this.regions, scaling);
+    }
+
+    private int offset(int idxSample) {
+        if(idxSample < 0 || idxSample >= this.size)
+            throw new IndexOutOfBoundsException(String.format("Sample %d out of [0, %d)", idxSample, this.size));
+
+        return (idxSample % this.samplesByRegion) * this.recordSize;
+    }
+}
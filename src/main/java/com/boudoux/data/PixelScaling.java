@@ -0,0 +1,40 @@
+package com.boudoux.data;
+
+/**
+ * Maps the raw pixels (0 - 255) into the inputs of the network through a lookup table.
+ */
+public class PixelScaling {
+
+    /**
+     * value / 255 * 0.99 + 0.01, keeping the inputs away from zero
+     */
+    public static final PixelScaling DEFAULT = new PixelScaling(0.99, 0.01);
+
+    /**
+     * value / 255, keeping the background at zero so the inputs can be fired as a {@link com.boudoux.SparseVector}
+     */
+    public static final PixelScaling RAW = new PixelScaling(1.0, 0.0);
+
+    private final double[] table = new double[256];
+
+    public PixelScaling(double scale, double offset) {
+        for(int value = 0; value < this.table.length; value++) {
+            this.table[value] = value / 255.0 * scale + offset;
+        }
+    }
+
+    public double scale(byte pixel) {
+        return this.table[pixel & 0xFF];
+    }
+
+    /**
+     * @param pixels
+     * @param offset the first pixel to be scaled
+     * @param input receives <code>input.length</code> values
+     */
+    public void scale(byte[] pixels, int offset, double[] input) {
+        for(int idx = 0; idx < input.length; idx++) {
+            input[idx] = this.table[pixels[offset + idx] & 0xFF];
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.boudoux.data;
+
+import java.util.Random;
+
+/**
+ * The order in which the samples of a dataset are visited, shuffled in place between the epochs.
+ */
+public class SampleOrder {
+
+    private final int[] order;
+
+    public SampleOrder(int size) {
+        this.order = new int[size];
+        this.reset();
+    }
+
+    /**
+     * Restores the natural order of the samples.
+     */
+    public void reset() {
+        for(int idx = 0; idx < this.order.length; idx++) {
+            this.order[idx] = idx;
+        }
+    }
+
+    /**
+     * Shuffles the order (Fisher-Yates) without allocating.
+     *
+     * @param random
+     */
+    public void shuffle(Random random) {
+        for(int idx = this.order.length - 1; idx > 0; idx--) {
+            int other = random.nextInt(idx + 1);
+
+            int swap = this.order[idx];
+            this.order[idx] = this.order[other];
+            this.order[other] = swap;
+        }
+    }
+
+    /**
+     * @param position
+     * @return the index of the sample visited at the given position
+     */
+    public int get(int position) {
+        return this.order[position];
+    }
+
+    public int size() {
+        return this.order.length;
+    }
+}
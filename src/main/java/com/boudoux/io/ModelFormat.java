@@ -0,0 +1,315 @@
+package com.boudoux.io;
+
+import com.boudoux.Activation;
+import com.boudoux.Activations;
+import com.boudoux.DenseLayer;
+import com.boudoux.Layer;
+import com.boudoux.NeuralNetwork;
+import com.boudoux.WeightMatrix;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Saves and loads trained networks using a versioned binary file (little-endian):
+ * <pre>
+ *  int    magic ("NNMD")
+ *  int    version
+ *  int    bytes by weight (8 for doubles, 4 for floats)
+ *  int    quantity of layers (L)
+ *  double learning rate
+ *  int    batch size
+ *  int[L + 1] nodes of each layer, from the Input Layer to the Output Layer
+ *  int[L] threshold function of each layer (see {@link Activations#getId()})
+ *  int[L] whether each layer has biases (1) or not (0), since version 2
+ *  padding up to a multiple of 8 bytes
+ *  for each layer, its weights row-major (see {@link WeightMatrix}) followed by its biases, if any
+ * </pre>
+ * The file is written through a {@link FileChannel} and loaded through read-only memory mappings, whose weights are
+ * bulk copied into the flat storage of each layer, or used in place (see {@link #map(Path)}). Each layer is mapped on
+ * its own, so its weights and biases must take at most 2 GB (about 268 million doubles), but the file has no such
+ * limit. Files of version 1 (no biases) are still read.
+ */
+public class ModelFormat {
+
+    public static final int MAGIC = 0x444D4E4E; // "NNMD" in little-endian
+
+    public static final int VERSION = 2;
+
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    private ModelFormat() {
+    }
+
+    public static void write(NeuralNetwork network, Path path) throws IOException {
+        write(network, path, false);
+    }
+
+    /**
+     * Writes the network into the file, through a temporary file so a failed write never leaves a broken model
+     * behind.
+     *
+     * @param network
+     * @param path
+     * @param singlePrecision whether the weights are stored as floats, halving the file
+     * @throws IOException
+     * @throws IllegalArgumentException if the network uses a threshold function other than the {@link Activations}
+     *                                  or layers other than {@link DenseLayer}
+     */
+    public static void write(NeuralNetwork network, Path path, boolean singlePrecision) throws IOException {
+        int totalLayers = network.getTotalLayers();
+
+        ByteBuffer header = ByteBuffer.allocate((int) headerSize(VERSION, totalLayers)).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(singlePrecision ? Float.BYTES : Double.BYTES).putInt(totalLayers);
+        header.putDouble(network.getLearningRate()).putInt(network.getBatchSize());
+
+        header.putInt(network.getLayerWeights(0).getColumns());
+        for(int idxLayer = 0; idxLayer < totalLayers; idxLayer++) {
+            header.putInt(network.getLayerWeights(idxLayer).getRows());
+        }
+        for(int idxLayer = 0; idxLayer < totalLayers; idxLayer++) {
+            Activation activation = network.getActivation(idxLayer);
+            if(!(activation instanceof Activations))
+                throw new IllegalArgumentException(String.format("The threshold function of the layer %d can not be saved: %s", idxLayer, activation));
+
+            header.putInt(((Activations) activation).getId());
+        }
+        for(int idxLayer = 0; idxLayer < totalLayers; idxLayer++) {
+            header.putInt(network.getLayerBiases(idxLayer) != null ? 1 : 0);
+        }
+        ((Buffer) header).clear();
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header);
+
+            ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            double[] row = new double[0];
+            for(int idxLayer = 0; idxLayer < totalLayers; idxLayer++) {
+                WeightMatrix weights = network.getLayerWeights(idxLayer);
+                if(row.length != weights.getColumns()) {
+                    row = new double[weights.getColumns()];
+                }
+
+                for(int idxRow = 0; idxRow < weights.getRows(); idxRow++) {
+                    weights.copyRow(idxRow, row);
+                    put(channel, chunk, row, singlePrecision);
+                }
+
+                double[] biases = network.getLayerBiases(idxLayer);
+                if(biases != null) {
+                    put(channel, chunk, biases, singlePrecision);
+                }
+            }
+
+            ((Buffer) chunk).flip();
+            writeFully(channel, chunk);
+            channel.force(false);
+        }
+
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a network written by {@link #write}.
+     *
+     * @param path
+     * @return
+     * @throws IOException if the file is not a valid model
+     */
+    public static NeuralNetwork read(Path path) throws IOException {
+        return load(path, false);
+    }
+
+    /**
+     * Maps the weights of a model written by {@link #write} in double precision without copying them: the layers
+     * of the returned network read their weights straight from the read-only mapping (see
+     * {@link WeightMatrix#wrap(int, int, ByteBuffer)}), whose pages are kept by the operating system's cache and
+     * shared by every process mapping the same file. Only the biases are copied onto the heap. It fires like any
+     * other network, but training it throws an {@link IllegalStateException}.
+     *
+     * @param path
+     * @return
+     * @throws IOException if the file is not a valid model or its weights are floats
+     */
+    public static NeuralNetwork map(Path path) throws IOException {
+        return load(path, true);
+    }
+
+    // each layer is mapped on its own, so the 2 GB limit of a mapping binds the layers rather than the whole file
+    private static NeuralNetwork load(Path path, boolean inPlace) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // the mappings stay valid once the channel is closed
+            long fileSize = channel.size();
+            Header header = Header.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(fileSize, Integer.MAX_VALUE)),
+                    fileSize, path);
+            if(inPlace && header.bytesByWeight != Double.BYTES)
+                throw new IOException(String.format("Only the models saved in double precision can be mapped: %s", path));
+
+            int[] nodes = header.nodes;
+            Layer[] layers = new Layer[header.activations.length];
+            long offset = header.size;
+            for(int idxLayer = 0; idxLayer < layers.length; idxLayer++) {
+                int rows = nodes[idxLayer + 1];
+                int columns = nodes[idxLayer];
+                long layerSize = ((long) rows * columns + (header.withBiases[idxLayer] ? rows : 0)) * header.bytesByWeight;
+                if(layerSize > Integer.MAX_VALUE)
+                    throw new IOException(String.format("The layer %d of %s does not fit in a single mapping of 2 GB", idxLayer, path));
+                int totalWeights = rows * columns;
+
+                ByteBuffer layerBytes = channel.map(FileChannel.MapMode.READ_ONLY, offset, layerSize).order(ByteOrder.LITTLE_ENDIAN);
+                offset += layerSize;
+
+                WeightMatrix weights;
+                double[] biases = header.withBiases[idxLayer] ? new double[rows] : null;
+                if(header.bytesByWeight == Double.BYTES) {
+                    DoubleBuffer doubles = layerBytes.asDoubleBuffer();
+                    if(inPlace) {
+                        ((Buffer) layerBytes).limit(totalWeights * Double.BYTES);
+                        weights = WeightMatrix.wrap(rows, columns, layerBytes);
+                        ((Buffer) doubles).position(totalWeights);
+                    } else {
+                        weights = new WeightMatrix(rows, columns);
+                        weights.copyFrom(doubles);
+                    }
+
+                    if(biases != null) {
+                        doubles.get(biases);
+                    }
+                } else {
+                    FloatBuffer floats = layerBytes.asFloatBuffer();
+                    weights = new WeightMatrix(rows, columns);
+                    weights.copyFrom(floats);
+
+                    for(int idx = 0; biases != null && idx < biases.length; idx++) {
+                        biases[idx] = floats.get();
+                    }
+                }
+
+                layers[idxLayer] = new DenseLayer(weights, biases, header.activations[idxLayer]);
+            }
+
+            NeuralNetwork network = new NeuralNetwork(header.learningRate, layers);
+            network.setBatchSize(header.batchSize);
+
+            return network;
+        }
+    }
+
+    // in longs, as a corrupted total of layers would overflow an int
+    private static long headerSize(int version, int totalLayers) {
+        long size = 4 * Integer.BYTES + Double.BYTES + Integer.BYTES + (totalLayers + 1L) * Integer.BYTES + (long) totalLayers * Integer.BYTES;
+        if(version > 1) {
+            // the bias flags
+            size += (long) totalLayers * Integer.BYTES;
+        }
+
+        // keeps the weights aligned
+        return (size + Double.BYTES - 1) / Double.BYTES * Double.BYTES;
+    }
+
+    private static void put(FileChannel channel, ByteBuffer chunk, double[] values, boolean singlePrecision) throws IOException {
+        for(double value : values) {
+            if(chunk.remaining() < Double.BYTES) {
+                ((Buffer) chunk).flip();
+                writeFully(channel, chunk);
+                ((Buffer) chunk).clear();
+            }
+
+            if(singlePrecision) {
+                chunk.putFloat((float) value);
+            } else {
+                chunk.putDouble(value);
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * The validated header of a model file.
+     */
+    private static class Header {
+        int size;
+        int bytesByWeight;
+        double learningRate;
+        int batchSize;
+        int[] nodes;
+        Activation[] activations;
+        boolean[] withBiases;
+
+        static Header read(MappedByteBuffer mapped, long fileSize, Path path) throws IOException {
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+            if(mapped.remaining() < 16 || mapped.getInt(0) != MAGIC)
+                throw new IOException(String.format("%s is not a model file", path));
+            int version = mapped.getInt(4);
+            if(version != 1 && version != VERSION)
+                throw new IOException(String.format("Unsupported version %d of %s", version, path));
+
+            Header header = new Header();
+            header.bytesByWeight = mapped.getInt(8);
+            int totalLayers = mapped.getInt(12);
+            if((header.bytesByWeight != Double.BYTES && header.bytesByWeight != Float.BYTES) || totalLayers <= 0
+                    || mapped.remaining() < headerSize(version, totalLayers))
+                throw new IOException(String.format("Corrupted header in %s", path));
+
+            ((Buffer) mapped).position(16);
+            header.learningRate = mapped.getDouble();
+            header.batchSize = mapped.getInt();
+            if(header.batchSize <= 0)
+                throw new IOException(String.format("Corrupted header in %s: invalid batch size (%d)", path, header.batchSize));
+
+            header.nodes = new int[totalLayers + 1];
+            for(int idx = 0; idx < header.nodes.length; idx++) {
+                header.nodes[idx] = mapped.getInt();
+                if(header.nodes[idx] <= 0)
+                    throw new IOException(String.format("Corrupted header in %s: invalid nodes (%d) in layer %d", path, header.nodes[idx], idx));
+            }
+
+            header.activations = new Activation[totalLayers];
+            long totalWeights = 0;
+            for(int idxLayer = 0; idxLayer < totalLayers; idxLayer++) {
+                try {
+                    header.activations[idxLayer] = Activations.fromId(mapped.getInt());
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(String.format("Corrupted header in %s", path), e);
+                }
+                totalWeights += (long) header.nodes[idxLayer] * header.nodes[idxLayer + 1];
+            }
+
+            header.withBiases = new boolean[totalLayers];
+            for(int idxLayer = 0; version > 1 && idxLayer < totalLayers; idxLayer++) {
+                int flag = mapped.getInt();
+                if(flag != 0 && flag != 1)
+                    throw new IOException(String.format("Corrupted header in %s", path));
+
+                header.withBiases[idxLayer] = flag == 1;
+                if(header.withBiases[idxLayer]) {
+                    totalWeights += header.nodes[idxLayer + 1];
+                }
+            }
+
+            header.size = (int) headerSize(version, totalLayers);
+            if(fileSize != header.size + totalWeights * header.bytesByWeight)
+                throw new IOException(String.format("%s is truncated", path));
+
+            return header;
+        }
+    }
+}
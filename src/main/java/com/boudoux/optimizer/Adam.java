@@ -0,0 +1,117 @@
+package com.boudoux.optimizer;
+
+import com.boudoux.Gradients;
+import com.boudoux.Layer;
+import com.boudoux.Optimizer;
+
+/**
+ * Adam: moving averages of the gradients (<code>m</code>) and of their squares (<code>v</code>), corrected for
+ * their zero start, move each parameter by <code>rate * m / (sqrt(v) + epsilon)</code>.
+ *
+ * The corrections only depend on the quantity of updates, so they are folded into the step size once per update
+ * instead of once per parameter.
+ */
+public class Adam implements Optimizer {
+
+    public static final double DEFAULT_BETA1 = 0.9;
+
+    public static final double DEFAULT_BETA2 = 0.999;
+
+    public static final double DEFAULT_EPSILON = 1e-8;
+
+    private final double beta1;
+
+    private final double beta2;
+
+    private final double epsilon;
+
+    // [layer][parameter][value]
+    private double[][][] firstMoments;
+
+    private double[][][] secondMoments;
+
+    private long steps;
+
+    private transient double[] changes;
+
+    public Adam() {
+        this(DEFAULT_BETA1, DEFAULT_BETA2, DEFAULT_EPSILON);
+    }
+
+    /**
+     * @param beta1 the decay of the average of the gradients, in [0, 1)
+     * @param beta2 the decay of the average of the squared gradients, in [0, 1)
+     * @param epsilon greater than 0
+     */
+    public Adam(double beta1, double beta2, double epsilon) {
+        if(!(beta1 >= 0.0 && beta1 < 1.0) || !(beta2 >= 0.0 && beta2 < 1.0) || !(epsilon > 0.0))
+            throw new IllegalArgumentException(String.format("Invalid beta1 (%f), beta2 (%f) or epsilon (%f)", beta1, beta2, epsilon));
+
+        this.beta1 = beta1;
+        this.beta2 = beta2;
+        this.epsilon = epsilon;
+    }
+
+    @Override
+    public void update(Layer[] layers, Gradients gradients, double learningRate) {
+        ParameterStates.checkGradients(layers, gradients);
+        if(!ParameterStates.fits(this.firstMoments, layers)) {
+            this.firstMoments = ParameterStates.allocate(layers);
+            this.secondMoments = ParameterStates.allocate(layers);
+            this.steps = 0L;
+        }
+        if(this.changes == null) {
+            this.changes = new double[ParameterStates.CHUNK_SIZE];
+        }
+        double[] changes = this.changes;
+
+        this.steps++;
+        double correction1 = 1.0 - Math.pow(this.beta1, this.steps);
+        double correction2 = Math.sqrt(1.0 - Math.pow(this.beta2, this.steps));
+        double stepSize = learningRate * correction2 / correction1;
+        double correctedEpsilon = this.epsilon * correction2;
+
+        for(int idxLayer = 0; idxLayer < layers.length; idxLayer++) {
+            Layer layer = layers[idxLayer];
+
+            for(int idxParameter = 0; idxParameter < layer.getTotalParameters(); idxParameter++) {
+                double[] gradient = gradients.getLayerGradients(idxLayer, idxParameter);
+                double[] first = this.firstMoments[idxLayer][idxParameter];
+                double[] second = this.secondMoments[idxLayer][idxParameter];
+
+                // a chunk of changes at a time
+                for(int from = 0; from < gradient.length; from += changes.length) {
+                    int length = Math.min(changes.length, gradient.length - from);
+
+                    for(int idx = 0, idxValue = from; idx < length; idx++, idxValue++) {
+                        double value = gradient[idxValue];
+                        first[idxValue] = this.beta1 * first[idxValue] + (1.0 - this.beta1) * value;
+                        second[idxValue] = this.beta2 * second[idxValue] + (1.0 - this.beta2) * value * value;
+                        changes[idx] = stepSize * first[idxValue] / (Math.sqrt(second[idxValue]) + correctedEpsilon);
+                    }
+
+                    layer.addToParameter(idxParameter, from, changes, length);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        ParameterStates.clear(this.firstMoments);
+        ParameterStates.clear(this.secondMoments);
+        this.steps = 0L;
+    }
+
+    /**
+     * @return the quantity of updates since the state was created or reset
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    @Override
+    public String toString() {
+        return "Adam{" + "beta1=" + beta1 + ", beta2=" + beta2 + ", epsilon=" + epsilon + '}';
+    }
+}
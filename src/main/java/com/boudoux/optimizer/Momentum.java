@@ -0,0 +1,100 @@
+package com.boudoux.optimizer;
+
+import com.boudoux.Gradients;
+import com.boudoux.Layer;
+import com.boudoux.Optimizer;
+
+/**
+ * Gradient descent with momentum: <code>v = momentum * v + g</code> and <code>w += rate * v</code>, so the
+ * directions the gradients keep pointing to speed up while the oscillating ones cancel out.
+ *
+ * With Nesterov's variant the parameters move by <code>rate * (momentum * v + g)</code>, looking ahead to where
+ * the velocity is taking them. A momentum of 0 is the plain gradient descent.
+ */
+public class Momentum implements Optimizer {
+
+    public static final double DEFAULT_MOMENTUM = 0.9;
+
+    private final double momentum;
+
+    private final boolean nesterov;
+
+    // [layer][parameter][value]
+    private double[][][] velocities;
+
+    private transient double[] changes;
+
+    public Momentum() {
+        this(DEFAULT_MOMENTUM, false);
+    }
+
+    /**
+     * @param momentum in [0, 1)
+     * @param nesterov
+     */
+    public Momentum(double momentum, boolean nesterov) {
+        if(!(momentum >= 0.0 && momentum < 1.0))
+            throw new IllegalArgumentException(String.format("Invalid momentum (%f)", momentum));
+
+        this.momentum = momentum;
+        this.nesterov = nesterov;
+    }
+
+    @Override
+    public void update(Layer[] layers, Gradients gradients, double learningRate) {
+        ParameterStates.checkGradients(layers, gradients);
+        if(!ParameterStates.fits(this.velocities, layers)) {
+            this.velocities = ParameterStates.allocate(layers);
+        }
+        if(this.changes == null) {
+            this.changes = new double[ParameterStates.CHUNK_SIZE];
+        }
+        double[] changes = this.changes;
+
+        for(int idxLayer = 0; idxLayer < layers.length; idxLayer++) {
+            Layer layer = layers[idxLayer];
+
+            for(int idxParameter = 0; idxParameter < layer.getTotalParameters(); idxParameter++) {
+                double[] gradient = gradients.getLayerGradients(idxLayer, idxParameter);
+                double[] velocity = this.velocities[idxLayer][idxParameter];
+
+                // a chunk of changes at a time
+                for(int from = 0; from < gradient.length; from += changes.length) {
+                    int length = Math.min(changes.length, gradient.length - from);
+
+                    if(this.nesterov) {
+                        for(int idx = 0, idxValue = from; idx < length; idx++, idxValue++) {
+                            velocity[idxValue] = this.momentum * velocity[idxValue] + gradient[idxValue];
+                            changes[idx] = learningRate * (this.momentum * velocity[idxValue] + gradient[idxValue]);
+                        }
+                    } else {
+                        for(int idx = 0, idxValue = from; idx < length; idx++, idxValue++) {
+                            velocity[idxValue] = this.momentum * velocity[idxValue] + gradient[idxValue];
+                            changes[idx] = learningRate * velocity[idxValue];
+                        }
+                    }
+
+                    layer.addToParameter(idxParameter, from, changes, length);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        ParameterStates.clear(this.velocities);
+    }
+
+    public double getMomentum() {
+        return momentum;
+    }
+
+    public boolean isNesterov() {
+        return nesterov;
+    }
+
+    @Override
+    public String toString() {
+        return (this.nesterov ? "Nesterov{" : "Momentum{") + "momentum=" + momentum + '}';
+    }
+}
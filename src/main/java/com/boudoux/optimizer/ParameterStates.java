@@ -0,0 +1,78 @@
+package com.boudoux.optimizer;
+
+import com.boudoux.Gradients;
+import com.boudoux.Layer;
+
+/**
+ * Allocates and checks the per-parameter state of the optimizers: one flat array for each parameter of each layer,
+ * indexed [layer][parameter][value].
+ */
+final class ParameterStates {
+
+    // the changes of the parameters added at once
+    static final int CHUNK_SIZE = 1024;
+
+    private ParameterStates() {
+    }
+
+    static double[][][] allocate(Layer[] layers) {
+        double[][][] states = new double[layers.length][][];
+        for(int idxLayer = 0; idxLayer < layers.length; idxLayer++) {
+            Layer layer = layers[idxLayer];
+            states[idxLayer] = new double[layer.getTotalParameters()][];
+
+            for(int idxParameter = 0; idxParameter < states[idxLayer].length; idxParameter++) {
+                states[idxLayer][idxParameter] = new double[layer.getParameterSize(idxParameter)];
+            }
+        }
+
+        return states;
+    }
+
+    static boolean fits(double[][][] states, Layer[] layers) {
+        if(states == null || states.length != layers.length)
+            return false;
+
+        for(int idxLayer = 0; idxLayer < layers.length; idxLayer++) {
+            Layer layer = layers[idxLayer];
+            if(states[idxLayer].length != layer.getTotalParameters())
+                return false;
+
+            for(int idxParameter = 0; idxParameter < states[idxLayer].length; idxParameter++) {
+                if(states[idxLayer][idxParameter].length != layer.getParameterSize(idxParameter))
+                    return false;
+            }
+        }
+
+        return true;
+    }
+
+    static void checkGradients(Layer[] layers, Gradients gradients) {
+        if(gradients == null || gradients.getTotalLayers() != layers.length)
+            throw new IllegalArgumentException("The gradients do not fit the layers");
+
+        for(int idxLayer = 0; idxLayer < layers.length; idxLayer++) {
+            Layer layer = layers[idxLayer];
+            if(gradients.getTotalParameters(idxLayer) != layer.getTotalParameters())
+                throw new IllegalArgumentException("The gradients do not fit the layers");
+
+            for(int idxParameter = 0; idxParameter < layer.getTotalParameters(); idxParameter++) {
+                if(gradients.getLayerGradients(idxLayer, idxParameter).length != layer.getParameterSize(idxParameter))
+                    throw new IllegalArgumentException("The gradients do not fit the layers");
+            }
+        }
+    }
+
+    static void clear(double[][][] states) {
+        if(states == null)
+            return;
+
+        for(double[][] layerStates : states) {
+            for(double[] values : layerStates) {
+                for(int idx = 0; idx < values.length; idx++) {
+                    values[idx] = 0.0;
+                }
+            }
+        }
+    }
+}
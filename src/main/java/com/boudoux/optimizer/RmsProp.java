@@ -0,0 +1,85 @@
+package com.boudoux.optimizer;
+
+import com.boudoux.Gradients;
+import com.boudoux.Layer;
+import com.boudoux.Optimizer;
+
+/**
+ * RMSProp: keeps a moving average of the squared gradients, <code>s = decay * s + (1 - decay) * g^2</code>, and
+ * moves each parameter by <code>rate * g / (sqrt(s) + epsilon)</code>, so every parameter gets its own step size.
+ */
+public class RmsProp implements Optimizer {
+
+    public static final double DEFAULT_DECAY = 0.9;
+
+    public static final double DEFAULT_EPSILON = 1e-8;
+
+    private final double decay;
+
+    private final double epsilon;
+
+    // [layer][parameter][value]
+    private double[][][] squares;
+
+    private transient double[] changes;
+
+    public RmsProp() {
+        this(DEFAULT_DECAY, DEFAULT_EPSILON);
+    }
+
+    /**
+     * @param decay in [0, 1)
+     * @param epsilon greater than 0, keeps the steps bounded when the gradients vanish
+     */
+    public RmsProp(double decay, double epsilon) {
+        if(!(decay >= 0.0 && decay < 1.0) || !(epsilon > 0.0))
+            throw new IllegalArgumentException(String.format("Invalid decay (%f) or epsilon (%f)", decay, epsilon));
+
+        this.decay = decay;
+        this.epsilon = epsilon;
+    }
+
+    @Override
+    public void update(Layer[] layers, Gradients gradients, double learningRate) {
+        ParameterStates.checkGradients(layers, gradients);
+        if(!ParameterStates.fits(this.squares, layers)) {
+            this.squares = ParameterStates.allocate(layers);
+        }
+        if(this.changes == null) {
+            this.changes = new double[ParameterStates.CHUNK_SIZE];
+        }
+        double[] changes = this.changes;
+
+        for(int idxLayer = 0; idxLayer < layers.length; idxLayer++) {
+            Layer layer = layers[idxLayer];
+
+            for(int idxParameter = 0; idxParameter < layer.getTotalParameters(); idxParameter++) {
+                double[] gradient = gradients.getLayerGradients(idxLayer, idxParameter);
+                double[] square = this.squares[idxLayer][idxParameter];
+
+                // a chunk of changes at a time
+                for(int from = 0; from < gradient.length; from += changes.length) {
+                    int length = Math.min(changes.length, gradient.length - from);
+
+                    for(int idx = 0, idxValue = from; idx < length; idx++, idxValue++) {
+                        double value = gradient[idxValue];
+                        square[idxValue] = this.decay * square[idxValue] + (1.0 - this.decay) * value * value;
+                        changes[idx] = learningRate * value / (Math.sqrt(square[idxValue]) + this.epsilon);
+                    }
+
+                    layer.addToParameter(idxParameter, from, changes, length);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        ParameterStates.clear(this.squares);
+    }
+
+    @Override
+    public String toString() {
+        return "RmsProp{" + "decay=" + decay + ", epsilon=" + epsilon + '}';
+    }
+}
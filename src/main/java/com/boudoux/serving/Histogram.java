@@ -0,0 +1,120 @@
+package com.boudoux.serving;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts non-negative values, like latencies or batch sizes, into a fixed set of buckets so it never allocates
+ * while recording.
+ *
+ * Values below {@value #EXACT_LIMIT} have a bucket each. Above it every power of two is split into
+ * {@value #SUB_BUCKETS} buckets, so the percentiles are exact for small values and within about 3% for the
+ * others. It is safe to record and read from many threads at once.
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    static final int EXACT_LIMIT = 2 * SUB_BUCKETS;
+
+    // the first exponent (highest bit) above the exact buckets
+    private static final int FIRST_EXPONENT = SUB_BUCKET_BITS + 1;
+
+    private static final int TOTAL_BUCKETS = EXACT_LIMIT + (63 - FIRST_EXPONENT) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(TOTAL_BUCKETS);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong sum = new AtomicLong();
+
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if(value < 0)
+            throw new IllegalArgumentException(String.format("Invalid value (%d)", value));
+
+        this.counts.incrementAndGet(bucketOf(value));
+        this.count.incrementAndGet();
+        this.sum.addAndGet(value);
+        this.max.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        return this.count.get();
+    }
+
+    public long getMax() {
+        return this.max.get();
+    }
+
+    public double getMean() {
+        long total = this.count.get();
+        return total == 0 ? 0.0 : this.sum.get() / (double) total;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the greatest value of the bucket holding the given percentile, 0 when nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        if(percentile < 0.0 || percentile > 100.0)
+            throw new IllegalArgumentException(String.format("Invalid percentile (%f)", percentile));
+
+        long total = this.count.get();
+        if(total == 0)
+            return 0L;
+
+        long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0L;
+        for(int idxBucket = 0; idxBucket < TOTAL_BUCKETS; idxBucket++) {
+            seen += this.counts.get(idxBucket);
+            if(seen >= rank)
+                return Math.min(upperBoundOf(idxBucket), this.max.get());
+        }
+
+        return this.max.get();
+    }
+
+    /**
+     * Forgets all the recorded values. Values recorded while it runs may be partially kept.
+     */
+    public void reset() {
+        for(int idxBucket = 0; idxBucket < TOTAL_BUCKETS; idxBucket++) {
+            this.counts.set(idxBucket, 0L);
+        }
+
+        this.count.set(0L);
+        this.sum.set(0L);
+        this.max.set(0L);
+    }
+
+    static int bucketOf(long value) {
+        if(value < EXACT_LIMIT)
+            return (int) value;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+
+        return EXACT_LIMIT + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBoundOf(int bucket) {
+        if(bucket < EXACT_LIMIT)
+            return bucket;
+
+        int exponent = (bucket - EXACT_LIMIT) / SUB_BUCKETS + FIRST_EXPONENT;
+        long subBucket = (bucket - EXACT_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        int shift = exponent - SUB_BUCKET_BITS;
+
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%.1f, p50=%d, p99=%d, max=%d",
+                getCount(), getMean(), getPercentile(50.0), getPercentile(99.0), getMax());
+    }
+}
@@ -0,0 +1,241 @@
+package com.boudoux.serving;
+
+import com.boudoux.BatchWorkspace;
+import com.boudoux.NeuralNetwork;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the inputs submitted by many threads and fires them as a single batch (see
+ * {@link NeuralNetwork#fireBatch(double[][], int, BatchWorkspace, double[][])}), so the weights are streamed from
+ * memory once per batch instead of once per request.
+ *
+ * A batch is fired as soon as it has <code>maxBatchSize</code> inputs or its oldest input has waited
+ * <code>maxWaitMicros</code>. A single thread fires the batches, so the network must not be trained meanwhile.
+ * The latency of each request (from its submission to its answer) and the size of each batch are recorded into
+ * histograms.
+ *
+ * The futures are completed by the dispatcher thread, so any heavy work chained to them should use the async
+ * variants of {@link CompletableFuture}.
+ */
+public class MicroBatchScheduler implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 32;
+
+    public static final long DEFAULT_MAX_WAIT_MICROS = 200L;
+
+    // how long the idle dispatcher waits before checking whether it was closed
+    private static final long IDLE_POLL_MILLIS = 100L;
+
+    private final NeuralNetwork network;
+
+    private final int maxBatchSize;
+
+    private final long maxWaitNanos;
+
+    private final BlockingQueue<Request> pending = new LinkedBlockingQueue<>();
+
+    private final Histogram latencyMicros = new Histogram();
+
+    private final Histogram batchSizes = new Histogram();
+
+    private final Thread dispatcher;
+
+    private volatile boolean running = true;
+
+    public MicroBatchScheduler(NeuralNetwork network) {
+        this(network, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_WAIT_MICROS);
+    }
+
+    public MicroBatchScheduler(NeuralNetwork network, int maxBatchSize, long maxWaitMicros) {
+        if(network == null)
+            throw new IllegalArgumentException("The network must be provided");
+        if(maxBatchSize <= 0)
+            throw new IllegalArgumentException(String.format("Invalid batch size (%d)", maxBatchSize));
+        if(maxWaitMicros < 0)
+            throw new IllegalArgumentException(String.format("Invalid wait (%d)", maxWaitMicros));
+
+        this.network = network;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+
+        this.dispatcher = new Thread(this::dispatch, "micro-batch-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * @param input
+     * @return the values of the Output Layer for the input, once its batch is fired
+     * @throws IllegalStateException if the scheduler is closed, or was stopped by an error of the network
+     */
+    public CompletableFuture<double[]> submit(double[] input) {
+        if(input == null || input.length != this.network.getTotalInputNodes())
+            throw new IllegalArgumentException(String.format("The parameter must have the same length of the total nodes (%d)", this.network.getTotalInputNodes()));
+        if(!this.running)
+            throw new IllegalStateException("The scheduler is closed");
+
+        Request request = new Request(input);
+        this.pending.add(request);
+
+        // close() may have drained the queue between the check and the add
+        if(!this.running && this.pending.remove(request))
+            request.future.completeExceptionally(new IllegalStateException("The scheduler is closed"));
+
+        return request.future;
+    }
+
+    /**
+     * @return the time between the submission of each request and its answer, in microseconds
+     */
+    public Histogram getLatencyMicros() {
+        return latencyMicros;
+    }
+
+    /**
+     * @return the quantity of inputs of each fired batch
+     */
+    public Histogram getBatchSizes() {
+        return batchSizes;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Stops accepting requests and waits for the pending ones to be answered.
+     */
+    @Override
+    public void close() {
+        this.running = false;
+
+        try {
+            this.dispatcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // requests which raced with the closing
+        this.failPending(new IllegalStateException("The scheduler is closed"));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("latency (us): %s | batch size: %s", latencyMicros, batchSizes);
+    }
+
+    private void dispatch() {
+        Request[] batch = new Request[this.maxBatchSize];
+        double[][] inputs = new double[this.maxBatchSize][];
+        double[][] outputs = new double[this.maxBatchSize][this.network.getTotalOutputNodes()];
+        BatchWorkspace workspace = this.network.newBatchWorkspace(this.maxBatchSize);
+
+        try {
+            while(this.running || !this.pending.isEmpty()) {
+                Request first = this.pending.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if(first == null)
+                    continue;
+
+                int size = this.collect(first, batch);
+                for(int idxRequest = 0; idxRequest < size; idxRequest++) {
+                    inputs[idxRequest] = batch[idxRequest].input;
+                }
+
+                this.fire(batch, inputs, outputs, size, workspace);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.stop(batch, new IllegalStateException("The scheduler was interrupted", e));
+        } catch (Throwable e) {
+            // an error of the network, e.g. an OutOfMemoryError, leaves no thread to answer the requests
+            this.stop(batch, e);
+            throw e;
+        }
+    }
+
+    // stops accepting requests and fails the ones collected but not answered yet, then the pending ones
+    private void stop(Request[] batch, Throwable cause) {
+        this.running = false;
+
+        for(int idxRequest = 0; idxRequest < batch.length; idxRequest++) {
+            if(batch[idxRequest] != null) {
+                batch[idxRequest].future.completeExceptionally(cause);
+                batch[idxRequest] = null;
+            }
+        }
+        this.failPending(cause);
+    }
+
+    private void failPending(Throwable cause) {
+        Request request;
+        while((request = this.pending.poll()) != null) {
+            request.future.completeExceptionally(cause);
+        }
+    }
+
+    // fills the batch until it is full or the first request has waited long enough
+    private int collect(Request first, Request[] batch) throws InterruptedException {
+        long deadline = first.submitted + this.maxWaitNanos;
+        int size = 0;
+        batch[size++] = first;
+
+        while(size < batch.length) {
+            Request next = this.pending.poll();
+            if(next == null) {
+                long remaining = deadline - System.nanoTime();
+                if(remaining <= 0)
+                    break;
+
+                next = this.pending.poll(remaining, TimeUnit.NANOSECONDS);
+                if(next == null)
+                    break;
+            }
+
+            batch[size++] = next;
+        }
+
+        return size;
+    }
+
+    private void fire(Request[] batch, double[][] inputs, double[][] outputs, int size, BatchWorkspace workspace) {
+        try {
+            this.network.fireBatch(inputs, size, workspace, outputs);
+        } catch (RuntimeException e) {
+            for(int idxRequest = 0; idxRequest < size; idxRequest++) {
+                batch[idxRequest].future.completeExceptionally(e);
+                batch[idxRequest] = null;
+            }
+            return;
+        } finally {
+            for(int idxRequest = 0; idxRequest < size; idxRequest++) {
+                inputs[idxRequest] = null;
+            }
+        }
+
+        this.batchSizes.record(size);
+        for(int idxRequest = 0; idxRequest < size; idxRequest++) {
+            Request request = batch[idxRequest];
+            batch[idxRequest] = null;
+
+            // recorded first so the histogram already counts the request when its caller wakes up
+            this.latencyMicros.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - request.submitted));
+            request.future.complete(outputs[idxRequest].clone());
+        }
+    }
+
+    private static class Request {
+        final double[] input;
+
+        final CompletableFuture<double[]> future = new CompletableFuture<>();
+
+        final long submitted = System.nanoTime();
+
+        Request(double[] input) {
+            this.input = input;
+        }
+    }
+}
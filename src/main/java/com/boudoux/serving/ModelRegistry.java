@@ -0,0 +1,347 @@
+package com.boudoux.serving;
+
+import com.boudoux.InferenceModel;
+import com.boudoux.NeuralNetwork;
+import com.boudoux.Precision;
+import com.boudoux.io.ModelFormat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Serves several trained models by name, e.g. networks trained with different seeds or topologies, and answers
+ * their ensemble by averaging their outputs.
+ *
+ * The registered models are never trained: a {@link NeuralNetwork} is copied when registered, the models loaded
+ * with {@link #load(String, Path)} read their weights from a read-only mapping shared by every process serving the
+ * same file, and {@link #getModel(String)} only hands out a view able to fire them. Every model keeps the buffers of
+ * each thread firing it (see {@link NeuralNetwork#newWorkspace()}), so they can all be fired at once by the threads
+ * of the pool, and each thread asking for an ensemble keeps the outputs and the tasks of its models, so answering it
+ * does not allocate.
+ *
+ * The registered models are held by an immutable snapshot replaced atomically, so registering a new version of a
+ * model never blocks the calls in flight: they finish with the versions they started with, and the next calls see
+ * the new one.
+ */
+public class ModelRegistry implements AutoCloseable {
+
+    private final ForkJoinPool pool;
+
+    // whether the pool was created (and must be shut down) by this registry
+    private final boolean ownsPool;
+
+    // the models in the order they were first registered
+    private final AtomicReference<Map<String, Entry>> entries = new AtomicReference<>(Collections.emptyMap());
+
+    // the outputs and the tasks of the ensemble of each calling thread
+    private final ThreadLocal<Ensemble> ensembles = ThreadLocal.withInitial(Ensemble::new);
+
+    public ModelRegistry(int parallelism) {
+        this(new ForkJoinPool(parallelism), true);
+    }
+
+    public ModelRegistry(ForkJoinPool pool) {
+        this(pool, false);
+    }
+
+    private ModelRegistry(ForkJoinPool pool, boolean ownsPool) {
+        if(pool == null)
+            throw new IllegalArgumentException("The pool must be provided");
+
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+    }
+
+    /**
+     * Registers a model under the name, atomically replacing its previous version, if any. A {@link NeuralNetwork}
+     * is copied, so it can go on being trained; any other model is kept as it is and must not be trained anymore.
+     *
+     * @param name
+     * @param model with the same input and output nodes of the other registered models
+     * @return the version of the model under the name, starting at 1
+     */
+    public int register(String name, InferenceModel model) {
+        if(name == null || model == null)
+            throw new IllegalArgumentException("The name and the model must be provided");
+
+        return this.put(name, new View(model instanceof NeuralNetwork ? ((NeuralNetwork) model).copy() : model));
+    }
+
+    /**
+     * Maps a model saved in double precision (see {@link ModelFormat#map(Path)}) and registers it under the name,
+     * without copying its weights.
+     *
+     * @param name
+     * @param path
+     * @return the version of the model under the name, starting at 1
+     * @throws IOException if the file is not a valid model or its weights are floats
+     */
+    public int load(String name, Path path) throws IOException {
+        if(name == null)
+            throw new IllegalArgumentException("The name must be provided");
+
+        return this.put(name, new View(ModelFormat.map(path)));
+    }
+
+    /**
+     * @param name
+     * @return whether a model was registered under the name
+     */
+    public boolean remove(String name) {
+        while(true) {
+            Map<String, Entry> current = this.entries.get();
+            if(!current.containsKey(name))
+                return false;
+
+            Map<String, Entry> next = new LinkedHashMap<>(current);
+            next.remove(name);
+            if(this.entries.compareAndSet(current, Collections.unmodifiableMap(next)))
+                return true;
+        }
+    }
+
+    /**
+     * @param name
+     * @return a view firing the current version of the model, which can not be trained
+     * @throws IllegalArgumentException if no model is registered under the name
+     */
+    public InferenceModel getModel(String name) {
+        return this.getEntry(name).model;
+    }
+
+    /**
+     * @param name
+     * @return the version of the current model, starting at 1
+     * @throws IllegalArgumentException if no model is registered under the name
+     */
+    public int getVersion(String name) {
+        return this.getEntry(name).version;
+    }
+
+    /**
+     * @return the names of the registered models, in the order they were first registered
+     */
+    public Set<String> getNames() {
+        return this.entries.get().keySet();
+    }
+
+    /**
+     * Fires the current version of a model on the calling thread.
+     *
+     * @param name
+     * @param input
+     * @param output receives the values of the Output Layer
+     * @return the output array
+     */
+    public double[] fire(String name, double[] input, double[] output) {
+        return this.getEntry(name).model.fire(input, output);
+    }
+
+    /**
+     * Fires every registered model in parallel on the pool and averages their outputs. The models are summed in the
+     * order they were first registered, so the answer does not depend on which thread fired each of them.
+     *
+     * @param input
+     * @param output receives the average of the outputs of the models
+     * @return the output array
+     * @throws IllegalStateException if no model is registered
+     */
+    public double[] fireEnsemble(double[] input, double[] output) {
+        Map<String, Entry> snapshot = this.entries.get();
+        if(snapshot.isEmpty())
+            throw new IllegalStateException("No model is registered");
+
+        Ensemble ensemble = this.ensembles.get();
+        if(ensemble.snapshot != snapshot) {
+            ensemble.update(snapshot);
+        }
+
+        double[][] outputs = ensemble.outputs;
+        if(output == null || output.length != outputs[0].length)
+            throw new IllegalArgumentException(String.format("The output must have the same length of the total nodes (%d)", outputs[0].length));
+
+        if(outputs.length == 1) {
+            ensemble.tasks[0].model.fire(input, outputs[0]);
+        } else {
+            ensemble.input = input;
+            try {
+                this.pool.invoke(ensemble.reset());
+            } finally {
+                ensemble.input = null;
+            }
+        }
+
+        for(int idxNode = 0; idxNode < output.length; idxNode++) {
+            double sum = 0.0;
+            for(int idxModel = 0; idxModel < outputs.length; idxModel++) {
+                sum += outputs[idxModel][idxNode];
+            }
+            output[idxNode] = sum / outputs.length;
+        }
+
+        return output;
+    }
+
+    public int getParallelism() {
+        return this.pool.getParallelism();
+    }
+
+    @Override
+    public void close() {
+        if(this.ownsPool) {
+            this.pool.shutdown();
+        }
+    }
+
+    // registers the view, checking its nodes against the other models
+    private int put(String name, View model) {
+        while(true) {
+            Map<String, Entry> current = this.entries.get();
+
+            for(Map.Entry<String, Entry> other : current.entrySet()) {
+                InferenceModel otherModel = other.getValue().model;
+                if(!other.getKey().equals(name) && (otherModel.getTotalInputNodes() != model.getTotalInputNodes()
+                        || otherModel.getTotalOutputNodes() != model.getTotalOutputNodes()))
+                    throw new IllegalArgumentException(String.format("The model must have %d input and %d output nodes like '%s'",
+                            otherModel.getTotalInputNodes(), otherModel.getTotalOutputNodes(), other.getKey()));
+            }
+
+            Entry previous = current.get(name);
+            Entry entry = new Entry(previous == null ? 1 : previous.version + 1, model);
+
+            Map<String, Entry> next = new LinkedHashMap<>(current);
+            next.put(name, entry);
+            if(this.entries.compareAndSet(current, Collections.unmodifiableMap(next)))
+                return entry.version;
+        }
+    }
+
+    private Entry getEntry(String name) {
+        Entry entry = this.entries.get().get(name);
+        if(entry == null)
+            throw new IllegalArgumentException(String.format("No model is registered under '%s'", name));
+
+        return entry;
+    }
+
+    private static class Entry {
+        final int version;
+
+        final InferenceModel model;
+
+        Entry(int version, InferenceModel model) {
+            this.version = version;
+            this.model = model;
+        }
+    }
+
+    /**
+     * Fires a registered model, without exposing it, so it can not be trained.
+     */
+    private static class View implements InferenceModel {
+        private final InferenceModel model;
+
+        View(InferenceModel model) {
+            this.model = model;
+        }
+
+        @Override
+        public double[] fire(double[] input, double[] output) {
+            return this.model.fire(input, output);
+        }
+
+        @Override
+        public int getTotalInputNodes() {
+            return this.model.getTotalInputNodes();
+        }
+
+        @Override
+        public int getTotalOutputNodes() {
+            return this.model.getTotalOutputNodes();
+        }
+
+        @Override
+        public Precision getPrecision() {
+            return this.model.getPrecision();
+        }
+
+        @Override
+        public String toString() {
+            return "View{" +
+                    "model=" + model +
+                    '}';
+        }
+    }
+
+    /**
+     * The outputs and the tasks of the models of a snapshot, kept by the thread asking for their ensemble and
+     * reinitialized on each call. It fires all the models, one task each.
+     */
+    private static class Ensemble extends RecursiveAction {
+        // the models the tasks were built for
+        Map<String, Entry> snapshot;
+
+        double[][] outputs;
+
+        FireTask[] tasks;
+
+        // the input of the call in flight
+        double[] input;
+
+        void update(Map<String, Entry> snapshot) {
+            FireTask[] tasks = new FireTask[snapshot.size()];
+            double[][] outputs = new double[tasks.length][];
+            int idxModel = 0;
+            for(Entry entry : snapshot.values()) {
+                outputs[idxModel] = new double[entry.model.getTotalOutputNodes()];
+                tasks[idxModel] = new FireTask(this, entry.model, outputs[idxModel]);
+                idxModel++;
+            }
+
+            this.snapshot = snapshot;
+            this.outputs = outputs;
+            this.tasks = tasks;
+        }
+
+        Ensemble reset() {
+            this.reinitialize();
+            for(FireTask task : this.tasks) {
+                task.reinitialize();
+            }
+
+            return this;
+        }
+
+        @Override
+        protected void compute() {
+            invokeAll(this.tasks);
+        }
+    }
+
+    /**
+     * Fires a model on the input of its ensemble.
+     */
+    private static class FireTask extends RecursiveAction {
+        private final Ensemble ensemble;
+        private final InferenceModel model;
+        private final double[] output;
+
+        FireTask(Ensemble ensemble, InferenceModel model, double[] output) {
+            this.ensemble = ensemble;
+            this.model = model;
+            this.output = output;
+        }
+
+        @Override
+        protected void compute() {
+            this.model.fire(this.ensemble.input, this.output);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.boudoux.training;
+
+/**
+ * The measures of one epoch of a {@link TrainingLoop}. The times are in nanoseconds.
+ */
+public class EpochMetrics {
+    private final int epoch;
+    private final long samples;
+    private final double loss;
+    private final double accuracy;
+    private final long elapsedNanos;
+    private final long loadNanos;
+    private final long forwardNanos;
+    private final long backwardNanos;
+    private final long[] forwardNanosByLayer;
+    private final long[] backwardNanosByLayer;
+
+    EpochMetrics(int epoch, long samples, double loss, double accuracy, long elapsedNanos, long loadNanos,
+                 long forwardNanos, long backwardNanos, long[] forwardNanosByLayer, long[] backwardNanosByLayer) {
+        this.epoch = epoch;
+        this.samples = samples;
+        this.loss = loss;
+        this.accuracy = accuracy;
+        this.elapsedNanos = elapsedNanos;
+        this.loadNanos = loadNanos;
+        this.forwardNanos = forwardNanos;
+        this.backwardNanos = backwardNanos;
+        this.forwardNanosByLayer = forwardNanosByLayer;
+        this.backwardNanosByLayer = backwardNanosByLayer;
+    }
+
+    public int getEpoch() {
+        return epoch;
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    /**
+     * @return the mean of the squared errors of the output nodes, measured before each sample was trained
+     */
+    public double getLoss() {
+        return loss;
+    }
+
+    /**
+     * @return the accuracy over the test set at the end of the epoch, NaN when there is no test set
+     */
+    public double getAccuracy() {
+        return accuracy;
+    }
+
+    /**
+     * @return the time spent training the epoch, without the evaluation of the test set
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getSamplesPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : samples * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return the time spent reading and scaling the samples
+     */
+    public long getLoadNanos() {
+        return loadNanos;
+    }
+
+    public long getForwardNanos() {
+        return forwardNanos;
+    }
+
+    public long getBackwardNanos() {
+        return backwardNanos;
+    }
+
+    /**
+     * @return the forward time of each layer of weights, null unless the loop measures the layers
+     */
+    public long[] getForwardNanosByLayer() {
+        return forwardNanosByLayer;
+    }
+
+    /**
+     * @return the backward time of each layer of weights, null unless the loop measures the layers
+     */
+    public long[] getBackwardNanosByLayer() {
+        return backwardNanosByLayer;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("epoch %d: loss %.6f, accuracy %.4f, %.0f samples/s, load %.1f ms, forward %.1f ms, backward %.1f ms",
+                epoch, loss, accuracy, getSamplesPerSecond(), loadNanos / 1e6, forwardNanos / 1e6, backwardNanos / 1e6);
+    }
+}
@@ -0,0 +1,68 @@
+package com.boudoux.training;
+
+import com.boudoux.InferenceModel;
+import com.boudoux.NeuralNetwork;
+import com.boudoux.Workspace;
+
+/**
+ * Measures how well a {@link NeuralNetwork}, or any {@link InferenceModel}, answers a set of samples.
+ */
+public class Evaluation {
+
+    private Evaluation() {
+    }
+
+    /**
+     * @param network
+     * @param inputs
+     * @param expectedTargets
+     * @return the fraction of samples whose strongest output node is the strongest node of the expected target
+     */
+    public static double accuracy(NeuralNetwork network, double[][] inputs, double[][] expectedTargets) {
+        Workspace workspace = network.newWorkspace();
+        int correct = 0;
+
+        for(int idxSample = 0; idxSample < inputs.length; idxSample++) {
+            double[] output = network.fire(inputs[idxSample], workspace, null);
+
+            if(argMax(output) == argMax(expectedTargets[idxSample]))
+                correct++;
+        }
+
+        return inputs.length == 0 ? 0.0 : correct / (double) inputs.length;
+    }
+
+    /**
+     * @param model a model of any precision
+     * @param inputs
+     * @param expectedTargets
+     * @return the fraction of samples whose strongest output node is the strongest node of the expected target
+     */
+    public static double accuracy(InferenceModel model, double[][] inputs, double[][] expectedTargets) {
+        double[] output = new double[model.getTotalOutputNodes()];
+        int correct = 0;
+
+        for(int idxSample = 0; idxSample < inputs.length; idxSample++) {
+            model.fire(inputs[idxSample], output);
+
+            if(argMax(output) == argMax(expectedTargets[idxSample]))
+                correct++;
+        }
+
+        return inputs.length == 0 ? 0.0 : correct / (double) inputs.length;
+    }
+
+    /**
+     * @param values
+     * @return the index of the greatest value
+     */
+    public static int argMax(double[] values) {
+        int idxMax = 0;
+        for(int idx = 1; idx < values.length; idx++) {
+            if(values[idx] > values[idxMax])
+                idxMax = idx;
+        }
+
+        return idxMax;
+    }
+}
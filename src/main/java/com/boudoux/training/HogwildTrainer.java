@@ -0,0 +1,201 @@
+package com.boudoux.training;
+
+import com.boudoux.NeuralNetwork;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Trains a {@link NeuralNetwork} asynchronously (Hogwild): several threads run {@link NeuralNetwork#train} over
+ * their own slice of the samples against the same weights without any locking, so updates may overwrite each other.
+ * It pays off when the samples touch few weights each (sparse inputs) and the contention is low.
+ *
+ * The races on the weights are intended, but the updates are still published under the Java Memory Model: every
+ * <code>publishInterval</code> samples each thread goes through a shared atomic counter, which orders its previous
+ * writes before the later reads of the other threads, and the caller only sees the weights after joining all the
+ * threads. Reads and writes of a non-volatile double are only guaranteed to be atomic on 64-bit JVMs (JLS 17.7).
+ */
+public class HogwildTrainer {
+
+    public static final int DEFAULT_PUBLISH_INTERVAL = 64;
+
+    private final NeuralNetwork network;
+
+    private final int threads;
+
+    private final int publishInterval;
+
+    // the synchronization point used to publish the weights between the threads
+    private final AtomicLong trainedSamples = new AtomicLong();
+
+    public HogwildTrainer(NeuralNetwork network, int threads) {
+        this(network, threads, DEFAULT_PUBLISH_INTERVAL);
+    }
+
+    public HogwildTrainer(NeuralNetwork network, int threads, int publishInterval) {
+        if(network == null)
+            throw new IllegalArgumentException("The network must be provided");
+        if(threads <= 0 || publishInterval <= 0)
+            throw new IllegalArgumentException(String.format("Invalid threads (%d) or publish interval (%d)", threads, publishInterval));
+
+        this.network = network;
+        this.threads = threads;
+        this.publishInterval = publishInterval;
+    }
+
+    /**
+     * Trains the network for the given epochs. Each thread keeps going through its own slice without waiting for
+     * the others between epochs.
+     *
+     * @param inputs
+     * @param expectedTargets
+     * @param epochs
+     * @return the throughput in samples per second
+     * @throws IllegalStateException if the network has an {@link com.boudoux.Optimizer}
+     */
+    public double train(double[][] inputs, double[][] expectedTargets, int epochs) {
+        if(inputs == null || expectedTargets == null || inputs.length != expectedTargets.length)
+            throw new IllegalArgumentException("There must be one expected target for each input");
+        if(this.network.getOptimizer() != null)
+            throw new IllegalStateException("The optimizers keep a state which can not be updated without locks");
+
+        ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for(int idxThread = 0; idxThread < this.threads; idxThread++) {
+                int from = (int) ((long) inputs.length * idxThread / this.threads);
+                int to = (int) ((long) inputs.length * (idxThread + 1) / this.threads);
+
+                results.add(executor.submit(() -> this.trainSlice(inputs, expectedTargets, from, to, epochs)));
+            }
+
+            // joining the threads publishes their last writes to the caller
+            for(Future<?> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while training", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to train", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+
+        return (long) inputs.length * epochs / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private void trainSlice(double[][] inputs, double[][] expectedTargets, int from, int to, int epochs) {
+        int pending = 0;
+
+        for(int epoch = 0; epoch < epochs; epoch++) {
+            for(int idxSample = from; idxSample < to; idxSample++) {
+                this.network.train(inputs[idxSample], expectedTargets[idxSample]);
+
+                if(++pending == this.publishInterval) {
+                    // release our writes and acquire the ones published by the other threads
+                    this.trainedSamples.addAndGet(pending);
+                    pending = 0;
+                }
+            }
+        }
+
+        this.trainedSamples.addAndGet(pending);
+    }
+
+    /**
+     * @return the samples trained since this trainer was created
+     */
+    public long getTrainedSamples() {
+        return this.trainedSamples.get();
+    }
+
+    /**
+     * Trains two networks created by the same factory, one with the single-threaded {@link NeuralNetwork#train}
+     * and the other one with Hogwild, and reports the throughput and the final accuracy of both.
+     *
+     * @param networkFactory must create networks with the same initial weights
+     * @param threads
+     * @param trainInputs
+     * @param trainTargets
+     * @param testInputs
+     * @param testTargets
+     * @param epochs
+     * @return
+     */
+    public static Report compareWithBaseline(Supplier<NeuralNetwork> networkFactory, int threads,
+                                             double[][] trainInputs, double[][] trainTargets,
+                                             double[][] testInputs, double[][] testTargets, int epochs) {
+        NeuralNetwork baseline = networkFactory.get();
+        long start = System.nanoTime();
+        for(int epoch = 0; epoch < epochs; epoch++) {
+            for(int idxSample = 0; idxSample < trainInputs.length; idxSample++) {
+                baseline.train(trainInputs[idxSample], trainTargets[idxSample]);
+            }
+        }
+        double baselineThroughput = (long) trainInputs.length * epochs / ((System.nanoTime() - start) / 1e9);
+
+        NeuralNetwork hogwild = networkFactory.get();
+        double hogwildThroughput = new HogwildTrainer(hogwild, threads).train(trainInputs, trainTargets, epochs);
+
+        return new Report(threads, baselineThroughput, Evaluation.accuracy(baseline, testInputs, testTargets),
+                hogwildThroughput, Evaluation.accuracy(hogwild, testInputs, testTargets));
+    }
+
+    /**
+     * The outcome of {@link #compareWithBaseline}.
+     */
+    public static class Report {
+        private final int threads;
+        private final double baselineSamplesPerSecond;
+        private final double baselineAccuracy;
+        private final double hogwildSamplesPerSecond;
+        private final double hogwildAccuracy;
+
+        Report(int threads, double baselineSamplesPerSecond, double baselineAccuracy,
+               double hogwildSamplesPerSecond, double hogwildAccuracy) {
+            this.threads = threads;
+            this.baselineSamplesPerSecond = baselineSamplesPerSecond;
+            this.baselineAccuracy = baselineAccuracy;
+            this.hogwildSamplesPerSecond = hogwildSamplesPerSecond;
+            this.hogwildAccuracy = hogwildAccuracy;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public double getBaselineSamplesPerSecond() {
+            return baselineSamplesPerSecond;
+        }
+
+        public double getBaselineAccuracy() {
+            return baselineAccuracy;
+        }
+
+        public double getHogwildSamplesPerSecond() {
+            return hogwildSamplesPerSecond;
+        }
+
+        public double getHogwildAccuracy() {
+            return hogwildAccuracy;
+        }
+
+        public double getSpeedup() {
+            return hogwildSamplesPerSecond / baselineSamplesPerSecond;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("baseline: %.0f samples/s, accuracy %.4f | hogwild (%d threads): %.0f samples/s, accuracy %.4f | speedup %.2fx",
+                    baselineSamplesPerSecond, baselineAccuracy, threads, hogwildSamplesPerSecond, hogwildAccuracy, getSpeedup());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.boudoux.training;
+
+/**
+ * Gives the learning rate of each epoch from the rate the network started with (see
+ * {@link TrainingLoop#setSchedule(LearningRateSchedule)}).
+ */
+public interface LearningRateSchedule {
+
+    LearningRateSchedule CONSTANT = (baseRate, epoch) -> baseRate;
+
+    /**
+     * @param baseRate the learning rate of the network when the training started
+     * @param epoch starting at 1
+     * @return the learning rate of the epoch
+     */
+    double rate(double baseRate, int epoch);
+
+    /**
+     * Multiplies the rate by <code>gamma</code> every <code>stepEpochs</code> epochs.
+     *
+     * @param stepEpochs
+     * @param gamma
+     * @return
+     */
+    static LearningRateSchedule step(int stepEpochs, double gamma) {
+        if(stepEpochs <= 0 || !(gamma > 0.0))
+            throw new IllegalArgumentException(String.format("Invalid step (%d) or gamma (%f)", stepEpochs, gamma));
+
+        return (baseRate, epoch) -> baseRate * Math.pow(gamma, (epoch - 1) / stepEpochs);
+    }
+
+    /**
+     * Anneals the rate from the base one down to <code>baseRate * minFactor</code> along half a cosine over the
+     * given epochs, staying there afterwards.
+     *
+     * @param totalEpochs
+     * @param minFactor in [0, 1]
+     * @return
+     */
+    static LearningRateSchedule cosine(int totalEpochs, double minFactor) {
+        if(totalEpochs <= 0 || !(minFactor >= 0.0 && minFactor <= 1.0))
+            throw new IllegalArgumentException(String.format("Invalid epochs (%d) or minimum factor (%f)", totalEpochs, minFactor));
+
+        return (baseRate, epoch) -> {
+            double progress = totalEpochs == 1 ? 1.0 : Math.min(1.0, (epoch - 1) / (double) (totalEpochs - 1));
+            return baseRate * (minFactor + (1.0 - minFactor) * 0.5 * (1.0 + Math.cos(Math.PI * progress)));
+        };
+    }
+
+    /**
+     * Raises the rate linearly during the first epochs, from <code>1 / (warmupEpochs + 1)</code> of the rate
+     * given by the next schedule up to all of it, then follows the next schedule counting its epochs from 1.
+     *
+     * @param warmupEpochs
+     * @param next
+     * @return
+     */
+    static LearningRateSchedule warmup(int warmupEpochs, LearningRateSchedule next) {
+        if(warmupEpochs < 0 || next == null)
+            throw new IllegalArgumentException(String.format("Invalid warmup epochs (%d) or next schedule", warmupEpochs));
+
+        return (baseRate, epoch) -> epoch <= warmupEpochs
+                ? next.rate(baseRate, 1) * epoch / (warmupEpochs + 1)
+                : next.rate(baseRate, epoch - warmupEpochs);
+    }
+}
@@ -0,0 +1,142 @@
+package com.boudoux.training;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Writes the {@link EpochMetrics} of each epoch as a line of text, flushed right away so the file can be followed
+ * while the training runs.
+ *
+ * The CSV format starts with a header; the per-layer times, when measured, become the columns
+ * <code>forward_ns_layer_N</code> and <code>backward_ns_layer_N</code>. The JSON lines format writes one object
+ * by epoch, with the per-layer times as arrays and a missing accuracy as <code>null</code>.
+ */
+public class MetricsSink implements TrainingListener, Closeable {
+
+    public enum Format {
+        CSV,
+        JSON_LINES
+    }
+
+    private final Writer writer;
+
+    private final Format format;
+
+    private boolean headerWritten;
+
+    public MetricsSink(Writer writer, Format format) {
+        if(writer == null || format == null)
+            throw new IllegalArgumentException("The writer and the format must be provided");
+
+        this.writer = writer;
+        this.format = format;
+    }
+
+    /**
+     * @param path created or truncated
+     * @param format
+     * @return
+     * @throws IOException
+     */
+    public static MetricsSink open(Path path, Format format) throws IOException {
+        return new MetricsSink(Files.newBufferedWriter(path, StandardCharsets.UTF_8), format);
+    }
+
+    @Override
+    public void onEpochEnd(EpochMetrics metrics) {
+        StringBuilder line = new StringBuilder(256);
+        if(this.format == Format.CSV) {
+            if(!this.headerWritten) {
+                this.appendCsvHeader(line, metrics);
+                this.headerWritten = true;
+            }
+            this.appendCsv(line, metrics);
+        } else {
+            this.appendJson(line, metrics);
+        }
+
+        try {
+            this.writer.write(line.toString());
+            this.writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.writer.close();
+    }
+
+    private void appendCsvHeader(StringBuilder line, EpochMetrics metrics) {
+        line.append("epoch,samples,loss,accuracy,samples_per_second,elapsed_ns,load_ns,forward_ns,backward_ns");
+        if(metrics.getForwardNanosByLayer() != null) {
+            for(int idxLayer = 0; idxLayer < metrics.getForwardNanosByLayer().length; idxLayer++) {
+                line.append(",forward_ns_layer_").append(idxLayer);
+            }
+            for(int idxLayer = 0; idxLayer < metrics.getBackwardNanosByLayer().length; idxLayer++) {
+                line.append(",backward_ns_layer_").append(idxLayer);
+            }
+        }
+        line.append('\n');
+    }
+
+    private void appendCsv(StringBuilder line, EpochMetrics metrics) {
+        line.append(metrics.getEpoch()).append(',')
+                .append(metrics.getSamples()).append(',')
+                .append(format(metrics.getLoss())).append(',')
+                .append(Double.isNaN(metrics.getAccuracy()) ? "" : format(metrics.getAccuracy())).append(',')
+                .append(format(metrics.getSamplesPerSecond())).append(',')
+                .append(metrics.getElapsedNanos()).append(',')
+                .append(metrics.getLoadNanos()).append(',')
+                .append(metrics.getForwardNanos()).append(',')
+                .append(metrics.getBackwardNanos());
+        if(metrics.getForwardNanosByLayer() != null) {
+            for(long nanos : metrics.getForwardNanosByLayer()) {
+                line.append(',').append(nanos);
+            }
+            for(long nanos : metrics.getBackwardNanosByLayer()) {
+                line.append(',').append(nanos);
+            }
+        }
+        line.append('\n');
+    }
+
+    private void appendJson(StringBuilder line, EpochMetrics metrics) {
+        line.append("{\"epoch\":").append(metrics.getEpoch())
+                .append(",\"samples\":").append(metrics.getSamples())
+                .append(",\"loss\":").append(format(metrics.getLoss()))
+                .append(",\"accuracy\":").append(Double.isNaN(metrics.getAccuracy()) ? "null" : format(metrics.getAccuracy()))
+                .append(",\"samples_per_second\":").append(format(metrics.getSamplesPerSecond()))
+                .append(",\"elapsed_ns\":").append(metrics.getElapsedNanos())
+                .append(",\"load_ns\":").append(metrics.getLoadNanos())
+                .append(",\"forward_ns\":").append(metrics.getForwardNanos())
+                .append(",\"backward_ns\":").append(metrics.getBackwardNanos());
+        if(metrics.getForwardNanosByLayer() != null) {
+            appendJsonArray(line.append(",\"forward_ns_by_layer\":"), metrics.getForwardNanosByLayer());
+            appendJsonArray(line.append(",\"backward_ns_by_layer\":"), metrics.getBackwardNanosByLayer());
+        }
+        line.append("}\n");
+    }
+
+    private static void appendJsonArray(StringBuilder line, long[] values) {
+        line.append('[');
+        for(int idx = 0; idx < values.length; idx++) {
+            if(idx > 0) {
+                line.append(',');
+            }
+            line.append(values[idx]);
+        }
+        line.append(']');
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+}
@@ -0,0 +1,264 @@
+package com.boudoux.training;
+
+import com.boudoux.Activations;
+import com.boudoux.NeuralNetwork;
+import com.boudoux.Optimizer;
+import com.boudoux.data.CsvDatasetReader;
+import com.boudoux.data.Dataset;
+import com.boudoux.optimizer.Adam;
+import com.boudoux.optimizer.Momentum;
+import com.boudoux.optimizer.RmsProp;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Trains copies of the same network with the book's gradient descent and with each candidate {@link Optimizer},
+ * one sample at a time, measuring how many epochs and how much training time each one needs to reach a target
+ * accuracy over a test set. The time spent evaluating the accuracy is not counted.
+ */
+public class OptimizerReport {
+
+    public static final String SGD = "sgd";
+
+    private final List<Entry> entries;
+
+    private OptimizerReport(List<Entry> entries) {
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * @param factory creates the networks to train, which should all start with the same weights
+     * @param trainSet
+     * @param testSet
+     * @param targetAccuracy
+     * @param maxEpochs the training of each candidate stops there when the target is not reached
+     * @param candidates
+     * @return one entry for the book's gradient descent ({@link #SGD}), with the learning rate of the networks,
+     * followed by one entry for each candidate
+     */
+    public static OptimizerReport compare(Supplier<NeuralNetwork> factory, Dataset trainSet, Dataset testSet,
+                                          double targetAccuracy, int maxEpochs, List<Candidate> candidates) {
+        if(maxEpochs <= 0)
+            throw new IllegalArgumentException(String.format("Invalid epochs (%d)", maxEpochs));
+
+        double[][] testInputs = new double[testSet.size()][testSet.getInputSize()];
+        double[][] testTargets = null;
+        List<Entry> entries = new ArrayList<>();
+
+        List<Candidate> all = new ArrayList<>();
+        all.add(null);
+        all.addAll(candidates);
+
+        for(Candidate candidate : all) {
+            NeuralNetwork network = factory.get();
+            if(trainSet.getInputSize() != network.getTotalInputNodes())
+                throw new IllegalArgumentException(String.format("The samples must have the same length of the total nodes (%d)", network.getTotalInputNodes()));
+
+            if(testTargets == null) {
+                testTargets = new double[testSet.size()][network.getTotalOutputNodes()];
+                for(int idxSample = 0; idxSample < testSet.size(); idxSample++) {
+                    testSet.copyInput(idxSample, testInputs[idxSample]);
+                    testSet.copyTarget(idxSample, testTargets[idxSample]);
+                }
+            }
+
+            String name = SGD;
+            LearningRateSchedule schedule = LearningRateSchedule.CONSTANT;
+            if(candidate != null) {
+                name = candidate.name;
+                schedule = candidate.schedule;
+                network.setLearningRate(candidate.learningRate);
+                network.setOptimizer(candidate.optimizer.get());
+            }
+
+            double[] input = new double[trainSet.getInputSize()];
+            double[] target = new double[network.getTotalOutputNodes()];
+            double baseRate = network.getLearningRate();
+            long elapsed = 0L;
+            int epochsToTarget = -1;
+            double accuracy = 0.0;
+
+            for(int epoch = 1; epoch <= maxEpochs && epochsToTarget < 0; epoch++) {
+                network.setLearningRate(schedule.rate(baseRate, epoch));
+
+                long start = System.nanoTime();
+                for(int idxSample = 0; idxSample < trainSet.size(); idxSample++) {
+                    trainSet.copyInput(idxSample, input);
+                    trainSet.copyTarget(idxSample, target);
+                    network.train(input, target);
+                }
+                elapsed += System.nanoTime() - start;
+
+                accuracy = Evaluation.accuracy(network, testInputs, testTargets);
+                if(accuracy >= targetAccuracy) {
+                    epochsToTarget = epoch;
+                }
+            }
+
+            entries.add(new Entry(name, epochsToTarget, epochsToTarget < 0 ? -1L : elapsed, accuracy));
+        }
+
+        return new OptimizerReport(entries);
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @param name
+     * @return the entry of the given candidate, or of {@link #SGD}
+     */
+    public Entry getEntry(String name) {
+        for(Entry entry : this.entries) {
+            if(entry.name.equals(name))
+                return entry;
+        }
+
+        throw new IllegalArgumentException(String.format("There is no entry for %s", name));
+    }
+
+    /**
+     * @param name
+     * @return how many times faster than {@link #SGD} the candidate reached the target, NaN when either did not
+     */
+    public double getSpeedup(String name) {
+        Entry baseline = this.entries.get(0);
+        Entry entry = this.getEntry(name);
+        if(!baseline.isTargetReached() || !entry.isTargetReached())
+            return Double.NaN;
+
+        return baseline.nanosToTarget / (double) Math.max(1L, entry.nanosToTarget);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for(Entry entry : this.entries) {
+            builder.append(entry);
+            double speedup = this.getSpeedup(entry.name);
+            if(!Double.isNaN(speedup)) {
+                builder.append(String.format(" | %.2fx", speedup));
+            }
+            builder.append(System.lineSeparator());
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Prints the report of a 784-100-10 network over training and test sets in the MNIST CSV format.
+     *
+     * @param args the path of the training set, the path of the test set, optionally the target accuracy
+     *             (defaults to 0.9) and the maximum of epochs (defaults to 100)
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length < 2) {
+            System.out.println("Usage: OptimizerReport <training set CSV> <test set CSV> [target accuracy] [max epochs]");
+            return;
+        }
+
+        Dataset trainSet = new CsvDatasetReader(Paths.get(args[0]), 784, 10).load();
+        Dataset testSet = new CsvDatasetReader(Paths.get(args[1]), 784, 10).load();
+        double targetAccuracy = args.length > 2 ? Double.parseDouble(args[2]) : 0.9;
+        int maxEpochs = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+
+        double[][][] weights = new NeuralNetwork(0.3, 784, new int[][]{{100}}, 10).getLayerLinkWeights();
+        Supplier<NeuralNetwork> factory = () -> new NeuralNetwork(0.3, Activations.SIGMOID, 784, new int[][]{{100}}, 10, weights);
+
+        System.out.print(compare(factory, trainSet, testSet, targetAccuracy, maxEpochs, Arrays.asList(
+                new Candidate("momentum", 0.03, Momentum::new),
+                new Candidate("nesterov", 0.03, () -> new Momentum(Momentum.DEFAULT_MOMENTUM, true)),
+                new Candidate("rmsprop", 0.001, RmsProp::new),
+                new Candidate("adam", 0.001, Adam::new),
+                new Candidate("adam+warmup+cosine", 0.002, Adam::new,
+                        LearningRateSchedule.warmup(2, LearningRateSchedule.cosine(maxEpochs, 0.05))))));
+    }
+
+    /**
+     * An optimizer to compare, with its own learning rate and schedule.
+     */
+    public static class Candidate {
+        private final String name;
+        private final double learningRate;
+        private final Supplier<Optimizer> optimizer;
+        private final LearningRateSchedule schedule;
+
+        public Candidate(String name, double learningRate, Supplier<Optimizer> optimizer) {
+            this(name, learningRate, optimizer, LearningRateSchedule.CONSTANT);
+        }
+
+        /**
+         * @param name
+         * @param learningRate
+         * @param optimizer creates a new optimizer for the candidate's network
+         * @param schedule
+         */
+        public Candidate(String name, double learningRate, Supplier<Optimizer> optimizer, LearningRateSchedule schedule) {
+            if(name == null || optimizer == null || schedule == null)
+                throw new IllegalArgumentException("The name, the optimizer and the schedule must be provided");
+
+            this.name = name;
+            this.learningRate = learningRate;
+            this.optimizer = optimizer;
+            this.schedule = schedule;
+        }
+    }
+
+    public static class Entry {
+        private final String name;
+        private final int epochsToTarget;
+        private final long nanosToTarget;
+        private final double accuracy;
+
+        Entry(String name, int epochsToTarget, long nanosToTarget, double accuracy) {
+            this.name = name;
+            this.epochsToTarget = epochsToTarget;
+            this.nanosToTarget = nanosToTarget;
+            this.accuracy = accuracy;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isTargetReached() {
+            return epochsToTarget > 0;
+        }
+
+        /**
+         * @return the epochs trained until the target was reached, -1 when it was not
+         */
+        public int getEpochsToTarget() {
+            return epochsToTarget;
+        }
+
+        /**
+         * @return the training time until the target was reached, -1 when it was not
+         */
+        public long getNanosToTarget() {
+            return nanosToTarget;
+        }
+
+        /**
+         * @return the accuracy after the last epoch trained
+         */
+        public double getAccuracy() {
+            return accuracy;
+        }
+
+        @Override
+        public String toString() {
+            return isTargetReached()
+                    ? String.format("%-20s target after %d epochs | %.3f s | accuracy %.4f", name, epochsToTarget, nanosToTarget / 1e9, accuracy)
+                    : String.format("%-20s target not reached | accuracy %.4f", name, accuracy);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.boudoux.training;
+
+import com.boudoux.BatchWorkspace;
+import com.boudoux.Gradients;
+import com.boudoux.NeuralNetwork;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Trains a {@link NeuralNetwork} with mini-batches split across the threads of a {@link ForkJoinPool}.
+ *
+ * Each batch is split into chunks of <code>grainSize</code> samples. The workers compute the gradients of their
+ * chunks into their own buffers, which are then summed pairwise (tree reduction) and applied to the network once
+ * per batch, so the results match {@link NeuralNetwork#trainBatch(double[][], double[][])} up to the rounding of
+ * the sums.
+ *
+ * In the deterministic mode every chunk has its own buffer and the reduction follows the chunks' order, so the same
+ * data always gives the same weights no matter how many threads run it. Otherwise each thread accumulates all the
+ * chunks it happens to run into a single buffer, which needs less memory and fewer additions.
+ *
+ * The parallelism pays off for batches with many more samples than threads.
+ */
+public class ParallelTrainer implements AutoCloseable {
+
+    public static final int DEFAULT_GRAIN_SIZE = 8;
+
+    private final NeuralNetwork network;
+
+    private final ForkJoinPool pool;
+
+    // whether the pool was created (and must be shut down) by this trainer
+    private final boolean ownsPool;
+
+    private final boolean deterministic;
+
+    private final int grainSize;
+
+    // deterministic mode: the buffers of each chunk of the batch
+    private final List<Worker> chunkWorkers = new ArrayList<>();
+
+    // non-deterministic mode: the buffers of each thread, registered on their first use
+    private final List<Worker> threadWorkers = new ArrayList<>();
+
+    private final ThreadLocal<Worker> threadWorker = ThreadLocal.withInitial(this::registerThreadWorker);
+
+    public ParallelTrainer(NeuralNetwork network, int parallelism, boolean deterministic) {
+        this(network, new ForkJoinPool(parallelism), true, deterministic, DEFAULT_GRAIN_SIZE);
+    }
+
+    public ParallelTrainer(NeuralNetwork network, ForkJoinPool pool, boolean deterministic, int grainSize) {
+        this(network, pool, false, deterministic, grainSize);
+    }
+
+    private ParallelTrainer(NeuralNetwork network, ForkJoinPool pool, boolean ownsPool, boolean deterministic, int grainSize) {
+        if(network == null || pool == null)
+            throw new IllegalArgumentException("The network and the pool must be provided");
+        if(grainSize <= 0)
+            throw new IllegalArgumentException(String.format("Invalid grain size (%d)", grainSize));
+
+        this.network = network;
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+        this.deterministic = deterministic;
+        this.grainSize = grainSize;
+    }
+
+    /**
+     * Trains the network over all the samples using mini-batches of {@link NeuralNetwork#getBatchSize()} samples.
+     * It must not be called concurrently.
+     *
+     * @param inputs
+     * @param expectedTargets
+     */
+    public void trainBatch(double[][] inputs, double[][] expectedTargets) {
+        if(inputs == null || expectedTargets == null || inputs.length != expectedTargets.length)
+            throw new IllegalArgumentException("There must be one expected target for each input");
+
+        int batchSize = this.network.getBatchSize();
+        for(int start = 0; start < inputs.length; start += batchSize) {
+            int end = Math.min(start + batchSize, inputs.length);
+
+            this.network.applyGradients(this.computeGradients(inputs, expectedTargets, start, end));
+        }
+    }
+
+    /**
+     * Computes the gradients of the samples in the range [from, to) without changing the network.
+     *
+     * @param inputs
+     * @param expectedTargets
+     * @param from
+     * @param to
+     * @return a buffer owned by this trainer, valid until its next call
+     */
+    public Gradients computeGradients(double[][] inputs, double[][] expectedTargets, int from, int to) {
+        if(from < 0 || to > inputs.length || from >= to)
+            throw new IllegalArgumentException(String.format("Invalid range of samples [%d, %d)", from, to));
+
+        double factor = this.network.getGradientFactor(to - from);
+        int totalChunks = (to - from + this.grainSize - 1) / this.grainSize;
+
+        if(this.deterministic) {
+            while(this.chunkWorkers.size() < totalChunks) {
+                this.chunkWorkers.add(new Worker());
+            }
+
+            this.pool.invoke(new ChunkTask(inputs, expectedTargets, from, to, factor, 0, totalChunks));
+
+            return this.chunkWorkers.get(0).gradients;
+        }
+
+        for(Worker worker : this.snapshotThreadWorkers()) {
+            worker.gradients.clear();
+        }
+
+        this.pool.invoke(new ChunkTask(inputs, expectedTargets, from, to, factor, 0, totalChunks));
+
+        Worker[] workers = this.snapshotThreadWorkers();
+        this.pool.invoke(new ReduceTask(workers, 0, workers.length));
+
+        return workers[0].gradients;
+    }
+
+    public boolean isDeterministic() {
+        return deterministic;
+    }
+
+    public int getParallelism() {
+        return this.pool.getParallelism();
+    }
+
+    @Override
+    public void close() {
+        if(this.ownsPool) {
+            this.pool.shutdown();
+        }
+    }
+
+    private Worker registerThreadWorker() {
+        Worker worker = new Worker();
+        synchronized(this.threadWorkers) {
+            this.threadWorkers.add(worker);
+        }
+
+        return worker;
+    }
+
+    private Worker[] snapshotThreadWorkers() {
+        synchronized(this.threadWorkers) {
+            return this.threadWorkers.toArray(new Worker[0]);
+        }
+    }
+
+    /**
+     * The buffers used by one chunk (deterministic mode) or one thread.
+     */
+    private class Worker {
+        final BatchWorkspace workspace = network.newBatchWorkspace(grainSize);
+
+        final Gradients gradients = network.newGradients();
+    }
+
+    /**
+     * Computes the chunks in the range [firstChunk, lastChunk), splitting it in halves. In the deterministic mode
+     * the gradients of the second half are added into the first chunk's buffer once both halves are done.
+     */
+    private class ChunkTask extends RecursiveAction {
+        private final double[][] inputs;
+        private final double[][] expectedTargets;
+        private final int from;
+        private final int to;
+        private final double factor;
+        private final int firstChunk;
+        private final int lastChunk;
+
+        ChunkTask(double[][] inputs, double[][] expectedTargets, int from, int to, double factor, int firstChunk, int lastChunk) {
+            this.inputs = inputs;
+            this.expectedTargets = expectedTargets;
+            this.from = from;
+            this.to = to;
+            this.factor = factor;
+            this.firstChunk = firstChunk;
+            this.lastChunk = lastChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if(this.lastChunk - this.firstChunk == 1) {
+                int start = this.from + this.firstChunk * grainSize;
+                int end = Math.min(start + grainSize, this.to);
+
+                Worker worker;
+                if(deterministic) {
+                    worker = chunkWorkers.get(this.firstChunk);
+                    worker.gradients.clear();
+                } else {
+                    worker = threadWorker.get();
+                }
+
+                network.computeGradients(this.inputs, this.expectedTargets, start, end, this.factor, worker.workspace, worker.gradients);
+                return;
+            }
+
+            int middleChunk = (this.firstChunk + this.lastChunk) >>> 1;
+            ChunkTask left = new ChunkTask(this.inputs, this.expectedTargets, this.from, this.to, this.factor, this.firstChunk, middleChunk);
+            ChunkTask right = new ChunkTask(this.inputs, this.expectedTargets, this.from, this.to, this.factor, middleChunk, this.lastChunk);
+            invokeAll(left, right);
+
+            if(deterministic) {
+                chunkWorkers.get(this.firstChunk).gradients.add(chunkWorkers.get(middleChunk).gradients);
+            }
+        }
+    }
+
+    /**
+     * Sums the gradients of the workers in the range [first, last) into the first one, in halves.
+     */
+    private static class ReduceTask extends RecursiveAction {
+        private final Worker[] workers;
+        private final int first;
+        private final int last;
+
+        ReduceTask(Worker[] workers, int first, int last) {
+            this.workers = workers;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute() {
+            if(this.last - this.first <= 1)
+                return;
+
+            int middle = (this.first + this.last) >>> 1;
+            invokeAll(new ReduceTask(this.workers, this.first, middle), new ReduceTask(this.workers, middle, this.last));
+
+            this.workers[this.first].gradients.add(this.workers[middle].gradients);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.boudoux.training;
+
+import com.boudoux.InferenceModel;
+import com.boudoux.NeuralNetwork;
+import com.boudoux.Precision;
+import com.boudoux.data.CsvDatasetReader;
+import com.boudoux.data.Dataset;
+import com.boudoux.io.ModelFormat;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compares the answers of a trained network in every {@link Precision} against the double precision ones over a
+ * test set, so the cheapest mode which keeps the accuracy can be picked.
+ */
+public class PrecisionReport {
+
+    private final List<Entry> entries;
+
+    private PrecisionReport(List<Entry> entries) {
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * @param network
+     * @param testSet
+     * @return one entry for each {@link Precision}, in their declaration order
+     */
+    public static PrecisionReport compare(NeuralNetwork network, Dataset testSet) {
+        if(testSet.getInputSize() != network.getTotalInputNodes())
+            throw new IllegalArgumentException(String.format("The samples must have the same length of the total nodes (%d)", network.getTotalInputNodes()));
+
+        double[] input = new double[testSet.getInputSize()];
+        double[] reference = new double[network.getTotalOutputNodes()];
+        double[] output = new double[network.getTotalOutputNodes()];
+        List<Entry> entries = new ArrayList<>();
+
+        for(Precision precision : Precision.values()) {
+            InferenceModel model = network.toPrecision(precision);
+            int correct = 0;
+            int agreements = 0;
+            double maxDifference = 0.0;
+            double totalDifference = 0.0;
+            long elapsed = 0L;
+
+            for(int idxSample = 0; idxSample < testSet.size(); idxSample++) {
+                testSet.copyInput(idxSample, input);
+                network.fire(input, reference);
+
+                long start = System.nanoTime();
+                model.fire(input, output);
+                elapsed += System.nanoTime() - start;
+
+                int label = Evaluation.argMax(output);
+                if(label == testSet.getLabel(idxSample))
+                    correct++;
+                if(label == Evaluation.argMax(reference))
+                    agreements++;
+
+                for(int idxNode = 0; idxNode < output.length; idxNode++) {
+                    double difference = Math.abs(output[idxNode] - reference[idxNode]);
+                    maxDifference = Math.max(maxDifference, difference);
+                    totalDifference += difference;
+                }
+            }
+
+            int total = testSet.size();
+            entries.add(new Entry(precision,
+                    total == 0 ? 0.0 : correct / (double) total,
+                    total == 0 ? 0.0 : agreements / (double) total,
+                    maxDifference,
+                    total == 0 ? 0.0 : totalDifference / ((double) total * output.length),
+                    total == 0 ? 0.0 : elapsed / (double) total));
+        }
+
+        return new PrecisionReport(entries);
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @param precision
+     * @return the entry of the given precision
+     */
+    public Entry getEntry(Precision precision) {
+        for(Entry entry : this.entries) {
+            if(entry.precision == precision)
+                return entry;
+        }
+
+        throw new IllegalArgumentException(String.format("There is no entry for %s", precision));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for(Entry entry : this.entries) {
+            builder.append(entry).append(System.lineSeparator());
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Prints the report of a model file (see {@link ModelFormat}) over a test set in the MNIST CSV format.
+     *
+     * @param args the path of the model file and the path of the test set
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length < 2) {
+            System.out.println("Usage: PrecisionReport <model file> <test set CSV>");
+            return;
+        }
+
+        NeuralNetwork network = ModelFormat.read(Paths.get(args[0]));
+        Dataset testSet = new CsvDatasetReader(Paths.get(args[1]), network.getTotalInputNodes(), network.getTotalOutputNodes()).load();
+
+        System.out.print(compare(network, testSet));
+    }
+
+    public static class Entry {
+        private final Precision precision;
+        private final double accuracy;
+        private final double agreement;
+        private final double maxDifference;
+        private final double meanDifference;
+        private final double nanosPerFire;
+
+        Entry(Precision precision, double accuracy, double agreement, double maxDifference, double meanDifference,
+              double nanosPerFire) {
+            this.precision = precision;
+            this.accuracy = accuracy;
+            this.agreement = agreement;
+            this.maxDifference = maxDifference;
+            this.meanDifference = meanDifference;
+            this.nanosPerFire = nanosPerFire;
+        }
+
+        public Precision getPrecision() {
+            return precision;
+        }
+
+        /**
+         * @return the fraction of samples answered with their label
+         */
+        public double getAccuracy() {
+            return accuracy;
+        }
+
+        /**
+         * @return the fraction of samples answered with the same label of the double precision
+         */
+        public double getAgreement() {
+            return agreement;
+        }
+
+        /**
+         * @return the greatest absolute difference between an output node and the double precision one
+         */
+        public double getMaxDifference() {
+            return maxDifference;
+        }
+
+        public double getMeanDifference() {
+            return meanDifference;
+        }
+
+        public double getNanosPerFire() {
+            return nanosPerFire;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-6s accuracy %.4f | agreement %.4f | max difference %.6f | mean difference %.6f | %.0f ns/fire",
+                    precision, accuracy, agreement, maxDifference, meanDifference, nanosPerFire);
+        }
+    }
+}
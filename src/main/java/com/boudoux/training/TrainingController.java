@@ -0,0 +1,375 @@
+package com.boudoux.training;
+
+import com.boudoux.BatchWorkspace;
+import com.boudoux.NeuralNetwork;
+import com.boudoux.data.Dataset;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Drives a {@link TrainingLoop} from a held-out validation set: every <code>evaluationInterval</code> epochs the
+ * network is fired over the validation samples through {@link NeuralNetwork#fireBatch} (reusing the same buffers
+ * every time) and the training stops once the validation loss did not improve by more than <code>minDelta</code>
+ * for <code>patience</code> evaluations in a row.
+ *
+ * The parameters of the best evaluation are kept in an in-memory copy of the network, which is restored into the
+ * network when the training ends (see {@link #setRestoreBest(boolean)}).
+ *
+ * When asynchronous, the parameters are copied into a snapshot and evaluated on a thread of their own while the
+ * training goes on, so the stop may come one evaluation later than when synchronous. At most one evaluation runs at
+ * a time: the next one waits for it.
+ */
+public class TrainingController {
+
+    public static final int DEFAULT_PATIENCE = 5;
+
+    public static final int EVALUATION_BATCH_SIZE = 64;
+
+    private final NeuralNetwork network;
+
+    private final double[][] validationInputs;
+
+    private final double[][] validationTargets;
+
+    private int evaluationInterval = 1;
+
+    private int patience = DEFAULT_PATIENCE;
+
+    private double minDelta;
+
+    private boolean asynchronous;
+
+    private boolean restoreBest = true;
+
+    // buffers shared by every evaluation, which never overlap
+    private final BatchWorkspace workspace;
+
+    private final double[][] validationOutputs;
+
+    // the parameters of the best evaluation, then of the evaluated snapshot, allocated on the first run
+    private NeuralNetwork best;
+
+    private NeuralNetwork snapshot;
+
+    private final List<Validation> history = Collections.synchronizedList(new ArrayList<>());
+
+    private volatile double bestLoss;
+
+    private volatile int bestEpoch;
+
+    private int evaluationsWithoutImprovement;
+
+    /**
+     * @param network
+     * @param validationSet the held-out samples, copied once
+     */
+    public TrainingController(NeuralNetwork network, Dataset validationSet) {
+        if(network == null || validationSet == null)
+            throw new IllegalArgumentException("The network and the validation set must be provided");
+        if(validationSet.size() == 0)
+            throw new IllegalArgumentException("The validation set must not be empty");
+        if(validationSet.getInputSize() != network.getTotalInputNodes())
+            throw new IllegalArgumentException(String.format("The samples must have the same length of the total nodes (%d)", network.getTotalInputNodes()));
+
+        this.network = network;
+        this.validationInputs = new double[validationSet.size()][validationSet.getInputSize()];
+        this.validationTargets = new double[validationSet.size()][network.getTotalOutputNodes()];
+        this.validationOutputs = new double[validationSet.size()][network.getTotalOutputNodes()];
+        for(int idxSample = 0; idxSample < validationSet.size(); idxSample++) {
+            validationSet.copyInput(idxSample, this.validationInputs[idxSample]);
+            validationSet.copyTarget(idxSample, this.validationTargets[idxSample]);
+        }
+
+        this.workspace = network.newBatchWorkspace(Math.min(EVALUATION_BATCH_SIZE, validationSet.size()));
+    }
+
+    /**
+     * @param evaluationInterval evaluates every that many epochs, defaults to 1
+     * @return this controller
+     */
+    public TrainingController setEvaluationInterval(int evaluationInterval) {
+        if(evaluationInterval <= 0)
+            throw new IllegalArgumentException(String.format("Invalid evaluation interval (%d)", evaluationInterval));
+
+        this.evaluationInterval = evaluationInterval;
+        return this;
+    }
+
+    /**
+     * @param patience the evaluations in a row without improvement before stopping, defaults to
+     *                 {@value #DEFAULT_PATIENCE}
+     * @param minDelta how much the loss has to decrease to be an improvement, defaults to 0
+     * @return this controller
+     */
+    public TrainingController setPatience(int patience, double minDelta) {
+        if(patience <= 0 || !(minDelta >= 0.0))
+            throw new IllegalArgumentException(String.format("Invalid patience (%d) or minimum delta (%f)", patience, minDelta));
+
+        this.patience = patience;
+        this.minDelta = minDelta;
+        return this;
+    }
+
+    /**
+     * @param asynchronous whether the evaluations run on their own thread, defaults to false
+     * @return this controller
+     */
+    public TrainingController setAsynchronous(boolean asynchronous) {
+        this.asynchronous = asynchronous;
+        return this;
+    }
+
+    /**
+     * @param restoreBest whether the parameters of the best evaluation replace the last ones at the end, defaults
+     *                    to true
+     * @return this controller
+     */
+    public TrainingController setRestoreBest(boolean restoreBest) {
+        this.restoreBest = restoreBest;
+        return this;
+    }
+
+    /**
+     * Trains over the dataset until the validation loss stops improving or all the epochs are done.
+     *
+     * @param loop a loop over the same network, whose listener keeps receiving the events
+     * @param trainSet
+     * @param maxEpochs
+     */
+    public void train(TrainingLoop loop, Dataset trainSet, int maxEpochs) {
+        this.run(loop, () -> loop.train(trainSet, maxEpochs));
+    }
+
+    /**
+     * Same as {@link #train(TrainingLoop, Dataset, int)} over the batches of a pipeline, which has to be closed
+     * by the caller.
+     *
+     * @param loop
+     * @param pipeline
+     */
+    public void train(TrainingLoop loop, TrainingPipeline pipeline) {
+        this.run(loop, () -> loop.train(pipeline));
+    }
+
+    private void run(TrainingLoop loop, Runnable training) {
+        if(this.best == null) {
+            this.best = this.network.copy();
+            this.snapshot = this.network.copy();
+        }
+        this.history.clear();
+        this.bestLoss = Double.POSITIVE_INFINITY;
+        this.bestEpoch = 0;
+        this.evaluationsWithoutImprovement = 0;
+
+        Run run = new Run(loop);
+        loop.setEpochHook(run);
+        try {
+            training.run();
+        } finally {
+            loop.setEpochHook(null);
+            run.shutdown();
+        }
+    }
+
+    /**
+     * @return the epoch of the best evaluation of the last training, 0 before the first evaluation
+     */
+    public int getBestEpoch() {
+        return bestEpoch;
+    }
+
+    /**
+     * @return the validation loss of the best evaluation of the last training
+     */
+    public double getBestLoss() {
+        return bestLoss;
+    }
+
+    /**
+     * @return the in-memory checkpoint holding the parameters of the best evaluation, null before the first
+     * training
+     */
+    public NeuralNetwork getBestNetwork() {
+        return best;
+    }
+
+    /**
+     * @return the evaluations of the last training, in their order
+     */
+    public List<Validation> getHistory() {
+        synchronized(this.history) {
+            return new ArrayList<>(this.history);
+        }
+    }
+
+    // fires the model over the validation set, it never runs concurrently with another evaluation
+    private Validation evaluate(int epoch, NeuralNetwork model) {
+        model.fireBatch(this.validationInputs, this.validationInputs.length, this.workspace, this.validationOutputs);
+
+        double squaredErrors = 0.0;
+        int correct = 0;
+        for(int idxSample = 0; idxSample < this.validationOutputs.length; idxSample++) {
+            double[] output = this.validationOutputs[idxSample];
+            double[] target = this.validationTargets[idxSample];
+
+            for(int idxNode = 0; idxNode < output.length; idxNode++) {
+                double error = target[idxNode] - output[idxNode];
+                squaredErrors += error * error;
+            }
+            if(Evaluation.argMax(output) == Evaluation.argMax(target))
+                correct++;
+        }
+
+        int total = this.validationOutputs.length;
+        return new Validation(epoch, squaredErrors / ((double) total * this.validationOutputs[0].length), correct / (double) total);
+    }
+
+    // returns whether the training should stop
+    private boolean record(Validation validation, NeuralNetwork model) {
+        this.history.add(validation);
+
+        if(validation.loss < this.bestLoss - this.minDelta) {
+            this.bestLoss = validation.loss;
+            this.bestEpoch = validation.epoch;
+            this.best.copyParametersFrom(model);
+            this.evaluationsWithoutImprovement = 0;
+            return false;
+        }
+
+        return ++this.evaluationsWithoutImprovement >= this.patience;
+    }
+
+    /**
+     * Follows the epochs of one training, leaving the loop's listener (and whether it measures) untouched.
+     */
+    private class Run implements TrainingLoop.EpochHook {
+        final TrainingLoop loop;
+
+        final ExecutorService evaluator;
+
+        Future<?> pending;
+
+        int lastEpoch;
+
+        int lastEvaluatedEpoch;
+
+        Run(TrainingLoop loop) {
+            this.loop = loop;
+            this.evaluator = asynchronous ? Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "validation");
+                thread.setDaemon(true);
+                return thread;
+            }) : null;
+        }
+
+        @Override
+        public void onEpochEnd(int epoch) {
+            this.lastEpoch = epoch;
+            if(this.lastEpoch % evaluationInterval == 0) {
+                this.evaluateLastEpoch();
+            }
+        }
+
+        @Override
+        public void onTrainingEnd() {
+            this.await();
+
+            // the epochs after the last evaluation count as well, unless they ran while the stop was on its way
+            if(this.lastEpoch > this.lastEvaluatedEpoch && !this.loop.isStopped()) {
+                this.evaluateNow(this.lastEpoch);
+            }
+
+            if(restoreBest && bestEpoch > 0) {
+                network.copyParametersFrom(best);
+            }
+        }
+
+        void evaluateLastEpoch() {
+            int epoch = this.lastEpoch;
+            this.lastEvaluatedEpoch = epoch;
+
+            if(this.evaluator == null) {
+                this.evaluateNow(epoch);
+                return;
+            }
+
+            this.await();
+            snapshot.copyParametersFrom(network);
+            this.pending = this.evaluator.submit(() -> {
+                if(record(evaluate(epoch, snapshot), snapshot)) {
+                    this.loop.stop();
+                }
+            });
+        }
+
+        void evaluateNow(int epoch) {
+            this.lastEvaluatedEpoch = epoch;
+            if(record(evaluate(epoch, network), network)) {
+                this.loop.stop();
+            }
+        }
+
+        void await() {
+            if(this.pending == null)
+                return;
+
+            try {
+                this.pending.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the validation", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("The validation failed", e.getCause());
+            } finally {
+                this.pending = null;
+            }
+        }
+
+        void shutdown() {
+            if(this.evaluator != null) {
+                this.evaluator.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * The result of one evaluation over the validation set.
+     */
+    public static class Validation {
+        private final int epoch;
+        private final double loss;
+        private final double accuracy;
+
+        Validation(int epoch, double loss, double accuracy) {
+            this.epoch = epoch;
+            this.loss = loss;
+            this.accuracy = accuracy;
+        }
+
+        public int getEpoch() {
+            return epoch;
+        }
+
+        /**
+         * @return the mean squared error of the output nodes
+         */
+        public double getLoss() {
+            return loss;
+        }
+
+        public double getAccuracy() {
+            return accuracy;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("validation after epoch %d: loss %.6f | accuracy %.4f", epoch, loss, accuracy);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.boudoux.training;
+
+/**
+ * Observes a {@link TrainingLoop}. The loop only measures anything when a listener other than {@link #NONE} is
+ * registered.
+ */
+public interface TrainingListener {
+
+    /**
+     * Ignores everything, the loop runs without reading the clock.
+     */
+    TrainingListener NONE = new TrainingListener() {
+    };
+
+    /**
+     * @param epoch starting at 1
+     */
+    default void onEpochStart(int epoch) {
+    }
+
+    /**
+     * @param metrics the measures of the epoch just finished
+     */
+    default void onEpochEnd(EpochMetrics metrics) {
+    }
+
+    default void onTrainingEnd() {
+    }
+}
@@ -0,0 +1,355 @@
+package com.boudoux.training;
+
+import com.boudoux.LayerTimer;
+import com.boudoux.NeuralNetwork;
+import com.boudoux.data.Dataset;
+
+/**
+ * Trains a {@link NeuralNetwork} one sample at a time over a {@link Dataset} or a {@link TrainingPipeline}, epoch
+ * after epoch, reporting what happened to a {@link TrainingListener}.
+ *
+ * With the default listener ({@link TrainingListener#NONE}) nothing is measured. Otherwise every sample is timed
+ * while loaded, its loss is computed and the network gets a {@link LayerTimer} splitting the time between the
+ * forward and the backward pass, optionally layer by layer (see {@link #setLayerTimings(boolean)}).
+ *
+ * A {@link LearningRateSchedule} changes the learning rate of the network before each epoch, starting from the rate
+ * it had when the training started, which is restored at the end.
+ *
+ * The training may be stopped early through {@link #stop()}, e.g. by a {@link TrainingController}, which follows the
+ * epochs through an {@link EpochHook} so it does not turn the measures on.
+ */
+public class TrainingLoop {
+
+    private final NeuralNetwork network;
+
+    private TrainingListener listener = TrainingListener.NONE;
+
+    private boolean layerTimings;
+
+    private LearningRateSchedule schedule = LearningRateSchedule.CONSTANT;
+
+    private double[][] testInputs;
+
+    private double[][] testTargets;
+
+    private volatile boolean stopRequested;
+
+    // null when nobody drives the training
+    private EpochHook epochHook;
+
+    /**
+     * Told about the end of each epoch and of the training without anything being measured, before the listener
+     * hears about the latter.
+     */
+    interface EpochHook {
+        void onEpochEnd(int epoch);
+
+        void onTrainingEnd();
+    }
+
+    public TrainingLoop(NeuralNetwork network) {
+        if(network == null)
+            throw new IllegalArgumentException("The network must be provided");
+
+        this.network = network;
+    }
+
+    /**
+     * @param listener null restores {@link TrainingListener#NONE}
+     * @return this loop
+     */
+    public TrainingLoop setListener(TrainingListener listener) {
+        this.listener = listener == null ? TrainingListener.NONE : listener;
+        return this;
+    }
+
+    public TrainingListener getListener() {
+        return listener;
+    }
+
+    /**
+     * @param layerTimings whether the metrics carry the forward and backward time of each layer
+     * @return this loop
+     */
+    public TrainingLoop setLayerTimings(boolean layerTimings) {
+        this.layerTimings = layerTimings;
+        return this;
+    }
+
+    /**
+     * @param schedule null restores {@link LearningRateSchedule#CONSTANT}
+     * @return this loop
+     */
+    public TrainingLoop setSchedule(LearningRateSchedule schedule) {
+        this.schedule = schedule == null ? LearningRateSchedule.CONSTANT : schedule;
+        return this;
+    }
+
+    /**
+     * @param testInputs
+     * @param testTargets
+     * @return this loop, which evaluates the accuracy over these samples after each epoch
+     */
+    public TrainingLoop setTestSet(double[][] testInputs, double[][] testTargets) {
+        if(testInputs == null || testTargets == null || testInputs.length != testTargets.length)
+            throw new IllegalArgumentException("There must be one expected target for each input");
+
+        this.testInputs = testInputs;
+        this.testTargets = testTargets;
+        return this;
+    }
+
+    void setEpochHook(EpochHook epochHook) {
+        this.epochHook = epochHook;
+    }
+
+    /**
+     * Asks the training in progress to stop before its next epoch. It may be called from any thread.
+     */
+    public void stop() {
+        this.stopRequested = true;
+    }
+
+    /**
+     * @return whether a stop was requested during the last training
+     */
+    public boolean isStopped() {
+        return stopRequested;
+    }
+
+    /**
+     * @param trainSet
+     * @param epochs
+     */
+    public void train(Dataset trainSet, int epochs) {
+        if(trainSet.getInputSize() != this.network.getTotalInputNodes())
+            throw new IllegalArgumentException(String.format("The samples must have the same length of the total nodes (%d)", this.network.getTotalInputNodes()));
+
+        double[] input = new double[trainSet.getInputSize()];
+        double[] target = new double[this.network.getTotalOutputNodes()];
+        Measurement measurement = this.listener == TrainingListener.NONE ? null : new Measurement();
+        double baseRate = this.network.getLearningRate();
+        this.stopRequested = false;
+
+        try {
+            for(int epoch = 1; epoch <= epochs && !this.stopRequested; epoch++) {
+                this.network.setLearningRate(this.schedule.rate(baseRate, epoch));
+                if(measurement != null) {
+                    measurement.begin(epoch, System.nanoTime());
+                }
+
+                for(int idxSample = 0; idxSample < trainSet.size(); idxSample++) {
+                    long loadStart = measurement != null ? System.nanoTime() : 0L;
+                    trainSet.copyInput(idxSample, input);
+                    trainSet.copyTarget(idxSample, target);
+                    if(measurement != null) {
+                        measurement.loadNanos += System.nanoTime() - loadStart;
+                    }
+
+                    this.network.train(input, target);
+
+                    if(measurement != null) {
+                        measurement.addSample(target);
+                    }
+                }
+
+                if(measurement != null) {
+                    measurement.end(System.nanoTime());
+                }
+                if(this.epochHook != null) {
+                    this.epochHook.onEpochEnd(epoch);
+                }
+            }
+        } finally {
+            this.network.setLearningRate(baseRate);
+            if(measurement != null) {
+                measurement.close();
+            }
+        }
+
+        if(this.epochHook != null) {
+            this.epochHook.onTrainingEnd();
+        }
+        this.listener.onTrainingEnd();
+    }
+
+    /**
+     * Trains over the batches of the pipeline, one sample at a time, starting it when needed. The load time is
+     * the time spent waiting for the loaders. When stopped, the batches left are not taken: the pipeline has to be
+     * closed.
+     *
+     * @param pipeline
+     */
+    public void train(TrainingPipeline pipeline) {
+        if(!pipeline.isStarted()) {
+            pipeline.start();
+        }
+
+        Measurement measurement = this.listener == TrainingListener.NONE ? null : new Measurement();
+        double baseRate = this.network.getLearningRate();
+        this.stopRequested = false;
+        int epoch = 0;
+
+        try {
+            while(true) {
+                long loadStart = measurement != null ? System.nanoTime() : 0L;
+                TrainingPipeline.Batch batch = pipeline.take();
+                boolean epochEnded = batch == null || batch.getEpoch() != epoch;
+
+                if(epochEnded && epoch > 0) {
+                    if(measurement != null) {
+                        measurement.end(loadStart);
+                    }
+                    if(this.epochHook != null) {
+                        this.epochHook.onEpochEnd(epoch);
+                    }
+                }
+                // a stop is only honoured between epochs
+                if(batch == null || (epochEnded && this.stopRequested))
+                    break;
+
+                if(epochEnded) {
+                    this.network.setLearningRate(this.schedule.rate(baseRate, batch.getEpoch()));
+                    if(measurement != null) {
+                        measurement.begin(batch.getEpoch(), loadStart);
+                    }
+                }
+
+                epoch = batch.getEpoch();
+                if(measurement != null) {
+                    measurement.loadNanos += System.nanoTime() - loadStart;
+                }
+
+                for(int idxSample = 0; idxSample < batch.size(); idxSample++) {
+                    this.network.train(batch.getInputs()[idxSample], batch.getTargets()[idxSample]);
+
+                    if(measurement != null) {
+                        measurement.addSample(batch.getTargets()[idxSample]);
+                    }
+                }
+            }
+        } finally {
+            this.network.setLearningRate(baseRate);
+            if(measurement != null) {
+                measurement.close();
+            }
+        }
+
+        if(this.epochHook != null) {
+            this.epochHook.onTrainingEnd();
+        }
+        this.listener.onTrainingEnd();
+    }
+
+    /**
+     * The measures of the epoch in progress. While it is open the network reports its layers to it.
+     */
+    private class Measurement {
+        final LayerTimer previousTimer = network.getLayerTimer();
+
+        final PassTimer timer = new PassTimer(network.getTotalLayers());
+
+        int epoch;
+        long samples;
+        double loss;
+        long loadNanos;
+        long startNanos;
+
+        Measurement() {
+            network.setLayerTimer(this.timer);
+        }
+
+        void begin(int epoch, long startNanos) {
+            listener.onEpochStart(epoch);
+
+            this.epoch = epoch;
+            this.samples = 0L;
+            this.loss = 0.0;
+            this.loadNanos = 0L;
+            this.startNanos = startNanos;
+            this.timer.clear(Thread.currentThread());
+        }
+
+        // the output of the forward pass made by train, before the weights changed
+        void addSample(double[] target) {
+            double[] output = network.getOutput();
+            double squaredErrors = 0.0;
+            for(int idxNode = 0; idxNode < output.length; idxNode++) {
+                double error = target[idxNode] - output[idxNode];
+                squaredErrors += error * error;
+            }
+
+            this.loss += squaredErrors / output.length;
+            this.samples++;
+        }
+
+        void end(long endNanos) {
+            long forwardNanos = sum(this.timer.forwardNanos);
+            long backwardNanos = sum(this.timer.backwardNanos);
+            long[] forwardNanosByLayer = layerTimings ? this.timer.forwardNanos.clone() : null;
+            long[] backwardNanosByLayer = layerTimings ? this.timer.backwardNanos.clone() : null;
+
+            // fires through the timer too, so it runs once the times are taken
+            double accuracy = testInputs == null ? Double.NaN : Evaluation.accuracy(network, testInputs, testTargets);
+
+            listener.onEpochEnd(new EpochMetrics(this.epoch, this.samples, this.samples == 0 ? 0.0 : this.loss / this.samples,
+                    accuracy, endNanos - this.startNanos, this.loadNanos, forwardNanos, backwardNanos,
+                    forwardNanosByLayer, backwardNanosByLayer));
+        }
+
+        void close() {
+            network.setLayerTimer(this.previousTimer);
+        }
+    }
+
+    private static long sum(long[] values) {
+        long total = 0L;
+        for(long value : values) {
+            total += value;
+        }
+
+        return total;
+    }
+
+    /**
+     * Sums the time of each layer spent by the thread running the loop. The timer is set on the network, so it is
+     * also called by any other thread firing or training it meanwhile (e.g. an asynchronous validation, the
+     * callers of a ModelRegistry or the workers of a {@link ParallelTrainer}): their calls are ignored, so the sums need
+     * no synchronization and only hold the loop's own passes.
+     */
+    private static class PassTimer implements LayerTimer {
+        final long[] forwardNanos;
+
+        final long[] backwardNanos;
+
+        // the thread running the loop
+        volatile Thread owner;
+
+        PassTimer(int totalLayers) {
+            this.forwardNanos = new long[totalLayers];
+            this.backwardNanos = new long[totalLayers];
+        }
+
+        @Override
+        public void forward(int idxLayer, long nanos) {
+            if(Thread.currentThread() == this.owner) {
+                this.forwardNanos[idxLayer] += nanos;
+            }
+        }
+
+        @Override
+        public void backward(int idxLayer, long nanos) {
+            if(Thread.currentThread() == this.owner) {
+                this.backwardNanos[idxLayer] += nanos;
+            }
+        }
+
+        void clear(Thread owner) {
+            this.owner = owner;
+            for(int idxLayer = 0; idxLayer < this.forwardNanos.length; idxLayer++) {
+                this.forwardNanos[idxLayer] = 0L;
+                this.backwardNanos[idxLayer] = 0L;
+            }
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.boudoux.training;
+
+import com.boudoux.data.Dataset;
+import com.boudoux.data.SampleOrder;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads, scales and one-hot encodes the samples of a {@link Dataset} on loader threads running ahead of the
+ * training, handing them over as batches through a bounded ring buffer.
+ *
+ * The ring holds <code>prefetchDepth</code> reusable batches, so the loaders never allocate and never run more than
+ * that many batches ahead. Each batch has a sequence number and the ring hands them over in that order, so the
+ * training sees the same samples in the same order whatever the number of loaders. When shuffling, every epoch
+ * visits the samples in an order drawn from the seed and the epoch alone.
+ *
+ * The dataset is read by many threads at once, which the built-in ones support.
+ */
+public class TrainingPipeline implements AutoCloseable {
+
+    public static final int DEFAULT_PREFETCH_DEPTH = 4;
+
+    private final Dataset dataset;
+
+    private final int totalOutputNodes;
+
+    private final int batchSize;
+
+    private final int epochs;
+
+    private final int batchesByEpoch;
+
+    private int prefetchDepth = DEFAULT_PREFETCH_DEPTH;
+
+    private int loaderThreads = 1;
+
+    private boolean shuffle;
+
+    private long seed;
+
+    private Batch[] ring;
+
+    private Thread[] loaders;
+
+    // the next sequence to be claimed by a loader
+    private final AtomicLong nextLoad = new AtomicLong();
+
+    // the sequence of the next batch handed to the training, only touched by the training thread
+    private long nextTake;
+
+    // the batch handed over by the last take, released by the next one
+    private Batch taken;
+
+    private volatile boolean closed;
+
+    private volatile Throwable failure;
+
+    /**
+     * @param dataset
+     * @param totalOutputNodes the length of the expected targets
+     * @param batchSize the quantity of samples of each batch, the last one of each epoch may have fewer
+     * @param epochs how many times the samples are visited
+     */
+    public TrainingPipeline(Dataset dataset, int totalOutputNodes, int batchSize, int epochs) {
+        if(dataset == null)
+            throw new IllegalArgumentException("The dataset must be provided");
+        if(totalOutputNodes <= 0 || batchSize <= 0 || epochs < 0)
+            throw new IllegalArgumentException(String.format("Invalid output nodes (%d), batch size (%d) or epochs (%d)", totalOutputNodes, batchSize, epochs));
+
+        this.dataset = dataset;
+        this.totalOutputNodes = totalOutputNodes;
+        this.batchSize = batchSize;
+        this.epochs = epochs;
+        this.batchesByEpoch = (dataset.size() + batchSize - 1) / batchSize;
+    }
+
+    /**
+     * @param prefetchDepth the quantity of batches of the ring, defaults to {@value #DEFAULT_PREFETCH_DEPTH}
+     * @return this pipeline
+     */
+    public TrainingPipeline setPrefetchDepth(int prefetchDepth) {
+        if(prefetchDepth <= 0)
+            throw new IllegalArgumentException(String.format("Invalid prefetch depth (%d)", prefetchDepth));
+
+        this.checkNotStarted();
+        this.prefetchDepth = prefetchDepth;
+        return this;
+    }
+
+    /**
+     * @param loaderThreads defaults to 1
+     * @return this pipeline
+     */
+    public TrainingPipeline setLoaderThreads(int loaderThreads) {
+        if(loaderThreads <= 0)
+            throw new IllegalArgumentException(String.format("Invalid quantity of loader threads (%d)", loaderThreads));
+
+        this.checkNotStarted();
+        this.loaderThreads = loaderThreads;
+        return this;
+    }
+
+    /**
+     * Shuffles the samples at each epoch. By default they are visited in the dataset's order.
+     *
+     * @param seed
+     * @return this pipeline
+     */
+    public TrainingPipeline setShuffle(long seed) {
+        this.checkNotStarted();
+        this.shuffle = true;
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Starts the loader threads, which fill the ring right away.
+     *
+     * @return this pipeline
+     */
+    public TrainingPipeline start() {
+        this.checkNotStarted();
+
+        this.ring = new Batch[this.prefetchDepth];
+        for(int idxSlot = 0; idxSlot < this.ring.length; idxSlot++) {
+            this.ring[idxSlot] = new Batch(idxSlot, this.batchSize, this.dataset.getInputSize(), this.totalOutputNodes);
+        }
+
+        this.loaders = new Thread[this.loaderThreads];
+        for(int idxLoader = 0; idxLoader < this.loaders.length; idxLoader++) {
+            this.loaders[idxLoader] = new Thread(this::load, "pipeline-loader-" + idxLoader);
+            this.loaders[idxLoader].setDaemon(true);
+            this.loaders[idxLoader].start();
+        }
+
+        return this;
+    }
+
+    public boolean isStarted() {
+        return this.ring != null;
+    }
+
+    /**
+     * Hands over the next batch, waiting for the loaders when it is not ready yet. The batch previously taken goes
+     * back to the loaders, so it must not be used anymore. It must be called by a single thread.
+     *
+     * @return the next batch, or null once all the epochs were handed over
+     * @throws IllegalStateException if a loader failed or the pipeline was closed
+     */
+    public Batch take() {
+        if(!this.isStarted())
+            throw new IllegalStateException("The pipeline was not started");
+
+        if(this.taken != null) {
+            this.release(this.taken);
+            this.taken = null;
+        }
+
+        if(this.nextTake >= this.getTotalBatches())
+            return null;
+
+        Batch batch = this.ring[(int) (this.nextTake % this.ring.length)];
+        synchronized(batch) {
+            while(!(batch.ready && batch.sequence == this.nextTake)) {
+                this.checkRunning();
+
+                try {
+                    batch.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for a batch", e);
+                }
+            }
+        }
+
+        this.nextTake++;
+        this.taken = batch;
+        return batch;
+    }
+
+    /**
+     * @return the quantity of batches of all the epochs
+     */
+    public long getTotalBatches() {
+        return (long) this.batchesByEpoch * this.epochs;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getEpochs() {
+        return epochs;
+    }
+
+    /**
+     * Stops the loaders and waits for them.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        if(!this.isStarted())
+            return;
+
+        this.wakeUpAll();
+        for(Thread loader : this.loaders) {
+            try {
+                loader.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void release(Batch batch) {
+        synchronized(batch) {
+            batch.ready = false;
+            batch.sequence += this.ring.length;
+            batch.notifyAll();
+        }
+    }
+
+    private void load() {
+        SampleOrder order = this.shuffle ? new SampleOrder(this.dataset.size()) : null;
+        int orderEpoch = -1;
+
+        try {
+            long sequence;
+            while(!this.closed && (sequence = this.nextLoad.getAndIncrement()) < this.getTotalBatches()) {
+                Batch batch = this.ring[(int) (sequence % this.ring.length)];
+
+                // waits for the training to release the batch which used the slot before
+                synchronized(batch) {
+                    while(batch.sequence != sequence) {
+                        if(this.closed)
+                            return;
+
+                        batch.wait();
+                    }
+                }
+
+                int epoch = (int) (sequence / this.batchesByEpoch);
+                if(order != null && orderEpoch != epoch) {
+                    order.reset();
+                    order.shuffle(new Random(this.seed + epoch));
+                    orderEpoch = epoch;
+                }
+
+                int first = (int) (sequence % this.batchesByEpoch) * this.batchSize;
+                int size = Math.min(this.batchSize, this.dataset.size() - first);
+                for(int idxSample = 0; idxSample < size; idxSample++) {
+                    int idxDataset = order == null ? first + idxSample : order.get(first + idxSample);
+                    this.dataset.copyInput(idxDataset, batch.inputs[idxSample]);
+                    this.dataset.copyTarget(idxDataset, batch.targets[idxSample]);
+                }
+
+                synchronized(batch) {
+                    batch.epoch = epoch + 1;
+                    batch.size = size;
+                    batch.ready = true;
+                    batch.notifyAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException | Error e) {
+            this.failure = e;
+            this.wakeUpAll();
+        }
+    }
+
+    private void wakeUpAll() {
+        for(Batch batch : this.ring) {
+            synchronized(batch) {
+                batch.notifyAll();
+            }
+        }
+    }
+
+    private void checkRunning() {
+        if(this.failure != null)
+            throw new IllegalStateException("A loader failed", this.failure);
+        if(this.closed)
+            throw new IllegalStateException("The pipeline was closed");
+    }
+
+    private void checkNotStarted() {
+        if(this.isStarted())
+            throw new IllegalStateException("The pipeline was already started");
+    }
+
+    /**
+     * A slot of the ring: scaled inputs and one-hot targets for up to the batch size of samples.
+     */
+    public static class Batch {
+        private final double[][] inputs;
+        private final double[][] targets;
+
+        // the sequence this slot holds, or waits for
+        private long sequence;
+        private boolean ready;
+        private int size;
+        private int epoch;
+
+        Batch(long sequence, int capacity, int inputSize, int totalOutputNodes) {
+            this.sequence = sequence;
+            this.inputs = new double[capacity][inputSize];
+            this.targets = new double[capacity][totalOutputNodes];
+        }
+
+        /**
+         * @return the inputs, only the first {@link #size()} are filled
+         */
+        public double[][] getInputs() {
+            return inputs;
+        }
+
+        /**
+         * @return the expected targets, only the first {@link #size()} are filled
+         */
+        public double[][] getTargets() {
+            return targets;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @return the epoch of the samples, starting at 1
+         */
+        public int getEpoch() {
+            return epoch;
+        }
+    }
+}
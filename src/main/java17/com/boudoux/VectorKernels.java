@@ -0,0 +1,217 @@
+package com.boudoux;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The SIMD kernels built over the Java Vector API, selected by {@link DenseKernels} when the JVM runs with
+ * <code>--add-modules jdk.incubator.vector</code>.
+ *
+ * Only the dot products (and so the forward pass) sum in a different order than the {@link ScalarKernels}, as each
+ * lane keeps its own partial sum. The lanes are then added in index order rather than through
+ * <code>reduceLanes(ADD)</code>, whose order is left unspecified, so the values do not change once compiled. The
+ * element-wise updates multiply and add just like the scalar loops, so they give the same values.
+ *
+ * The sigmoid stays scalar: the vectorized exponential does not give the same values once compiled as before, so
+ * threads warming up at different times would see different outputs for the same weights.
+ */
+final class VectorKernels extends ScalarKernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private static final int LANES = SPECIES.length();
+
+    @Override
+    void multiply(double[] weights, int rows, int columns, double[] input, double[] output) {
+        for(int idxRow = 0, offset = 0; idxRow < rows; idxRow++, offset += columns) {
+            output[idxRow] = dot(weights, offset, input, columns);
+        }
+    }
+
+    @Override
+    void multiply(ByteBuffer weights, int rows, int columns, double[] input, double[] output) {
+        ByteOrder order = weights.order();
+        for(int idxRow = 0, offset = 0; idxRow < rows; idxRow++, offset += columns) {
+            DoubleVector sums = DoubleVector.zero(SPECIES);
+
+            int idx = 0;
+            for(int bound = SPECIES.loopBound(columns); idx < bound; idx += LANES) {
+                sums = DoubleVector.fromByteBuffer(SPECIES, weights, (offset + idx) * Double.BYTES, order)
+                        .fma(DoubleVector.fromArray(SPECIES, input, idx), sums);
+            }
+
+            // the same order as the dot products over the arrays
+            double sum = 0.0;
+            for(int idxLane = 0; idxLane < LANES; idxLane++) {
+                sum += sums.lane(idxLane);
+            }
+            for(; idx < columns; idx++) {
+                sum += weights.getDouble((offset + idx) * Double.BYTES) * input[idx];
+            }
+            output[idxRow] = sum;
+        }
+    }
+
+    @Override
+    void accumulateTransposed(double[] weights, int rows, int columns, double[] input, double[] output) {
+        for(int idxRow = 0, offset = 0; idxRow < rows; idxRow++, offset += columns) {
+            addScaled(input[idxRow], weights, offset, output, 0, columns);
+        }
+    }
+
+    @Override
+    void addOuterProduct(double[] weights, int rows, int columns, double[] rowFactors, double[] columnFactors) {
+        for(int idxRow = 0, offset = 0; idxRow < rows; idxRow++, offset += columns) {
+            addScaled(rowFactors[idxRow], columnFactors, 0, weights, offset, columns);
+        }
+    }
+
+    @Override
+    void accumulateTransposedAndAddOuterProduct(double[] weights, int rows, int columns, double[] rowErrors,
+                                                double[] errors, double[] rowFactors, double[] columnFactors) {
+        for(int idxRow = 0, offset = 0; idxRow < rows; idxRow++, offset += columns) {
+            double error = rowErrors[idxRow];
+            double factor = rowFactors[idxRow];
+
+            int idx = 0;
+            for(int bound = SPECIES.loopBound(columns); idx < bound; idx += LANES) {
+                DoubleVector weight = DoubleVector.fromArray(SPECIES, weights, offset + idx);
+                weight.mul(error).add(DoubleVector.fromArray(SPECIES, errors, idx)).intoArray(errors, idx);
+                DoubleVector.fromArray(SPECIES, columnFactors, idx).mul(factor).add(weight).intoArray(weights, offset + idx);
+            }
+            for(; idx < columns; idx++) {
+                double weight = weights[offset + idx];
+                errors[idx] += weight * error;
+                weights[offset + idx] = weight + columnFactors[idx] * factor;
+            }
+        }
+    }
+
+    @Override
+    void multiplyBatch(double[] weights, int rows, int columns, double[][] inputs, double[][] outputs, int count) {
+        // every sum goes through the same dot product of multiply, so a batch of one gives the same values
+        for(int rowStart = 0; rowStart < rows; rowStart += ROW_BLOCK) {
+            int rowEnd = Math.min(rowStart + ROW_BLOCK, rows);
+
+            for(int idxSample = 0; idxSample < count; idxSample++) {
+                double[] input = inputs[idxSample];
+                double[] output = outputs[idxSample];
+
+                for(int idxRow = rowStart; idxRow < rowEnd; idxRow++) {
+                    output[idxRow] = dot(weights, idxRow * columns, input, columns);
+                }
+            }
+        }
+    }
+
+    @Override
+    void multiplyTransposedBatch(double[] weights, int rows, int columns, double[][] inputs, double[][] outputs, int count) {
+        for(int idxSample = 0; idxSample < count; idxSample++) {
+            double[] output = outputs[idxSample];
+            for(int idxColumn = 0; idxColumn < columns; idxColumn++) {
+                output[idxColumn] = 0.0;
+            }
+        }
+
+        for(int sampleStart = 0; sampleStart < count; sampleStart += SAMPLE_BLOCK) {
+            int sampleEnd = Math.min(sampleStart + SAMPLE_BLOCK, count);
+
+            for(int columnStart = 0; columnStart < columns; columnStart += COLUMN_BLOCK) {
+                int length = Math.min(COLUMN_BLOCK, columns - columnStart);
+
+                for(int idxRow = 0, offset = 0; idxRow < rows; idxRow++, offset += columns) {
+                    for(int idxSample = sampleStart; idxSample < sampleEnd; idxSample++) {
+                        addScaled(inputs[idxSample][idxRow], weights, offset + columnStart, outputs[idxSample], columnStart, length);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    void addOuterProductBatch(double[] gradients, int rows, int columns, double[][] rowFactors, double[][] columnFactors, int count) {
+        for(int rowStart = 0; rowStart < rows; rowStart += ROW_BLOCK) {
+            int rowEnd = Math.min(rowStart + ROW_BLOCK, rows);
+
+            for(int columnStart = 0; columnStart < columns; columnStart += COLUMN_BLOCK) {
+                int length = Math.min(COLUMN_BLOCK, columns - columnStart);
+
+                for(int idxSample = 0; idxSample < count; idxSample++) {
+                    for(int idxRow = rowStart; idxRow < rowEnd; idxRow++) {
+                        addScaled(rowFactors[idxSample][idxRow], columnFactors[idxSample], columnStart,
+                                gradients, idxRow * columns + columnStart, length);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    void add(double[] target, double[] source) {
+        int idx = 0;
+        for(int bound = SPECIES.loopBound(target.length); idx < bound; idx += LANES) {
+            DoubleVector.fromArray(SPECIES, target, idx).add(DoubleVector.fromArray(SPECIES, source, idx)).intoArray(target, idx);
+        }
+        for(; idx < target.length; idx++) {
+            target[idx] += source[idx];
+        }
+    }
+
+    @Override
+    void relu(double[] from, double[] to) {
+        int idx = 0;
+        for(int bound = SPECIES.loopBound(from.length); idx < bound; idx += LANES) {
+            DoubleVector.fromArray(SPECIES, from, idx).max(0.0).intoArray(to, idx);
+        }
+        for(; idx < from.length; idx++) {
+            to[idx] = from[idx] > 0.0 ? from[idx] : 0.0;
+        }
+    }
+
+    @Override
+    String getName() {
+        return "vector (" + LANES + " lanes)";
+    }
+
+    /**
+     * SUM(a[aOffset + i] * b[i]) for i in [0, length)
+     */
+    private static double dot(double[] a, int aOffset, double[] b, int length) {
+        DoubleVector sums = DoubleVector.zero(SPECIES);
+
+        int idx = 0;
+        for(int bound = SPECIES.loopBound(length); idx < bound; idx += LANES) {
+            sums = DoubleVector.fromArray(SPECIES, a, aOffset + idx).fma(DoubleVector.fromArray(SPECIES, b, idx), sums);
+        }
+
+        // a fixed order, the same in the interpreter and once compiled
+        double sum = 0.0;
+        for(int idxLane = 0; idxLane < LANES; idxLane++) {
+            sum += sums.lane(idxLane);
+        }
+        for(; idx < length; idx++) {
+            sum += a[aOffset + idx] * b[idx];
+        }
+
+        return sum;
+    }
+
+    /**
+     * y[yOffset + i] += x[xOffset + i] * factor for i in [0, length), multiplying and adding separately
+     * like the scalar loops
+     */
+    private static void addScaled(double factor, double[] x, int xOffset, double[] y, int yOffset, int length) {
+        int idx = 0;
+        for(int bound = SPECIES.loopBound(length); idx < bound; idx += LANES) {
+            DoubleVector.fromArray(SPECIES, x, xOffset + idx).mul(factor)
+                    .add(DoubleVector.fromArray(SPECIES, y, yOffset + idx))
+                    .intoArray(y, yOffset + idx);
+        }
+        for(; idx < length; idx++) {
+            y[yOffset + idx] += x[xOffset + idx] * factor;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.boudoux;
+
+import com.boudoux.util.Utils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ActivationsTest {
+
+    @Test
+    public void sigmoid() {
+        Assert.assertEquals(0.5, Activations.SIGMOID.apply(0.0), 0.0);
+        Assert.assertEquals(0.7310585786300049, Activations.SIGMOID.apply(1.0), 1e-15);
+        Assert.assertEquals(0.25, Activations.SIGMOID.derivative(0.5), 0.0);
+    }
+
+    @Test
+    public void fastSigmoid_isCloseToTheSigmoid() {
+        for(double input = -20.0; input <= 20.0; input += 0.0137) {
+            Assert.assertEquals(String.valueOf(input), Activations.SIGMOID.apply(input), Activations.FAST_SIGMOID.apply(input), 1e-6);
+        }
+    }
+
+    @Test
+    public void arrayApply_matchesScalarApply() {
+        double[] inputs = Utils.arr(-2.0, -0.5, 0.0, 0.3, 4.0);
+
+        for(Activations activation : new Activations[]{Activations.SIGMOID, Activations.FAST_SIGMOID, Activations.TANH,
+                Activations.RELU, Activations.LEAKY_RELU}) {
+            double[] outputs = new double[inputs.length];
+            activation.apply(inputs, outputs);
+
+            for(int idx = 0; idx < inputs.length; idx++) {
+                Assert.assertEquals(activation.name(), activation.apply(inputs[idx]), outputs[idx], 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void derivatives_matchTheNumericalDerivative() {
+        double step = 1e-6;
+
+        for(Activations activation : new Activations[]{Activations.SIGMOID, Activations.TANH, Activations.RELU, Activations.LEAKY_RELU}) {
+            for(double input : Utils.arr(-1.5, -0.2, 0.4, 2.0)) {
+                double numerical = (activation.apply(input + step) - activation.apply(input - step)) / (2 * step);
+
+                Assert.assertEquals(activation.name(), numerical, activation.derivative(activation.apply(input)), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void softmax_inPlace() {
+        double[] values = Utils.arr(1.0, 2.0, 3.0);
+
+        Activations.SOFTMAX.apply(values, values);
+
+        Assert.assertEquals(1.0, values[0] + values[1] + values[2], 1e-12);
+        Assert.assertEquals(0.6652409557748219, values[2], 1e-12);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void softmax_scalarIsNotDefined() {
+        Activations.SOFTMAX.apply(1.0);
+    }
+}
@@ -0,0 +1,140 @@
+package com.boudoux;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Checks the selected kernels (the SIMD ones when available) against the scalar ones.
+ */
+public class DenseKernelsTest {
+
+    private final DenseKernels scalar = new ScalarKernels();
+
+    private final DenseKernels selected = DenseKernels.INSTANCE;
+
+    private final Random random = new Random(11);
+
+    private double[] randomArray(int length) {
+        double[] values = new double[length];
+        for(int idx = 0; idx < length; idx++) {
+            values[idx] = this.random.nextDouble() * 2 - 1;
+        }
+        return values;
+    }
+
+    @Test
+    public void backendName() {
+        System.out.println("Kernels: " + WeightMatrix.getKernelBackend());
+
+        Assert.assertNotNull(WeightMatrix.getKernelBackend());
+    }
+
+    @Test
+    public void multiply() {
+        int rows = 13, columns = 37;
+        double[] weights = randomArray(rows * columns);
+        double[] input = randomArray(columns);
+
+        double[] expected = new double[rows];
+        double[] actual = new double[rows];
+        this.scalar.multiply(weights, rows, columns, input, expected);
+        this.selected.multiply(weights, rows, columns, input, actual);
+
+        Assert.assertArrayEquals(expected, actual, 1e-12);
+    }
+
+    @Test
+    public void elementWiseKernels_giveTheSameValues() {
+        int rows = 9, columns = 301;
+        double[] weights = randomArray(rows * columns);
+        double[] rowFactors = randomArray(rows);
+        double[] columnFactors = randomArray(columns);
+
+        double[] expected = new double[columns];
+        double[] actual = new double[columns];
+        this.scalar.multiplyTransposed(weights, rows, columns, rowFactors, expected);
+        this.selected.multiplyTransposed(weights, rows, columns, rowFactors, actual);
+        Assert.assertArrayEquals(expected, actual, 0.0);
+
+        double[] expectedWeights = weights.clone();
+        double[] actualWeights = weights.clone();
+        this.scalar.addOuterProduct(expectedWeights, rows, columns, rowFactors, columnFactors);
+        this.selected.addOuterProduct(actualWeights, rows, columns, rowFactors, columnFactors);
+        Assert.assertArrayEquals(expectedWeights, actualWeights, 0.0);
+
+        this.scalar.add(expectedWeights, weights);
+        this.selected.add(actualWeights, weights);
+        Assert.assertArrayEquals(expectedWeights, actualWeights, 0.0);
+    }
+
+    @Test
+    public void fusedBackward_givesTheSameValuesOfTheTwoSweeps() {
+        int rows = 7, columns = 203;
+        double[] weights = randomArray(rows * columns);
+        double[] rowErrors = randomArray(rows);
+        double[] rowFactors = randomArray(rows);
+        double[] columnFactors = randomArray(columns);
+
+        double[] expectedErrors = new double[columns];
+        double[] expectedWeights = weights.clone();
+        this.scalar.multiplyTransposed(expectedWeights, rows, columns, rowErrors, expectedErrors);
+        this.scalar.addOuterProduct(expectedWeights, rows, columns, rowFactors, columnFactors);
+
+        for(DenseKernels kernels : new DenseKernels[]{this.scalar, this.selected}) {
+            double[] actualErrors = randomArray(columns);
+            double[] actualWeights = weights.clone();
+            kernels.multiplyTransposedAndAddOuterProduct(actualWeights, rows, columns, rowErrors, actualErrors, rowFactors, columnFactors);
+
+            Assert.assertArrayEquals(expectedErrors, actualErrors, 0.0);
+            Assert.assertArrayEquals(expectedWeights, actualWeights, 0.0);
+        }
+    }
+
+    @Test
+    public void sparseKernels_skipOnlyTheZeros() {
+        int rows = 11, columns = 97;
+        double[] weights = randomArray(rows * columns);
+        double[] rowFactors = randomArray(rows);
+        double[] input = randomArray(columns);
+        for(int idx = 0; idx < columns; idx++) {
+            if(idx % 4 != 0) {
+                input[idx] = 0.0;
+            }
+        }
+        SparseVector sparse = SparseVector.of(input);
+
+        for(DenseKernels kernels : new DenseKernels[]{this.scalar, this.selected}) {
+            double[] expected = new double[rows];
+            double[] actual = new double[rows];
+            this.scalar.multiply(weights, rows, columns, input, expected);
+            kernels.multiplySparse(weights, rows, columns, sparse.getIndices(), sparse.getValues(), sparse.getCount(), actual);
+            Assert.assertArrayEquals(expected, actual, 0.0);
+
+            double[] expectedWeights = weights.clone();
+            double[] actualWeights = weights.clone();
+            this.scalar.addOuterProduct(expectedWeights, rows, columns, rowFactors, input);
+            kernels.addOuterProductSparse(actualWeights, rows, columns, rowFactors, sparse.getIndices(), sparse.getValues(), sparse.getCount());
+            Assert.assertArrayEquals(expectedWeights, actualWeights, 0.0);
+        }
+    }
+
+    @Test
+    public void activations() {
+        double[] from = randomArray(45);
+        for(int idx = 0; idx < from.length; idx++) {
+            from[idx] *= 20;
+        }
+
+        double[] expected = new double[from.length];
+        double[] actual = new double[from.length];
+        this.scalar.sigmoid(from, expected);
+        this.selected.sigmoid(from, actual);
+        Assert.assertArrayEquals(expected, actual, 1e-15);
+
+        this.scalar.relu(from, expected);
+        this.selected.relu(from, actual);
+        Assert.assertArrayEquals(expected, actual, 0.0);
+    }
+}
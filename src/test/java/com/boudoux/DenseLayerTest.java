@@ -0,0 +1,113 @@
+package com.boudoux;
+
+import com.boudoux.util.Utils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DenseLayerTest {
+
+    private static DenseLayer layer(double[] weights, double[] biases) {
+        return new DenseLayer(new WeightMatrix(2, 3, weights.clone()), biases == null ? null : biases.clone(), Activations.SIGMOID);
+    }
+
+    @Test
+    public void forward_addsTheBiasesBeforeTheActivation() {
+        DenseLayer layer = layer(Utils.arr(0.1, 0.2, 0.3, -0.4, 0.5, -0.6), Utils.arr(0.5, -1.0));
+
+        double[] output = new double[2];
+        layer.forward(Utils.arr(1.0, 0.5, 0.25), output);
+
+        Assert.assertEquals(1.0 / (1.0 + Math.exp(-(0.1 + 0.1 + 0.075 + 0.5))), output[0], 1e-12);
+        Assert.assertEquals(1.0 / (1.0 + Math.exp(-(-0.4 + 0.25 - 0.15 - 1.0))), output[1], 1e-12);
+    }
+
+    @Test
+    public void getParameters_weightsThenBiases() {
+        DenseLayer withBiases = new DenseLayer(3, 2, Activations.SIGMOID, true);
+        DenseLayer withoutBiases = new DenseLayer(3, 2, Activations.SIGMOID, false);
+
+        Assert.assertEquals(2, withBiases.getParameters().length);
+        Assert.assertSame(withBiases.getWeights().values, withBiases.getParameters()[0]);
+        Assert.assertSame(withBiases.getBiases(), withBiases.getParameters()[1]);
+        Assert.assertEquals(1, withoutBiases.getParameters().length);
+        Assert.assertNull(withoutBiases.getBiases());
+    }
+
+    @Test
+    public void backward_inputErrorsUseTheWeightsBeforeTheUpdate() {
+        double[] weights = Utils.arr(0.1, 0.2, 0.3, -0.4, 0.5, -0.6);
+        DenseLayer layer = layer(weights, Utils.arr(0.0, 0.0));
+        double[] input = Utils.arr(1.0, 0.5, 0.25);
+        double[] output = new double[2];
+        layer.forward(input, output);
+
+        double[] errors = Utils.arr(0.2, -0.1);
+        double[] inputErrors = new double[3];
+        layer.backward(input, output, errors, 0.5, new double[2], layer.getParameters(), inputErrors);
+
+        for(int idxColumn = 0; idxColumn < 3; idxColumn++) {
+            Assert.assertEquals(weights[idxColumn] * errors[0] + weights[3 + idxColumn] * errors[1], inputErrors[idxColumn], 1e-15);
+        }
+        for(int idxRow = 0; idxRow < 2; idxRow++) {
+            double delta = 0.5 * (errors[idxRow] * output[idxRow] * (1.0 - output[idxRow]));
+            Assert.assertEquals(delta, layer.getBiases()[idxRow], 1e-15);
+            Assert.assertEquals(weights[idxRow * 3] + delta * input[0], layer.getWeights().values[idxRow * 3], 1e-15);
+        }
+    }
+
+    @Test
+    public void network_biasesReachWhatTheWeightsCanNot() {
+        // a zero input makes every weighted sum zero, so only the biases can move the output away from 0.5
+        NeuralNetwork withBiases = new NeuralNetwork(0.3, Activations.SIGMOID, Activations.SIGMOID, new int[]{2, 1});
+        NeuralNetwork withoutBiases = new NeuralNetwork(0.3, 2, new int[0][], 1);
+
+        double[] input = Utils.arr(0.0, 0.0);
+        double[] target = Utils.arr(0.9);
+        for(int count = 0; count < 2_000; count++) {
+            withBiases.train(input, target);
+            withoutBiases.train(input, target);
+        }
+
+        Assert.assertEquals(0.9, withBiases.fire(input)[0], 0.01);
+        Assert.assertEquals(0.5, withoutBiases.fire(input)[0], 0.0);
+    }
+
+    @Test
+    public void network_trainBatchOf1MatchesTrainWithBiases() {
+        NeuralNetwork template = new NeuralNetwork(0.3, Activations.SIGMOID, Activations.SIGMOID, new int[]{3, 4, 2});
+        NeuralNetwork online = new NeuralNetwork(0.3, copy(template));
+        NeuralNetwork batch = new NeuralNetwork(0.3, copy(template));
+        batch.setBatchSize(1);
+
+        double[][] inputs = new double[][]{{0.1, 0.9, 0.3}, {0.8, 0.2, 0.6}, {0.99, 0.01, 0.4}};
+        double[][] targets = new double[][]{{0.99, 0.01}, {0.01, 0.99}, {0.99, 0.01}};
+        for(int count = 0; count < 20; count++) {
+            for(int idx = 0; idx < inputs.length; idx++) {
+                online.train(inputs[idx], targets[idx]);
+            }
+            batch.trainBatch(inputs, targets);
+        }
+
+        for(int idxLayer = 0; idxLayer < template.getTotalLayers(); idxLayer++) {
+            Assert.assertArrayEquals(online.getLayerWeights(idxLayer).values, batch.getLayerWeights(idxLayer).values, 0.0);
+            Assert.assertArrayEquals(online.getLayerBiases(idxLayer), batch.getLayerBiases(idxLayer), 0.0);
+            Assert.assertNotEquals(0.0, online.getLayerBiases(idxLayer)[0], 0.0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void network_layersMustChain() {
+        new NeuralNetwork(0.3, new Layer[]{new DenseLayer(3, 4, Activations.SIGMOID, true), new DenseLayer(5, 2, Activations.SIGMOID, true)});
+    }
+
+    private static Layer[] copy(NeuralNetwork network) {
+        Layer[] layers = new Layer[network.getTotalLayers()];
+        for(int idxLayer = 0; idxLayer < layers.length; idxLayer++) {
+            WeightMatrix weights = network.getLayerWeights(idxLayer);
+            layers[idxLayer] = new DenseLayer(new WeightMatrix(weights.getRows(), weights.getColumns(), weights.values.clone()),
+                    network.getLayerBiases(idxLayer).clone(), network.getActivation(idxLayer));
+        }
+
+        return layers;
+    }
+}
@@ -1,10 +1,22 @@
 package com.boudoux;
 
+import com.boudoux.optimizer.Adam;
+import com.boudoux.training.ParallelTrainer;
 import com.boudoux.util.Utils;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 public class NeuralNetworkTest {
 
     @Test
@@ -182,6 +194,28 @@ public class NeuralNetworkTest {
         System.out.println(nn);
     }
 
+    @Test
+    public void _train_4layers_updatesWeightsLikeTheJaggedLayout() {
+        NeuralNetwork nn = new NeuralNetwork(2, new int[][]{{3}, {2}}, 1,
+                new double[][][]{{{0.9, 0.2, 0.1}, {0.3, 0.8, 0.5}},
+                        {{0.3, 0.6}, {0.7, 0.5}, {0.2, 0.9}},
+                        {{0.09}, {0.65}}});
+
+        nn.train(Utils.arr(0.2, 0.05), Utils.arr(0.2));
+
+        double[][][] expected = new double[][][]{
+                {{0.8955405094792994, 0.1958177670712147, 0.09349318219207729}, {0.2988851273698248, 0.7989544417678037, 0.49837329554801935}},
+                {{0.2975832647384391, 0.5852095288005423}, {0.6977092863869643, 0.4859807839697233}, {0.19774779424051672, 0.8862164528524423}},
+                {{0.0572177920010956}, {0.6127997795752076}}};
+
+        double[][][] weights = nn.getLayerLinkWeights();
+        for(int idxLayer = 0; idxLayer < expected.length; idxLayer++) {
+            for(int idxNode = 0; idxNode < expected[idxLayer].length; idxNode++) {
+                Assert.assertArrayEquals(expected[idxLayer][idxNode], weights[idxLayer][idxNode], 1e-12);
+            }
+        }
+    }
+
     @Test
     public void _train_3layers_3input_1hiddenLayer3Nodes_3output() {
         NeuralNetwork nn = new NeuralNetwork(0.3, 3, new int[][]{{3}}, 3);
@@ -196,4 +230,234 @@ public class NeuralNetworkTest {
         Assert.assertTrue(String.valueOf(output[1]), output[1] >= 0.707 && output[1] < 0.709);
         Assert.assertTrue(String.valueOf(output[2]), output[2] >= 0.770 && output[2] < 0.779);
     }
+
+    @Test
+    public void fire_withWorkspace_matchesLegacyFire() {
+        NeuralNetwork nn = new NeuralNetwork(5, new int[][]{{6}, {7}}, 3);
+        double[] input = Utils.arr(0.1d, 0.2d, 0.55d, 0.1d, 0.2d);
+
+        double[] expected = nn.fire(input);
+
+        Workspace workspace = nn.newWorkspace();
+        double[] output = new double[3];
+        Assert.assertSame(output, nn.fire(input, workspace, output));
+        Assert.assertArrayEquals(expected, output, 0.0);
+        Assert.assertArrayEquals(expected, workspace.getOutput(), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fire_withWorkspaceFromAnotherTopology() {
+        NeuralNetwork nn = new NeuralNetwork(5, new int[][]{{6}}, 3);
+        NeuralNetwork other = new NeuralNetwork(5, new int[][]{{4}}, 3);
+
+        nn.fire(Utils.arr(0.1d, 0.2d, 0.55d, 0.1d, 0.2d), other.newWorkspace(), null);
+    }
+
+    @Test
+    public void fire_concurrentCallersDoNotSeeEachOtherOutputs() throws Exception {
+        NeuralNetwork nn = new NeuralNetwork(5, new int[][]{{10}}, 4);
+        double[][] inputs = new double[8][];
+        double[][] expected = new double[inputs.length][];
+        for(int idx = 0; idx < inputs.length; idx++) {
+            inputs[idx] = Utils.arr(0.1 * idx, 0.2, 0.3, 0.4, 0.99 - 0.1 * idx);
+            expected[idx] = nn.fire(inputs[idx]);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(inputs.length);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for(int idx = 0; idx < inputs.length; idx++) {
+                final int idxInput = idx;
+                results.add(executor.submit(() -> {
+                    double[] output = new double[4];
+                    for(int count = 0; count < 10_000; count++) {
+                        nn.fire(inputs[idxInput], output);
+                        if(!Arrays.equals(expected[idxInput], output)
+                                || !Arrays.equals(expected[idxInput], nn.getOutput()))
+                            return false;
+                    }
+                    return true;
+                }));
+            }
+
+            for(Future<Boolean> result : results) {
+                Assert.assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void train_usesTheDerivativeOfTheActivation() {
+        NeuralNetwork nn = new NeuralNetwork(0.05, Activations.TANH, 2, new int[][]{{4}}, 1, null);
+
+        for(int count = 1; count <= 5_000; count++) {
+            nn.train(Utils.arr(0.9, -0.4), Utils.arr(0.5));
+        }
+
+        Assert.assertEquals(0.5, nn.fire(Utils.arr(0.9, -0.4))[0], 1e-3);
+    }
+
+    @Test
+    public void softmaxOutputLayer() {
+        NeuralNetwork nn = new NeuralNetwork(0.3, Activations.RELU, Activations.SOFTMAX, 3, new int[][]{{5}}, 4, null);
+
+        double[] output = nn.fire(Utils.arr(0.1, 0.5, 0.9));
+
+        Assert.assertEquals(1.0, output[0] + output[1] + output[2] + output[3], 1e-12);
+    }
+
+    @Test
+    public void trainBatch_batchSizeOf1_matchesTrain() {
+        double[][][] weights = new NeuralNetwork(4, new int[][]{{7}, {5}}, 3).getLayerLinkWeights();
+        NeuralNetwork online = new NeuralNetwork(4, new int[][]{{7}, {5}}, 3, weights);
+        NeuralNetwork batch = new NeuralNetwork(4, new int[][]{{7}, {5}}, 3, weights);
+        batch.setBatchSize(1);
+
+        double[][] inputs = new double[][]{{0.1, 0.9, 0.3, 0.5}, {0.8, 0.2, 0.6, 0.01}, {0.99, 0.99, 0.01, 0.4}};
+        double[][] targets = new double[][]{{0.99, 0.01, 0.01}, {0.01, 0.99, 0.01}, {0.01, 0.01, 0.99}};
+
+        for(int count = 0; count < 50; count++) {
+            for(int idx = 0; idx < inputs.length; idx++) {
+                online.train(inputs[idx], targets[idx]);
+            }
+            batch.trainBatch(inputs, targets);
+        }
+
+        double[][][] expected = online.getLayerLinkWeights();
+        double[][][] actual = batch.getLayerLinkWeights();
+        for(int idxLayer = 0; idxLayer < expected.length; idxLayer++) {
+            for(int idxNode = 0; idxNode < expected[idxLayer].length; idxNode++) {
+                Assert.assertArrayEquals(expected[idxLayer][idxNode], actual[idxLayer][idxNode], 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void trainBatch_converges() {
+        NeuralNetwork nn = new NeuralNetwork(0.3, 3, new int[][]{{3}}, 3);
+        nn.setBatchSize(4);
+
+        double[][] inputs = new double[][]{{0.9, 0.1, 0.8}, {0.9, 0.1, 0.8}, {0.9, 0.1, 0.8}, {0.9, 0.1, 0.8}};
+        double[][] targets = new double[][]{{0.726, 0.708, 0.778}, {0.726, 0.708, 0.778}, {0.726, 0.708, 0.778}, {0.726, 0.708, 0.778}};
+        for(int count = 1; count <= 15_000; count++) {
+            nn.trainBatch(inputs, targets);
+        }
+
+        Assert.assertArrayEquals(targets[0], nn.fire(inputs[0]), 0.01);
+    }
+
+    @Test
+    public void computeGradients_doesNotChangeTheWeights() {
+        NeuralNetwork nn = new NeuralNetwork(3, new int[][]{{4}}, 2);
+        double[][][] before = nn.getLayerLinkWeights();
+
+        Gradients gradients = nn.newGradients();
+        nn.computeGradients(new double[][]{{0.1, 0.2, 0.3}}, new double[][]{{0.99, 0.01}}, 0, 1, 0.5,
+                nn.newBatchWorkspace(8), gradients);
+
+        Assert.assertTrue(Arrays.deepEquals(before, nn.getLayerLinkWeights()));
+        Assert.assertNotEquals(0.0, gradients.getLayerGradients(0)[0], 0.0);
+    }
+
+    @Test
+    public void fireBatch_matchesFire() {
+        NeuralNetwork nn = new NeuralNetwork(0.3, Activations.RELU, Activations.SOFTMAX, 6, new int[][]{{9}, {7}}, 4, null);
+        double[][] inputs = new double[37][6];
+        for(int idxSample = 0; idxSample < inputs.length; idxSample++) {
+            for(int idxNode = 0; idxNode < 6; idxNode++) {
+                inputs[idxSample][idxNode] = ((idxSample * 7 + idxNode * 3) % 11) / 11.0;
+            }
+        }
+
+        double[][] outputs = nn.fireBatch(inputs);
+        double[][] chunked = new double[inputs.length][4];
+        nn.fireBatch(inputs, inputs.length, nn.newBatchWorkspace(5), chunked);
+
+        for(int idxSample = 0; idxSample < inputs.length; idxSample++) {
+            Assert.assertArrayEquals(nn.fire(inputs[idxSample]), outputs[idxSample], 0.0);
+            Assert.assertArrayEquals(outputs[idxSample], chunked[idxSample], 0.0);
+        }
+        Assert.assertEquals(0, nn.fireBatch(new double[0][]).length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fireBatch_inputOfWrongLength() {
+        NeuralNetwork nn = new NeuralNetwork(3, new int[][]{{4}}, 2);
+
+        nn.fireBatch(new double[][]{{0.1, 0.2, 0.3}, {0.1, 0.2}});
+    }
+
+    @Test
+    public void train_doesNotAllocateOnceWarm() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+
+        NeuralNetwork nn = new NeuralNetwork(0.1, 20, new int[][]{{16}, {12}}, 4);
+        double[] input = new double[20];
+        double[] target = Utils.arr(0.99, 0.01, 0.01, 0.01);
+        Arrays.fill(input, 0.5);
+        for(int count = 0; count < 20_000; count++) {
+            nn.train(input, target);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        for(int count = 0; count < 10_000; count++) {
+            nn.train(input, target);
+        }
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        // a single array per sample would be far more than this
+        Assert.assertTrue(String.format("%d bytes allocated", allocated), allocated < 10_000);
+    }
+
+    @Test
+    public void toOffHeap_firesAndTrainsLikeTheHeap() {
+        // the first layer spans several tiles of weights
+        NeuralNetwork heap = new NeuralNetwork(0.1, Activations.RELU, Activations.SIGMOID, new int[]{300, 40, 3},
+                new WeightInitializer(5L, WeightInitializer.Scheme.HE));
+        NeuralNetwork offHeap = heap.toOffHeap();
+        Assert.assertTrue(offHeap.getLayerWeights(0).isOffHeap());
+
+        Random random = new Random(3);
+        double[][] inputs = new double[12][300];
+        double[][] targets = new double[12][3];
+        for(int idxSample = 0; idxSample < inputs.length; idxSample++) {
+            for(int idxNode = 0; idxNode < 300; idxNode++) {
+                inputs[idxSample][idxNode] = idxNode % 4 == 0 ? random.nextDouble() : 0.0;
+            }
+            targets[idxSample][idxSample % 3] = 1.0;
+        }
+
+        for(NeuralNetwork network : Arrays.asList(heap, offHeap)) {
+            for(int idxSample = 0; idxSample < inputs.length; idxSample++) {
+                network.train(inputs[idxSample], targets[idxSample]);
+                network.train(SparseVector.of(inputs[idxSample]), targets[idxSample]);
+            }
+
+            network.setBatchSize(5);
+            network.trainBatch(inputs, targets);
+            network.setOptimizer(new Adam());
+            network.trainBatch(inputs, targets);
+            try(ParallelTrainer trainer = new ParallelTrainer(network, 2, true)) {
+                trainer.trainBatch(inputs, targets);
+            }
+        }
+
+        Assert.assertTrue(Arrays.deepEquals(heap.getLayerLinkWeights(), offHeap.getLayerLinkWeights()));
+        Assert.assertArrayEquals(heap.getLayerBiases(0), offHeap.getLayerBiases(0), 0.0);
+        Assert.assertArrayEquals(heap.fire(inputs[0]), offHeap.fire(inputs[0]), 0.0);
+
+        // a copy keeps its weights off the heap
+        NeuralNetwork copy = offHeap.copy();
+        Assert.assertTrue(copy.getLayerWeights(0).isOffHeap());
+        Assert.assertArrayEquals(heap.fire(inputs[1]), copy.fire(inputs[1]), 0.0);
+
+        heap.copyParametersFrom(new NeuralNetwork(0.1, Activations.RELU, Activations.SIGMOID, new int[]{300, 40, 3}));
+        offHeap.copyParametersFrom(heap);
+        Assert.assertTrue(Arrays.deepEquals(heap.getLayerLinkWeights(), offHeap.getLayerLinkWeights()));
+    }
 }
@@ -0,0 +1,120 @@
+package com.boudoux;
+
+import com.boudoux.data.InMemoryDataset;
+import com.boudoux.training.Evaluation;
+import com.boudoux.training.PrecisionReport;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class PrecisionTest {
+
+    // the four cases of the XOR gate
+    private static final double[][] INPUTS = new double[][]{{0.01, 0.01}, {0.01, 0.99}, {0.99, 0.01}, {0.99, 0.99}};
+
+    private static final double[][] TARGETS = new double[][]{{0.99, 0.01}, {0.01, 0.99}, {0.01, 0.99}, {0.99, 0.01}};
+
+    private static double[] randomInput(Random random, int length) {
+        double[] input = new double[length];
+        for(int idx = 0; idx < length; idx++) {
+            input[idx] = 0.01 + random.nextDouble() * 0.99;
+        }
+        return input;
+    }
+
+    @Test
+    public void toPrecision_double_isTheNetworkItself() {
+        NeuralNetwork network = new NeuralNetwork(4, new int[][]{{3}}, 2);
+
+        Assert.assertSame(network, network.toPrecision(Precision.DOUBLE));
+        Assert.assertEquals(Precision.FLOAT, network.toPrecision(Precision.FLOAT).getPrecision());
+        Assert.assertEquals(Precision.INT8, network.toPrecision(Precision.INT8).getPrecision());
+    }
+
+    @Test
+    public void fire_float_matchesDouble() {
+        NeuralNetwork network = new NeuralNetwork(64, new int[][]{{32}, {16}}, 10);
+        InferenceModel model = network.toPrecision(Precision.FLOAT);
+        Random random = new Random(7);
+
+        for(int idxSample = 0; idxSample < 20; idxSample++) {
+            double[] input = randomInput(random, 64);
+
+            Assert.assertArrayEquals(network.fire(input), model.fire(input, new double[10]), 1e-5);
+        }
+    }
+
+    @Test
+    public void fire_int8_matchesDouble() {
+        NeuralNetwork network = new NeuralNetwork(0.3, Activations.RELU, Activations.SIGMOID, 64, new int[][]{{32}}, 10, null);
+        InferenceModel model = network.toPrecision(Precision.INT8);
+        Random random = new Random(7);
+
+        for(int idxSample = 0; idxSample < 20; idxSample++) {
+            double[] input = randomInput(random, 64);
+
+            Assert.assertArrayEquals(network.fire(input), model.fire(input, new double[10]), 0.02);
+        }
+    }
+
+    @Test
+    public void fire_int8_zeroWeights() {
+        NeuralNetwork network = new NeuralNetwork(2, new int[][]{{2}}, 1, new double[][][]{{{0.0, 0.0}, {0.0, 0.0}}, {{0.0}, {0.0}}});
+
+        Assert.assertArrayEquals(new double[]{0.5}, network.toPrecision(Precision.INT8).fire(new double[]{0.3, 0.7}, new double[1]), 0.0);
+    }
+
+    @Test
+    public void train_float_learnsXor() {
+        FloatNetwork network = new FloatNetwork(new NeuralNetwork(0.3, 2, new int[][]{{8}}, 2));
+
+        for(int idxEpoch = 0; idxEpoch < 5_000; idxEpoch++) {
+            for(int idxSample = 0; idxSample < INPUTS.length; idxSample++) {
+                network.train(INPUTS[idxSample], TARGETS[idxSample]);
+            }
+        }
+
+        Assert.assertEquals(1.0, Evaluation.accuracy(network, INPUTS, TARGETS), 0.0);
+        Assert.assertEquals(1.0, Evaluation.accuracy(network.toNeuralNetwork(), INPUTS, TARGETS), 0.0);
+    }
+
+    @Test
+    public void train_float_followsDouble() {
+        NeuralNetwork network = new NeuralNetwork(0.3, 2, new int[][]{{8}}, 2);
+        FloatNetwork floatNetwork = new FloatNetwork(network);
+
+        for(int idxEpoch = 0; idxEpoch < 50; idxEpoch++) {
+            for(int idxSample = 0; idxSample < INPUTS.length; idxSample++) {
+                network.train(INPUTS[idxSample], TARGETS[idxSample]);
+                floatNetwork.train(INPUTS[idxSample], TARGETS[idxSample]);
+            }
+        }
+
+        for(double[] input : INPUTS) {
+            Assert.assertArrayEquals(network.fire(input), floatNetwork.fire(input, new double[2]), 1e-4);
+        }
+    }
+
+    @Test
+    public void precisionReport() {
+        Random random = new Random(11);
+        int size = 50;
+        byte[] labels = new byte[size];
+        byte[] pixels = new byte[size * 16];
+        random.nextBytes(pixels);
+        for(int idx = 0; idx < size; idx++) {
+            labels[idx] = (byte) random.nextInt(10);
+        }
+
+        PrecisionReport report = PrecisionReport.compare(new NeuralNetwork(16, new int[][]{{12}}, 10),
+                new InMemoryDataset(size, 16, labels, pixels));
+
+        Assert.assertEquals(Precision.values().length, report.getEntries().size());
+        Assert.assertEquals(0.0, report.getEntry(Precision.DOUBLE).getMaxDifference(), 0.0);
+        Assert.assertEquals(1.0, report.getEntry(Precision.DOUBLE).getAgreement(), 0.0);
+        Assert.assertTrue(report.getEntry(Precision.FLOAT).getMaxDifference() < 1e-5);
+        Assert.assertTrue(report.getEntry(Precision.INT8).getMaxDifference() < 0.05);
+        System.out.print(report);
+    }
+}
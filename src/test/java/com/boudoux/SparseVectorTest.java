@@ -0,0 +1,82 @@
+package com.boudoux;
+
+import com.boudoux.util.Utils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class SparseVectorTest {
+
+    private static double[][] withZeros(int totalSamples, int size, double density, Random random) {
+        double[][] inputs = new double[totalSamples][size];
+        for(double[] input : inputs) {
+            for(int idx = 0; idx < size; idx++) {
+                if(random.nextDouble() < density) {
+                    input[idx] = random.nextDouble();
+                }
+            }
+        }
+
+        return inputs;
+    }
+
+    @Test
+    public void set_keepsOnlyTheNonZeroValues() {
+        double[] dense = Utils.arr(0.0, 0.5, 0.0, 0.0, -0.25, 0.0);
+        SparseVector sparse = SparseVector.of(dense);
+
+        Assert.assertEquals(6, sparse.getSize());
+        Assert.assertEquals(2, sparse.getCount());
+        Assert.assertEquals(2 / 6.0, sparse.getDensity(), 0.0);
+        Assert.assertArrayEquals(dense, sparse.toDense(new double[6]), 0.0);
+
+        sparse.set(new double[6]);
+        Assert.assertEquals(0, sparse.getCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void indicesMustBeIncreasing() {
+        new SparseVector(4, new int[]{2, 1}, Utils.arr(0.1, 0.2));
+    }
+
+    @Test
+    public void network_sparseInputsGiveTheSameResults() {
+        // the sparse kernels and the fallback to the dense ones
+        assertSameResults(0.1);
+        assertSameResults(0.6);
+    }
+
+    private static void assertSameResults(double density) {
+        Random random = new Random(3);
+        double[][] inputs = withZeros(20, 50, density, random);
+        double[][] targets = new double[inputs.length][3];
+        for(double[] target : targets) {
+            target[random.nextInt(3)] = 1.0;
+        }
+
+        NeuralNetwork dense = new NeuralNetwork(0.3, Activations.SIGMOID, Activations.SIGMOID, new int[]{50, 8, 3});
+        NeuralNetwork sparse = dense.copy();
+        SparseVector input = new SparseVector(50);
+        for(int count = 0; count < 10; count++) {
+            for(int idxSample = 0; idxSample < inputs.length; idxSample++) {
+                Assert.assertArrayEquals(dense.fire(inputs[idxSample]), sparse.fire(input.set(inputs[idxSample]), new double[3]), 1e-12);
+
+                dense.train(inputs[idxSample], targets[idxSample]);
+                sparse.train(input, targets[idxSample]);
+            }
+        }
+
+        for(int idxLayer = 0; idxLayer < dense.getTotalLayers(); idxLayer++) {
+            for(int idxParameter = 0; idxParameter < dense.getLayer(idxLayer).getParameters().length; idxParameter++) {
+                Assert.assertArrayEquals(dense.getLayer(idxLayer).getParameters()[idxParameter],
+                        sparse.getLayer(idxLayer).getParameters()[idxParameter], 1e-12);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void network_sparseInputOfWrongSize() {
+        new NeuralNetwork(3, new int[][]{{4}}, 2).fire(new SparseVector(4), new double[2]);
+    }
+}
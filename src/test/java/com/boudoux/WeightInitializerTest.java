@@ -0,0 +1,105 @@
+package com.boudoux;
+
+import com.boudoux.util.Utils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+public class WeightInitializerTest {
+
+    private static final int[] NODES = new int[]{300, 200, 10};
+
+    @Test
+    public void initialize_sameWeightsWhateverTheThreads() {
+        NeuralNetwork single = new NeuralNetwork(0.1, Activations.RELU, Activations.SIGMOID, NODES);
+        NeuralNetwork parallel = new NeuralNetwork(0.1, Activations.RELU, Activations.SIGMOID, NODES);
+        NeuralNetwork otherSeed = new NeuralNetwork(0.1, Activations.RELU, Activations.SIGMOID, NODES);
+
+        ForkJoinPool onePool = new ForkJoinPool(1);
+        ForkJoinPool fourPool = new ForkJoinPool(4);
+        try {
+            new WeightInitializer(7L, WeightInitializer.Scheme.HE).initialize(single, onePool);
+            new WeightInitializer(7L, WeightInitializer.Scheme.HE).initialize(parallel, fourPool);
+            new WeightInitializer(8L, WeightInitializer.Scheme.HE).initialize(otherSeed, fourPool);
+        } finally {
+            onePool.shutdown();
+            fourPool.shutdown();
+        }
+
+        // the first layer spans several chunks
+        Assert.assertTrue(single.getLayerWeights(0).getRows() * single.getLayerWeights(0).getColumns() > WeightInitializer.CHUNK_SIZE);
+        for(int idxLayer = 0; idxLayer < single.getTotalLayers(); idxLayer++) {
+            Assert.assertArrayEquals(single.getLayer(idxLayer).getParameters()[0], parallel.getLayer(idxLayer).getParameters()[0], 0.0);
+        }
+        Assert.assertNotEquals(single.getLayer(0).getParameters()[0][0], otherSeed.getLayer(0).getParameters()[0][0], 0.0);
+    }
+
+    @Test
+    public void initialize_keepsEachSchemeWithinItsBounds() {
+        NeuralNetwork network = new NeuralNetwork(0.1, Activations.RELU, Activations.SIGMOID, NODES);
+        network.getLayerBiases(0)[0] = 1.0;
+
+        for(WeightInitializer.Scheme scheme : WeightInitializer.Scheme.values()) {
+            new WeightInitializer(11L, scheme).initialize(network);
+
+            WeightMatrix weights = network.getLayerWeights(0);
+            int rows = weights.getRows();
+            int columns = weights.getColumns();
+            double sum = 0.0;
+            for(double weight : weights.values) {
+                switch(scheme) {
+                    case BOOK:
+                        Assert.assertTrue(Math.abs(weight) >= 0.01 && Math.abs(weight) < 1.0 / Math.sqrt(rows) + 0.01);
+                        break;
+                    case XAVIER:
+                        Assert.assertTrue(Math.abs(weight) < Math.sqrt(6.0 / (rows + columns)));
+                        break;
+                    case HE:
+                        Assert.assertTrue(Math.abs(weight) < Math.sqrt(6.0 / columns));
+                        break;
+                }
+                sum += weight;
+            }
+
+            // centered on zero
+            Assert.assertEquals(0.0, sum / weights.values.length, 0.01);
+            Assert.assertEquals(0.0, network.getLayerBiases(0)[0], 0.0);
+        }
+    }
+
+    @Test
+    public void constructor_seededNetworksFireTheSame() {
+        int[] nodes = new int[]{4, 8, 3};
+        NeuralNetwork first = new NeuralNetwork(0.1, Activations.TANH, Activations.SOFTMAX, nodes,
+                new WeightInitializer(3L, WeightInitializer.Scheme.XAVIER));
+        NeuralNetwork second = new NeuralNetwork(0.1, Activations.TANH, Activations.SOFTMAX, nodes,
+                new WeightInitializer(3L, WeightInitializer.Scheme.XAVIER));
+
+        double[] input = Utils.arr(0.1, 0.5, 0.9, 0.3);
+        Assert.assertArrayEquals(first.fire(input), second.fire(input), 0.0);
+    }
+
+    @Test
+    public void initialize_millionsOfParametersAgainWithTheSameSeed() {
+        NeuralNetwork network = new NeuralNetwork(0.1, Activations.RELU, Activations.SOFTMAX, new int[]{2048, 1024, 1024, 10});
+        WeightInitializer initializer = new WeightInitializer(42L, WeightInitializer.Scheme.HE);
+
+        initializer.initialize(network);
+        double[][] first = new double[network.getTotalLayers()][];
+        for(int idxLayer = 0; idxLayer < first.length; idxLayer++) {
+            first[idxLayer] = network.getLayerWeights(idxLayer).values.clone();
+        }
+
+        initializer.initialize(network);
+        for(int idxLayer = 0; idxLayer < first.length; idxLayer++) {
+            WeightMatrix weights = network.getLayerWeights(idxLayer);
+            Assert.assertArrayEquals(first[idxLayer], weights.values, 0.0);
+
+            double limit = Math.sqrt(6.0 / weights.getColumns());
+            for(double weight : weights.values) {
+                Assert.assertTrue(Math.abs(weight) < limit);
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.boudoux;
+
+import com.boudoux.util.Utils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+public class WeightMatrixTest {
+
+    private static final double[][] LINK_WEIGHTS = new double[][]{{0.9, 0.2, 0.1}, {0.3, 0.8, 0.5}};
+
+    @Test
+    public void fromLinkWeights_storesOneRowByNodeOfTheNextLayer() {
+        WeightMatrix matrix = WeightMatrix.fromLinkWeights(LINK_WEIGHTS);
+
+        Assert.assertEquals(3, matrix.getRows());
+        Assert.assertEquals(2, matrix.getColumns());
+        Assert.assertEquals(0.3, matrix.get(0, 1), 0.0);
+        Assert.assertEquals(0.1, matrix.get(2, 0), 0.0);
+    }
+
+    @Test
+    public void toLinkWeights_roundTrip() {
+        double[][] exported = WeightMatrix.fromLinkWeights(LINK_WEIGHTS).toLinkWeights();
+
+        Assert.assertArrayEquals(LINK_WEIGHTS[0], exported[0], 0.0);
+        Assert.assertArrayEquals(LINK_WEIGHTS[1], exported[1], 0.0);
+    }
+
+    @Test
+    public void multiply_and_multiplyTransposed() {
+        WeightMatrix matrix = WeightMatrix.fromLinkWeights(LINK_WEIGHTS);
+
+        double[] output = new double[3];
+        matrix.multiply(Utils.arr(1.0, 2.0), output);
+        Assert.assertArrayEquals(Utils.arr(1.5, 1.8, 1.1), output, 1e-12);
+
+        double[] transposed = new double[2];
+        matrix.multiplyTransposed(Utils.arr(1.0, 1.0, 1.0), transposed);
+        Assert.assertArrayEquals(Utils.arr(1.2, 1.6), transposed, 1e-12);
+    }
+
+    @Test
+    public void addOuterProduct() {
+        WeightMatrix matrix = new WeightMatrix(2, 2);
+
+        matrix.addOuterProduct(Utils.arr(1.0, 2.0), Utils.arr(3.0, 4.0));
+
+        Assert.assertEquals(3.0, matrix.get(0, 0), 0.0);
+        Assert.assertEquals(8.0, matrix.get(1, 1), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromLinkWeights_jaggedRowsAreRejected() {
+        WeightMatrix.fromLinkWeights(new double[][]{{0.1, 0.2}, {0.3}});
+    }
+
+    @Test
+    public void batchKernels_matchTheSingleSampleOnesAcrossTiles() {
+        int rows = DenseKernels.ROW_BLOCK + 7, columns = DenseKernels.COLUMN_BLOCK + 13, samples = DenseKernels.SAMPLE_BLOCK + 3;
+        Random random = new Random(42);
+
+        WeightMatrix matrix = new WeightMatrix(rows, columns);
+        for(int idx = 0; idx < matrix.values.length; idx++) {
+            matrix.values[idx] = random.nextDouble() - 0.5;
+        }
+
+        double[][] inputs = new double[samples][columns];
+        double[][] errors = new double[samples][rows];
+        for(int idxSample = 0; idxSample < samples; idxSample++) {
+            for(int idx = 0; idx < columns; idx++) inputs[idxSample][idx] = random.nextDouble();
+            for(int idx = 0; idx < rows; idx++) errors[idxSample][idx] = random.nextDouble() - 0.5;
+        }
+
+        double[][] outputs = new double[samples][rows];
+        double[][] propagated = new double[samples][columns];
+        matrix.multiplyBatch(inputs, outputs, samples);
+        matrix.multiplyTransposedBatch(errors, propagated, samples);
+
+        for(int idxSample = 0; idxSample < samples; idxSample++) {
+            double[] output = new double[rows];
+            matrix.multiply(inputs[idxSample], output);
+            Assert.assertArrayEquals(output, outputs[idxSample], 0.0);
+
+            double[] expected = new double[columns];
+            matrix.multiplyTransposed(errors[idxSample], expected);
+            Assert.assertArrayEquals(expected, propagated[idxSample], 0.0);
+        }
+    }
+
+    @Test
+    public void offHeap_givesTheSameValuesAcrossTiles() {
+        // several rows by tile, and rows wider than a tile
+        for(int columns : new int[]{7, WeightMatrix.TILE_SIZE + 5}) {
+            int rows = 300, samples = 3;
+            Random random = new Random(columns);
+
+            WeightMatrix heap = new WeightMatrix(rows, columns);
+            for(int idx = 0; idx < heap.values.length; idx++) {
+                heap.values[idx] = random.nextDouble() - 0.5;
+            }
+            WeightMatrix offHeap = WeightMatrix.allocateDirect(rows, columns);
+            offHeap.copyFrom(heap);
+            Assert.assertTrue(offHeap.isOffHeap());
+
+            double[][] inputs = new double[samples][columns];
+            double[][] errors = new double[samples][rows];
+            for(int idxSample = 0; idxSample < samples; idxSample++) {
+                for(int idx = 0; idx < columns; idx++) inputs[idxSample][idx] = idx % 3 == 0 ? random.nextDouble() : 0.0;
+                for(int idx = 0; idx < rows; idx++) errors[idxSample][idx] = random.nextDouble() - 0.5;
+            }
+            SparseVector sparse = SparseVector.of(inputs[0]);
+
+            Assert.assertArrayEquals(apply(heap, inputs, errors, sparse), apply(offHeap, inputs, errors, sparse));
+            for(int idxRow = 0; idxRow < rows; idxRow++) {
+                double[] expected = new double[columns];
+                double[] actual = new double[columns];
+                heap.copyRow(idxRow, expected);
+                offHeap.copyRow(idxRow, actual);
+                Assert.assertArrayEquals(expected, actual, 0.0);
+            }
+        }
+    }
+
+    // runs every kernel, the ones updating the weights last
+    private static double[][] apply(WeightMatrix matrix, double[][] inputs, double[][] errors, SparseVector sparse) {
+        int rows = matrix.getRows(), columns = matrix.getColumns(), samples = inputs.length;
+        double[][] results = new double[8][];
+
+        results[0] = new double[rows];
+        matrix.multiply(inputs[0], results[0]);
+        results[1] = new double[rows];
+        matrix.multiply(sparse, results[1]);
+        results[2] = new double[columns];
+        matrix.multiplyTransposed(errors[0], results[2]);
+
+        double[][] outputs = new double[samples][rows];
+        double[][] propagated = new double[samples][columns];
+        matrix.multiplyBatch(inputs, outputs, samples);
+        matrix.multiplyTransposedBatch(errors, propagated, samples);
+        results[3] = outputs[samples - 1];
+        results[4] = propagated[samples - 1];
+
+        matrix.addOuterProduct(errors[1], inputs[1]);
+        matrix.addOuterProduct(errors[2], sparse);
+        results[5] = new double[columns];
+        matrix.multiplyTransposedAndAddOuterProduct(errors[0], results[5], errors[1], inputs[2]);
+
+        double[] changes = new double[rows * columns];
+        Arrays.fill(changes, 0.25);
+        matrix.add(changes);
+        matrix.add(columns + 1, changes, columns);
+        results[6] = new double[rows];
+        matrix.multiply(inputs[0], results[6]);
+        results[7] = new double[]{matrix.get(rows - 1, columns - 1), matrix.get(1, 1)};
+
+        return results;
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void wrap_readOnlyBufferCanNotBeChanged() {
+        ByteBuffer buffer = ByteBuffer.allocate(6 * Double.BYTES);
+        buffer.asDoubleBuffer().put(new double[]{0.1, 0.2, 0.3, 0.4, 0.5, 0.6});
+        WeightMatrix matrix = WeightMatrix.wrap(3, 2, buffer.asReadOnlyBuffer());
+
+        Assert.assertTrue(matrix.isReadOnly());
+        Assert.assertArrayEquals(Utils.arr(0.5, 1.1, 1.7), multiply(matrix, Utils.arr(1.0, 2.0)), 1e-12);
+
+        matrix.addOuterProduct(Utils.arr(1.0, 1.0, 1.0), Utils.arr(1.0, 1.0));
+    }
+
+    private static double[] multiply(WeightMatrix matrix, double[] input) {
+        double[] output = new double[matrix.getRows()];
+        matrix.multiply(input, output);
+        return output;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void allocateDirect_beyond2GB() {
+        WeightMatrix.allocateDirect(20_000, 20_000);
+    }
+}
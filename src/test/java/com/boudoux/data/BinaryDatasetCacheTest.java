@@ -0,0 +1,105 @@
+package com.boudoux.data;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Random;
+
+public class BinaryDatasetCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path csv(String content) throws IOException {
+        Path path = folder.getRoot().toPath().resolve("dataset.csv");
+        Files.write(path, content.getBytes(StandardCharsets.US_ASCII));
+        return path;
+    }
+
+    @Test
+    public void open_matchesTheCsv() throws IOException {
+        Path csv = csv("7,0,255,128\n2,1,2,3\n9,4,5,6\n");
+
+        MappedDataset mapped = BinaryDatasetCache.open(csv, 3);
+        InMemoryDataset parsed = new CsvDatasetReader(csv, 3).load();
+
+        Assert.assertEquals(parsed.size(), mapped.size());
+        Assert.assertEquals(3, mapped.getInputSize());
+        for(int idxSample = 0; idxSample < parsed.size(); idxSample++) {
+            Assert.assertEquals(parsed.getLabel(idxSample), mapped.getLabel(idxSample));
+
+            double[] expected = new double[3];
+            double[] actual = new double[3];
+            parsed.copyInput(idxSample, expected);
+            mapped.copyInput(idxSample, actual);
+            Assert.assertArrayEquals(expected, actual, 0.0);
+        }
+    }
+
+    @Test
+    public void open_rebuildsWhenTheCsvChanges() throws IOException {
+        Path csv = csv("1,10,20\n");
+        Path cache = csv.resolveSibling("dataset.csv" + BinaryDatasetCache.EXTENSION);
+
+        Assert.assertEquals(1, BinaryDatasetCache.open(csv, 2).size());
+        Assert.assertTrue(BinaryDatasetCache.isUpToDate(csv, 2, CsvDatasetReader.MAX_LABELS, cache));
+
+        Files.write(csv, "1,10,20\n2,30,40\n".getBytes(StandardCharsets.US_ASCII));
+        Files.setLastModifiedTime(csv, FileTime.fromMillis(Files.getLastModifiedTime(csv).toMillis() + 1000));
+        Assert.assertFalse(BinaryDatasetCache.isUpToDate(csv, 2, CsvDatasetReader.MAX_LABELS, cache));
+
+        MappedDataset dataset = BinaryDatasetCache.open(csv, 2);
+        Assert.assertEquals(2, dataset.size());
+        Assert.assertEquals(2, dataset.getLabel(1));
+    }
+
+    @Test
+    public void open_rejectsLabelsBeyondTheOutputNodes() throws IOException {
+        Path csv = csv("3,10,20\n12,30,40\n");
+        Path cache = csv.resolveSibling("dataset.csv" + BinaryDatasetCache.EXTENSION);
+
+        // built for more labels, then opened for a network with fewer output nodes
+        Assert.assertEquals(2, BinaryDatasetCache.open(csv, 2, 16).size());
+        Assert.assertFalse(BinaryDatasetCache.isUpToDate(csv, 2, 10, cache));
+
+        try {
+            BinaryDatasetCache.open(csv, 2, 10);
+            Assert.fail("The label 12 is beyond the 10 output nodes");
+        } catch(IOException e) {
+            // the cache built for 16 labels is left as it was
+            Assert.assertTrue(BinaryDatasetCache.isUpToDate(csv, 2, 16, cache));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void map_rejectsOtherFiles() throws IOException {
+        Path other = folder.newFile().toPath();
+        Files.write(other, new byte[BinaryDatasetCache.HEADER_SIZE]);
+
+        MappedDataset.map(other);
+    }
+
+    @Test
+    public void sampleOrder_shuffleKeepsEverySample() {
+        SampleOrder order = new SampleOrder(100);
+        order.shuffle(new Random(3));
+
+        int[] visited = new int[order.size()];
+        for(int position = 0; position < order.size(); position++) {
+            visited[position] = order.get(position);
+        }
+        Arrays.sort(visited);
+
+        for(int idx = 0; idx < visited.length; idx++) {
+            Assert.assertEquals(idx, visited[idx]);
+        }
+    }
+}
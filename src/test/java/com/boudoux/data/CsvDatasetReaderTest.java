@@ -0,0 +1,97 @@
+package com.boudoux.data;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CsvDatasetReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path write(String content) throws IOException {
+        Path path = folder.newFile().toPath();
+        Files.write(path, content.getBytes(StandardCharsets.US_ASCII));
+        return path;
+    }
+
+    @Test
+    public void load() throws IOException {
+        InMemoryDataset dataset = new CsvDatasetReader(write("7,0,255,128\r\n2,1,2,3\n\n"), 3).load();
+
+        Assert.assertEquals(2, dataset.size());
+        Assert.assertEquals(7, dataset.getLabel(0));
+        Assert.assertEquals(2, dataset.getLabel(1));
+
+        double[] input = new double[3];
+        dataset.copyInput(0, input);
+        Assert.assertArrayEquals(new double[]{0.01, 255 / 255.0 * 0.99 + 0.01, 128 / 255.0 * 0.99 + 0.01}, input, 0.0);
+
+        byte[] pixels = new byte[3];
+        dataset.copyPixels(1, pixels);
+        Assert.assertArrayEquals(new byte[]{1, 2, 3}, pixels);
+
+        double[] target = new double[10];
+        dataset.copyTarget(0, target);
+        Assert.assertEquals(Dataset.TARGET_ON, target[7], 0.0);
+        Assert.assertEquals(Dataset.TARGET_OFF, target[0], 0.0);
+    }
+
+    @Test
+    public void load_lastLineWithoutLineBreak() throws IOException {
+        InMemoryDataset dataset = new CsvDatasetReader(write("1,10,20\n3,30,40"), 2).load();
+
+        Assert.assertEquals(2, dataset.size());
+        Assert.assertEquals(3, dataset.getLabel(1));
+    }
+
+    @Test
+    public void forEach_streamsFilesLargerThanTheBuffer() throws IOException {
+        StringBuilder content = new StringBuilder();
+        int totalSamples = 2 * CsvDatasetReader.BUFFER_SIZE / 100;
+        for(int idxSample = 0; idxSample < totalSamples; idxSample++) {
+            content.append(idxSample % 10);
+            for(int idx = 0; idx < 30; idx++) {
+                content.append(',').append((idxSample + idx) % 256);
+            }
+            content.append('\n');
+        }
+
+        List<Integer> labels = new ArrayList<>();
+        long read = new CsvDatasetReader(write(content.toString()), 30).forEach((label, pixels) -> {
+            Assert.assertEquals((labels.size() + 29) % 256, pixels[29] & 0xFF);
+            labels.add(label);
+        });
+
+        Assert.assertEquals(totalSamples, read);
+        Assert.assertEquals(Integer.valueOf(9), labels.get(9));
+    }
+
+    @Test(expected = IOException.class)
+    public void load_missingPixels() throws IOException {
+        new CsvDatasetReader(write("1,10\n"), 2).load();
+    }
+
+    @Test(expected = IOException.class)
+    public void load_valueOutOfRange() throws IOException {
+        new CsvDatasetReader(write("1,10,256\n"), 2).load();
+    }
+
+    @Test
+    public void load_labelBeyondTheOutputNodes() throws IOException {
+        try {
+            new CsvDatasetReader(write("3,10,20\n10,30,40\n"), 2, 10).load();
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("line 2"));
+        }
+    }
+}
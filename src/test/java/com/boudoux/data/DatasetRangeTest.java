@@ -0,0 +1,37 @@
+package com.boudoux.data;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DatasetRangeTest {
+
+    private static InMemoryDataset dataset() {
+        byte[] labels = new byte[]{3, 1, 4, 1, 5};
+        byte[] pixels = new byte[]{0, 10, 20, 30, 40, 50, 60, 70, 80, 90};
+
+        return new InMemoryDataset(5, 2, labels, pixels);
+    }
+
+    @Test
+    public void samplesAreOffset() {
+        InMemoryDataset dataset = dataset();
+        DatasetRange range = new DatasetRange(dataset, 2, 5);
+
+        Assert.assertEquals(3, range.size());
+        Assert.assertEquals(2, range.getInputSize());
+        for(int idxSample = 0; idxSample < range.size(); idxSample++) {
+            Assert.assertEquals(dataset.getLabel(2 + idxSample), range.getLabel(idxSample));
+
+            double[] expected = new double[2];
+            double[] actual = new double[2];
+            dataset.copyInput(2 + idxSample, expected);
+            range.copyInput(idxSample, actual);
+            Assert.assertArrayEquals(expected, actual, 0.0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rangeMustFitTheDataset() {
+        new DatasetRange(dataset(), 3, 6);
+    }
+}
@@ -0,0 +1,194 @@
+package com.boudoux.io;
+
+import com.boudoux.Activations;
+import com.boudoux.NeuralNetwork;
+import com.boudoux.util.Utils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class ModelFormatTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final double[] INPUT = Utils.arr(0.1, 0.5, 0.9, 0.3);
+
+    @Test
+    public void writeAndRead_doubles() throws IOException {
+        NeuralNetwork network = new NeuralNetwork(0.2, Activations.TANH, Activations.SOFTMAX, 4, new int[][]{{6}, {5}}, 3, null);
+        network.setBatchSize(16);
+        Path path = folder.getRoot().toPath().resolve("model.nn");
+
+        ModelFormat.write(network, path);
+        NeuralNetwork loaded = ModelFormat.read(path);
+
+        Assert.assertEquals(0.2, loaded.getLearningRate(), 0.0);
+        Assert.assertEquals(16, loaded.getBatchSize());
+        Assert.assertEquals(3, loaded.getTotalLayers());
+        Assert.assertEquals(Activations.TANH, loaded.getActivation(0));
+        Assert.assertEquals(Activations.SOFTMAX, loaded.getActivation(2));
+        Assert.assertArrayEquals(network.fire(INPUT), loaded.fire(INPUT), 0.0);
+    }
+
+    @Test
+    public void writeAndRead_floats() throws IOException {
+        NeuralNetwork network = new NeuralNetwork(4, new int[][]{{6}}, 3);
+        Path path = folder.getRoot().toPath().resolve("model.nn");
+
+        ModelFormat.write(network, path, true);
+        NeuralNetwork loaded = ModelFormat.read(path);
+
+        Assert.assertArrayEquals(network.fire(INPUT), loaded.fire(INPUT), 1e-6);
+    }
+
+    @Test
+    public void writeAndRead_biases() throws IOException {
+        NeuralNetwork network = new NeuralNetwork(0.2, Activations.SIGMOID, Activations.SIGMOID, new int[]{4, 6, 3});
+        for(int count = 0; count < 10; count++) {
+            network.train(INPUT, Utils.arr(0.99, 0.01, 0.01));
+        }
+        Path path = folder.getRoot().toPath().resolve("model.nn");
+
+        ModelFormat.write(network, path);
+        NeuralNetwork loaded = ModelFormat.read(path);
+
+        Assert.assertArrayEquals(network.getLayerBiases(0), loaded.getLayerBiases(0), 0.0);
+        Assert.assertArrayEquals(network.fire(INPUT), loaded.fire(INPUT), 0.0);
+    }
+
+    @Test
+    public void read_version1() throws IOException {
+        NeuralNetwork network = new NeuralNetwork(4, new int[][]{{6}}, 3);
+        Path path = folder.getRoot().toPath().resolve("model.nn");
+        ModelFormat.write(network, path);
+
+        // the header of two layers takes 48 bytes plus 8 bytes of bias flags, without padding in both versions
+        byte[] content = Files.readAllBytes(path);
+        ByteBuffer version1 = ByteBuffer.allocate(content.length - 8).order(ByteOrder.LITTLE_ENDIAN);
+        version1.put(content, 0, 48).put(content, 56, content.length - 56);
+        version1.putInt(4, 1);
+        Files.write(path, version1.array());
+
+        NeuralNetwork loaded = ModelFormat.read(path);
+
+        Assert.assertNull(loaded.getLayerBiases(0));
+        Assert.assertArrayEquals(network.fire(INPUT), loaded.fire(INPUT), 0.0);
+    }
+
+    @Test
+    public void map_firesTheSavedWeightsInPlace() throws IOException {
+        NeuralNetwork network = new NeuralNetwork(0.2, Activations.SIGMOID, Activations.SIGMOID, new int[]{4, 6, 3});
+        for(int count = 0; count < 10; count++) {
+            network.train(INPUT, Utils.arr(0.99, 0.01, 0.01));
+        }
+        Path path = folder.getRoot().toPath().resolve("model.nn");
+
+        ModelFormat.write(network, path);
+        NeuralNetwork mapped = ModelFormat.map(path);
+        NeuralNetwork other = ModelFormat.map(path);
+
+        Assert.assertTrue(mapped.getLayerWeights(0).isReadOnly());
+        Assert.assertTrue(mapped.getLayerWeights(1).isReadOnly());
+        Assert.assertArrayEquals(network.getLayerBiases(1), mapped.getLayerBiases(1), 0.0);
+        Assert.assertArrayEquals(network.fire(INPUT), mapped.fire(INPUT, new double[3]), 0.0);
+        Assert.assertArrayEquals(mapped.fire(INPUT, new double[3]), other.fire(INPUT, new double[3]), 0.0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void map_cannotBeTrained() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("model.nn");
+        ModelFormat.write(new NeuralNetwork(4, new int[][]{{6}}, 3), path);
+
+        ModelFormat.map(path).train(INPUT, Utils.arr(0.99, 0.01, 0.01));
+    }
+
+    @Test(expected = IOException.class)
+    public void map_floatsAreRejected() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("model.nn");
+        ModelFormat.write(new NeuralNetwork(4, new int[][]{{6}}, 3), path, true);
+
+        ModelFormat.map(path);
+    }
+
+    @Test
+    public void read_invalidNodesOrBatchSize() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("model.nn");
+        ModelFormat.write(new NeuralNetwork(4, new int[][]{{6}}, 3), path);
+        byte[] content = Files.readAllBytes(path);
+
+        // the batch size at 24, then the nodes of the Input, Hidden and Output Layers
+        for(int offset : new int[]{24, 28, 32}) {
+            ByteBuffer corrupted = ByteBuffer.wrap(content.clone()).order(ByteOrder.LITTLE_ENDIAN);
+            corrupted.putInt(offset, offset == 32 ? -6 : 0);
+            Files.write(path, corrupted.array());
+
+            try {
+                ModelFormat.read(path);
+                Assert.fail();
+            } catch (IOException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Corrupted header"));
+            }
+        }
+    }
+
+    @Test
+    public void read_hugeTotalOfLayers() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("model.nn");
+        ModelFormat.write(new NeuralNetwork(4, new int[][]{{6}}, 3), path);
+        byte[] content = Files.readAllBytes(path);
+
+        // the total of layers at 12, whose header size would overflow an int
+        for(int totalLayers : new int[]{Integer.MAX_VALUE, 1 << 29}) {
+            ByteBuffer corrupted = ByteBuffer.wrap(content.clone()).order(ByteOrder.LITTLE_ENDIAN);
+            corrupted.putInt(12, totalLayers);
+            Files.write(path, corrupted.array());
+
+            try {
+                ModelFormat.read(path);
+                Assert.fail();
+            } catch (IOException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Corrupted header"));
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void read_truncatedFile() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("model.nn");
+        ModelFormat.write(new NeuralNetwork(4, new int[][]{{6}}, 3), path);
+
+        byte[] content = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(content, content.length - 8));
+
+        ModelFormat.read(path);
+    }
+
+    @Test
+    public void javaSerialization() throws IOException, ClassNotFoundException {
+        NeuralNetwork network = new NeuralNetwork(4, new int[][]{{6}}, 3);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(network);
+        }
+
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            NeuralNetwork loaded = (NeuralNetwork) in.readObject();
+
+            Assert.assertArrayEquals(network.fire(INPUT), loaded.fire(INPUT), 0.0);
+        }
+    }
+}
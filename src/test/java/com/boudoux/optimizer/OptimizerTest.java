@@ -0,0 +1,200 @@
+package com.boudoux.optimizer;
+
+import com.boudoux.Activations;
+import com.boudoux.Gradients;
+import com.boudoux.Layer;
+import com.boudoux.NeuralNetwork;
+import com.boudoux.Optimizer;
+import com.boudoux.training.HogwildTrainer;
+import com.boudoux.training.ParallelTrainer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class OptimizerTest {
+
+    private static final double[][] INPUTS = new double[][]{{0.01, 0.01}, {0.01, 0.99}, {0.99, 0.01}, {0.99, 0.99}};
+
+    private static final double[][] TARGETS = new double[][]{{0.99, 0.01}, {0.01, 0.99}, {0.01, 0.99}, {0.99, 0.01}};
+
+    // 2-6-2 weights drawn from a fixed seed, so the comparisons do not depend on the draw
+    private static double[][][] seededWeights() {
+        Random random = new Random(1);
+        double[][][] weights = new double[][][]{new double[2][6], new double[6][2]};
+        for(double[][] layer : weights) {
+            for(double[] links : layer) {
+                for(int idx = 0; idx < links.length; idx++) {
+                    links[idx] = random.nextGaussian() * 0.5;
+                }
+            }
+        }
+
+        return weights;
+    }
+
+    private static Layer[] layers(NeuralNetwork network) {
+        Layer[] layers = new Layer[network.getTotalLayers()];
+        for(int idxLayer = 0; idxLayer < layers.length; idxLayer++) {
+            layers[idxLayer] = network.getLayer(idxLayer);
+        }
+
+        return layers;
+    }
+
+    // a single layer of 2 weights and 1 bias whose gradients are all the given value
+    private static NeuralNetwork single(Gradients[] gradients, double value) {
+        NeuralNetwork network = new NeuralNetwork(0.1, Activations.SIGMOID, Activations.SIGMOID, new int[]{2, 1});
+        network.getLayer(0).getParameters()[0][0] = 0.0;
+        network.getLayer(0).getParameters()[0][1] = 0.0;
+
+        gradients[0] = network.newGradients();
+        for(int idxParameter = 0; idxParameter < gradients[0].getTotalParameters(0); idxParameter++) {
+            Arrays.fill(gradients[0].getLayerGradients(0, idxParameter), value);
+        }
+
+        return network;
+    }
+
+    private static double meanSquaredError(NeuralNetwork network) {
+        double total = 0.0;
+        for(int idxSample = 0; idxSample < INPUTS.length; idxSample++) {
+            double[] output = network.fire(INPUTS[idxSample]);
+            for(int idxNode = 0; idxNode < output.length; idxNode++) {
+                total += (TARGETS[idxSample][idxNode] - output[idxNode]) * (TARGETS[idxSample][idxNode] - output[idxNode]);
+            }
+        }
+
+        return total / (INPUTS.length * 2);
+    }
+
+    @Test
+    public void momentum_accumulatesTheVelocity() {
+        Gradients[] gradients = new Gradients[1];
+        NeuralNetwork network = single(gradients, 0.5);
+        Optimizer optimizer = new Momentum(0.9, false);
+
+        optimizer.update(layers(network), gradients[0], 0.1);
+        Assert.assertEquals(0.05, network.getLayer(0).getParameters()[0][0], 1e-15);
+
+        optimizer.update(layers(network), gradients[0], 0.1);
+        Assert.assertEquals(0.05 + 0.1 * (0.9 * 0.5 + 0.5), network.getLayer(0).getParameters()[0][0], 1e-15);
+        Assert.assertEquals(0.05 + 0.1 * (0.9 * 0.5 + 0.5), network.getLayerBiases(0)[0], 1e-15);
+
+        optimizer.reset();
+        optimizer.update(layers(network), gradients[0], 0.1);
+        Assert.assertEquals(0.05 + 0.095 + 0.05, network.getLayer(0).getParameters()[0][0], 1e-15);
+    }
+
+    @Test
+    public void nesterov_looksAhead() {
+        Gradients[] gradients = new Gradients[1];
+        NeuralNetwork network = single(gradients, 0.5);
+
+        new Momentum(0.9, true).update(layers(network), gradients[0], 0.1);
+
+        Assert.assertEquals(0.1 * (0.9 * 0.5 + 0.5), network.getLayer(0).getParameters()[0][0], 1e-15);
+    }
+
+    @Test
+    public void adam_firstStepIsTheLearningRate() {
+        Gradients[] gradients = new Gradients[1];
+        NeuralNetwork network = single(gradients, -0.003);
+        Adam adam = new Adam();
+
+        adam.update(layers(network), gradients[0], 0.01);
+
+        Assert.assertEquals(1L, adam.getSteps());
+        Assert.assertEquals(-0.01, network.getLayer(0).getParameters()[0][0], 1e-7);
+        Assert.assertEquals(-0.01, network.getLayerBiases(0)[0], 1e-7);
+    }
+
+    @Test
+    public void rmsProp_scalesByTheRootMeanSquare() {
+        Gradients[] gradients = new Gradients[1];
+        NeuralNetwork network = single(gradients, 0.2);
+
+        new RmsProp(0.9, 1e-8).update(layers(network), gradients[0], 0.01);
+
+        Assert.assertEquals(0.01 * 0.2 / (Math.sqrt(0.1 * 0.04) + 1e-8), network.getLayer(0).getParameters()[0][0], 1e-12);
+    }
+
+    @Test
+    public void momentumOfZero_matchesTheBookGradientDescent() {
+        double[][][] weights = new NeuralNetwork(2, new int[][]{{4}}, 2).getLayerLinkWeights();
+        NeuralNetwork book = new NeuralNetwork(0.3, Activations.SIGMOID, 2, new int[][]{{4}}, 2, weights);
+        NeuralNetwork optimized = new NeuralNetwork(0.3, Activations.SIGMOID, 2, new int[][]{{4}}, 2, weights);
+        optimized.setOptimizer(new Momentum(0.0, false));
+
+        for(int epoch = 0; epoch < 100; epoch++) {
+            for(int idxSample = 0; idxSample < INPUTS.length; idxSample++) {
+                book.train(INPUTS[idxSample], TARGETS[idxSample]);
+                optimized.train(INPUTS[idxSample], TARGETS[idxSample]);
+            }
+        }
+
+        for(int idxLayer = 0; idxLayer < book.getTotalLayers(); idxLayer++) {
+            Assert.assertArrayEquals(book.getLayer(idxLayer).getParameters()[0], optimized.getLayer(idxLayer).getParameters()[0], 1e-12);
+        }
+    }
+
+    @Test
+    public void optimizers_learnFasterThanTheBookGradientDescent() {
+        double[][][] weights = seededWeights();
+        Optimizer[] optimizers = new Optimizer[]{null, new Momentum(), new Momentum(0.9, true), new Adam(), new RmsProp()};
+        double[] learningRates = new double[]{0.3, 0.1, 0.1, 0.05, 0.05};
+        double[] errors = new double[optimizers.length];
+
+        for(int idxOptimizer = 0; idxOptimizer < optimizers.length; idxOptimizer++) {
+            NeuralNetwork network = new NeuralNetwork(learningRates[idxOptimizer], Activations.SIGMOID, 2, new int[][]{{6}}, 2, weights);
+            network.setOptimizer(optimizers[idxOptimizer]);
+
+            for(int epoch = 0; epoch < 500; epoch++) {
+                for(int idxSample = 0; idxSample < INPUTS.length; idxSample++) {
+                    network.train(INPUTS[idxSample], TARGETS[idxSample]);
+                }
+            }
+            errors[idxOptimizer] = meanSquaredError(network);
+        }
+
+        for(int idxOptimizer = 1; idxOptimizer < optimizers.length; idxOptimizer++) {
+            Assert.assertTrue(optimizers[idxOptimizer] + ": " + errors[idxOptimizer] + " vs " + errors[0], errors[idxOptimizer] < errors[0]);
+        }
+    }
+
+    @Test
+    public void trainBatch_parallelTrainerMatchesWithAnOptimizer() {
+        double[][][] weights = new NeuralNetwork(2, new int[][]{{4}}, 2).getLayerLinkWeights();
+        NeuralNetwork sequential = new NeuralNetwork(0.01, Activations.SIGMOID, 2, new int[][]{{4}}, 2, weights);
+        NeuralNetwork parallel = new NeuralNetwork(0.01, Activations.SIGMOID, 2, new int[][]{{4}}, 2, weights);
+        sequential.setOptimizer(new Adam());
+        parallel.setOptimizer(new Adam());
+        sequential.setBatchSize(4);
+        parallel.setBatchSize(4);
+
+        // the trainer does not shut down a pool it was given
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try(ParallelTrainer trainer = new ParallelTrainer(parallel, pool, true, 4)) {
+            for(int epoch = 0; epoch < 10; epoch++) {
+                sequential.trainBatch(INPUTS, TARGETS);
+                trainer.trainBatch(INPUTS, TARGETS);
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        for(int idxLayer = 0; idxLayer < sequential.getTotalLayers(); idxLayer++) {
+            Assert.assertArrayEquals(sequential.getLayer(idxLayer).getParameters()[0], parallel.getLayer(idxLayer).getParameters()[0], 0.0);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void hogwild_rejectsOptimizers() {
+        NeuralNetwork network = new NeuralNetwork(2, new int[][]{{4}}, 2);
+        network.setOptimizer(new Adam());
+
+        new HogwildTrainer(network, 2, 10).train(INPUTS, TARGETS, 1);
+    }
+}
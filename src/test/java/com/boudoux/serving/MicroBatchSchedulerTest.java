@@ -0,0 +1,174 @@
+package com.boudoux.serving;
+
+import com.boudoux.BatchWorkspace;
+import com.boudoux.NeuralNetwork;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class MicroBatchSchedulerTest {
+
+    @Test
+    public void submit_answersEveryRequestLikeFire() throws Exception {
+        NeuralNetwork network = new NeuralNetwork(8, new int[][]{{16}}, 4);
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+
+        try(MicroBatchScheduler scheduler = new MicroBatchScheduler(network, 16, 2_000)) {
+            List<Future<?>> submissions = new ArrayList<>();
+            for(int idxClient = 0; idxClient < 8; idxClient++) {
+                final int seed = idxClient;
+                submissions.add(clients.submit(() -> {
+                    for(int idxRequest = 0; idxRequest < 50; idxRequest++) {
+                        double[] input = new double[8];
+                        for(int idxNode = 0; idxNode < input.length; idxNode++) {
+                            input[idxNode] = ((seed * 31 + idxRequest * 7 + idxNode) % 13) / 13.0;
+                        }
+
+                        Assert.assertArrayEquals(network.fire(input), scheduler.submit(input).get(5, TimeUnit.SECONDS), 0.0);
+                    }
+                    return null;
+                }));
+            }
+
+            for(Future<?> submission : submissions) {
+                submission.get();
+            }
+
+            Assert.assertEquals(400L, scheduler.getLatencyMicros().getCount());
+            Assert.assertTrue(scheduler.getBatchSizes().getMax() <= 16);
+            Assert.assertTrue(scheduler.getLatencyMicros().getPercentile(50.0) <= scheduler.getLatencyMicros().getPercentile(99.0));
+        } finally {
+            clients.shutdown();
+        }
+    }
+
+    @Test
+    public void submit_firesFullBatchesWithoutWaiting() throws Exception {
+        NeuralNetwork network = new NeuralNetwork(2, new int[][]{{3}}, 1);
+
+        try(MicroBatchScheduler scheduler = new MicroBatchScheduler(network, 4, TimeUnit.SECONDS.toMicros(30))) {
+            List<CompletableFuture<double[]>> answers = new ArrayList<>();
+            for(int idxRequest = 0; idxRequest < 8; idxRequest++) {
+                answers.add(scheduler.submit(new double[]{0.1 * idxRequest, 0.5}));
+            }
+
+            for(CompletableFuture<double[]> answer : answers) {
+                Assert.assertEquals(1, answer.get(5, TimeUnit.SECONDS).length);
+            }
+
+            Assert.assertEquals(2L, scheduler.getBatchSizes().getCount());
+            Assert.assertEquals(4L, scheduler.getBatchSizes().getPercentile(50.0));
+        }
+    }
+
+    @Test
+    public void close_answersEveryRequestRacingWithIt() throws Exception {
+        NeuralNetwork network = new NeuralNetwork(2, new int[][]{{3}}, 1);
+        ExecutorService clients = Executors.newFixedThreadPool(4);
+
+        try {
+            for(int idxRound = 0; idxRound < 20; idxRound++) {
+                MicroBatchScheduler scheduler = new MicroBatchScheduler(network, 4, 50);
+                List<Future<List<CompletableFuture<double[]>>>> submissions = new ArrayList<>();
+                for(int idxClient = 0; idxClient < 4; idxClient++) {
+                    submissions.add(clients.submit(() -> {
+                        List<CompletableFuture<double[]>> answers = new ArrayList<>();
+                        try {
+                            while(true) {
+                                answers.add(scheduler.submit(new double[]{0.1, 0.5}));
+                            }
+                        } catch (IllegalStateException e) {
+                            // closed
+                        }
+                        return answers;
+                    }));
+                }
+
+                Thread.sleep(2);
+                scheduler.close();
+
+                for(Future<List<CompletableFuture<double[]>>> submission : submissions) {
+                    for(CompletableFuture<double[]> answer : submission.get()) {
+                        try {
+                            answer.get(5, TimeUnit.SECONDS);
+                        } catch (ExecutionException e) {
+                            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+                        }
+                    }
+                }
+            }
+        } finally {
+            clients.shutdown();
+        }
+    }
+
+    @Test
+    public void submit_failsEveryRequestWhenTheNetworkThrowsAnError() throws Exception {
+        NeuralNetwork network = new NeuralNetwork(2, new int[][]{{3}}, 1) {
+            @Override
+            public void fireBatch(double[][] inputs, int count, BatchWorkspace workspace, double[][] outputs) {
+                throw new StackOverflowError();
+            }
+        };
+
+        MicroBatchScheduler scheduler = new MicroBatchScheduler(network, 4, 50);
+        try {
+            scheduler.submit(new double[]{0.1, 0.5}).get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof StackOverflowError);
+        }
+
+        try {
+            scheduler.submit(new double[]{0.1, 0.5});
+            Assert.fail("The scheduler stopped with its dispatcher");
+        } catch (IllegalStateException e) {
+            // stopped
+        }
+        scheduler.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void submit_afterClose() {
+        MicroBatchScheduler scheduler = new MicroBatchScheduler(new NeuralNetwork(2, new int[][]{{3}}, 1));
+        scheduler.close();
+
+        scheduler.submit(new double[]{0.1, 0.2});
+    }
+
+    @Test
+    public void histogram_percentiles() {
+        Histogram histogram = new Histogram();
+        for(long value = 1; value <= 1_000; value++) {
+            histogram.record(value);
+        }
+
+        Assert.assertEquals(1_000L, histogram.getCount());
+        Assert.assertEquals(500.5, histogram.getMean(), 0.0);
+        Assert.assertEquals(1L, histogram.getPercentile(0.0));
+        Assert.assertEquals(1_000L, histogram.getPercentile(100.0));
+        Assert.assertEquals(500.0, histogram.getPercentile(50.0), 500 * 0.04);
+        Assert.assertEquals(990.0, histogram.getPercentile(99.0), 990 * 0.04);
+
+        histogram.reset();
+        Assert.assertEquals(0L, histogram.getPercentile(99.0));
+    }
+
+    @Test
+    public void histogram_bucketsAreContiguous() {
+        for(long value = 0; value < 100_000; value++) {
+            int bucket = Histogram.bucketOf(value);
+            Assert.assertTrue(value <= Histogram.upperBoundOf(bucket));
+            Assert.assertTrue(bucket == 0 || value > Histogram.upperBoundOf(bucket - 1));
+        }
+        Assert.assertEquals(Long.MAX_VALUE, Histogram.upperBoundOf(Histogram.bucketOf(Long.MAX_VALUE)));
+    }
+}
@@ -0,0 +1,177 @@
+package com.boudoux.serving;
+
+import com.boudoux.InferenceModel;
+import com.boudoux.NeuralNetwork;
+import com.boudoux.io.ModelFormat;
+import com.boudoux.util.Utils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ModelRegistryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final double[] INPUT = Utils.arr(0.1, 0.5, 0.9, 0.3);
+
+    @Test
+    public void fireEnsemble_averagesTheModels() {
+        NeuralNetwork small = new NeuralNetwork(4, new int[][]{{3}}, 2);
+        NeuralNetwork deep = new NeuralNetwork(4, new int[][]{{8}, {5}}, 2);
+        NeuralNetwork wide = new NeuralNetwork(4, new int[][]{{32}}, 2);
+
+        try(ModelRegistry registry = new ModelRegistry(3)) {
+            registry.register("small", small);
+            registry.register("deep", deep);
+            registry.register("wide", wide);
+
+            double[] expected = new double[2];
+            for(NeuralNetwork network : Arrays.asList(small, deep, wide)) {
+                double[] output = network.fire(INPUT);
+                for(int idxNode = 0; idxNode < expected.length; idxNode++) {
+                    expected[idxNode] += output[idxNode];
+                }
+            }
+            for(int idxNode = 0; idxNode < expected.length; idxNode++) {
+                expected[idxNode] /= 3;
+            }
+
+            Assert.assertArrayEquals(expected, registry.fireEnsemble(INPUT, new double[2]), 0.0);
+            Assert.assertEquals(Arrays.asList("small", "deep", "wide"), new ArrayList<>(registry.getNames()));
+        }
+    }
+
+    @Test
+    public void register_copiesTheNetwork() {
+        NeuralNetwork network = new NeuralNetwork(4, new int[][]{{3}}, 2);
+        double[] before = network.fire(INPUT);
+
+        try(ModelRegistry registry = new ModelRegistry(1)) {
+            registry.register("model", network);
+            for(int idx = 0; idx < 100; idx++) {
+                network.train(INPUT, Utils.arr(1.0, 0.0));
+            }
+
+            Assert.assertArrayEquals(before, registry.fire("model", INPUT, new double[2]), 0.0);
+            Assert.assertFalse(Arrays.equals(before, network.fire(INPUT)));
+
+            // only a view, which can not be trained
+            Assert.assertFalse(registry.getModel("model") instanceof NeuralNetwork);
+            Assert.assertArrayEquals(before, registry.getModel("model").fire(INPUT, new double[2]), 0.0);
+        }
+    }
+
+    @Test
+    public void fireEnsemble_followsTheRegistrations() {
+        NeuralNetwork first = new NeuralNetwork(4, new int[][]{{3}}, 2);
+        NeuralNetwork second = new NeuralNetwork(4, new int[][]{{5}}, 2);
+        double[] firstOutput = first.fire(INPUT);
+        double[] secondOutput = second.fire(INPUT);
+
+        try(ModelRegistry registry = new ModelRegistry(2)) {
+            registry.register("first", first);
+            double[] output = new double[2];
+            Assert.assertArrayEquals(firstOutput, registry.fireEnsemble(INPUT, output), 0.0);
+
+            registry.register("second", second);
+            for(int idx = 0; idx < 3; idx++) {
+                registry.fireEnsemble(INPUT, output);
+                for(int idxNode = 0; idxNode < output.length; idxNode++) {
+                    Assert.assertEquals((firstOutput[idxNode] + secondOutput[idxNode]) / 2, output[idxNode], 0.0);
+                }
+            }
+
+            registry.remove("first");
+            Assert.assertArrayEquals(secondOutput, registry.fireEnsemble(INPUT, output), 0.0);
+        }
+    }
+
+    @Test
+    public void register_swapsWithoutBreakingTheCallsInFlight() throws Exception {
+        NeuralNetwork first = new NeuralNetwork(4, new int[][]{{16}}, 2);
+        NeuralNetwork second = new NeuralNetwork(4, new int[][]{{16}}, 2);
+        double[] firstOutput = first.fire(INPUT);
+        double[] secondOutput = second.fire(INPUT);
+
+        ExecutorService clients = Executors.newFixedThreadPool(4);
+        AtomicBoolean swapping = new AtomicBoolean(true);
+
+        try(ModelRegistry registry = new ModelRegistry(2)) {
+            registry.register("model", first);
+
+            List<Future<?>> calls = new ArrayList<>();
+            for(int idxClient = 0; idxClient < 4; idxClient++) {
+                calls.add(clients.submit(() -> {
+                    double[] output = new double[2];
+                    while(swapping.get()) {
+                        registry.fire("model", INPUT, output);
+                        if(!Arrays.equals(output, firstOutput) && !Arrays.equals(output, secondOutput))
+                            throw new AssertionError("Mixed the versions: " + Arrays.toString(output));
+                    }
+                    return null;
+                }));
+            }
+
+            int version = 0;
+            for(int idxSwap = 0; idxSwap < 200; idxSwap++) {
+                version = registry.register("model", idxSwap % 2 == 0 ? second : first);
+            }
+            swapping.set(false);
+
+            for(Future<?> call : calls) {
+                call.get();
+            }
+
+            Assert.assertEquals(201, version);
+            Assert.assertEquals(201, registry.getVersion("model"));
+            Assert.assertArrayEquals(firstOutput, registry.fire("model", INPUT, new double[2]), 0.0);
+        } finally {
+            clients.shutdown();
+        }
+    }
+
+    @Test
+    public void load_mapsTheSavedModel() throws Exception {
+        NeuralNetwork network = new NeuralNetwork(4, new int[][]{{6}}, 2);
+        Path path = folder.getRoot().toPath().resolve("model.nn");
+        ModelFormat.write(network, path);
+
+        try(ModelRegistry registry = new ModelRegistry(2)) {
+            Assert.assertEquals(1, registry.load("mapped", path));
+            registry.register("heap", network);
+
+            InferenceModel mapped = registry.getModel("mapped");
+            Assert.assertArrayEquals(network.fire(INPUT), mapped.fire(INPUT, new double[2]), 1e-12);
+            Assert.assertArrayEquals(network.fire(INPUT), registry.fireEnsemble(INPUT, new double[2]), 1e-12);
+
+            Assert.assertTrue(registry.remove("mapped"));
+            Assert.assertFalse(registry.remove("mapped"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void register_differentOutputNodes() {
+        try(ModelRegistry registry = new ModelRegistry(1)) {
+            registry.register("first", new NeuralNetwork(4, new int[][]{{3}}, 2));
+            registry.register("second", new NeuralNetwork(4, new int[][]{{3}}, 3));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void fireEnsemble_withoutModels() {
+        try(ModelRegistry registry = new ModelRegistry(1)) {
+            registry.fireEnsemble(INPUT, new double[2]);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.boudoux.training;
+
+import com.boudoux.NeuralNetwork;
+import com.boudoux.WeightInitializer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HogwildTrainerTest {
+
+    private static final long SEED = 42L;
+
+    // the four cases of the XOR gate
+    private static final double[][] INPUTS = new double[][]{{0.01, 0.01}, {0.01, 0.99}, {0.99, 0.01}, {0.99, 0.99}};
+
+    private static final double[][] TARGETS = new double[][]{{0.99, 0.01}, {0.01, 0.99}, {0.01, 0.99}, {0.99, 0.01}};
+
+    private static double[][] repeat(double[][] values, int times) {
+        double[][] repeated = new double[values.length * times][];
+        for(int idx = 0; idx < repeated.length; idx++) {
+            repeated[idx] = values[idx % values.length];
+        }
+        return repeated;
+    }
+
+    @Test
+    public void train_learnsAndCountsEverySample() {
+        NeuralNetwork network = new NeuralNetwork(0.3, 2, new int[][]{{8}}, 2);
+        new WeightInitializer(SEED, WeightInitializer.Scheme.BOOK).initialize(network);
+        HogwildTrainer trainer = new HogwildTrainer(network, 4);
+
+        double throughput = trainer.train(repeat(INPUTS, 64), repeat(TARGETS, 64), 200);
+
+        Assert.assertTrue(throughput > 0);
+        Assert.assertEquals(256L * 200, trainer.getTrainedSamples());
+        // the threads race over the weights, so a case may still be on the wrong side of the gate
+        Assert.assertTrue(Evaluation.accuracy(network, INPUTS, TARGETS) >= 0.75);
+    }
+
+    @Test
+    public void compareWithBaseline() {
+        NeuralNetwork seeded = new NeuralNetwork(2, new int[][]{{8}}, 2);
+        new WeightInitializer(SEED, WeightInitializer.Scheme.BOOK).initialize(seeded);
+        double[][][] weights = seeded.getLayerLinkWeights();
+
+        HogwildTrainer.Report report = HogwildTrainer.compareWithBaseline(() -> new NeuralNetwork(2, new int[][]{{8}}, 2, weights), 2,
+                repeat(INPUTS, 32), repeat(TARGETS, 32), INPUTS, TARGETS, 50);
+
+        Assert.assertEquals(2, report.getThreads());
+        Assert.assertTrue(report.getBaselineSamplesPerSecond() > 0);
+        Assert.assertTrue(report.getHogwildSamplesPerSecond() > 0);
+    }
+}
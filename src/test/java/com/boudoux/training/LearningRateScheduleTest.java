@@ -0,0 +1,99 @@
+package com.boudoux.training;
+
+import com.boudoux.Activations;
+import com.boudoux.NeuralNetwork;
+import com.boudoux.data.InMemoryDataset;
+import com.boudoux.optimizer.Adam;
+import com.boudoux.optimizer.Momentum;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class LearningRateScheduleTest {
+
+    @Test
+    public void step() {
+        LearningRateSchedule schedule = LearningRateSchedule.step(2, 0.5);
+
+        Assert.assertEquals(0.4, schedule.rate(0.4, 1), 0.0);
+        Assert.assertEquals(0.4, schedule.rate(0.4, 2), 0.0);
+        Assert.assertEquals(0.2, schedule.rate(0.4, 3), 0.0);
+        Assert.assertEquals(0.1, schedule.rate(0.4, 5), 0.0);
+    }
+
+    @Test
+    public void cosine() {
+        LearningRateSchedule schedule = LearningRateSchedule.cosine(5, 0.1);
+
+        Assert.assertEquals(1.0, schedule.rate(1.0, 1), 1e-15);
+        Assert.assertEquals(0.55, schedule.rate(1.0, 3), 1e-15);
+        Assert.assertEquals(0.1, schedule.rate(1.0, 5), 1e-15);
+        Assert.assertEquals(0.1, schedule.rate(1.0, 9), 1e-15);
+    }
+
+    @Test
+    public void warmup() {
+        LearningRateSchedule schedule = LearningRateSchedule.warmup(3, LearningRateSchedule.step(1, 0.5));
+
+        Assert.assertEquals(0.25, schedule.rate(1.0, 1), 0.0);
+        Assert.assertEquals(0.75, schedule.rate(1.0, 3), 0.0);
+        Assert.assertEquals(1.0, schedule.rate(1.0, 4), 0.0);
+        Assert.assertEquals(0.5, schedule.rate(1.0, 5), 0.0);
+    }
+
+    @Test
+    public void trainingLoop_appliesTheScheduleAndRestoresTheRate() {
+        NeuralNetwork network = new NeuralNetwork(0.4, 2, new int[][]{{3}}, 2);
+        List<Double> rates = new ArrayList<>();
+
+        new TrainingLoop(network).setSchedule(LearningRateSchedule.step(1, 0.5)).setListener(new TrainingListener() {
+            @Override
+            public void onEpochStart(int epoch) {
+                rates.add(network.getLearningRate());
+            }
+        }).train(xorDataset(), 3);
+
+        Assert.assertEquals(Arrays.asList(0.4, 0.2, 0.1), rates);
+        Assert.assertEquals(0.4, network.getLearningRate(), 0.0);
+    }
+
+    @Test
+    public void optimizerReport_comparesAgainstTheBookGradientDescent() {
+        InMemoryDataset dataset = xorDataset();
+        Random random = new Random(1);
+        double[][][] weights = new double[][][]{new double[2][6], new double[6][2]};
+        for(double[][] layer : weights) {
+            for(double[] links : layer) {
+                for(int idx = 0; idx < links.length; idx++) {
+                    links[idx] = random.nextGaussian() * 0.5;
+                }
+            }
+        }
+
+        OptimizerReport report = OptimizerReport.compare(() -> new NeuralNetwork(0.3, Activations.SIGMOID, 2, new int[][]{{6}}, 2, weights),
+                dataset, dataset, 1.0, 5_000, Arrays.asList(
+                        new OptimizerReport.Candidate("momentum", 0.1, Momentum::new),
+                        new OptimizerReport.Candidate("adam", 0.05, Adam::new, LearningRateSchedule.warmup(5, LearningRateSchedule.CONSTANT))));
+
+        Assert.assertEquals(3, report.getEntries().size());
+        Assert.assertEquals(OptimizerReport.SGD, report.getEntries().get(0).getName());
+        for(OptimizerReport.Entry entry : report.getEntries()) {
+            Assert.assertTrue(entry.toString(), entry.isTargetReached());
+            Assert.assertEquals(1.0, entry.getAccuracy(), 0.0);
+        }
+        Assert.assertTrue(report.getEntry("adam").getEpochsToTarget() < report.getEntry(OptimizerReport.SGD).getEpochsToTarget());
+        Assert.assertFalse(Double.isNaN(report.getSpeedup("adam")));
+    }
+
+    // two pixels, the label is 1 when only one of them is set (XOR)
+    private static InMemoryDataset xorDataset() {
+        byte[] labels = new byte[]{0, 1, 1, 0};
+        byte[] pixels = new byte[]{0, 0, 0, (byte) 255, (byte) 255, 0, (byte) 255, (byte) 255};
+
+        return new InMemoryDataset(4, 2, labels, pixels);
+    }
+}
@@ -0,0 +1,94 @@
+package com.boudoux.training;
+
+import com.boudoux.NeuralNetwork;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class ParallelTrainerTest {
+
+    private static final int TOTAL_SAMPLES = 200;
+
+    private final double[][] inputs = new double[TOTAL_SAMPLES][6];
+
+    private final double[][] targets = new double[TOTAL_SAMPLES][3];
+
+    public ParallelTrainerTest() {
+        Random random = new Random(7);
+        for(int idxSample = 0; idxSample < TOTAL_SAMPLES; idxSample++) {
+            for(int idx = 0; idx < 6; idx++) {
+                inputs[idxSample][idx] = random.nextDouble();
+            }
+            for(int idx = 0; idx < 3; idx++) {
+                targets[idxSample][idx] = idx == idxSample % 3 ? 0.99 : 0.01;
+            }
+        }
+    }
+
+    private NeuralNetwork network(double[][][] weights) {
+        NeuralNetwork network = new NeuralNetwork(6, new int[][]{{9}}, 3, weights);
+        network.setBatchSize(50);
+        return network;
+    }
+
+    @Test
+    public void deterministic_sameWeightsRegardlessOfTheParallelism() {
+        double[][][] weights = new NeuralNetwork(6, new int[][]{{9}}, 3).getLayerLinkWeights();
+
+        NeuralNetwork single = network(weights);
+        NeuralNetwork many = network(weights);
+        try(ParallelTrainer singleTrainer = new ParallelTrainer(single, 1, true);
+            ParallelTrainer manyTrainer = new ParallelTrainer(many, 4, true)) {
+            for(int epoch = 0; epoch < 20; epoch++) {
+                singleTrainer.trainBatch(inputs, targets);
+                manyTrainer.trainBatch(inputs, targets);
+            }
+        }
+
+        assertSameWeights(single.getLayerLinkWeights(), many.getLayerLinkWeights(), 0.0);
+    }
+
+    @Test
+    public void deterministic_singleChunkMatchesTrainBatch() {
+        double[][][] weights = new NeuralNetwork(6, new int[][]{{9}}, 3).getLayerLinkWeights();
+
+        NeuralNetwork sequential = network(weights);
+        NeuralNetwork parallel = network(weights);
+        // the trainer does not shut down a pool it was given
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try(ParallelTrainer trainer = new ParallelTrainer(parallel, pool, true, 50)) {
+            sequential.trainBatch(inputs, targets);
+            trainer.trainBatch(inputs, targets);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertSameWeights(sequential.getLayerLinkWeights(), parallel.getLayerLinkWeights(), 0.0);
+    }
+
+    @Test
+    public void nonDeterministic_matchesTrainBatchUpToRounding() {
+        double[][][] weights = new NeuralNetwork(6, new int[][]{{9}}, 3).getLayerLinkWeights();
+
+        NeuralNetwork sequential = network(weights);
+        NeuralNetwork parallel = network(weights);
+        try(ParallelTrainer trainer = new ParallelTrainer(parallel, 4, false)) {
+            for(int epoch = 0; epoch < 20; epoch++) {
+                sequential.trainBatch(inputs, targets);
+                trainer.trainBatch(inputs, targets);
+            }
+        }
+
+        assertSameWeights(sequential.getLayerLinkWeights(), parallel.getLayerLinkWeights(), 1e-12);
+    }
+
+    private static void assertSameWeights(double[][][] expected, double[][][] actual, double delta) {
+        for(int idxLayer = 0; idxLayer < expected.length; idxLayer++) {
+            for(int idxNode = 0; idxNode < expected[idxLayer].length; idxNode++) {
+                Assert.assertArrayEquals(expected[idxLayer][idxNode], actual[idxLayer][idxNode], delta);
+            }
+        }
+    }
+}
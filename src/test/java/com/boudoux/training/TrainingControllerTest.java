@@ -0,0 +1,188 @@
+package com.boudoux.training;
+
+import com.boudoux.Activations;
+import com.boudoux.NeuralNetwork;
+import com.boudoux.data.Dataset;
+import com.boudoux.data.DatasetRange;
+import com.boudoux.data.InMemoryDataset;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+public class TrainingControllerTest {
+
+    // two pixels, the label is 1 when only one of them is set (XOR)
+    private static InMemoryDataset xorDataset(boolean inverted) {
+        byte[] labels = inverted ? new byte[]{1, 0, 0, 1} : new byte[]{0, 1, 1, 0};
+        byte[] pixels = new byte[]{0, 0, 0, (byte) 255, (byte) 255, 0, (byte) 255, (byte) 255};
+
+        return new InMemoryDataset(4, 2, labels, pixels);
+    }
+
+    // 2-6-2 weights drawn from a fixed seed, so the trainings do not depend on the draw
+    private static NeuralNetwork seededNetwork() {
+        Random random = new Random(1);
+        double[][][] weights = new double[][][]{new double[2][6], new double[6][2]};
+        for(double[][] layer : weights) {
+            for(double[] links : layer) {
+                for(int idx = 0; idx < links.length; idx++) {
+                    links[idx] = random.nextGaussian() * 0.5;
+                }
+            }
+        }
+
+        return new NeuralNetwork(0.3, Activations.SIGMOID, 2, new int[][]{{6}}, 2, weights);
+    }
+
+    private static double[] parameters(NeuralNetwork network) {
+        double[] first = network.getLayer(0).getParameters()[0];
+        double[] second = network.getLayer(1).getParameters()[0];
+        double[] parameters = new double[first.length + second.length];
+        System.arraycopy(first, 0, parameters, 0, first.length);
+        System.arraycopy(second, 0, parameters, first.length, second.length);
+
+        return parameters;
+    }
+
+    @Test
+    public void train_stopsOnceTheValidationLossGetsWorse() {
+        // the better the network learns XOR the worse it does on the inverted samples
+        NeuralNetwork network = seededNetwork();
+        TrainingController controller = new TrainingController(network, xorDataset(true))
+                .setEvaluationInterval(5)
+                .setPatience(3, 0.0);
+
+        TrainingLoop loop = new TrainingLoop(network);
+        controller.train(loop, xorDataset(false), 5_000);
+
+        List<TrainingController.Validation> history = controller.getHistory();
+        Assert.assertTrue(loop.isStopped());
+        Assert.assertTrue(history.size() < 5_000 / 5);
+        Assert.assertEquals(5, history.get(0).getEpoch());
+
+        // the stop comes after 3 evaluations in a row without improvement
+        int idxBest = 0;
+        for(int idx = 0; idx < history.size(); idx++) {
+            if(history.get(idx).getEpoch() == controller.getBestEpoch()) {
+                idxBest = idx;
+            }
+        }
+        Assert.assertEquals(history.size() - 1, idxBest + 3);
+        Assert.assertEquals(history.get(idxBest).getLoss(), controller.getBestLoss(), 0.0);
+        for(TrainingController.Validation validation : history) {
+            Assert.assertTrue(validation.getLoss() >= controller.getBestLoss());
+        }
+
+        // the loop gets its listener back
+        Assert.assertSame(TrainingListener.NONE, loop.getListener());
+    }
+
+    @Test
+    public void train_restoresTheBestParameters() {
+        NeuralNetwork network = seededNetwork();
+        TrainingController controller = new TrainingController(network, xorDataset(true)).setPatience(10, 0.0);
+
+        controller.train(new TrainingLoop(network), xorDataset(false), 2_000);
+
+        Assert.assertArrayEquals(parameters(controller.getBestNetwork()), parameters(network), 0.0);
+
+        // it is the checkpoint of the best epoch, retrained from scratch
+        NeuralNetwork retrained = seededNetwork();
+        new TrainingLoop(retrained).train(xorDataset(false), controller.getBestEpoch());
+        Assert.assertArrayEquals(parameters(retrained), parameters(network), 0.0);
+    }
+
+    @Test
+    public void train_keepsTheLastParametersWhenNotRestoring() {
+        NeuralNetwork network = seededNetwork();
+        TrainingController controller = new TrainingController(network, xorDataset(false)).setRestoreBest(false);
+
+        controller.train(new TrainingLoop(network), xorDataset(false), 50);
+
+        NeuralNetwork retrained = seededNetwork();
+        new TrainingLoop(retrained).train(xorDataset(false), 50);
+        Assert.assertArrayEquals(parameters(retrained), parameters(network), 0.0);
+        Assert.assertFalse(controller.getHistory().isEmpty());
+    }
+
+    @Test
+    public void train_asynchronousEvaluatesTheSameSnapshots() {
+        NeuralNetwork synchronous = seededNetwork();
+        NeuralNetwork asynchronous = seededNetwork();
+        TrainingController synchronousController = new TrainingController(synchronous, xorDataset(true))
+                .setEvaluationInterval(5)
+                .setPatience(3, 0.0);
+        TrainingController asynchronousController = new TrainingController(asynchronous, xorDataset(true))
+                .setEvaluationInterval(5)
+                .setPatience(3, 0.0)
+                .setAsynchronous(true);
+
+        synchronousController.train(new TrainingLoop(synchronous), xorDataset(false), 5_000);
+        asynchronousController.train(new TrainingLoop(asynchronous), xorDataset(false), 5_000);
+
+        // the asynchronous stop may come one evaluation later
+        List<TrainingController.Validation> expected = synchronousController.getHistory();
+        List<TrainingController.Validation> actual = asynchronousController.getHistory();
+        Assert.assertTrue(actual.size() >= expected.size() && actual.size() <= expected.size() + 1);
+        for(int idx = 0; idx < expected.size(); idx++) {
+            Assert.assertEquals(expected.get(idx).getEpoch(), actual.get(idx).getEpoch());
+            Assert.assertEquals(expected.get(idx).getLoss(), actual.get(idx).getLoss(), 0.0);
+            Assert.assertEquals(expected.get(idx).getAccuracy(), actual.get(idx).getAccuracy(), 0.0);
+        }
+        Assert.assertEquals(synchronousController.getBestEpoch(), asynchronousController.getBestEpoch());
+        Assert.assertArrayEquals(parameters(synchronous), parameters(asynchronous), 0.0);
+    }
+
+    @Test
+    public void train_forwardsTheEventsToTheLoopListener() {
+        NeuralNetwork network = seededNetwork();
+        final int[] ended = new int[2];
+        TrainingListener listener = new TrainingListener() {
+            @Override
+            public void onEpochEnd(EpochMetrics metrics) {
+                ended[0]++;
+            }
+
+            @Override
+            public void onTrainingEnd() {
+                ended[1]++;
+            }
+        };
+        TrainingLoop loop = new TrainingLoop(network).setListener(listener);
+
+        new TrainingController(network, xorDataset(false)).setEvaluationInterval(3).train(loop, xorDataset(false), 10);
+
+        Assert.assertEquals(10, ended[0]);
+        Assert.assertEquals(1, ended[1]);
+        Assert.assertSame(listener, loop.getListener());
+    }
+
+    @Test
+    public void train_measuresNothingWithoutAListener() {
+        NeuralNetwork network = seededNetwork();
+        InMemoryDataset samples = xorDataset(false);
+        final int[] timed = new int[1];
+        Dataset trainSet = new DatasetRange(samples, 0, samples.size()) {
+            @Override
+            public void copyInput(int idxSample, double[] input) {
+                if(network.getLayerTimer() != null) {
+                    timed[0]++;
+                }
+                super.copyInput(idxSample, input);
+            }
+        };
+
+        TrainingController controller = new TrainingController(network, samples).setEvaluationInterval(2);
+        controller.train(new TrainingLoop(network), trainSet, 10);
+
+        Assert.assertEquals(0, timed[0]);
+        Assert.assertEquals(5, controller.getHistory().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_validationSamplesMustFitTheNetwork() {
+        new TrainingController(new NeuralNetwork(3, new int[][]{{4}}, 2), xorDataset(false));
+    }
+}
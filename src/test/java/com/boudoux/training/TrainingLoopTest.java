@@ -0,0 +1,125 @@
+package com.boudoux.training;
+
+import com.boudoux.LayerTimer;
+import com.boudoux.NeuralNetwork;
+import com.boudoux.data.InMemoryDataset;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TrainingLoopTest {
+
+    // two pixels, the label is 1 when only one of them is set (XOR)
+    private static InMemoryDataset xorDataset() {
+        byte[] labels = new byte[]{0, 1, 1, 0};
+        byte[] pixels = new byte[]{0, 0, 0, (byte) 255, (byte) 255, 0, (byte) 255, (byte) 255};
+
+        return new InMemoryDataset(4, 2, labels, pixels);
+    }
+
+    private static class Recorder implements TrainingListener {
+        final List<EpochMetrics> epochs = new ArrayList<>();
+        int started;
+        boolean ended;
+
+        @Override
+        public void onEpochStart(int epoch) {
+            started++;
+        }
+
+        @Override
+        public void onEpochEnd(EpochMetrics metrics) {
+            epochs.add(metrics);
+        }
+
+        @Override
+        public void onTrainingEnd() {
+            ended = true;
+        }
+    }
+
+    @Test
+    public void train_reportsEachEpoch() {
+        NeuralNetwork network = new NeuralNetwork(0.3, 2, new int[][]{{8}}, 2);
+        InMemoryDataset dataset = xorDataset();
+        double[][] testInputs = new double[4][2];
+        double[][] testTargets = new double[4][2];
+        for(int idxSample = 0; idxSample < 4; idxSample++) {
+            dataset.copyInput(idxSample, testInputs[idxSample]);
+            dataset.copyTarget(idxSample, testTargets[idxSample]);
+        }
+
+        Recorder recorder = new Recorder();
+        new TrainingLoop(network).setListener(recorder).setLayerTimings(true).setTestSet(testInputs, testTargets)
+                .train(dataset, 3_000);
+
+        Assert.assertEquals(3_000, recorder.started);
+        Assert.assertEquals(3_000, recorder.epochs.size());
+        Assert.assertTrue(recorder.ended);
+        Assert.assertNull(network.getLayerTimer());
+
+        EpochMetrics first = recorder.epochs.get(0);
+        EpochMetrics last = recorder.epochs.get(recorder.epochs.size() - 1);
+        Assert.assertEquals(1, first.getEpoch());
+        Assert.assertEquals(4L, last.getSamples());
+        Assert.assertTrue(last.getLoss() < first.getLoss());
+        Assert.assertEquals(1.0, last.getAccuracy(), 0.0);
+        Assert.assertTrue(last.getSamplesPerSecond() > 0);
+        Assert.assertEquals(2, last.getForwardNanosByLayer().length);
+        Assert.assertEquals(last.getForwardNanos(), last.getForwardNanosByLayer()[0] + last.getForwardNanosByLayer()[1]);
+        Assert.assertEquals(last.getBackwardNanos(), last.getBackwardNanosByLayer()[0] + last.getBackwardNanosByLayer()[1]);
+    }
+
+    @Test
+    public void train_withoutListener_doesNotTime() {
+        NeuralNetwork network = new NeuralNetwork(0.3, 2, new int[][]{{8}}, 2);
+        LayerTimer failing = new LayerTimer() {
+            @Override
+            public void forward(int idxLayer, long nanos) {
+                Assert.fail("Unexpected timing");
+            }
+
+            @Override
+            public void backward(int idxLayer, long nanos) {
+                Assert.fail("Unexpected timing");
+            }
+        };
+
+        new TrainingLoop(network).train(xorDataset(), 10);
+
+        network.setLayerTimer(failing);
+        try {
+            new TrainingLoop(network).setListener(new Recorder()).train(xorDataset(), 1);
+        } finally {
+            Assert.assertSame(failing, network.getLayerTimer());
+        }
+    }
+
+    @Test
+    public void metricsSink_csv() {
+        StringWriter writer = new StringWriter();
+        MetricsSink sink = new MetricsSink(writer, MetricsSink.Format.CSV);
+        sink.onEpochEnd(new EpochMetrics(1, 4, 0.25, Double.NaN, 2_000_000_000L, 10, 20, 30, new long[]{1, 2}, new long[]{3, 4}));
+        sink.onEpochEnd(new EpochMetrics(2, 4, 0.125, 0.5, 1_000_000_000L, 10, 20, 30, new long[]{1, 2}, new long[]{3, 4}));
+
+        String[] lines = writer.toString().split("\n");
+        Assert.assertEquals(3, lines.length);
+        Assert.assertEquals("epoch,samples,loss,accuracy,samples_per_second,elapsed_ns,load_ns,forward_ns,backward_ns,"
+                + "forward_ns_layer_0,forward_ns_layer_1,backward_ns_layer_0,backward_ns_layer_1", lines[0]);
+        Assert.assertEquals("1,4,0.250000,,2.000000,2000000000,10,20,30,1,2,3,4", lines[1]);
+        Assert.assertEquals("2,4,0.125000,0.500000,4.000000,1000000000,10,20,30,1,2,3,4", lines[2]);
+    }
+
+    @Test
+    public void metricsSink_jsonLines() {
+        StringWriter writer = new StringWriter();
+        MetricsSink sink = new MetricsSink(writer, MetricsSink.Format.JSON_LINES);
+        sink.onEpochEnd(new EpochMetrics(1, 4, 0.25, Double.NaN, 1_000_000_000L, 10, 20, 30, null, null));
+
+        Assert.assertEquals("{\"epoch\":1,\"samples\":4,\"loss\":0.250000,\"accuracy\":null,\"samples_per_second\":4.000000,"
+                + "\"elapsed_ns\":1000000000,\"load_ns\":10,\"forward_ns\":20,\"backward_ns\":30}\n", writer.toString());
+    }
+}
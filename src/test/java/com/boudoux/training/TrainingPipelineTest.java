@@ -0,0 +1,131 @@
+package com.boudoux.training;
+
+import com.boudoux.Activations;
+import com.boudoux.NeuralNetwork;
+import com.boudoux.data.Dataset;
+import com.boudoux.data.InMemoryDataset;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TrainingPipelineTest {
+
+    // one pixel holding the index of the sample, labelled by its parity
+    private static InMemoryDataset indexDataset(int size) {
+        byte[] labels = new byte[size];
+        byte[] pixels = new byte[size];
+        for(int idx = 0; idx < size; idx++) {
+            labels[idx] = (byte) (idx % 2);
+            pixels[idx] = (byte) idx;
+        }
+
+        return new InMemoryDataset(size, 1, labels, pixels);
+    }
+
+    private static List<Integer> visit(TrainingPipeline pipeline, Dataset dataset) {
+        double[] input = new double[1];
+        List<Integer> visited = new ArrayList<>();
+
+        try {
+            pipeline.start();
+            TrainingPipeline.Batch batch;
+            while((batch = pipeline.take()) != null) {
+                for(int idxSample = 0; idxSample < batch.size(); idxSample++) {
+                    // finds which sample was scaled into this input
+                    for(int idxDataset = 0; idxDataset < dataset.size(); idxDataset++) {
+                        dataset.copyInput(idxDataset, input);
+                        if(input[0] == batch.getInputs()[idxSample][0]) {
+                            Assert.assertEquals(dataset.getLabel(idxDataset) == 0 ? Dataset.TARGET_ON : Dataset.TARGET_OFF,
+                                    batch.getTargets()[idxSample][0], 0.0);
+                            visited.add(idxDataset);
+                            break;
+                        }
+                    }
+                }
+            }
+        } finally {
+            pipeline.close();
+        }
+
+        return visited;
+    }
+
+    @Test
+    public void take_inTheDatasetOrder() {
+        InMemoryDataset dataset = indexDataset(10);
+        TrainingPipeline pipeline = new TrainingPipeline(dataset, 2, 4, 2).setPrefetchDepth(2).setLoaderThreads(3);
+
+        Assert.assertEquals(6L, pipeline.getTotalBatches());
+        Assert.assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9), visit(pipeline, dataset));
+    }
+
+    @Test
+    public void take_shuffledEachEpochWhateverTheLoaders() {
+        InMemoryDataset dataset = indexDataset(50);
+
+        List<Integer> single = visit(new TrainingPipeline(dataset, 2, 8, 3).setShuffle(5L), dataset);
+        List<Integer> many = visit(new TrainingPipeline(dataset, 2, 8, 3).setShuffle(5L).setLoaderThreads(4).setPrefetchDepth(3), dataset);
+
+        Assert.assertEquals(single, many);
+        Assert.assertNotEquals(single.subList(0, 50), single.subList(50, 100));
+        for(int epoch = 0; epoch < 3; epoch++) {
+            List<Integer> sorted = new ArrayList<>(single.subList(epoch * 50, epoch * 50 + 50));
+            sorted.sort(null);
+            for(int idx = 0; idx < 50; idx++) {
+                Assert.assertEquals(idx, sorted.get(idx).intValue());
+            }
+        }
+    }
+
+    @Test
+    public void take_reportsTheEpochs() {
+        try(TrainingPipeline pipeline = new TrainingPipeline(indexDataset(5), 2, 2, 2).start()) {
+            int[] expectedSizes = new int[]{2, 2, 1, 2, 2, 1};
+            int[] expectedEpochs = new int[]{1, 1, 1, 2, 2, 2};
+
+            for(int idxBatch = 0; idxBatch < expectedSizes.length; idxBatch++) {
+                TrainingPipeline.Batch batch = pipeline.take();
+                Assert.assertEquals(expectedSizes[idxBatch], batch.size());
+                Assert.assertEquals(expectedEpochs[idxBatch], batch.getEpoch());
+            }
+            Assert.assertNull(pipeline.take());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void take_failedLoader() {
+        // the targets are too short for the labels
+        try(TrainingPipeline pipeline = new TrainingPipeline(indexDataset(5), 1, 2, 1).start()) {
+            while(pipeline.take() != null) {
+            }
+        }
+    }
+
+    @Test
+    public void trainingLoop_sameWeightsAsTheDataset() {
+        InMemoryDataset dataset = indexDataset(20);
+        NeuralNetwork expected = new NeuralNetwork(0.3, 1, new int[][]{{4}}, 2);
+        NeuralNetwork actual = new NeuralNetwork(0.3, Activations.SIGMOID, 1, new int[][]{{4}}, 2, expected.getLayerLinkWeights());
+
+        new TrainingLoop(expected).train(dataset, 5);
+
+        List<EpochMetrics> epochs = new ArrayList<>();
+        try(TrainingPipeline pipeline = new TrainingPipeline(dataset, 2, 3, 5).setLoaderThreads(2)) {
+            new TrainingLoop(actual).setListener(new TrainingListener() {
+                @Override
+                public void onEpochEnd(EpochMetrics metrics) {
+                    epochs.add(metrics);
+                }
+            }).train(pipeline);
+        }
+
+        Assert.assertTrue(Arrays.deepEquals(expected.getLayerLinkWeights(), actual.getLayerLinkWeights()));
+        Assert.assertEquals(5, epochs.size());
+        for(EpochMetrics metrics : epochs) {
+            Assert.assertEquals(20L, metrics.getSamples());
+        }
+    }
+}